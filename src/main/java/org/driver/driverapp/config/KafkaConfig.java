@@ -1,15 +1,24 @@
 package org.driver.driverapp.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
@@ -29,6 +38,9 @@ public class KafkaConfig {
     public static final String DRIVER_LOCATION_TOPIC = "driver-location";
     public static final String ANALYTICS_EVENT_TOPIC = "analytics-events";
     
+    // Consumer groups
+    public static final String ANALYTICS_EVENT_CONSUMER_GROUP = "analytics-event-aggregator";
+    
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -48,6 +60,36 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory());
     }
     
+    // Analytics events are consumed in batches. Offsets are stored with the aggregates rather than
+    // committed to Kafka, so auto-commit is off and the container never acknowledges.
+    @Bean
+    public ConsumerFactory<String, AnalyticsEventDTO> analyticsEventConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, ANALYTICS_EVENT_CONSUMER_GROUP);
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1000);
+        JsonDeserializer<AnalyticsEventDTO> valueDeserializer = new JsonDeserializer<>(AnalyticsEventDTO.class, false);
+        return new DefaultKafkaConsumerFactory<>(configProps, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(valueDeserializer));
+    }
+    
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, AnalyticsEventDTO> analyticsEventListenerContainerFactory(
+            @Value("${analytics.events.flush-interval-ms:10000}") long flushIntervalMs) {
+        ConcurrentKafkaListenerContainerFactory<String, AnalyticsEventDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(analyticsEventConsumerFactory());
+        factory.setBatchListener(true);
+        // One consumer thread per instance owns the in-memory windows
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(flushIntervalMs);
+        return factory;
+    }
+    
     // Topic definitions
     @Bean
     public NewTopic notificationTopic() {
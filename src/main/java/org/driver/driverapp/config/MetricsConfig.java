@@ -21,10 +21,39 @@ public class MetricsConfig {
     public static final String DRIVER_UPTIME_TIMER = "driver_uptime_seconds";
     public static final String DELIVERY_DURATION_TIMER = "delivery_duration_seconds";
     public static final String PAYMENT_PROCESSING_TIMER = "payment_processing_seconds";
+    public static final String PAYMENT_BULKHEAD_REJECTED_COUNTER = "payment_bulkhead_rejected_total";
+    public static final String PAYMENT_BULKHEAD_AVAILABLE_GAUGE = "payment_bulkhead_available_permits";
+    public static final String PAYMENT_BULKHEAD_LIMIT_GAUGE = "payment_bulkhead_limit";
+    public static final String PAYMENT_CIRCUIT_STATE_GAUGE = "payment_circuit_state";
+    public static final String PAYMENT_CIRCUIT_REJECTED_COUNTER = "payment_circuit_rejected_total";
+    public static final String PAYMENT_ERROR_RATE_GAUGE = "payment_provider_error_rate";
+    public static final String PAYMENT_RECONCILED_COUNTER = "payment_reconciled_total";
+    public static final String PAYMENT_RECONCILIATION_MISMATCH_COUNTER = "payment_reconciliation_mismatch_total";
+    public static final String PAYMENT_CONFIRMATION_BACKLOG_GAUGE = "payment_confirmation_backlog";
+    public static final String PAYMENT_CONFIRMATION_POLLED_COUNTER = "payment_confirmation_polled_total";
+    public static final String PAYMENT_CONFIRMATION_THROUGHPUT_GAUGE = "payment_confirmation_throughput";
+    public static final String IDEMPOTENCY_REPLAYED_COUNTER = "idempotency_replayed_total";
+    public static final String IDEMPOTENCY_CONFLICT_COUNTER = "idempotency_conflict_total";
+    public static final String WALLET_SHARD_BATCH_SIZE_SUMMARY = "wallet_shard_batch_size";
+    public static final String WALLET_SHARD_BORROW_COUNTER = "wallet_shard_borrow_total";
+    public static final String WALLET_TRANSFER_LEGS_COUNTER = "wallet_transfer_legs_total";
+    public static final String DRIVER_PAYOUT_COUNTER = "driver_payout_total";
     public static final String NOTIFICATION_SENT_COUNTER = "notification_sent_total";
     public static final String AUDIT_LOG_CREATED_COUNTER = "audit_log_created_total";
+    public static final String AUDIT_LOG_QUEUE_DEPTH_GAUGE = "audit_log_queue_depth";
+    public static final String AUDIT_LOG_QUEUE_OVERFLOW_COUNTER = "audit_log_queue_overflow_total";
+    public static final String AUDIT_LOG_DROPPED_COUNTER = "audit_log_dropped_total";
+    public static final String AUDIT_LOG_FLUSH_TIMER = "audit_log_flush_duration_seconds";
+    public static final String AUDIT_LOG_ARCHIVED_COUNTER = "audit_log_archived_total";
     public static final String CACHE_HIT_COUNTER = "cache_hit_total";
     public static final String CACHE_MISS_COUNTER = "cache_miss_total";
+    public static final String ANALYTICS_ROLLUP_MISMATCH_COUNTER = "analytics_rollup_mismatch_total";
+    public static final String ANALYTICS_EVENT_FLUSH_FAILED_COUNTER = "analytics_event_flush_failed_total";
+    public static final String ANALYTICS_EVENT_DROPPED_COUNTER = "analytics_event_dropped_total";
+    public static final String COMPLIANCE_SCORE_BATCH_SCORED_COUNTER = "compliance_score_batch_scored_total";
+    public static final String COMPLIANCE_SCORE_BATCH_PROGRESS_GAUGE = "compliance_score_batch_progress";
+    public static final String COMPLIANCE_SCORE_BATCH_THROUGHPUT_GAUGE = "compliance_score_batch_throughput";
+    public static final String COMPLIANCE_SCORE_BATCH_DURATION_TIMER = "compliance_score_batch_duration_seconds";
     
     @Bean
     public TimedAspect timedAspect(MeterRegistry registry) {
@@ -87,13 +116,6 @@ public class MetricsConfig {
                 .register(registry);
     }
     
-    @Bean
-    public Timer paymentProcessingTimer(MeterRegistry registry) {
-        return Timer.builder(PAYMENT_PROCESSING_TIMER)
-                .description("Payment processing duration")
-                .register(registry);
-    }
-    
     @Bean
     public Counter notificationSentCounter(MeterRegistry registry) {
         return Counter.builder(NOTIFICATION_SENT_COUNTER)
@@ -1,41 +1,82 @@
 package org.driver.driverapp.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.driver.driverapp.enums.PaymentProvider;
 import org.driver.driverapp.service.payment.GenericPaymentService;
+import org.driver.driverapp.service.payment.HttpPaymentProviderService;
 import org.driver.driverapp.service.payment.PaymentProviderService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class PaymentConfig {
 
+    // When set, providers are called over HTTP (e.g. the local payment provider simulator) instead of the in-JVM stubs
+    @Value("${payment.provider.base-url:}")
+    private String providerBaseUrl;
+
+    @Value("${payment.provider.connect-timeout-ms:2000}")
+    private long connectTimeoutMillis;
+
+    @Value("${payment.provider.request-timeout-ms:10000}")
+    private long requestTimeoutMillis;
+
+    private final ObjectMapper objectMapper;
+    private HttpClient httpClient;
+
+    public PaymentConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
     @Bean("telebirrPaymentService")
     public PaymentProviderService telebirrPaymentService() {
-        return new GenericPaymentService(PaymentProvider.TELEBIRR);
+        return provider(PaymentProvider.TELEBIRR);
     }
 
     @Bean("cbeBirrPaymentService")
     public PaymentProviderService cbeBirrPaymentService() {
-        return new GenericPaymentService(PaymentProvider.CBE_BIRR);
+        return provider(PaymentProvider.CBE_BIRR);
     }
 
     @Bean("amolePaymentService")
     public PaymentProviderService amolePaymentService() {
-        return new GenericPaymentService(PaymentProvider.AMOLE);
+        return provider(PaymentProvider.AMOLE);
     }
 
     @Bean("hellocashPaymentService")
     public PaymentProviderService hellocashPaymentService() {
-        return new GenericPaymentService(PaymentProvider.HELLOCASH);
+        return provider(PaymentProvider.HELLOCASH);
     }
 
     @Bean("mBirrPaymentService")
     public PaymentProviderService mBirrPaymentService() {
-        return new GenericPaymentService(PaymentProvider.M_BIRR);
+        return provider(PaymentProvider.M_BIRR);
     }
 
     @Bean("cashPaymentService")
     public PaymentProviderService cashPaymentService() {
-        return new GenericPaymentService(PaymentProvider.CASH);
+        return provider(PaymentProvider.CASH);
+    }
+
+    private PaymentProviderService provider(PaymentProvider provider) {
+        if (providerBaseUrl == null || providerBaseUrl.isBlank()) {
+            return new GenericPaymentService(provider);
+        }
+        return new HttpPaymentProviderService(provider, httpClient(), objectMapper, providerBaseUrl,
+                Duration.ofMillis(requestTimeoutMillis));
+    }
+
+    // One client, and so one connection pool, shared by every provider
+    private synchronized HttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                    .build();
+        }
+        return httpClient;
     }
 }
@@ -2,10 +2,14 @@ package org.driver.driverapp.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
 import org.driver.driverapp.dto.analytics.request.CreateAnalyticsRecordRequestDTO;
 import org.driver.driverapp.dto.analytics.response.*;
 import org.driver.driverapp.enums.AnalyticsRecordType;
 import org.driver.driverapp.service.AnalyticsService;
+import org.driver.driverapp.service.analytics.AnalyticsEventAggregationService;
+import org.driver.driverapp.service.analytics.AnalyticsEventPublisher;
+import org.driver.driverapp.service.analytics.AnalyticsRollupJob;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -14,7 +18,10 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/analytics")
@@ -23,6 +30,9 @@ import java.time.LocalDate;
 public class AnalyticsController {
     
     private final AnalyticsService analyticsService;
+    private final AnalyticsRollupJob analyticsRollupJob;
+    private final AnalyticsEventPublisher analyticsEventPublisher;
+    private final AnalyticsEventAggregationService analyticsEventAggregationService;
     
     // Analytics Record Management
     @PostMapping("/records")
@@ -52,6 +62,29 @@ public class AnalyticsController {
         return ResponseEntity.ok(response);
     }
     
+    // Analytics Events
+    @PostMapping("/events")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> publishAnalyticsEvent(@Valid @RequestBody AnalyticsEventDTO event) {
+        log.debug("Publishing analytics event: type={}, name={}", event.getType(), event.getName());
+        analyticsEventPublisher.publish(event);
+        return ResponseEntity.accepted().body(Map.of(
+                "type", event.getType(),
+                "name", event.getName(),
+                "status", "ACCEPTED"));
+    }
+    
+    @GetMapping("/events/aggregates")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<AnalyticsEventAggregateResponseDTO>> getAnalyticsEventAggregates(
+            @RequestParam AnalyticsRecordType type,
+            @RequestParam String name,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        log.info("Getting analytics event aggregates: type={}, name={}, from={}, to={}", type, name, from, to);
+        return ResponseEntity.ok(analyticsEventAggregationService.getAggregates(type, name, from, to));
+    }
+    
     // Admin Dashboard Analytics
     @GetMapping("/admin/summary")
     @PreAuthorize("hasRole('ADMIN')")
@@ -112,5 +145,27 @@ public class AnalyticsController {
         ComplianceReportDTO response = analyticsService.getComplianceReport(startDate, endDate);
         return ResponseEntity.ok(response);
     }
+    
+    // Rollup maintenance
+    @PostMapping("/rollups/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> backfillRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        
+        log.info("Starting analytics rollup backfill from {} to {}", fromDate, toDate);
+        analyticsRollupJob.backfill(fromDate, toDate);
+        return ResponseEntity.accepted().body(Map.of(
+                "fromDate", fromDate,
+                "toDate", toDate,
+                "status", "STARTED"));
+    }
+    
+    @PostMapping("/rollups/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reconcileRollups() {
+        log.info("Reconciling recent analytics rollups");
+        int repairedDays = analyticsRollupJob.reconcileRecentDays();
+        return ResponseEntity.ok(Map.of("repairedDays", repairedDays));
+    }
 }
-
@@ -4,9 +4,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.driver.driverapp.dto.audit.request.CreateAuditLogRequestDTO;
 import org.driver.driverapp.dto.audit.response.AuditLogResponseDTO;
+import org.driver.driverapp.dto.audit.response.AuditStateResponseDTO;
 import org.driver.driverapp.enums.AuditAction;
 import org.driver.driverapp.enums.AuditEntityType;
 import org.driver.driverapp.service.AuditLogService;
+import org.driver.driverapp.service.audit.AuditArchiveJob;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -27,9 +29,11 @@ import java.util.Map;
 public class AuditController {
     
     private final AuditLogService auditLogService;
+    private final AuditArchiveJob auditArchiveJob;
     
     /**
-     * Create a new audit log entry
+     * Create a new audit log entry: 201 with the entry when it is written at once, 202 without a
+     * body when it is queued
      */
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -38,6 +42,10 @@ public class AuditController {
                 request.getEntityType(), request.getEntityId(), request.getAction());
         
         AuditLogResponseDTO response = auditLogService.createAuditLog(request);
+        // Entries written asynchronously have no id yet, so there is nothing to return but the request
+        if (response.getId() == null) {
+            return ResponseEntity.accepted().build();
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
     
@@ -56,6 +64,23 @@ public class AuditController {
         return ResponseEntity.ok(auditLogs);
     }
     
+    /**
+     * Reconstruct an entity's state at a version of its audit history
+     */
+    @GetMapping("/entity/{entityType}/{entityId}/state")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AuditStateResponseDTO> getEntityState(
+            @PathVariable AuditEntityType entityType,
+            @PathVariable Long entityId,
+            @RequestParam(required = false) Integer version) {
+        
+        log.info("Reconstructing entity state: type={}, id={}, version={}", entityType, entityId, version);
+        
+        return auditLogService.reconstructState(entityType, entityId, version)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * Get audit logs by user
      */
@@ -145,5 +170,15 @@ public class AuditController {
                 "status", "implemented"
         ));
     }
+    
+    /**
+     * Move audit logs older than the retention period to the archive in the background
+     */
+    @PostMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> archiveAuditLogs() {
+        log.info("Starting audit log archive run");
+        auditArchiveJob.start();
+        return ResponseEntity.accepted().body(Map.of("status", "STARTED"));
+    }
 }
-
@@ -2,7 +2,13 @@ package org.driver.driverapp.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.audit.response.ComplianceScoreResponseDTO;
+import org.driver.driverapp.enums.ComplianceScope;
 import org.driver.driverapp.service.ComplianceScoringService;
+import org.driver.driverapp.service.compliance.ComplianceBucketJob;
+import org.driver.driverapp.service.compliance.ComplianceScoreBatchJob;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -10,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Map;
 
 @RestController
@@ -19,6 +26,8 @@ import java.util.Map;
 public class ComplianceController {
     
     private final ComplianceScoringService complianceScoringService;
+    private final ComplianceBucketJob complianceBucketJob;
+    private final ComplianceScoreBatchJob complianceScoreBatchJob;
     
     /**
      * Get driver compliance score
@@ -132,5 +141,67 @@ public class ComplianceController {
         
         return ResponseEntity.ok(thresholds);
     }
+    
+    /**
+     * Get the latest nightly score of a driver or partner; a partner may only read its own
+     */
+    @GetMapping("/scores/{scope}/{subjectId}")
+    @PreAuthorize("hasRole('PARTNER') and #scope.name() == 'PARTNER' and #subjectId == authentication.principal.partnerId " +
+            "or hasRole('ADMIN')")
+    public ResponseEntity<ComplianceScoreResponseDTO> getLatestScore(
+            @PathVariable ComplianceScope scope,
+            @PathVariable Long subjectId) {
+        
+        log.info("Getting latest compliance score for {} {}", scope, subjectId);
+        
+        return complianceScoringService.getLatestScore(scope, subjectId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Get the latest nightly scores of a scope, lowest first
+     */
+    @GetMapping("/scores/{scope}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<ComplianceScoreResponseDTO>> getLatestScores(
+            @PathVariable ComplianceScope scope,
+            Pageable pageable) {
+        
+        log.info("Getting latest compliance scores for {}", scope);
+        
+        return ResponseEntity.ok(complianceScoringService.getLatestScores(scope, pageable));
+    }
+    
+    /**
+     * Score every driver and partner for a day in the background
+     */
+    @PostMapping("/scores/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> startScoreBatch(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate scoreDate) {
+        
+        log.info("Starting compliance score batch run for {}", scoreDate);
+        complianceScoreBatchJob.start(scoreDate);
+        return ResponseEntity.accepted().body(Map.of(
+                "scoreDate", scoreDate,
+                "status", "STARTED"));
+    }
+    
+    /**
+     * Rebuild compliance action buckets from the audit log for past days
+     */
+    @PostMapping("/buckets/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> backfillBuckets(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        
+        log.info("Starting compliance bucket backfill from {} to {}", fromDate, toDate);
+        complianceBucketJob.backfill(fromDate, toDate);
+        return ResponseEntity.accepted().body(Map.of(
+                "fromDate", fromDate,
+                "toDate", toDate,
+                "status", "STARTED"));
+    }
 }
-
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.driver.driverapp.dto.delivery.request.CreateDeliveryRequestDTO;
 import org.driver.driverapp.dto.delivery.request.ProofOfDeliveryDTO;
+import org.driver.driverapp.dto.delivery.request.UpdateDeliveryStatusRequestDTO;
 import org.driver.driverapp.dto.delivery.response.DeliveryResponseDTO;
 import org.driver.driverapp.dto.delivery.response.ProofOfDeliveryResponseDTO;
 import org.driver.driverapp.service.DeliveryService;
@@ -46,6 +47,14 @@ public class DeliveryController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // 🔄 Update delivery status
+    @PreAuthorize("hasAnyRole('ADMIN', 'DRIVER', 'PARTNER')")
+    @PatchMapping("/{id}/status")
+    public ResponseEntity<DeliveryResponseDTO> updateDeliveryStatus(@PathVariable Long id,
+                                                                    @RequestBody @Valid UpdateDeliveryStatusRequestDTO dto) {
+        return ResponseEntity.ok(deliveryService.updateStatus(id, dto.getStatus(), dto.getMessage()));
+    }
+
     // ❌ Delete delivery
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
@@ -3,21 +3,26 @@ package org.driver.driverapp.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.driver.driverapp.dto.driver.request.ProcessPayoutRequestDTO;
+import org.driver.driverapp.dto.driver.response.DriverDailyEarningDTO;
 import org.driver.driverapp.dto.driver.response.DriverEarningResponseDTO;
+import org.driver.driverapp.dto.driver.response.DriverPayoutRunResultDTO;
 import org.driver.driverapp.enums.PayoutStatus;
 import org.driver.driverapp.service.DriverEarningService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
 @Slf4j
@@ -48,11 +53,11 @@ public class DriverEarningController {
 
     @PostMapping("/payout/all")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<Void> processAllPendingPayouts() {
+    public ResponseEntity<DriverPayoutRunResultDTO> processAllPendingPayouts() {
         log.info("Processing all pending payouts");
         
-        driverEarningService.processAllPendingPayouts();
-        return ResponseEntity.ok().build();
+        DriverPayoutRunResultDTO response = driverEarningService.processAllPendingPayouts();
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/{id}")
@@ -103,16 +108,39 @@ public class DriverEarningController {
 
     @GetMapping("/driver/{driverId}/total")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<BigDecimal> getTotalEarningsByDriver(@PathVariable Long driverId) {
+    public ResponseEntity<BigDecimal> getTotalEarningsByDriver(@PathVariable Long driverId, WebRequest request) {
+        String etag = earningsETag(driverId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         BigDecimal total = driverEarningService.getTotalEarningsByDriver(driverId);
-        return ResponseEntity.ok(total);
+        return revalidated(etag).body(total);
     }
 
     @GetMapping("/driver/{driverId}/pending")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<BigDecimal> getPendingEarningsByDriver(@PathVariable Long driverId) {
+    public ResponseEntity<BigDecimal> getPendingEarningsByDriver(@PathVariable Long driverId, WebRequest request) {
+        String etag = earningsETag(driverId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         BigDecimal pending = driverEarningService.getPendingEarningsByDriver(driverId);
-        return ResponseEntity.ok(pending);
+        return revalidated(etag).body(pending);
+    }
+
+    @GetMapping("/driver/{driverId}/daily")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<List<DriverDailyEarningDTO>> getDailyEarningsByDriver(
+            @PathVariable Long driverId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            WebRequest request) {
+        String etag = earningsETag(driverId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<DriverDailyEarningDTO> response = driverEarningService.getDailyEarningsByDriver(driverId, fromDate, toDate);
+        return revalidated(etag).body(response);
     }
 
     @GetMapping("/status/{payoutStatus}/total")
@@ -136,8 +164,23 @@ public class DriverEarningController {
     public ResponseEntity<List<DriverEarningResponseDTO>> getEarningsByDriverAndDateRange(
             @PathVariable Long driverId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            WebRequest request) {
+        String etag = earningsETag(driverId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<DriverEarningResponseDTO> response = driverEarningService.getEarningsByDriverAndDateRange(driverId, startDate, endDate);
-        return ResponseEntity.ok(response);
+        return revalidated(etag).body(response);
+    }
+
+    // Read before the response, so a change made meanwhile leaves the client with an older ETag and a fresh body
+    private String earningsETag(Long driverId) {
+        return driverId + "-" + driverEarningService.getEarningsRevision(driverId);
+    }
+
+    // Clients may keep the response but must revalidate it before every use
+    private static ResponseEntity.BodyBuilder revalidated(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
     }
 }
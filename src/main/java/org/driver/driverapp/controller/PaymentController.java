@@ -4,10 +4,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.driver.driverapp.dto.payment.request.ConfirmPaymentRequestDTO;
 import org.driver.driverapp.dto.payment.request.InitiatePaymentRequestDTO;
+import org.driver.driverapp.dto.payment.response.PaymentProviderHealthDTO;
 import org.driver.driverapp.dto.payment.response.PaymentResponseDTO;
 import org.driver.driverapp.enums.PaymentProvider;
 import org.driver.driverapp.enums.PaymentStatus;
 import org.driver.driverapp.service.PaymentService;
+import org.driver.driverapp.service.idempotency.IdempotencyStore;
+import org.driver.driverapp.service.payment.PaymentReconciliationJob;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
@@ -19,8 +22,11 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -29,31 +35,39 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentReconciliationJob paymentReconciliationJob;
+    private final IdempotencyStore idempotencyStore;
 
     @PostMapping("/initiate")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<PaymentResponseDTO> initiatePayment(@Valid @RequestBody InitiatePaymentRequestDTO requestDTO) {
+    public CompletableFuture<ResponseEntity<PaymentResponseDTO>> initiatePayment(
+            @Valid @RequestBody InitiatePaymentRequestDTO requestDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
         log.info("Initiating payment for delivery: {}, provider: {}", requestDTO.getDeliveryId(), requestDTO.getProvider());
         
-        PaymentResponseDTO response = paymentService.initiatePayment(
-                requestDTO.getDeliveryId(), // Using deliveryId as userId for now
-                requestDTO.getDeliveryId(),
-                requestDTO.getProvider(),
-                requestDTO.getAmount(),
-                requestDTO.getPhoneNumber(),
-                requestDTO.getDescription()
-        );
-        
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        // The request thread is released while the provider is called; a retry with the same key is
+        // answered with the first response instead of charging again, unless every provider failed
+        return idempotencyStore.executeAsync("payment-initiate:" + principal.getName(), idempotencyKey, requestDTO,
+                PaymentResponseDTO.class, response -> response.getStatus() != PaymentStatus.FAILED,
+                () -> paymentService.initiatePayment(
+                        requestDTO.getDeliveryId(), // Using deliveryId as userId for now
+                        requestDTO.getDeliveryId(),
+                        requestDTO.getProvider(),
+                        requestDTO.getFallbackProviders(),
+                        requestDTO.getAmount(),
+                        requestDTO.getPhoneNumber(),
+                        requestDTO.getDescription()
+                )).thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
     }
 
     @PostMapping("/confirm")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<PaymentResponseDTO> confirmPayment(@Valid @RequestBody ConfirmPaymentRequestDTO requestDTO) {
+    public CompletableFuture<ResponseEntity<PaymentResponseDTO>> confirmPayment(@Valid @RequestBody ConfirmPaymentRequestDTO requestDTO) {
         log.info("Confirming payment with transaction ref: {}", requestDTO.getTransactionRef());
         
-        PaymentResponseDTO response = paymentService.confirmPayment(requestDTO.getTransactionRef());
-        return ResponseEntity.ok(response);
+        return paymentService.confirmPayment(requestDTO.getTransactionRef())
+                .thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/{id}")
@@ -155,4 +169,22 @@ public class PaymentController {
         List<PaymentProvider> providers = paymentService.getSupportedProviders();
         return ResponseEntity.ok(providers);
     }
+
+    @GetMapping("/providers/health")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<List<PaymentProviderHealthDTO>> getProviderHealth() {
+        return ResponseEntity.ok(paymentService.getProviderHealth());
+    }
+
+    /**
+     * Reconcile a provider settlement file from the inbox directory in the background
+     */
+    @PostMapping("/reconciliation")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reconcileSettlementFile(@RequestParam PaymentProvider provider,
+                                                                       @RequestParam String fileName) {
+        log.info("Starting payment reconciliation of {} settlement file {}", provider, fileName);
+        paymentReconciliationJob.start(provider, fileName);
+        return ResponseEntity.accepted().body(Map.of("status", "STARTED"));
+    }
 }
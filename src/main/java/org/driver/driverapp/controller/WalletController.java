@@ -2,23 +2,36 @@ package org.driver.driverapp.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.wallet.request.BulkTransferRequestDTO;
 import org.driver.driverapp.dto.wallet.request.CreditWalletRequestDTO;
 import org.driver.driverapp.dto.wallet.request.DebitWalletRequestDTO;
+import org.driver.driverapp.dto.wallet.response.BulkTransferResponseDTO;
 import org.driver.driverapp.dto.wallet.response.WalletResponseDTO;
+import org.driver.driverapp.dto.wallet.response.WalletTransactionPageDTO;
 import org.driver.driverapp.dto.wallet.response.WalletTransactionResponseDTO;
 import org.driver.driverapp.enums.TransactionType;
 import org.driver.driverapp.enums.WalletOwnerType;
 import org.driver.driverapp.service.WalletService;
+import org.driver.driverapp.service.idempotency.IdempotencyStore;
+import org.driver.driverapp.service.wallet.WalletStatementExporter;
+import org.driver.driverapp.service.wallet.WalletTransferService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Instant;
 import java.util.List;
 
 @Slf4j
@@ -28,6 +41,9 @@ import java.util.List;
 public class WalletController {
 
     private final WalletService walletService;
+    private final WalletTransferService walletTransferService;
+    private final WalletStatementExporter walletStatementExporter;
+    private final IdempotencyStore idempotencyStore;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
@@ -43,19 +59,52 @@ public class WalletController {
 
     @PostMapping("/credit")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<WalletResponseDTO> creditWallet(@Valid @RequestBody CreditWalletRequestDTO requestDTO) {
+    public ResponseEntity<WalletResponseDTO> creditWallet(
+            @Valid @RequestBody CreditWalletRequestDTO requestDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
         log.info("Crediting wallet for owner: {}, type: {}", requestDTO.getOwnerId(), requestDTO.getOwnerType());
         
-        WalletResponseDTO response = walletService.creditWallet(requestDTO);
+        WalletResponseDTO response = idempotencyStore.execute("wallet-credit:" + principal.getName(), idempotencyKey,
+                requestDTO, WalletResponseDTO.class, () -> walletService.creditWallet(requestDTO));
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/debit")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<WalletResponseDTO> debitWallet(@Valid @RequestBody DebitWalletRequestDTO requestDTO) {
+    public ResponseEntity<WalletResponseDTO> debitWallet(
+            @Valid @RequestBody DebitWalletRequestDTO requestDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
         log.info("Debiting wallet for owner: {}, type: {}", requestDTO.getOwnerId(), requestDTO.getOwnerType());
         
-        WalletResponseDTO response = walletService.debitWallet(requestDTO);
+        WalletResponseDTO response = idempotencyStore.execute("wallet-debit:" + principal.getName(), idempotencyKey,
+                requestDTO, WalletResponseDTO.class, () -> walletService.debitWallet(requestDTO));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/transfers")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<BulkTransferResponseDTO> transfer(
+            @Valid @RequestBody BulkTransferRequestDTO requestDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
+        log.info("Applying bulk transfer of {} legs", requestDTO.getLegs().size());
+
+        BulkTransferResponseDTO response = idempotencyStore.execute("wallet-transfer:" + principal.getName(),
+                idempotencyKey, requestDTO, BulkTransferResponseDTO.class,
+                () -> walletTransferService.transfer(requestDTO));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{id}/shards")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<WalletResponseDTO> enableSharding(
+            @PathVariable Long id,
+            @RequestParam int count) {
+        log.info("Sharding wallet {} into {} shards", id, count);
+
+        WalletResponseDTO response = walletService.enableSharding(id, count);
         return ResponseEntity.ok(response);
     }
 
@@ -98,6 +147,35 @@ public class WalletController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/{walletId}/history")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<WalletTransactionPageDTO> getWalletTransactionHistory(
+            @PathVariable Long walletId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        WalletTransactionPageDTO response = walletService.getWalletTransactionHistory(walletId, cursor, size);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{walletId}/statement")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public void exportStatement(
+            @PathVariable Long walletId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "CSV") WalletStatementExporter.Format format,
+            HttpServletResponse response) throws IOException {
+        log.info("Exporting statement of wallet {} from {} to {} as {}", walletId, from, to, format);
+
+        // Written straight to the response as rows are read, rather than built in memory
+        boolean csv = format == WalletStatementExporter.Format.CSV;
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"wallet-" + walletId
+                + "-statement." + (csv ? "csv" : "jsonl") + "\"");
+        walletStatementExporter.export(walletId, from, to, format, response.getOutputStream());
+    }
+
     @GetMapping("/{walletId}/transactions/{transactionType}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
     public ResponseEntity<List<WalletTransactionResponseDTO>> getWalletTransactionsByType(
@@ -107,6 +185,16 @@ public class WalletController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/transactions/feed")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<WalletTransactionPageDTO> getTransactionFeed(
+            @RequestParam(required = false) TransactionType transactionType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        WalletTransactionPageDTO response = walletService.getTransactionFeed(transactionType, cursor, size);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/transactions/recent")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
     public ResponseEntity<List<WalletTransactionResponseDTO>> getRecentTransactions() {
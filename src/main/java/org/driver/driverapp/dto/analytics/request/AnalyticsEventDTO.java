@@ -0,0 +1,39 @@
+package org.driver.driverapp.dto.analytics.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A single analytics event as accepted by the API and carried on the analytics-events topic.
+ * Events are never stored individually; they are folded into per-window aggregates.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsEventDTO {
+
+    @NotNull(message = "Type is required")
+    private AnalyticsRecordType type;
+
+    @NotBlank(message = "Name is required")
+    @Size(max = 100, message = "Name must not exceed 100 characters")
+    private String name;
+
+    private Long entityId;
+
+    // Optional measurement; events without a value only contribute to the count
+    private BigDecimal value;
+
+    // Event time; defaults to the time the event is published
+    private Instant occurredAt;
+}
@@ -0,0 +1,26 @@
+package org.driver.driverapp.dto.analytics.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsEventAggregateResponseDTO {
+
+    private AnalyticsRecordType type;
+    private String name;
+    private Instant windowStart;
+    private Instant windowEnd;
+    private long eventCount;
+    private BigDecimal valueSum;
+    private BigDecimal valueMin;
+    private BigDecimal valueMax;
+}
@@ -38,8 +38,14 @@ public class PartnerAnalyticsSummaryDTO {
     
     // Performance metrics
     private BigDecimal averageOrderValue;
+    // Customers in the date range; totalCustomers is a HyperLogLog estimate (about 1.6% error)
     private Long totalCustomers;
     private Long repeatCustomers;
+    // Approximate percentiles over deliveries created in the date range
+    private Double deliveryMinutesP50;
+    private Double deliveryMinutesP95;
+    private BigDecimal orderValueP50;
+    private BigDecimal orderValueP95;
     
     // Date range
     private LocalDate fromDate;
@@ -31,6 +31,8 @@ public class CreateAuditLogRequestDTO {
     
     private String afterSnapshot;
     
+    private String snapshotDiff;
+    
     private String changesSummary;
     
     private String ipAddress;
@@ -23,6 +23,7 @@ public class AuditLogResponseDTO {
     private String userEmail;
     private String beforeSnapshot;
     private String afterSnapshot;
+    private String snapshotDiff;
     private String changesSummary;
     private String ipAddress;
     private String userAgent;
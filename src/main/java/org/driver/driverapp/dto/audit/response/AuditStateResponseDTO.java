@@ -0,0 +1,26 @@
+package org.driver.driverapp.dto.audit.response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditStateResponseDTO {
+    
+    private AuditEntityType entityType;
+    private Long entityId;
+    private Integer version;
+    private Long auditLogId;
+    private AuditAction action;
+    private Instant asOf;
+    private JsonNode state;
+}
@@ -0,0 +1,27 @@
+package org.driver.driverapp.dto.audit.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.ComplianceScope;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComplianceScoreResponseDTO {
+    
+    private ComplianceScope scope;
+    private Long subjectId;
+    private LocalDate scoreDate;
+    private Integer windowDays;
+    private Long actionCount;
+    private BigDecimal score;
+    private String status;
+    private Instant computedAt;
+}
@@ -0,0 +1,22 @@
+package org.driver.driverapp.dto.delivery.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.DeliveryStatus;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateDeliveryStatusRequestDTO {
+
+    @NotNull(message = "Delivery status is required")
+    private DeliveryStatus status;
+
+    @Size(max = 255)
+    private String message;
+}
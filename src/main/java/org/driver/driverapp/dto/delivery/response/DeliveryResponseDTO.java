@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Data;
 import org.driver.driverapp.dto.partner.PartnerDTO;
 import org.driver.driverapp.dto.driver.DriverResponseDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
 
 import java.time.OffsetDateTime;
 
@@ -19,6 +20,8 @@ public class DeliveryResponseDTO {
 
     private DriverResponseDTO driver;
 
+    private DeliveryStatus status;
+
     private OffsetDateTime createdAt;
     private OffsetDateTime deliveredAt;
 
@@ -0,0 +1,24 @@
+package org.driver.driverapp.dto.driver.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverDailyEarningDTO {
+
+    private LocalDate date;
+    private long earningCount;
+    private BigDecimal totalAmount;
+    private BigDecimal pendingAmount;
+    private BigDecimal processingAmount;
+    private BigDecimal paidAmount;
+    private BigDecimal failedAmount;
+}
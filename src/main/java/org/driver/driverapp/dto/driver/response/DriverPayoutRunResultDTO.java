@@ -0,0 +1,23 @@
+package org.driver.driverapp.dto.driver.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverPayoutRunResultDTO {
+
+    private String runId;
+    // Drivers paid in this run, including those resumed from runs that stopped before finishing
+    private int drivers;
+    private int resumed;
+    private int completed;
+    private int failed;
+    private BigDecimal amountPaid;
+}
@@ -11,6 +11,8 @@ import lombok.NoArgsConstructor;
 import org.driver.driverapp.enums.PaymentProvider;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Builder
@@ -33,6 +35,11 @@ public class InitiatePaymentRequestDTO {
     @NotNull
     private PaymentProvider provider;
 
+    // Tried in order when the preferred provider is failing
+    @Size(max = 5)
+    @Builder.Default
+    private List<PaymentProvider> fallbackProviders = new ArrayList<>();
+
     @NotBlank
     @Size(max = 20)
     private String phoneNumber;
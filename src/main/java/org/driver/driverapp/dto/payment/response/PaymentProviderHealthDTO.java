@@ -0,0 +1,21 @@
+package org.driver.driverapp.dto.payment.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.PaymentProvider;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentProviderHealthDTO {
+
+    private PaymentProvider provider;
+    private String circuitState;
+    private double failureRate;
+    private int concurrencyLimit;
+    private int inFlight;
+    private boolean available;
+}
@@ -0,0 +1,27 @@
+package org.driver.driverapp.dto.payment.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.ReconciliationMismatchType;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentReconciliationMismatchDTO {
+
+    private PaymentProvider provider;
+    private String fileName;
+    private long fileOffset;
+    private ReconciliationMismatchType type;
+    private String transactionRef;
+    private Long paymentId;
+    private BigDecimal expectedAmount;
+    private BigDecimal settledAmount;
+    private String detail;
+}
@@ -0,0 +1,23 @@
+package org.driver.driverapp.dto.payment.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.PaymentProvider;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentReconciliationResultDTO {
+
+    private PaymentProvider provider;
+    private String fileName;
+    private int partitions;
+    private int resumedPartitions;
+    private long records;
+    private long reconciled;
+    private long alreadyReconciled;
+    private long mismatches;
+}
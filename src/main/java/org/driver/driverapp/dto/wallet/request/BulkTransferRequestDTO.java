@@ -0,0 +1,22 @@
+package org.driver.driverapp.dto.wallet.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransferRequestDTO {
+
+    @NotEmpty
+    @Size(max = 10000)
+    private List<@Valid TransferLegDTO> legs;
+}
@@ -0,0 +1,43 @@
+package org.driver.driverapp.dto.wallet.request;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.WalletOwnerType;
+
+import java.math.BigDecimal;
+
+/**
+ * One movement of a bulk transfer. Without a source owner the amount comes from outside the
+ * wallets, e.g. a settlement, and the leg only credits the destination.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferLegDTO {
+
+    private Long sourceOwnerId;
+
+    private WalletOwnerType sourceOwnerType;
+
+    @NotNull
+    private Long destinationOwnerId;
+
+    @NotNull
+    private WalletOwnerType destinationOwnerType;
+
+    @NotNull
+    @DecimalMin("0.01")
+    private BigDecimal amount;
+
+    @Size(max = 255)
+    private String reference;
+
+    @Size(max = 1000)
+    private String description;
+}
@@ -0,0 +1,20 @@
+package org.driver.driverapp.dto.wallet.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransferResponseDTO {
+
+    private int completed;
+    private int rejected;
+    private int inDoubt;
+    private List<TransferLegResultDTO> results;
+}
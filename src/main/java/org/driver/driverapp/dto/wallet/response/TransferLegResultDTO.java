@@ -0,0 +1,25 @@
+package org.driver.driverapp.dto.wallet.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.TransferLegStatus;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferLegResultDTO {
+
+    // Position of the leg in the request
+    private int index;
+    private TransferLegStatus status;
+    private String message;
+    private Long sourceWalletId;
+    private Long destinationWalletId;
+    private BigDecimal sourceBalanceAfter;
+    private BigDecimal destinationBalanceAfter;
+}
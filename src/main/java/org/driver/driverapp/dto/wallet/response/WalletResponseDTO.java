@@ -20,6 +20,7 @@ public class WalletResponseDTO {
     private WalletOwnerType ownerType;
     private BigDecimal balance;
     private String description;
+    private int shardCount;
     private Instant createdAt;
     private Instant updatedAt;
 }
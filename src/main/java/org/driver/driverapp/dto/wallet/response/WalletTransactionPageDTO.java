@@ -0,0 +1,19 @@
+package org.driver.driverapp.dto.wallet.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletTransactionPageDTO {
+
+    private List<WalletTransactionResponseDTO> transactions;
+    // Passed back as the cursor to read the next page; null on the last page
+    private String nextCursor;
+}
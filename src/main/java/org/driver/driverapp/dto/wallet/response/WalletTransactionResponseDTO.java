@@ -24,6 +24,7 @@ public class WalletTransactionResponseDTO {
     private String reference;
     private String description;
     private String metadata;
+    private Integer shardIndex;
     private Instant createdAt;
     private Instant updatedAt;
 }
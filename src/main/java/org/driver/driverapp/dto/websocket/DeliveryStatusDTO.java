@@ -13,6 +13,7 @@ import java.time.Instant;
 @AllArgsConstructor
 public class DeliveryStatusDTO {
     private Long deliveryId;
+    private String previousStatus;
     private String status;
     private Instant timestamp;
     private String message;
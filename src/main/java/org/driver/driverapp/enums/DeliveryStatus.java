@@ -1,5 +1,8 @@
 package org.driver.driverapp.enums;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum DeliveryStatus {
     CREATED,
     PENDING,
@@ -11,4 +14,36 @@ public enum DeliveryStatus {
     CANCELED,
     DELAYED,
     DELIVERY_FAILED,
+    ;
+
+    /**
+     * Statuses a delivery may move to from this one. Terminal statuses return an empty set.
+     */
+    public Set<DeliveryStatus> allowedTransitions() {
+        return switch (this) {
+            case CREATED -> EnumSet.of(PENDING, ACCEPTED, CANCELED);
+            case PENDING -> EnumSet.of(ACCEPTED, CANCELED);
+            case ACCEPTED -> EnumSet.of(IN_PROGRESS, PICKED_UP, CANCELED);
+            case IN_PROGRESS -> EnumSet.of(PICKED_UP, IN_TRANSIT, DELAYED, DELIVERED, DELIVERY_FAILED, CANCELED);
+            case PICKED_UP -> EnumSet.of(IN_TRANSIT, DELAYED, DELIVERED, DELIVERY_FAILED);
+            case IN_TRANSIT -> EnumSet.of(DELAYED, DELIVERED, DELIVERY_FAILED);
+            case DELAYED -> EnumSet.of(IN_TRANSIT, DELIVERED, DELIVERY_FAILED, CANCELED);
+            case DELIVERED, CANCELED, DELIVERY_FAILED -> EnumSet.noneOf(DeliveryStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(DeliveryStatus target) {
+        return target != null && allowedTransitions().contains(target);
+    }
+
+    public boolean isTerminal() {
+        return allowedTransitions().isEmpty();
+    }
+
+    /**
+     * Active statuses are the ones covered by the partial index on delivery.status.
+     */
+    public boolean isActive() {
+        return !isTerminal();
+    }
 }
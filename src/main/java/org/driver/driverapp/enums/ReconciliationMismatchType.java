@@ -0,0 +1,10 @@
+package org.driver.driverapp.enums;
+
+public enum ReconciliationMismatchType {
+    UNKNOWN_REFERENCE,
+    PROVIDER_MISMATCH,
+    AMOUNT_MISMATCH,
+    STATUS_MISMATCH,
+    DUPLICATE_REFERENCE,
+    MALFORMED_RECORD
+}
@@ -0,0 +1,32 @@
+package org.driver.driverapp.enums;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS),
+    ;
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Start of the bucket containing the given instant, with day buckets cut at local midnight.
+     */
+    public Instant bucketStart(Instant instant, ZoneId zone) {
+        return instant.atZone(zone).truncatedTo(unit).toInstant();
+    }
+
+    public Instant nextBucket(Instant bucketStart, ZoneId zone) {
+        return bucketStart.atZone(zone).plus(1, unit).toInstant();
+    }
+
+    public boolean isAligned(Instant instant, ZoneId zone) {
+        return bucketStart(instant, zone).equals(instant);
+    }
+}
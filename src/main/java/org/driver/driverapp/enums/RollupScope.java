@@ -0,0 +1,7 @@
+package org.driver.driverapp.enums;
+
+public enum RollupScope {
+    GLOBAL,
+    PARTNER,
+    REGION,
+}
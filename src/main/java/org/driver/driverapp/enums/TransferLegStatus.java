@@ -0,0 +1,8 @@
+package org.driver.driverapp.enums;
+
+public enum TransferLegStatus {
+    COMPLETED,
+    REJECTED,
+    // The leg may or may not have been applied, e.g. a credit failed without its outcome being known
+    IN_DOUBT
+}
@@ -29,6 +29,22 @@ public class GlobalExceptionHandler {
         );
     }
 
+    // Payment provider busy or not answering; the client may retry
+    @ExceptionHandler(PaymentProviderUnavailableException.class)
+    public ResponseEntity<?> handlePaymentProviderUnavailable(PaymentProviderUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                Map.of("error", "Payment Provider Unavailable", "message", ex.getMessage())
+        );
+    }
+
+    // Retry of a request that is still running, or a key reused for another request
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<?> handleIdempotencyKeyConflict(IdempotencyKeyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                Map.of("error", "Idempotency Key Conflict", "message", ex.getMessage())
+        );
+    }
+
     // 🧪 Handle DTO validation errors
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleValidationException(MethodArgumentNotValidException ex) {
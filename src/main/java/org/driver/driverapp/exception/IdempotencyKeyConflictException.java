@@ -0,0 +1,12 @@
+package org.driver.driverapp.exception;
+
+/**
+ * An idempotency key cannot be honoured: its first request is still running, or the key was
+ * already used with a different request body.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
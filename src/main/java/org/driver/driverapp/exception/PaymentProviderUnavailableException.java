@@ -0,0 +1,42 @@
+package org.driver.driverapp.exception;
+
+import org.driver.driverapp.enums.PaymentProvider;
+
+/**
+ * A payment provider call was not made or not answered in time. When the reason is
+ * {@link Reason#TIMEOUT} the provider may still have acted on the request.
+ */
+public class PaymentProviderUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        /** The provider's bulkhead had no free call permit; the call was not made. */
+        BULKHEAD_FULL,
+        /** The provider's circuit breaker is open; the call was not made. */
+        CIRCUIT_OPEN,
+        /** The provider did not answer in time. */
+        TIMEOUT
+    }
+
+    private final PaymentProvider provider;
+    private final Reason reason;
+
+    public PaymentProviderUnavailableException(PaymentProvider provider, Reason reason, String message) {
+        super(message);
+        this.provider = provider;
+        this.reason = reason;
+    }
+
+    public PaymentProviderUnavailableException(PaymentProvider provider, Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.provider = provider;
+        this.reason = reason;
+    }
+
+    public PaymentProvider getProvider() {
+        return provider;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
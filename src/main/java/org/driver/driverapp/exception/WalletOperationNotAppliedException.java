@@ -0,0 +1,13 @@
+package org.driver.driverapp.exception;
+
+/**
+ * A wallet credit or debit is known not to have been applied, e.g. it was withdrawn before
+ * its batch was written or the balance could not cover it, so it is safe to retry or undo
+ * whatever the caller did before it.
+ */
+public class WalletOperationNotAppliedException extends IllegalStateException {
+
+    public WalletOperationNotAppliedException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import org.driver.driverapp.dto.partner.PartnerDTO;
 import org.driver.driverapp.dto.delivery.request.CreateDeliveryRequestDTO;
 import org.driver.driverapp.dto.delivery.response.DeliveryResponseDTO;
 import org.driver.driverapp.dto.driver.DriverResponseDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
 import org.driver.driverapp.model.Delivery;
 import org.driver.driverapp.model.Driver;
 import org.driver.driverapp.model.Partner;
@@ -59,7 +60,7 @@ public class DeliveryMapper {
 		}
 
 		boolean delivered = delivery.getDropoffTime() != null
-				|| (delivery.getStatus() != null && delivery.getStatus().equalsIgnoreCase("DELIVERED"));
+				|| delivery.getStatus() == DeliveryStatus.DELIVERED;
 
 		OffsetDateTime createdAt = delivery.getCreatedAt() != null
 				? delivery.getCreatedAt().atOffset(ZoneOffset.UTC)
@@ -71,6 +72,7 @@ public class DeliveryMapper {
 				.pickupPartner(pickup)
 				.dropoffPartner(dropoff)
 				.driver(driverDto)
+				.status(delivery.getStatus())
 				.createdAt(createdAt)
 				.deliveredAt(deliveredAt)
 				.delivered(delivered)
@@ -81,7 +83,7 @@ public class DeliveryMapper {
 		return Delivery.builder()
 				.pickupPartner(partner)
 				.dropoffAddress(dto.getDropoffAddress())
-				.status(dto.getStatus() != null ? dto.getStatus().name() : null)
+				.status(dto.getStatus())
 				.driver(driver)
 				.build();
 	}
@@ -0,0 +1,42 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * The next offset to consume from one topic partition, written in the same transaction as the
+ * aggregates built from the records before it. The consumer seeks here on assignment, so every
+ * record is reflected in the aggregates exactly once regardless of what Kafka has committed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "analytics_consumer_offset", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_analytics_consumer_offset_partition",
+                columnNames = {"consumer_group", "topic", "partition_id"})
+})
+public class AnalyticsConsumerOffset {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "consumer_group", nullable = false, length = 100)
+    private String consumerGroup;
+
+    @Column(name = "topic", nullable = false, length = 100)
+    private String topic;
+
+    @Column(name = "partition_id", nullable = false)
+    private int partitionId;
+
+    @Column(name = "next_offset", nullable = false)
+    private long nextOffset;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
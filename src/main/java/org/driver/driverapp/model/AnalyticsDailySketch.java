@@ -0,0 +1,55 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.RollupScope;
+
+import java.time.Instant;
+
+/**
+ * Mergeable sketches of one day's deliveries for one scope: a HyperLogLog of the distinct
+ * customers and t-digests of delivery duration and order value. Any day range is answered by
+ * merging the rows of its days. Days are keyed by delivery creation time, like the rollups.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "analytics_daily_sketch", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_analytics_daily_sketch_day",
+                columnNames = {"bucket_start", "scope", "scope_key"})
+})
+public class AnalyticsDailySketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, length = 16)
+    private RollupScope scope;
+
+    // Partner id; empty for the global scope
+    @Column(name = "scope_key", nullable = false, length = 100)
+    private String scopeKey;
+
+    @Column(name = "deliveries", nullable = false)
+    private long deliveries;
+
+    @Column(name = "customers_hll", nullable = false, length = 8192)
+    private byte[] customersHll;
+
+    // Minutes from creation to delivery, for delivered deliveries
+    @Column(name = "delivery_minutes_digest", nullable = false, length = 65536)
+    private byte[] deliveryMinutesDigest;
+
+    @Column(name = "order_value_digest", nullable = false, length = 65536)
+    private byte[] orderValueDigest;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private Instant refreshedAt;
+}
@@ -0,0 +1,78 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Count, sum, minimum and maximum of the analytics events of one type and name that occurred
+ * in one tumbling window. Aggregates are additive, so a window flushed in several pieces ends
+ * up with the same totals as a window flushed once.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "analytics_event_aggregate", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_analytics_event_aggregate_window",
+                columnNames = {"window_start", "window_seconds", "type", "name"})
+})
+public class AnalyticsEventAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "window_start", nullable = false)
+    private Instant windowStart;
+
+    @Column(name = "window_seconds", nullable = false)
+    private int windowSeconds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private AnalyticsRecordType type;
+
+    @Column(name = "name", nullable = false, length = 100)
+    private String name;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    @Builder.Default
+    @Column(name = "value_sum", nullable = false, precision = 19, scale = 4)
+    private BigDecimal valueSum = BigDecimal.ZERO;
+
+    @Column(name = "value_min", precision = 19, scale = 4)
+    private BigDecimal valueMin;
+
+    @Column(name = "value_max", precision = 19, scale = 4)
+    private BigDecimal valueMax;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public void add(BigDecimal value) {
+        eventCount++;
+        if (value != null) {
+            valueSum = valueSum.add(value);
+            valueMin = valueMin == null || value.compareTo(valueMin) < 0 ? value : valueMin;
+            valueMax = valueMax == null || value.compareTo(valueMax) > 0 ? value : valueMax;
+        }
+    }
+
+    public void merge(AnalyticsEventAggregate other) {
+        eventCount += other.eventCount;
+        valueSum = valueSum.add(other.valueSum);
+        if (other.valueMin != null && (valueMin == null || other.valueMin.compareTo(valueMin) < 0)) {
+            valueMin = other.valueMin;
+        }
+        if (other.valueMax != null && (valueMax == null || other.valueMax.compareTo(valueMax) > 0)) {
+            valueMax = other.valueMax;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.RollupGranularity;
+import org.driver.driverapp.enums.RollupScope;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Pre-aggregated delivery, revenue and customer counts for one time bucket and one scope
+ * (all traffic, a single partner or a single region). Buckets are keyed by the creation time
+ * of the underlying rows, matching how the dashboard windows are defined.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "analytics_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_analytics_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "scope", "scope_key"})
+})
+public class AnalyticsRollup {
+
+    public static final String GLOBAL_KEY = "";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, length = 16)
+    private RollupScope scope;
+
+    // Partner id or region name; empty for the global scope
+    @Column(name = "scope_key", nullable = false, length = 100)
+    private String scopeKey;
+
+    @Column(name = "deliveries_created", nullable = false)
+    private long deliveriesCreated;
+
+    @Column(name = "deliveries_delivered", nullable = false)
+    private long deliveriesDelivered;
+
+    @Column(name = "deliveries_failed", nullable = false)
+    private long deliveriesFailed;
+
+    @Column(name = "deliveries_canceled", nullable = false)
+    private long deliveriesCanceled;
+
+    @Column(name = "payments_completed", nullable = false)
+    private long paymentsCompleted;
+
+    @Builder.Default
+    @Column(name = "revenue_completed", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenueCompleted = BigDecimal.ZERO;
+
+    @Column(name = "new_customers", nullable = false)
+    private long newCustomers;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private Instant refreshedAt;
+
+    /**
+     * True when both rollups hold the same counters, ignoring identity and refresh time.
+     */
+    public boolean sameTotals(AnalyticsRollup other) {
+        return deliveriesCreated == other.deliveriesCreated
+                && deliveriesDelivered == other.deliveriesDelivered
+                && deliveriesFailed == other.deliveriesFailed
+                && deliveriesCanceled == other.deliveriesCanceled
+                && paymentsCompleted == other.paymentsCompleted
+                && revenueCompleted.compareTo(other.revenueCompleted) == 0
+                && newCustomers == other.newCustomers;
+    }
+}
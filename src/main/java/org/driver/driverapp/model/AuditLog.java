@@ -45,6 +45,9 @@ public class AuditLog {
     @Column(name = "after_snapshot", columnDefinition = "JSONB")
     private String afterSnapshot;
     
+    @Column(name = "snapshot_diff", columnDefinition = "JSONB")
+    private String snapshotDiff;
+    
     @Column(name = "changes_summary", columnDefinition = "TEXT")
     private String changesSummary;
     
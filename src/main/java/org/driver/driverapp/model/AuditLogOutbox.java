@@ -0,0 +1,103 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+
+import java.time.Instant;
+
+/**
+ * An audit log entry waiting to be relayed to {@code audit_logs}. Written in the same
+ * transaction as the change it records, so the entry exists exactly when the change does.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "audit_log_outbox")
+public class AuditLogOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 50)
+    private AuditEntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 50)
+    private AuditAction action;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "user_email")
+    private String userEmail;
+
+    @Column(name = "before_snapshot", columnDefinition = "TEXT")
+    private String beforeSnapshot;
+
+    @Column(name = "after_snapshot", columnDefinition = "TEXT")
+    private String afterSnapshot;
+
+    @Column(name = "snapshot_diff", columnDefinition = "TEXT")
+    private String snapshotDiff;
+
+    @Column(name = "changes_summary", columnDefinition = "TEXT")
+    private String changesSummary;
+
+    @Column(name = "ip_address", length = 45)
+    private String ipAddress;
+
+    @Column(name = "user_agent", columnDefinition = "TEXT")
+    private String userAgent;
+
+    @Column(name = "active", nullable = false)
+    @Builder.Default
+    private boolean active = true;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public static AuditLogOutbox of(AuditLog auditLog) {
+        return AuditLogOutbox.builder()
+                .entityType(auditLog.getEntityType())
+                .entityId(auditLog.getEntityId())
+                .action(auditLog.getAction())
+                .userId(auditLog.getUserId())
+                .userEmail(auditLog.getUserEmail())
+                .beforeSnapshot(auditLog.getBeforeSnapshot())
+                .afterSnapshot(auditLog.getAfterSnapshot())
+                .snapshotDiff(auditLog.getSnapshotDiff())
+                .changesSummary(auditLog.getChangesSummary())
+                .ipAddress(auditLog.getIpAddress())
+                .userAgent(auditLog.getUserAgent())
+                .active(auditLog.isActive())
+                .createdAt(auditLog.getCreatedAt())
+                .build();
+    }
+
+    public AuditLog toAuditLog() {
+        return AuditLog.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .action(action)
+                .userId(userId)
+                .userEmail(userEmail)
+                .beforeSnapshot(beforeSnapshot)
+                .afterSnapshot(afterSnapshot)
+                .snapshotDiff(snapshotDiff)
+                .changesSummary(changesSummary)
+                .ipAddress(ipAddress)
+                .userAgent(userAgent)
+                .active(active)
+                .createdAt(createdAt)
+                .build();
+    }
+}
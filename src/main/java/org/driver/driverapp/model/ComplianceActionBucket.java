@@ -0,0 +1,52 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.ComplianceScope;
+
+import java.time.Instant;
+
+/**
+ * Number of audit log entries with one action counted towards one compliance subject (the
+ * whole system, a driver or a partner) on one day. Buckets are keyed by the creation day of
+ * the audit log entry.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "compliance_action_bucket", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_compliance_action_bucket",
+                columnNames = {"scope", "subject_id", "bucket_start", "action"})
+})
+public class ComplianceActionBucket {
+
+    public static final long SYSTEM_SUBJECT = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, length = 16)
+    private ComplianceScope scope;
+
+    // Driver or partner id; SYSTEM_SUBJECT for the system scope
+    @Column(name = "subject_id", nullable = false)
+    private long subjectId;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 32)
+    private AuditAction action;
+
+    @Column(name = "action_count", nullable = false)
+    private long actionCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,54 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.ComplianceScope;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Compliance score of one subject over the {@code windowDays} days ending on {@code scoreDate},
+ * written by the nightly batch job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "compliance_score", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_compliance_score_subject_date",
+                columnNames = {"scope", "subject_id", "score_date"})
+})
+public class ComplianceScore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, length = 16)
+    private ComplianceScope scope;
+
+    @Column(name = "subject_id", nullable = false)
+    private long subjectId;
+
+    @Column(name = "score_date", nullable = false)
+    private LocalDate scoreDate;
+
+    @Column(name = "window_days", nullable = false)
+    private int windowDays;
+
+    @Column(name = "action_count", nullable = false)
+    private long actionCount;
+
+    @Column(name = "score", nullable = false, precision = 5, scale = 2)
+    private BigDecimal score;
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+}
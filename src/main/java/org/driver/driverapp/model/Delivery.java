@@ -3,6 +3,7 @@ package org.driver.driverapp.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +19,9 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.math.BigDecimal;
+import org.driver.driverapp.enums.DeliveryStatus;
 import org.driver.driverapp.enums.ProofOfDeliveryType;
+import org.driver.driverapp.service.analytics.AnalyticsRollupEntityListener;
 
 @Entity
 @Getter
@@ -27,10 +30,9 @@ import org.driver.driverapp.enums.ProofOfDeliveryType;
 @AllArgsConstructor
 @Builder
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, AnalyticsRollupEntityListener.class})
 @Table(indexes = {
         @Index(name = "ix_delivery_code", columnList = "deliveryCode"),
-        @Index(name = "ix_delivery_status", columnList = "status"),
         @Index(name = "ix_delivery_driver_id", columnList = "driver_id")
 })
 public class Delivery {
@@ -62,10 +64,11 @@ public class Delivery {
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
-    @NotBlank
-    @Size(max = 32)
-    @Column(length = 32)
-    private String status; // Consider using an enum later
+    // Stored as the delivery_status enum type; active statuses are covered by a partial index (V13)
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DeliveryStatus status;
 
     private OffsetDateTime pickupTime;
     private OffsetDateTime dropoffTime;
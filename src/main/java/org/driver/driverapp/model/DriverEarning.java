@@ -30,7 +30,8 @@ import java.time.Instant;
     @Index(name = "ix_driver_earning_driver_id", columnList = "driver_id"),
     @Index(name = "ix_driver_earning_delivery_id", columnList = "delivery_id"),
     @Index(name = "ix_driver_earning_payout_status", columnList = "payout_status"),
-    @Index(name = "ix_driver_earning_created_at", columnList = "created_at")
+    @Index(name = "ix_driver_earning_created_at", columnList = "created_at"),
+    @Index(name = "ix_driver_earning_payout_batch_id", columnList = "payout_batch_id")
 })
 public class DriverEarning {
 
@@ -69,6 +70,10 @@ public class DriverEarning {
     @Column(name = "payout_date")
     private Instant payoutDate;
 
+    // DriverPayoutBatch that claimed this earning, set by the payout pipeline
+    @Column(name = "payout_batch_id")
+    private Long payoutBatchId;
+
     @Size(max = 1000)
     @Column(columnDefinition = "TEXT")
     private String failureReason;
@@ -0,0 +1,50 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.PayoutStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A driver's earnings of one day in one payout status: their sum and count. The revision goes
+ * up with every change, so the sum of a driver's revisions changes whenever their earnings do.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "driver_earning_daily", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_driver_earning_daily", columnNames = {"driver_id", "earning_date", "payout_status"})
+})
+public class DriverEarningDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "driver_id", nullable = false)
+    private Long driverId;
+
+    @Column(name = "earning_date", nullable = false)
+    private LocalDate earningDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payout_status", nullable = false, length = 20)
+    private PayoutStatus payoutStatus;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "earning_count", nullable = false)
+    private long earningCount;
+
+    @Column(nullable = false)
+    private long revision;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
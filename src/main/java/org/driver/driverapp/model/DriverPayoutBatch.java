@@ -0,0 +1,56 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.PayoutStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One driver's payout within a payout run: the driver's pending earnings it claimed, and the
+ * provider's answer once paid. A batch stays PROCESSING from its claim until its result is written,
+ * and belongs to the run named in it; a later run takes over a batch whose run stopped stamping it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "driver_payout_batch", indexes = {
+        @Index(name = "ix_driver_payout_batch_status", columnList = "status, updated_at")
+})
+public class DriverPayoutBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false, length = 64)
+    private String runId;
+
+    @Column(name = "driver_id", nullable = false)
+    private Long driverId;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "earning_count", nullable = false)
+    private int earningCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PayoutStatus status;
+
+    @Column(name = "payout_reference")
+    private String payoutReference;
+
+    @Column(name = "failure_reason", columnDefinition = "TEXT")
+    private String failureReason;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -13,6 +13,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.driver.driverapp.enums.PaymentProvider;
 import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.service.analytics.AnalyticsRollupEntityListener;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -27,7 +28,7 @@ import java.time.Instant;
 @AllArgsConstructor
 @Builder
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, AnalyticsRollupEntityListener.class})
 @Table(indexes = {
     @Index(name = "ix_payment_user_id", columnList = "user_id"),
     @Index(name = "ix_payment_delivery_id", columnList = "delivery_id"),
@@ -87,6 +88,12 @@ public class Payment {
     @Builder.Default
     private boolean active = true;
 
+    // Set once a provider settlement file confirms the payment
+    @Builder.Default
+    private boolean reconciled = false;
+
+    private Instant reconciledAt;
+
     @Version
     private Long version;
 
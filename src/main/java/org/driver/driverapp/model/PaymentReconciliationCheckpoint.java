@@ -0,0 +1,47 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Byte offset up to which one partition of a provider settlement file has been reconciled.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_reconciliation_checkpoint", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payment_reconciliation_checkpoint",
+                columnNames = {"file_key", "partition_index"})
+})
+public class PaymentReconciliationCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_key", nullable = false, length = 512)
+    private String fileKey;
+
+    @Column(name = "partition_index", nullable = false)
+    private int partitionIndex;
+
+    @Column(name = "partition_count", nullable = false)
+    private int partitionCount;
+
+    @Column(name = "next_offset", nullable = false)
+    private long nextOffset;
+
+    @Column(name = "end_offset", nullable = false)
+    private long endOffset;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public boolean isCompleted() {
+        return nextOffset >= endOffset;
+    }
+}
@@ -0,0 +1,33 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A transaction reference already reconciled from a provider settlement file, so a repeat of it
+ * later in the file is reported as a duplicate.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_settlement_reference", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payment_settlement_reference",
+                columnNames = {"file_key", "transaction_ref"})
+})
+public class PaymentSettlementReference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_key", nullable = false, length = 512)
+    private String fileKey;
+
+    @Column(name = "transaction_ref", nullable = false)
+    private String transactionRef;
+
+    @Column(name = "file_offset", nullable = false)
+    private long fileOffset;
+}
@@ -30,6 +30,9 @@ import java.time.Instant;
     @Index(name = "ix_wallet_owner_id", columnList = "owner_id"),
     @Index(name = "ix_wallet_owner_type", columnList = "owner_type"),
     @Index(name = "ix_wallet_balance", columnList = "balance")
+}, uniqueConstraints = {
+    // One wallet per owner, so concurrent get-or-create calls cannot both insert one
+    @UniqueConstraint(name = "uk_wallet_owner", columnNames = {"owner_id", "owner_type"})
 })
 public class Wallet {
 
@@ -60,6 +63,11 @@ public class Wallet {
     @Builder.Default
     private boolean active = true;
 
+    // Sub-balances a hot wallet is split into; 0 when the balance column holds the whole balance
+    @Column(name = "shard_count", nullable = false)
+    @Builder.Default
+    private int shardCount = 0;
+
     @Version
     private Long version;
 
@@ -87,6 +95,10 @@ public class Wallet {
         this.balance = this.balance.subtract(amount);
     }
 
+    public boolean isSharded() {
+        return shardCount > 0;
+    }
+
     public boolean isDriverWallet() {
         return WalletOwnerType.DRIVER.equals(ownerType);
     }
@@ -0,0 +1,46 @@
+package org.driver.driverapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.driver.driverapp.enums.WalletOwnerType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One slot of the running totals of a wallet owner type: balances of its active wallets and
+ * amounts credited and debited. The owner type's totals are the sums over its slots.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "wallet_aggregate", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_wallet_aggregate", columnNames = {"owner_type", "slot"})
+})
+public class WalletAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "owner_type", nullable = false, length = 16)
+    private WalletOwnerType ownerType;
+
+    @Column(name = "slot", nullable = false)
+    private int slot;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal credits;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal debits;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -30,7 +30,9 @@ import java.time.Instant;
     @Index(name = "ix_wallet_transaction_wallet_id", columnList = "wallet_id"),
     @Index(name = "ix_wallet_transaction_type", columnList = "transaction_type"),
     @Index(name = "ix_wallet_transaction_created_at", columnList = "created_at"),
-    @Index(name = "ix_wallet_transaction_reference", columnList = "reference")
+    @Index(name = "ix_wallet_transaction_reference", columnList = "reference"),
+    @Index(name = "ix_wallet_transaction_wallet_created", columnList = "wallet_id, created_at, id"),
+    @Index(name = "ix_wallet_transaction_type_created", columnList = "transaction_type, created_at, id")
 })
 public class WalletTransaction {
 
@@ -78,6 +80,10 @@ public class WalletTransaction {
     @Builder.Default
     private boolean active = true;
 
+    // Shard of a sharded wallet the transaction was applied to; the balances are then that shard's
+    @Column(name = "shard_index")
+    private Integer shardIndex;
+
     @Version
     private Long version;
 
@@ -0,0 +1,25 @@
+package org.driver.driverapp.repository;
+
+import jakarta.persistence.LockModeType;
+import org.driver.driverapp.model.AnalyticsConsumerOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsConsumerOffsetRepository extends JpaRepository<AnalyticsConsumerOffset, Long> {
+
+    List<AnalyticsConsumerOffset> findByConsumerGroupAndTopic(String consumerGroup, String topic);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM AnalyticsConsumerOffset o " +
+           "WHERE o.consumerGroup = :consumerGroup AND o.topic = :topic AND o.partitionId = :partitionId")
+    Optional<AnalyticsConsumerOffset> findPartitionForUpdate(@Param("consumerGroup") String consumerGroup,
+                                                            @Param("topic") String topic,
+                                                            @Param("partitionId") int partitionId);
+}
@@ -0,0 +1,29 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.AnalyticsDailySketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AnalyticsDailySketchRepository extends JpaRepository<AnalyticsDailySketch, Long> {
+
+    List<AnalyticsDailySketch> findByScopeAndScopeKeyAndBucketStartGreaterThanEqualAndBucketStartLessThan(
+            RollupScope scope, String scopeKey, Instant from, Instant to);
+
+    // A day has been sketched once its global row exists, even if no partner had deliveries
+    @Query("SELECT s.bucketStart FROM AnalyticsDailySketch s " +
+           "WHERE s.scope = org.driver.driverapp.enums.RollupScope.GLOBAL " +
+           "AND s.bucketStart >= :from AND s.bucketStart < :to")
+    List<Instant> findSketchedDays(@Param("from") Instant from, @Param("to") Instant to);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsDailySketch s WHERE s.bucketStart = :bucketStart")
+    int deleteDay(@Param("bucketStart") Instant bucketStart);
+}
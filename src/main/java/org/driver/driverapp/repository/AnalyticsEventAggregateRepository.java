@@ -0,0 +1,30 @@
+package org.driver.driverapp.repository;
+
+import jakarta.persistence.LockModeType;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+import org.driver.driverapp.model.AnalyticsEventAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsEventAggregateRepository extends JpaRepository<AnalyticsEventAggregate, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AnalyticsEventAggregate a " +
+           "WHERE a.windowStart = :windowStart AND a.windowSeconds = :windowSeconds " +
+           "AND a.type = :type AND a.name = :name")
+    Optional<AnalyticsEventAggregate> findWindowForUpdate(@Param("windowStart") Instant windowStart,
+                                                         @Param("windowSeconds") int windowSeconds,
+                                                         @Param("type") AnalyticsRecordType type,
+                                                         @Param("name") String name);
+
+    List<AnalyticsEventAggregate> findByTypeAndNameAndWindowStartGreaterThanEqualAndWindowStartLessThanOrderByWindowStartAsc(
+            AnalyticsRecordType type, String name, Instant from, Instant to);
+}
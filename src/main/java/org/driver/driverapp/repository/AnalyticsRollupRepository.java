@@ -0,0 +1,71 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.enums.RollupGranularity;
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.AnalyticsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AnalyticsRollupRepository extends JpaRepository<AnalyticsRollup, Long> {
+
+    List<AnalyticsRollup> findByGranularityAndBucketStart(RollupGranularity granularity, Instant bucketStart);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsRollup r WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart")
+    int deleteBucket(@Param("granularity") RollupGranularity granularity, @Param("bucketStart") Instant bucketStart);
+
+    // A day rollup is the sum of its hour rollups, per scope
+    @Query("SELECT r.scope, r.scopeKey, SUM(r.deliveriesCreated), SUM(r.deliveriesDelivered), SUM(r.deliveriesFailed), " +
+           "SUM(r.deliveriesCanceled), SUM(r.paymentsCompleted), SUM(r.revenueCompleted), SUM(r.newCustomers) " +
+           "FROM AnalyticsRollup r " +
+           "WHERE r.granularity = org.driver.driverapp.enums.RollupGranularity.HOUR " +
+           "AND r.bucketStart >= :start AND r.bucketStart < :end " +
+           "GROUP BY r.scope, r.scopeKey")
+    List<Object[]> sumHourBucketsByScope(@Param("start") Instant start, @Param("end") Instant end);
+
+    long countByGranularityAndScopeAndScopeKeyAndBucketStartBetween(RollupGranularity granularity,
+                                                                   RollupScope scope,
+                                                                   String scopeKey,
+                                                                   Instant from,
+                                                                   Instant to);
+
+    // Dashboard windows over day rollups; the month window bounds the scan
+    @Query("SELECT " +
+           "COALESCE(SUM(CASE WHEN r.bucketStart >= :todayStart THEN r.deliveriesCreated ELSE 0 END), 0) AS createdToday, " +
+           "COALESCE(SUM(CASE WHEN r.bucketStart >= :weekStart THEN r.deliveriesCreated ELSE 0 END), 0) AS createdThisWeek, " +
+           "COALESCE(SUM(r.deliveriesCreated), 0) AS createdThisMonth, " +
+           "COALESCE(SUM(CASE WHEN r.bucketStart >= :todayStart THEN r.deliveriesDelivered ELSE 0 END), 0) AS deliveredToday, " +
+           "COALESCE(SUM(CASE WHEN r.bucketStart >= :weekStart THEN r.deliveriesDelivered ELSE 0 END), 0) AS deliveredThisWeek, " +
+           "COALESCE(SUM(r.deliveriesDelivered), 0) AS deliveredThisMonth, " +
+           "COALESCE(SUM(CASE WHEN r.bucketStart >= :todayStart THEN r.deliveriesFailed ELSE 0 END), 0) AS failedToday, " +
+           "COALESCE(SUM(CASE WHEN r.bucketStart >= :weekStart THEN r.deliveriesFailed ELSE 0 END), 0) AS failedThisWeek, " +
+           "COALESCE(SUM(r.deliveriesFailed), 0) AS failedThisMonth " +
+           "FROM AnalyticsRollup r " +
+           "WHERE r.granularity = org.driver.driverapp.enums.RollupGranularity.DAY " +
+           "AND r.scope = :scope AND r.scopeKey = :scopeKey " +
+           "AND r.bucketStart >= :monthStart AND r.bucketStart <= :todayStart")
+    RollupWindowTotals summarizeDayWindows(@Param("scope") RollupScope scope,
+                                           @Param("scopeKey") String scopeKey,
+                                           @Param("todayStart") Instant todayStart,
+                                           @Param("weekStart") Instant weekStart,
+                                           @Param("monthStart") Instant monthStart);
+
+    interface RollupWindowTotals {
+        Long getCreatedToday();
+        Long getCreatedThisWeek();
+        Long getCreatedThisMonth();
+        Long getDeliveredToday();
+        Long getDeliveredThisWeek();
+        Long getDeliveredThisMonth();
+        Long getFailedToday();
+        Long getFailedThisWeek();
+        Long getFailedThisMonth();
+    }
+}
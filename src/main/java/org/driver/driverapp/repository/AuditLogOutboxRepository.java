@@ -0,0 +1,26 @@
+package org.driver.driverapp.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.driver.driverapp.model.AuditLogOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AuditLogOutboxRepository extends JpaRepository<AuditLogOutbox, Long> {
+
+    /**
+     * Locks the oldest outbox entries, skipping entries another relay has already locked
+     * (a lock timeout of -2 is Hibernate's SKIP LOCKED).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM AuditLogOutbox o ORDER BY o.id")
+    List<AuditLogOutbox> lockOldest(Pageable pageable);
+}
@@ -2,16 +2,21 @@ package org.driver.driverapp.repository;
 
 import org.driver.driverapp.enums.AuditAction;
 import org.driver.driverapp.enums.AuditEntityType;
+import jakarta.persistence.QueryHint;
 import org.driver.driverapp.model.AuditLog;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
@@ -20,6 +25,10 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     List<AuditLog> findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtDesc(
             AuditEntityType entityType, Long entityId);
     
+    // Entity history, oldest first, for replaying snapshot diffs
+    List<AuditLog> findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtAscIdAsc(
+            AuditEntityType entityType, Long entityId, Pageable pageable);
+    
     // Find by user
     Page<AuditLog> findByUserIdAndActiveTrueOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
@@ -58,10 +67,72 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     @Query("SELECT COUNT(al) FROM AuditLog al WHERE al.userId = :userId AND al.action = :action AND al.active = true")
     Long countByUserIdAndAction(@Param("userId") Long userId, @Param("action") AuditAction action);
     
-    // Find recent audit logs for compliance scoring
-    @Query("SELECT al FROM AuditLog al WHERE al.entityType IN (:entityTypes) AND al.createdAt BETWEEN :startDate AND :endDate AND al.active = true ORDER BY al.createdAt DESC")
-    List<AuditLog> findRecentAuditLogsForCompliance(@Param("entityTypes") List<AuditEntityType> entityTypes,
-                                                   @Param("startDate") Instant startDate,
-                                                   @Param("endDate") Instant endDate);
-}
+    // Action counts for one driver's audit trail, the driver itself plus the deliveries assigned to it;
+    // the fallback when compliance scores are read from audit_logs instead of the buckets
+    @Query("SELECT al.action, COUNT(al) FROM AuditLog al WHERE al.createdAt >= :start AND al.createdAt < :end " +
+           "AND al.active = true " +
+           "AND ((al.entityType = org.driver.driverapp.enums.AuditEntityType.DRIVER AND al.entityId = :driverId) " +
+           "OR (al.entityType = org.driver.driverapp.enums.AuditEntityType.DELIVERY " +
+           "AND al.entityId IN (SELECT d.id FROM Delivery d WHERE d.driver.id = :driverId))) " +
+           "GROUP BY al.action")
+    List<Object[]> countDriverComplianceActions(@Param("driverId") Long driverId,
+                                                @Param("start") Instant start,
+                                                @Param("end") Instant end);
+
+    // Action counts for one partner's audit trail, the partner plus its deliveries and inventory items;
+    // the fallback when compliance scores are read from audit_logs instead of the buckets
+    @Query("SELECT al.action, COUNT(al) FROM AuditLog al WHERE al.createdAt >= :start AND al.createdAt < :end " +
+           "AND al.active = true " +
+           "AND ((al.entityType = org.driver.driverapp.enums.AuditEntityType.PARTNER AND al.entityId = :partnerId) " +
+           "OR (al.entityType = org.driver.driverapp.enums.AuditEntityType.DELIVERY " +
+           "AND al.entityId IN (SELECT d.id FROM Delivery d WHERE d.partner.id = :partnerId)) " +
+           "OR (al.entityType = org.driver.driverapp.enums.AuditEntityType.INVENTORY_ITEM " +
+           "AND al.entityId IN (SELECT i.id FROM InventoryItem i WHERE i.partner.id = :partnerId))) " +
+           "GROUP BY al.action")
+    List<Object[]> countPartnerComplianceActions(@Param("partnerId") Long partnerId,
+                                                 @Param("start") Instant start,
+                                                 @Param("end") Instant end);
+
+    // Action counts across all entities, for rebuilding system compliance buckets
+    @Query("SELECT al.action, COUNT(al) FROM AuditLog al " +
+           "WHERE al.createdAt >= :start AND al.createdAt < :end AND al.active = true GROUP BY al.action")
+    List<Object[]> countActionsBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    // (entityId, action, count) for one entity type, for rebuilding driver and partner compliance buckets
+    @Query("SELECT al.entityId, al.action, COUNT(al) FROM AuditLog al WHERE al.entityType = :entityType " +
+           "AND al.createdAt >= :start AND al.createdAt < :end AND al.active = true GROUP BY al.entityId, al.action")
+    List<Object[]> countEntityActionsBetween(@Param("entityType") AuditEntityType entityType,
+                                             @Param("start") Instant start,
+                                             @Param("end") Instant end);
+
+    // (driverId, action, count) for delivery entries, attributed to the driver currently assigned
+    @Query("SELECT d.driver.id, al.action, COUNT(al) FROM AuditLog al JOIN Delivery d ON d.id = al.entityId " +
+           "WHERE al.entityType = org.driver.driverapp.enums.AuditEntityType.DELIVERY AND d.driver IS NOT NULL " +
+           "AND al.createdAt >= :start AND al.createdAt < :end AND al.active = true GROUP BY d.driver.id, al.action")
+    List<Object[]> countDeliveryActionsByDriverBetween(@Param("start") Instant start, @Param("end") Instant end);
 
+    // (partnerId, action, count) for delivery entries, attributed to the delivery's partner
+    @Query("SELECT d.partner.id, al.action, COUNT(al) FROM AuditLog al JOIN Delivery d ON d.id = al.entityId " +
+           "WHERE al.entityType = org.driver.driverapp.enums.AuditEntityType.DELIVERY AND d.partner IS NOT NULL " +
+           "AND al.createdAt >= :start AND al.createdAt < :end AND al.active = true GROUP BY d.partner.id, al.action")
+    List<Object[]> countDeliveryActionsByPartnerBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    // (partnerId, action, count) for inventory item entries, attributed to the item's partner
+    @Query("SELECT i.partner.id, al.action, COUNT(al) FROM AuditLog al JOIN InventoryItem i ON i.id = al.entityId " +
+           "WHERE al.entityType = org.driver.driverapp.enums.AuditEntityType.INVENTORY_ITEM AND i.partner IS NOT NULL " +
+           "AND al.createdAt >= :start AND al.createdAt < :end AND al.active = true GROUP BY i.partner.id, al.action")
+    List<Object[]> countInventoryActionsByPartnerBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    // Oldest entry still in the table from before the cutoff, for the archive job
+    @Query("SELECT MIN(al.createdAt) FROM AuditLog al WHERE al.createdAt < :before")
+    Instant findOldestCreatedAtBefore(@Param("before") Instant before);
+
+    // Every entry of a time range, including inactive ones, ordered for writing an archive segment
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT al FROM AuditLog al WHERE al.createdAt >= :start AND al.createdAt < :end ORDER BY al.createdAt, al.id")
+    Stream<AuditLog> streamCreatedBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    @Modifying
+    @Query("DELETE FROM AuditLog al WHERE al.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,53 @@
+package org.driver.driverapp.repository;
+
+import jakarta.persistence.QueryHint;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.model.ComplianceActionBucket;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ComplianceActionBucketRepository extends JpaRepository<ComplianceActionBucket, Long> {
+
+    // Adds to an existing bucket; returns 0 when the bucket has not been created yet
+    @Modifying
+    @Query("UPDATE ComplianceActionBucket b SET b.actionCount = b.actionCount + :delta, b.updatedAt = :updatedAt " +
+           "WHERE b.scope = :scope AND b.subjectId = :subjectId AND b.bucketStart = :bucketStart AND b.action = :action")
+    int increment(@Param("scope") ComplianceScope scope,
+                  @Param("subjectId") long subjectId,
+                  @Param("bucketStart") Instant bucketStart,
+                  @Param("action") AuditAction action,
+                  @Param("delta") long delta,
+                  @Param("updatedAt") Instant updatedAt);
+
+    // (bucketStart, action, actionCount) for one subject over a day range
+    @Query("SELECT b.bucketStart, b.action, b.actionCount FROM ComplianceActionBucket b " +
+           "WHERE b.scope = :scope AND b.subjectId = :subjectId " +
+           "AND b.bucketStart >= :from AND b.bucketStart < :to")
+    List<Object[]> findCounts(@Param("scope") ComplianceScope scope,
+                              @Param("subjectId") long subjectId,
+                              @Param("from") Instant from,
+                              @Param("to") Instant to);
+
+    // (scope, subjectId, action, count) for every subject over a day range, one subject's rows
+    // after another; streamed so the batch scoring job never holds the whole window
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.scope, b.subjectId, b.action, SUM(b.actionCount) FROM ComplianceActionBucket b " +
+           "WHERE b.bucketStart >= :from AND b.bucketStart < :to " +
+           "GROUP BY b.scope, b.subjectId, b.action ORDER BY b.scope, b.subjectId")
+    Stream<Object[]> streamSubjectCounts(@Param("from") Instant from, @Param("to") Instant to);
+
+    @Modifying
+    @Query("DELETE FROM ComplianceActionBucket b WHERE b.bucketStart = :bucketStart")
+    int deleteDay(@Param("bucketStart") Instant bucketStart);
+}
@@ -0,0 +1,26 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.model.ComplianceScore;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface ComplianceScoreRepository extends JpaRepository<ComplianceScore, Long> {
+
+    Optional<ComplianceScore> findFirstByScopeAndSubjectIdOrderByScoreDateDesc(ComplianceScope scope, long subjectId);
+
+    Page<ComplianceScore> findByScopeAndScoreDateOrderByScoreAscSubjectIdAsc(ComplianceScope scope,
+                                                                            LocalDate scoreDate,
+                                                                            Pageable pageable);
+
+    @Query("SELECT MAX(s.scoreDate) FROM ComplianceScore s WHERE s.scope = :scope")
+    Optional<LocalDate> findLatestScoreDate(@Param("scope") ComplianceScope scope);
+}
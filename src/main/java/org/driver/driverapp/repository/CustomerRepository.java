@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -89,4 +90,19 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     // Analytics methods
     @Query("SELECT COUNT(c) FROM Customer c WHERE c.createdAt BETWEEN :startDate AND :endDate AND c.active = true")
     Long countByCreatedAtBetween(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
+
+    @Query("SELECT COUNT(c) AS totalCustomers, " +
+           "COALESCE(SUM(CASE WHEN c.active = true AND c.createdAt BETWEEN :startDate AND :endDate THEN 1 ELSE 0 END), 0) AS newCustomers " +
+           "FROM Customer c")
+    CustomerCounts summarizeCounts(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
+
+    // Rollup source rows: active customers created in [start, end) per region
+    @Query("SELECT c.region, COUNT(c) FROM Customer c " +
+           "WHERE c.active = true AND c.createdAt >= :start AND c.createdAt < :end GROUP BY c.region")
+    List<Object[]> aggregateForRollup(@Param("start") Instant start, @Param("end") Instant end);
+
+    interface CustomerCounts {
+        Long getTotalCustomers();
+        Long getNewCustomers();
+    }
 }
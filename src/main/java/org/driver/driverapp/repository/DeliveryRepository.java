@@ -2,6 +2,7 @@ package org.driver.driverapp.repository;
 
 import org.driver.driverapp.enums.DeliveryStatus;
 import org.driver.driverapp.model.Delivery;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,11 +10,20 @@ import org.springframework.stereotype.Repository;
 
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
+
+    // Listing queries: fetch the associations read by DeliveryMapper in the same statement
+    @EntityGraph(attributePaths = {"pickupPartner", "dropoffPartner", "driver"})
+    @Query("SELECT d FROM Delivery d")
+    List<Delivery> findAllWithParties();
+
+    @EntityGraph(attributePaths = {"pickupPartner", "dropoffPartner", "driver"})
+    Optional<Delivery> findWithPartiesById(Long id);
     
     @Query("SELECT d.id FROM Delivery d JOIN d.customer c WHERE c.phone = :phoneNumber")
     Optional<Long> findDeliveryIdByCustomerPhone(@Param("phoneNumber") String phoneNumber);
@@ -54,11 +64,85 @@ public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
     // Compliance analytics
     @Query("SELECT d.driver.id, d.driver.name, d.driver.phoneNumber, " +
            "COUNT(d), " +
-           "SUM(CASE WHEN d.status = 'DELIVERY_FAILED' THEN 1 ELSE 0 END), " +
-           "SUM(CASE WHEN d.status = 'DELAYED' THEN 1 ELSE 0 END) " +
+           "SUM(CASE WHEN d.status = org.driver.driverapp.enums.DeliveryStatus.DELIVERY_FAILED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN d.status = org.driver.driverapp.enums.DeliveryStatus.DELAYED THEN 1 ELSE 0 END) " +
            "FROM Delivery d " +
            "WHERE d.createdAt BETWEEN :startDate AND :endDate " +
            "GROUP BY d.driver.id, d.driver.name, d.driver.phoneNumber")
     List<Object[]> findDriverComplianceData(@Param("startDate") Instant startDate, 
                                            @Param("endDate") Instant endDate);
+
+    // Dashboard analytics: every window is a conditional aggregate over a single scan of the month range
+    @Query("SELECT " +
+           "COALESCE(SUM(CASE WHEN d.createdAt BETWEEN :todayStart AND :todayEnd THEN 1 ELSE 0 END), 0) AS totalToday, " +
+           "COALESCE(SUM(CASE WHEN d.createdAt BETWEEN :weekStart AND :now THEN 1 ELSE 0 END), 0) AS totalThisWeek, " +
+           "COALESCE(SUM(CASE WHEN d.createdAt <= :now THEN 1 ELSE 0 END), 0) AS totalThisMonth, " +
+           "COALESCE(SUM(CASE WHEN d.status = :status AND d.createdAt BETWEEN :todayStart AND :todayEnd THEN 1 ELSE 0 END), 0) AS statusToday, " +
+           "COALESCE(SUM(CASE WHEN d.status = :status AND d.createdAt BETWEEN :weekStart AND :now THEN 1 ELSE 0 END), 0) AS statusThisWeek, " +
+           "COALESCE(SUM(CASE WHEN d.status = :status AND d.createdAt <= :now THEN 1 ELSE 0 END), 0) AS statusThisMonth " +
+           "FROM Delivery d WHERE d.createdAt >= :monthStart")
+    DeliveryWindowCounts summarizeWindows(@Param("status") DeliveryStatus status,
+                                          @Param("todayStart") Instant todayStart,
+                                          @Param("todayEnd") Instant todayEnd,
+                                          @Param("weekStart") Instant weekStart,
+                                          @Param("monthStart") Instant monthStart,
+                                          @Param("now") Instant now);
+
+    @Query("SELECT " +
+           "COALESCE(SUM(CASE WHEN d.createdAt BETWEEN :todayStart AND :todayEnd THEN 1 ELSE 0 END), 0) AS totalToday, " +
+           "COALESCE(SUM(CASE WHEN d.createdAt BETWEEN :weekStart AND :now THEN 1 ELSE 0 END), 0) AS totalThisWeek, " +
+           "COALESCE(SUM(CASE WHEN d.createdAt <= :now THEN 1 ELSE 0 END), 0) AS totalThisMonth, " +
+           "COALESCE(SUM(CASE WHEN d.status = :status AND d.createdAt BETWEEN :todayStart AND :todayEnd THEN 1 ELSE 0 END), 0) AS statusToday, " +
+           "COALESCE(SUM(CASE WHEN d.status = :status AND d.createdAt BETWEEN :weekStart AND :now THEN 1 ELSE 0 END), 0) AS statusThisWeek, " +
+           "COALESCE(SUM(CASE WHEN d.status = :status AND d.createdAt <= :now THEN 1 ELSE 0 END), 0) AS statusThisMonth " +
+           "FROM Delivery d WHERE d.partner.id = :partnerId AND d.createdAt >= :monthStart")
+    DeliveryWindowCounts summarizeWindowsByPartnerId(@Param("partnerId") Long partnerId,
+                                                     @Param("status") DeliveryStatus status,
+                                                     @Param("todayStart") Instant todayStart,
+                                                     @Param("todayEnd") Instant todayEnd,
+                                                     @Param("weekStart") Instant weekStart,
+                                                     @Param("monthStart") Instant monthStart,
+                                                     @Param("now") Instant now);
+
+    // Rollup source rows: deliveries created in [start, end) per partner and drop-off region
+    @Query("SELECT d.partner.id, d.dropoffRegion, COUNT(d), " +
+           "SUM(CASE WHEN d.status = org.driver.driverapp.enums.DeliveryStatus.DELIVERED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN d.status = org.driver.driverapp.enums.DeliveryStatus.DELIVERY_FAILED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN d.status = org.driver.driverapp.enums.DeliveryStatus.CANCELED THEN 1 ELSE 0 END) " +
+           "FROM Delivery d WHERE d.createdAt >= :start AND d.createdAt < :end " +
+           "GROUP BY d.partner.id, d.dropoffRegion")
+    List<Object[]> aggregateForRollup(@Param("start") Instant start, @Param("end") Instant end);
+
+    // Sketch source rows: customer, timing and price of each partner delivery created in [start, end)
+    @Query("SELECT d.partner.id, d.customer.id, d.createdAt, d.deliveredAt, d.price " +
+           "FROM Delivery d WHERE d.partner IS NOT NULL AND d.createdAt >= :start AND d.createdAt < :end")
+    List<Object[]> findSketchSourceRows(@Param("start") Instant start, @Param("end") Instant end);
+
+    @Query("SELECT d.partner.id, d.customer.id, d.createdAt, d.deliveredAt, d.price " +
+           "FROM Delivery d WHERE d.partner.id = :partnerId AND d.createdAt >= :start AND d.createdAt < :end")
+    List<Object[]> findSketchSourceRowsByPartnerId(@Param("partnerId") Long partnerId,
+                                                   @Param("start") Instant start,
+                                                   @Param("end") Instant end);
+
+    // Customers with more than one delivery from the partner in [start, end)
+    @Query("SELECT COUNT(c.customerId) FROM (SELECT d.customer.id AS customerId FROM Delivery d " +
+           "WHERE d.partner.id = :partnerId AND d.customer IS NOT NULL " +
+           "AND d.createdAt >= :start AND d.createdAt < :end " +
+           "GROUP BY d.customer.id HAVING COUNT(d) > 1) c")
+    Long countRepeatCustomersByPartnerIdBetween(@Param("partnerId") Long partnerId,
+                                                @Param("start") Instant start,
+                                                @Param("end") Instant end);
+
+    // Delivery id with the driver and partner its audit entries count towards; either may be null
+    @Query("SELECT d.id, dr.id, p.id FROM Delivery d LEFT JOIN d.driver dr LEFT JOIN d.partner p WHERE d.id IN :ids")
+    List<Object[]> findComplianceOwnerIds(@Param("ids") Collection<Long> ids);
+
+    interface DeliveryWindowCounts {
+        Long getTotalToday();
+        Long getTotalThisWeek();
+        Long getTotalThisMonth();
+        Long getStatusToday();
+        Long getStatusThisWeek();
+        Long getStatusThisMonth();
+    }
 }
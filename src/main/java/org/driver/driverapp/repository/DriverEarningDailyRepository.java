@@ -0,0 +1,44 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.model.DriverEarningDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DriverEarningDailyRepository extends JpaRepository<DriverEarningDaily, Long> {
+
+    @Modifying
+    @Query("UPDATE DriverEarningDaily d SET d.amount = d.amount + :amount, d.earningCount = d.earningCount + :count, " +
+           "d.revision = d.revision + 1, d.updatedAt = :updatedAt " +
+           "WHERE d.driverId = :driverId AND d.earningDate = :earningDate AND d.payoutStatus = :payoutStatus")
+    int increment(@Param("driverId") Long driverId,
+                  @Param("earningDate") LocalDate earningDate,
+                  @Param("payoutStatus") PayoutStatus payoutStatus,
+                  @Param("amount") BigDecimal amount,
+                  @Param("count") long count,
+                  @Param("updatedAt") Instant updatedAt);
+
+    @Query("SELECT COALESCE(SUM(d.amount), 0) FROM DriverEarningDaily d WHERE d.driverId = :driverId")
+    BigDecimal sumAmountByDriverId(@Param("driverId") Long driverId);
+
+    @Query("SELECT COALESCE(SUM(d.amount), 0) FROM DriverEarningDaily d " +
+           "WHERE d.driverId = :driverId AND d.payoutStatus = :payoutStatus")
+    BigDecimal sumAmountByDriverIdAndPayoutStatus(@Param("driverId") Long driverId,
+                                                  @Param("payoutStatus") PayoutStatus payoutStatus);
+
+    @Query("SELECT COALESCE(SUM(d.revision), 0) FROM DriverEarningDaily d WHERE d.driverId = :driverId")
+    long sumRevisionByDriverId(@Param("driverId") Long driverId);
+
+    List<DriverEarningDaily> findByDriverIdAndEarningDateBetweenOrderByEarningDateAsc(Long driverId,
+                                                                                     LocalDate fromDate,
+                                                                                     LocalDate toDate);
+}
@@ -2,10 +2,14 @@ package org.driver.driverapp.repository;
 
 import org.driver.driverapp.enums.PayoutStatus;
 import org.driver.driverapp.model.DriverEarning;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,37 +17,45 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DriverEarningRepository extends JpaRepository<DriverEarning, Long> {
 
     // Find by driver
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     Page<DriverEarning> findByDriverIdAndActiveTrue(Long driverId, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     List<DriverEarning> findByDriverIdAndPayoutStatusAndActiveTrue(Long driverId, PayoutStatus payoutStatus);
     
     // Find by delivery
     Optional<DriverEarning> findByDeliveryIdAndActiveTrue(Long deliveryId);
     
     // Find by payout status
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     Page<DriverEarning> findByPayoutStatusAndActiveTrue(PayoutStatus payoutStatus, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     List<DriverEarning> findByPayoutStatusAndActiveTrue(PayoutStatus payoutStatus);
     
     // Find by payout reference
     Optional<DriverEarning> findByPayoutReferenceAndActiveTrue(String payoutReference);
     
     // Find by date range
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.createdAt BETWEEN :startDate AND :endDate AND de.active = true")
     List<DriverEarning> findByCreatedAtBetween(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
     
     // Find by driver and date range
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.driver.id = :driverId AND de.createdAt BETWEEN :startDate AND :endDate AND de.active = true")
     List<DriverEarning> findByDriverIdAndCreatedAtBetween(@Param("driverId") Long driverId,
                                                          @Param("startDate") Instant startDate,
                                                          @Param("endDate") Instant endDate);
     
     // Find by payout status and date range
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.payoutStatus = :payoutStatus AND de.createdAt BETWEEN :startDate AND :endDate AND de.active = true")
     List<DriverEarning> findByPayoutStatusAndCreatedAtBetween(@Param("payoutStatus") PayoutStatus payoutStatus,
                                                              @Param("startDate") Instant startDate,
@@ -68,21 +80,35 @@ public interface DriverEarningRepository extends JpaRepository<DriverEarning, Lo
     BigDecimal sumAmountByDriverIdAndPayoutStatus(@Param("driverId") Long driverId, @Param("payoutStatus") PayoutStatus payoutStatus);
     
     // Find pending payouts
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.payoutStatus = 'PENDING' AND de.active = true ORDER BY de.createdAt ASC")
     List<DriverEarning> findPendingPayouts();
     
+    // Drivers with earnings waiting to be paid out
+    @Query("SELECT DISTINCT de.driver.id FROM DriverEarning de WHERE de.payoutStatus = 'PENDING' AND de.active = true " +
+           "ORDER BY de.driver.id")
+    List<Long> findDriverIdsWithPendingPayouts();
+    
     // Find failed payouts
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.payoutStatus = 'FAILED' AND de.active = true ORDER BY de.createdAt DESC")
     List<DriverEarning> findFailedPayouts();
     
     // Find completed payouts by date range
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.payoutStatus = 'COMPLETED' AND de.payoutDate BETWEEN :startDate AND :endDate AND de.active = true")
     List<DriverEarning> findCompletedPayoutsByDateRange(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
     
     // Find earnings by amount range
+    @EntityGraph(attributePaths = {"driver", "delivery"})
     @Query("SELECT de FROM DriverEarning de WHERE de.amount BETWEEN :minAmount AND :maxAmount AND de.active = true")
     List<DriverEarning> findByAmountRange(@Param("minAmount") BigDecimal minAmount, @Param("maxAmount") BigDecimal maxAmount);
     
+    // Driver, creation time, payout status and amount of every earning, read through a cursor to rebuild daily rollups
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT de.driver.id, de.createdAt, de.payoutStatus, de.amount FROM DriverEarning de WHERE de.active = true")
+    Stream<Object[]> streamRollupRows();
+    
     // Find top earning drivers
     @Query("SELECT de.driver.id, SUM(de.amount) as totalEarnings FROM DriverEarning de " +
            "WHERE de.active = true GROUP BY de.driver.id ORDER BY totalEarnings DESC")
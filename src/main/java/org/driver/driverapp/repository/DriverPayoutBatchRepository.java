@@ -0,0 +1,15 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.model.DriverPayoutBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface DriverPayoutBatchRepository extends JpaRepository<DriverPayoutBatch, Long> {
+
+    List<DriverPayoutBatch> findByStatusAndUpdatedAtBeforeOrderByIdAsc(PayoutStatus status, Instant updatedBefore);
+}
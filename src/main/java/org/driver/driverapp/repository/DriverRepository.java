@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,5 +55,20 @@ public interface DriverRepository extends JpaRepository<Driver, Long> {
     
     @Query("SELECT COUNT(d) FROM Driver d WHERE d.status = :status AND d.active = true")
     Long countByStatus(@Param("status") DriverStatus status);
-}
 
+    @Query("SELECT COUNT(d) AS totalDrivers, " +
+           "COALESCE(SUM(CASE WHEN d.active = true AND d.status = org.driver.driverapp.enums.DriverStatus.BUSY THEN 1 ELSE 0 END), 0) AS driversOnDelivery, " +
+           "COALESCE(SUM(CASE WHEN d.active = true AND d.status = org.driver.driverapp.enums.DriverStatus.AVAILABLE THEN 1 ELSE 0 END), 0) AS driversAvailable, " +
+           "COALESCE(SUM(CASE WHEN d.active = true AND d.status = org.driver.driverapp.enums.DriverStatus.AVAILABLE " +
+           "AND d.lastLoginAt BETWEEN :activeSince AND :activeUntil THEN 1 ELSE 0 END), 0) AS activeToday " +
+           "FROM Driver d")
+    DriverStatusCounts summarizeStatuses(@Param("activeSince") LocalDateTime activeSince,
+                                         @Param("activeUntil") LocalDateTime activeUntil);
+
+    interface DriverStatusCounts {
+        Long getTotalDrivers();
+        Long getDriversOnDelivery();
+        Long getDriversAvailable();
+        Long getActiveToday();
+    }
+}
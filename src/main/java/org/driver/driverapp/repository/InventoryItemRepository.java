@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -162,4 +163,27 @@ public interface InventoryItemRepository extends JpaRepository<InventoryItem, Lo
     
     @Query("SELECT SUM(i.totalValue) FROM InventoryItem i WHERE i.partner.id = :partnerId AND i.active = true")
     java.math.BigDecimal sumTotalValueByPartnerIdAndActiveTrue(@Param("partnerId") Long partnerId);
+
+    // Dashboard analytics: stock health for one partner in a single scan
+    @Query("SELECT COUNT(i) AS totalItems, " +
+           "COALESCE(SUM(CASE WHEN i.quantity < :lowStockThreshold THEN 1 ELSE 0 END), 0) AS lowStockItems, " +
+           "COALESCE(SUM(CASE WHEN i.quantity = 0 THEN 1 ELSE 0 END), 0) AS outOfStockItems, " +
+           "COALESCE(SUM(CASE WHEN i.expiryDate < :today THEN 1 ELSE 0 END), 0) AS expiredItems, " +
+           "COALESCE(SUM(i.totalValue), 0) AS totalValue " +
+           "FROM InventoryItem i WHERE i.partner.id = :partnerId AND i.active = true")
+    InventorySummary summarizeByPartnerId(@Param("partnerId") Long partnerId,
+                                          @Param("lowStockThreshold") Integer lowStockThreshold,
+                                          @Param("today") LocalDate today);
+
+    // Item id with the partner it belongs to
+    @Query("SELECT i.id, p.id FROM InventoryItem i JOIN i.partner p WHERE i.id IN :ids")
+    List<Object[]> findPartnerIds(@Param("ids") Collection<Long> ids);
+
+    interface InventorySummary {
+        Long getTotalItems();
+        Long getLowStockItems();
+        Long getOutOfStockItems();
+        Long getExpiredItems();
+        java.math.BigDecimal getTotalValue();
+    }
 }
@@ -4,6 +4,7 @@ import org.driver.driverapp.enums.InvoiceStatus;
 import org.driver.driverapp.model.Invoice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,33 +19,42 @@ import java.util.Optional;
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
 
     // Find by partner
+    @EntityGraph(attributePaths = {"partner"})
     Page<Invoice> findByPartnerIdAndActiveTrue(Long partnerId, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"partner"})
     List<Invoice> findByPartnerIdAndStatusAndActiveTrue(Long partnerId, InvoiceStatus status);
     
     // Find by status
+    @EntityGraph(attributePaths = {"partner"})
     Page<Invoice> findByStatusAndActiveTrue(InvoiceStatus status, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"partner"})
     List<Invoice> findByStatusAndActiveTrue(InvoiceStatus status);
     
     // Find by invoice number
     Optional<Invoice> findByInvoiceNumberAndActiveTrue(String invoiceNumber);
     
     // Find by due date
+    @EntityGraph(attributePaths = {"partner"})
     List<Invoice> findByDueDateAndActiveTrue(LocalDate dueDate);
     
+    @EntityGraph(attributePaths = {"partner"})
     List<Invoice> findByDueDateBeforeAndStatusNotAndActiveTrue(LocalDate dueDate, InvoiceStatus status);
     
     // Find overdue invoices
+    @EntityGraph(attributePaths = {"partner"})
     @Query("SELECT i FROM Invoice i WHERE i.dueDate < :today AND i.status NOT IN ('PAID', 'CANCELLED') AND i.active = true")
     List<Invoice> findOverdueInvoices(@Param("today") LocalDate today);
     
     // Find by date range
+    @EntityGraph(attributePaths = {"partner"})
     @Query("SELECT i FROM Invoice i WHERE i.createdAt BETWEEN :startDate AND :endDate AND i.active = true")
     List<Invoice> findByCreatedAtBetween(@Param("startDate") java.time.Instant startDate, 
                                         @Param("endDate") java.time.Instant endDate);
     
     // Find by partner and date range
+    @EntityGraph(attributePaths = {"partner"})
     @Query("SELECT i FROM Invoice i WHERE i.partner.id = :partnerId AND i.createdAt BETWEEN :startDate AND :endDate AND i.active = true")
     List<Invoice> findByPartnerIdAndCreatedAtBetween(@Param("partnerId") Long partnerId,
                                                      @Param("startDate") java.time.Instant startDate,
@@ -69,14 +79,17 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     BigDecimal sumPaidAmountByPartnerId(@Param("partnerId") Long partnerId);
     
     // Find unpaid invoices
+    @EntityGraph(attributePaths = {"partner"})
     @Query("SELECT i FROM Invoice i WHERE i.status NOT IN ('PAID', 'CANCELLED') AND i.active = true")
     List<Invoice> findUnpaidInvoices();
     
     // Find invoices due soon (within next 7 days)
+    @EntityGraph(attributePaths = {"partner"})
     @Query("SELECT i FROM Invoice i WHERE i.dueDate BETWEEN :today AND :nextWeek AND i.status NOT IN ('PAID', 'CANCELLED') AND i.active = true")
     List<Invoice> findInvoicesDueSoon(@Param("today") LocalDate today, @Param("nextWeek") LocalDate nextWeek);
     
     // Find invoices by amount range
+    @EntityGraph(attributePaths = {"partner"})
     @Query("SELECT i FROM Invoice i WHERE i.totalAmount BETWEEN :minAmount AND :maxAmount AND i.active = true")
     List<Invoice> findByAmountRange(@Param("minAmount") BigDecimal minAmount, @Param("maxAmount") BigDecimal maxAmount);
 }
@@ -26,4 +26,14 @@ public interface PartnerRepository extends JpaRepository<Partner, Long> {
     // Simplified query without problematic subqueries
     @Query("SELECT p.id, p.name, p.verified FROM Partner p WHERE p.active = true")
     List<Object[]> findPartnerComplianceData();
+
+    @Query("SELECT COUNT(p) AS totalPartners, " +
+           "COALESCE(SUM(CASE WHEN p.active = true THEN 1 ELSE 0 END), 0) AS activePartners " +
+           "FROM Partner p")
+    PartnerCounts summarizeCounts();
+
+    interface PartnerCounts {
+        Long getTotalPartners();
+        Long getActivePartners();
+    }
 }
@@ -0,0 +1,13 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.model.PaymentReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PaymentReconciliationCheckpointRepository extends JpaRepository<PaymentReconciliationCheckpoint, Long> {
+
+    List<PaymentReconciliationCheckpoint> findByFileKeyOrderByPartitionIndexAsc(String fileKey);
+}
@@ -5,6 +5,7 @@ import org.driver.driverapp.enums.PaymentStatus;
 import org.driver.driverapp.model.Payment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,37 +21,46 @@ import java.util.Optional;
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     // Find by user
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     Page<Payment> findByUserIdAndActiveTrue(Long userId, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     List<Payment> findByUserIdAndStatusAndActiveTrue(Long userId, PaymentStatus status);
     
     // Find by delivery
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     List<Payment> findByDeliveryIdAndActiveTrue(Long deliveryId);
     
     Optional<Payment> findByDeliveryIdAndStatusAndActiveTrue(Long deliveryId, PaymentStatus status);
     
     // Find by status
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     Page<Payment> findByStatusAndActiveTrue(PaymentStatus status, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     List<Payment> findByStatusAndActiveTrue(PaymentStatus status);
     
     // Find by provider
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     Page<Payment> findByProviderAndActiveTrue(PaymentProvider provider, Pageable pageable);
     
     // Find by transaction reference
     Optional<Payment> findByTransactionRefAndActiveTrue(String transactionRef);
     
     // Find by date range
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     @Query("SELECT p FROM Payment p WHERE p.createdAt BETWEEN :startDate AND :endDate AND p.active = true")
     List<Payment> findByCreatedAtBetween(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
     
     // Find by user and date range
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     @Query("SELECT p FROM Payment p WHERE p.user.id = :userId AND p.createdAt BETWEEN :startDate AND :endDate AND p.active = true")
     List<Payment> findByUserIdAndCreatedAtBetween(@Param("userId") Long userId, 
                                                  @Param("startDate") Instant startDate, 
                                                  @Param("endDate") Instant endDate);
     
     // Find by status and date range
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     @Query("SELECT p FROM Payment p WHERE p.status = :status AND p.createdAt BETWEEN :startDate AND :endDate AND p.active = true")
     List<Payment> findByStatusAndCreatedAtBetween(@Param("status") PaymentStatus status,
                                                  @Param("startDate") Instant startDate,
@@ -78,13 +89,29 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     BigDecimal sumAmountByUserIdAndStatus(@Param("userId") Long userId, @Param("status") PaymentStatus status);
     
     // Find failed payments
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     @Query("SELECT p FROM Payment p WHERE p.status = 'FAILED' AND p.active = true ORDER BY p.createdAt DESC")
     List<Payment> findFailedPayments();
     
     // Find pending payments older than specified time
+    @EntityGraph(attributePaths = {"user", "user.driver", "delivery"})
     @Query("SELECT p FROM Payment p WHERE p.status = 'PENDING' AND p.createdAt < :cutoffTime AND p.active = true")
     List<Payment> findPendingPaymentsOlderThan(@Param("cutoffTime") Instant cutoffTime);
     
+    // Stale unconfirmed payments after the given id, in id order, for keyset paging
+    @Query("SELECT p.id AS id, p.transactionRef AS transactionRef, p.provider AS provider, p.createdAt AS createdAt " +
+           "FROM Payment p WHERE p.status IN :statuses AND p.transactionRef IS NOT NULL " +
+           "AND p.createdAt < :cutoffTime AND p.id > :afterId AND p.active = true ORDER BY p.id")
+    List<PendingConfirmation> findPendingConfirmationsAfter(@Param("statuses") Collection<PaymentStatus> statuses,
+                                                            @Param("cutoffTime") Instant cutoffTime,
+                                                            @Param("afterId") Long afterId,
+                                                            Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Payment p WHERE p.status IN :statuses AND p.transactionRef IS NOT NULL " +
+           "AND p.createdAt < :cutoffTime AND p.active = true")
+    long countPendingConfirmations(@Param("statuses") Collection<PaymentStatus> statuses,
+                                   @Param("cutoffTime") Instant cutoffTime);
+    
     // Analytics methods
     @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.status = :status AND p.createdAt BETWEEN :startDate AND :endDate AND p.active = true")
     BigDecimal sumAmountByStatusAndCreatedAtBetween(@Param("status") String status,
@@ -105,4 +132,58 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     
     @Query("SELECT COALESCE(AVG(p.amount), 0) FROM Payment p WHERE p.delivery.partner.id = :partnerId AND p.active = true")
     BigDecimal findAverageOrderValueByPartnerId(@Param("partnerId") Long partnerId);
+
+    // Dashboard analytics: revenue windows, outstanding totals and average order value in one scan
+    @Query("SELECT " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED AND p.createdAt BETWEEN :todayStart AND :todayEnd THEN p.amount ELSE 0 END), 0) AS completedToday, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED AND p.createdAt BETWEEN :weekStart AND :now THEN p.amount ELSE 0 END), 0) AS completedThisWeek, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED AND p.createdAt BETWEEN :monthStart AND :now THEN p.amount ELSE 0 END), 0) AS completedThisMonth, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.PENDING THEN p.amount ELSE 0 END), 0) AS pendingTotal, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED THEN p.amount ELSE 0 END), 0) AS completedTotal, " +
+           "COALESCE(AVG(p.amount), 0) AS averageAmount " +
+           "FROM Payment p WHERE p.active = true")
+    PaymentWindowTotals summarizeWindows(@Param("todayStart") Instant todayStart,
+                                         @Param("todayEnd") Instant todayEnd,
+                                         @Param("weekStart") Instant weekStart,
+                                         @Param("monthStart") Instant monthStart,
+                                         @Param("now") Instant now);
+
+    @Query("SELECT " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED AND p.createdAt BETWEEN :todayStart AND :todayEnd THEN p.amount ELSE 0 END), 0) AS completedToday, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED AND p.createdAt BETWEEN :weekStart AND :now THEN p.amount ELSE 0 END), 0) AS completedThisWeek, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED AND p.createdAt BETWEEN :monthStart AND :now THEN p.amount ELSE 0 END), 0) AS completedThisMonth, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.PENDING THEN p.amount ELSE 0 END), 0) AS pendingTotal, " +
+           "COALESCE(SUM(CASE WHEN p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED THEN p.amount ELSE 0 END), 0) AS completedTotal, " +
+           "COALESCE(AVG(p.amount), 0) AS averageAmount " +
+           "FROM Payment p WHERE p.delivery.partner.id = :partnerId AND p.active = true")
+    PaymentWindowTotals summarizeWindowsByPartnerId(@Param("partnerId") Long partnerId,
+                                                    @Param("todayStart") Instant todayStart,
+                                                    @Param("todayEnd") Instant todayEnd,
+                                                    @Param("weekStart") Instant weekStart,
+                                                    @Param("monthStart") Instant monthStart,
+                                                    @Param("now") Instant now);
+
+    // Rollup source rows: completed payments created in [start, end) per partner and drop-off region
+    @Query("SELECT p.delivery.partner.id, p.delivery.dropoffRegion, COUNT(p), COALESCE(SUM(p.amount), 0) " +
+           "FROM Payment p WHERE p.active = true " +
+           "AND p.status = org.driver.driverapp.enums.PaymentStatus.COMPLETED " +
+           "AND p.createdAt >= :start AND p.createdAt < :end " +
+           "GROUP BY p.delivery.partner.id, p.delivery.dropoffRegion")
+    List<Object[]> aggregateForRollup(@Param("start") Instant start, @Param("end") Instant end);
+
+    interface PendingConfirmation {
+        Long getId();
+        String getTransactionRef();
+        PaymentProvider getProvider();
+        Instant getCreatedAt();
+    }
+
+    interface PaymentWindowTotals {
+        BigDecimal getCompletedToday();
+        BigDecimal getCompletedThisWeek();
+        BigDecimal getCompletedThisMonth();
+        BigDecimal getPendingTotal();
+        BigDecimal getCompletedTotal();
+        BigDecimal getAverageAmount();
+    }
 }
@@ -0,0 +1,9 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.model.PaymentSettlementReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PaymentSettlementReferenceRepository extends JpaRepository<PaymentSettlementReference, Long> {
+}
@@ -0,0 +1,38 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.model.WalletAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Repository
+public interface WalletAggregateRepository extends JpaRepository<WalletAggregate, Long> {
+
+    @Modifying
+    @Query("UPDATE WalletAggregate a SET a.balance = a.balance + :balance, a.credits = a.credits + :credits, " +
+           "a.debits = a.debits + :debits, a.updatedAt = :updatedAt WHERE a.ownerType = :ownerType AND a.slot = :slot")
+    int increment(@Param("ownerType") WalletOwnerType ownerType,
+                  @Param("slot") int slot,
+                  @Param("balance") BigDecimal balance,
+                  @Param("credits") BigDecimal credits,
+                  @Param("debits") BigDecimal debits,
+                  @Param("updatedAt") Instant updatedAt);
+
+    @Query("SELECT COALESCE(SUM(a.balance), 0) FROM WalletAggregate a")
+    BigDecimal sumBalance();
+
+    @Query("SELECT COALESCE(SUM(a.balance), 0) FROM WalletAggregate a WHERE a.ownerType = :ownerType")
+    BigDecimal sumBalanceByOwnerType(@Param("ownerType") WalletOwnerType ownerType);
+
+    @Query("SELECT COALESCE(SUM(a.credits), 0) FROM WalletAggregate a")
+    BigDecimal sumCredits();
+
+    @Query("SELECT COALESCE(SUM(a.debits), 0) FROM WalletAggregate a")
+    BigDecimal sumDebits();
+}
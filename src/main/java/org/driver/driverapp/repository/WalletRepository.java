@@ -2,12 +2,14 @@ package org.driver.driverapp.repository;
 
 import org.driver.driverapp.enums.WalletOwnerType;
 import org.driver.driverapp.model.Wallet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +22,8 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     List<Wallet> findByOwnerIdAndActiveTrue(Long ownerId);
     
     List<Wallet> findByOwnerTypeAndActiveTrue(WalletOwnerType ownerType);
+
+    List<Wallet> findByOwnerTypeAndOwnerIdInAndActiveTrue(WalletOwnerType ownerType, Collection<Long> ownerIds);
     
     // Find by balance range
     @Query("SELECT w FROM Wallet w WHERE w.balance BETWEEN :minBalance AND :maxBalance AND w.active = true")
@@ -47,6 +51,16 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     // Find top wallets by balance
     @Query("SELECT w FROM Wallet w WHERE w.active = true ORDER BY w.balance DESC")
     List<Wallet> findTopWalletsByBalance();
+
+    // (id, balance) of the richest active wallets, read off the balance index
+    @Query("SELECT w.id AS id, w.balance AS balance FROM Wallet w WHERE w.active = true " +
+           "ORDER BY w.balance DESC, w.id ASC")
+    List<WalletBalance> findTopBalances(Pageable pageable);
+
+    // (ownerType, balance) of active wallets whose balance column holds the whole balance
+    @Query("SELECT w.ownerType, COALESCE(SUM(w.balance), 0) FROM Wallet w " +
+           "WHERE w.active = true AND w.shardCount = 0 GROUP BY w.ownerType")
+    List<Object[]> sumUnshardedBalanceGroupedByOwnerType();
     
     // Find driver wallets
     @Query("SELECT w FROM Wallet w WHERE w.ownerType = 'DRIVER' AND w.active = true")
@@ -55,4 +69,9 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     // Find partner wallets
     @Query("SELECT w FROM Wallet w WHERE w.ownerType = 'PARTNER' AND w.active = true")
     List<Wallet> findPartnerWallets();
+
+    interface WalletBalance {
+        Long getId();
+        BigDecimal getBalance();
+    }
 }
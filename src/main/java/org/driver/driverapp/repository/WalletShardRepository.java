@@ -0,0 +1,25 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.model.WalletShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface WalletShardRepository extends JpaRepository<WalletShard, Long> {
+
+    List<WalletShard> findByWalletIdOrderByShardIndexAsc(Long walletId);
+
+    // One statement, so the shards are summed as of a single point in time
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM WalletShard s WHERE s.walletId = :walletId")
+    BigDecimal sumBalanceByWalletId(@Param("walletId") Long walletId);
+
+    // (ownerType, balance) of the shards of active wallets
+    @Query("SELECT w.ownerType, COALESCE(SUM(s.balance), 0) FROM WalletShard s, Wallet w " +
+           "WHERE s.walletId = w.id AND w.active = true GROUP BY w.ownerType")
+    List<Object[]> sumBalanceGroupedByOwnerType();
+}
@@ -1,17 +1,21 @@
 package org.driver.driverapp.repository;
 
 import org.driver.driverapp.enums.TransactionType;
+import jakarta.persistence.QueryHint;
 import org.driver.driverapp.model.WalletTransaction;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface WalletTransactionRepository extends JpaRepository<WalletTransaction, Long> {
@@ -54,6 +58,11 @@ public interface WalletTransactionRepository extends JpaRepository<WalletTransac
     // Sum amounts by transaction type
     @Query("SELECT COALESCE(SUM(wt.amount), 0) FROM WalletTransaction wt WHERE wt.transactionType = :transactionType AND wt.active = true")
     BigDecimal sumAmountByTransactionType(@Param("transactionType") TransactionType transactionType);
+
+    // (ownerType, transactionType, amount) over all transactions
+    @Query("SELECT wt.wallet.ownerType, wt.transactionType, COALESCE(SUM(wt.amount), 0) FROM WalletTransaction wt " +
+           "WHERE wt.active = true GROUP BY wt.wallet.ownerType, wt.transactionType")
+    List<Object[]> sumAmountGroupedByOwnerTypeAndTransactionType();
     
     // Sum amounts by wallet
     @Query("SELECT COALESCE(SUM(wt.amount), 0) FROM WalletTransaction wt WHERE wt.wallet.id = :walletId AND wt.active = true")
@@ -63,23 +72,72 @@ public interface WalletTransactionRepository extends JpaRepository<WalletTransac
     @Query("SELECT COALESCE(SUM(wt.amount), 0) FROM WalletTransaction wt WHERE wt.wallet.id = :walletId AND wt.transactionType = :transactionType AND wt.active = true")
     BigDecimal sumAmountByWalletIdAndTransactionType(@Param("walletId") Long walletId, @Param("transactionType") TransactionType transactionType);
     
-    // Find recent transactions
-    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.active = true ORDER BY wt.createdAt DESC")
-    List<WalletTransaction> findRecentTransactions();
-    
     // Find transactions by amount range
     @Query("SELECT wt FROM WalletTransaction wt WHERE wt.amount BETWEEN :minAmount AND :maxAmount AND wt.active = true")
     List<WalletTransaction> findByAmountRange(@Param("minAmount") BigDecimal minAmount, @Param("maxAmount") BigDecimal maxAmount);
     
-    // Find credit transactions
-    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.transactionType = 'CREDIT' AND wt.active = true ORDER BY wt.createdAt DESC")
-    List<WalletTransaction> findCreditTransactions();
-    
-    // Find debit transactions
-    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.transactionType = 'DEBIT' AND wt.active = true ORDER BY wt.createdAt DESC")
-    List<WalletTransaction> findDebitTransactions();
-    
+    // Keyset pages, newest first: a page after the first starts below the (createdAt, id) of the previous page's last row
+    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.wallet.id = :walletId AND wt.active = true " +
+           "ORDER BY wt.createdAt DESC, wt.id DESC")
+    List<WalletTransaction> findLatestByWalletId(@Param("walletId") Long walletId, Pageable pageable);
+
+    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.wallet.id = :walletId AND wt.active = true " +
+           "AND (wt.createdAt < :createdAt OR (wt.createdAt = :createdAt AND wt.id < :id)) " +
+           "ORDER BY wt.createdAt DESC, wt.id DESC")
+    List<WalletTransaction> findLatestByWalletIdBefore(@Param("walletId") Long walletId,
+                                                       @Param("createdAt") Instant createdAt,
+                                                       @Param("id") Long id,
+                                                       Pageable pageable);
+
+    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.active = true ORDER BY wt.createdAt DESC, wt.id DESC")
+    List<WalletTransaction> findLatest(Pageable pageable);
+
+    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.active = true " +
+           "AND (wt.createdAt < :createdAt OR (wt.createdAt = :createdAt AND wt.id < :id)) " +
+           "ORDER BY wt.createdAt DESC, wt.id DESC")
+    List<WalletTransaction> findLatestBefore(@Param("createdAt") Instant createdAt, @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.transactionType = :transactionType AND wt.active = true " +
+           "ORDER BY wt.createdAt DESC, wt.id DESC")
+    List<WalletTransaction> findLatestByTransactionType(@Param("transactionType") TransactionType transactionType,
+                                                        Pageable pageable);
+
+    @Query("SELECT wt FROM WalletTransaction wt WHERE wt.transactionType = :transactionType AND wt.active = true " +
+           "AND (wt.createdAt < :createdAt OR (wt.createdAt = :createdAt AND wt.id < :id)) " +
+           "ORDER BY wt.createdAt DESC, wt.id DESC")
+    List<WalletTransaction> findLatestByTransactionTypeBefore(@Param("transactionType") TransactionType transactionType,
+                                                              @Param("createdAt") Instant createdAt,
+                                                              @Param("id") Long id,
+                                                              Pageable pageable);
+
+    // Credits less debits of a wallet from the given time on
+    @Query("SELECT COALESCE(SUM(CASE WHEN wt.transactionType = org.driver.driverapp.enums.TransactionType.CREDIT " +
+           "THEN wt.amount WHEN wt.transactionType = org.driver.driverapp.enums.TransactionType.DEBIT " +
+           "THEN -wt.amount ELSE 0 END), 0) FROM WalletTransaction wt " +
+           "WHERE wt.wallet.id = :walletId AND wt.createdAt >= :since AND wt.active = true")
+    BigDecimal sumNetAmountByWalletIdSince(@Param("walletId") Long walletId, @Param("since") Instant since);
+
+    // A wallet's transactions of a time range, oldest first, read through a cursor for statement exports
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT wt.id AS id, wt.createdAt AS createdAt, wt.transactionType AS transactionType, " +
+           "wt.amount AS amount, wt.reference AS reference, wt.description AS description " +
+           "FROM WalletTransaction wt WHERE wt.wallet.id = :walletId AND wt.createdAt >= :from " +
+           "AND wt.createdAt < :to AND wt.active = true ORDER BY wt.createdAt, wt.id")
+    Stream<StatementEntry> streamStatement(@Param("walletId") Long walletId,
+                                           @Param("from") Instant from,
+                                           @Param("to") Instant to);
+
     // Find transactions by owner type
     @Query("SELECT wt FROM WalletTransaction wt WHERE wt.wallet.ownerType = :ownerType AND wt.active = true ORDER BY wt.createdAt DESC")
     List<WalletTransaction> findByOwnerType(@Param("ownerType") String ownerType);
+
+    interface StatementEntry {
+        Long getId();
+        Instant getCreatedAt();
+        TransactionType getTransactionType();
+        BigDecimal getAmount();
+        String getReference();
+        String getDescription();
+    }
 }
@@ -6,13 +6,21 @@ import org.driver.driverapp.dto.analytics.request.CreateAnalyticsRecordRequestDT
 import org.driver.driverapp.dto.analytics.response.*;
 import org.driver.driverapp.enums.AnalyticsRecordType;
 import org.driver.driverapp.enums.DeliveryStatus;
-import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.enums.RollupScope;
 import org.driver.driverapp.mapper.AnalyticsRecordMapper;
 import org.driver.driverapp.model.AnalyticsRecord;
+import org.driver.driverapp.model.AnalyticsRollup;
 import org.driver.driverapp.repository.*;
+import org.driver.driverapp.service.analytics.AnalyticsQueryExecutor;
+import org.driver.driverapp.service.analytics.AnalyticsRollupService;
+import org.driver.driverapp.service.analytics.AnalyticsSketchService;
+import org.driver.driverapp.service.analytics.AnalyticsSummaryCache;
+import org.driver.driverapp.service.analytics.AnalyticsWindows;
+import org.driver.driverapp.service.analytics.DeliverySketchSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -21,6 +29,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
@@ -30,6 +39,8 @@ import java.util.ArrayList;
 @Transactional
 public class AnalyticsService {
     
+    private static final int LOW_STOCK_THRESHOLD = 10;
+    
     private final AnalyticsRecordRepository analyticsRecordRepository;
     private final DeliveryRepository deliveryRepository;
     private final DriverRepository driverRepository;
@@ -38,6 +49,10 @@ public class AnalyticsService {
     private final PaymentRepository paymentRepository;
     private final InventoryItemRepository inventoryItemRepository;
     private final AnalyticsRecordMapper analyticsRecordMapper;
+    private final AnalyticsQueryExecutor analyticsQueryExecutor;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final AnalyticsSketchService analyticsSketchService;
+    private final AnalyticsSummaryCache analyticsSummaryCache;
     
     // Analytics Record Management
     public AnalyticsRecordResponseDTO createAnalyticsRecord(CreateAnalyticsRecordRequestDTO request) {
@@ -61,219 +76,128 @@ public class AnalyticsService {
     }
     
     // Admin Dashboard Analytics
+    // Served through the stale-while-revalidate cache. A computation issues one aggregate query
+    // per table, fanned out on the analytics pool; no transaction is held on the request thread
+    // while the workers run.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AdminAnalyticsSummaryDTO getAdminAnalyticsSummary(LocalDate fromDate, LocalDate toDate) {
+        return analyticsSummaryCache.get("admin-summary:" + fromDate + ":" + toDate, AdminAnalyticsSummaryDTO.class,
+                () -> computeAdminAnalyticsSummary(fromDate, toDate));
+    }
+    
+    private AdminAnalyticsSummaryDTO computeAdminAnalyticsSummary(LocalDate fromDate, LocalDate toDate) {
         log.info("Generating admin analytics summary from {} to {}", fromDate, toDate);
         
-        // Note: startDate and endDate are calculated but not used in current implementation
-        // They are kept for potential future use in date-range specific queries
-        Instant endDate = toDate.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant();
-        
-        // Delivery metrics
-        Long totalDeliveriesToday = deliveryRepository.countByCreatedAtBetween(
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        Long totalDeliveriesThisWeek = deliveryRepository.countByCreatedAtBetween(
-                LocalDate.now().minusWeeks(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long totalDeliveriesThisMonth = deliveryRepository.countByCreatedAtBetween(
-                LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long failedDeliveriesToday = deliveryRepository.countByStatusAndCreatedAtBetween(
-                DeliveryStatus.DELIVERY_FAILED,
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        Long failedDeliveriesThisWeek = deliveryRepository.countByStatusAndCreatedAtBetween(
-                DeliveryStatus.DELIVERY_FAILED,
-                LocalDate.now().minusWeeks(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long failedDeliveriesThisMonth = deliveryRepository.countByStatusAndCreatedAtBetween(
-                DeliveryStatus.DELIVERY_FAILED,
-                LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        // Driver metrics
-        Long activeDriversToday = driverRepository.countByStatusAndLastActiveAtBetween(
-                DriverStatus.AVAILABLE,
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long totalDrivers = driverRepository.count();
-        Long driversOnDelivery = driverRepository.countByStatus(DriverStatus.BUSY);
-        Long driversAvailable = driverRepository.countByStatus(DriverStatus.AVAILABLE);
-        
-        // Revenue metrics
-        BigDecimal totalRevenueToday = paymentRepository.sumAmountByStatusAndCreatedAtBetween(
-                "COMPLETED",
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        BigDecimal totalRevenueThisWeek = paymentRepository.sumAmountByStatusAndCreatedAtBetween(
-                "COMPLETED",
-                LocalDate.now().minusWeeks(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        BigDecimal totalRevenueThisMonth = paymentRepository.sumAmountByStatusAndCreatedAtBetween(
-                "COMPLETED",
-                LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        BigDecimal averageOrderValue = paymentRepository.findAverageOrderValue();
-        
-        // Partner metrics
-        Long activePartners = partnerRepository.countByActiveTrue();
-        Long totalPartners = partnerRepository.count();
-        
-        // Customer metrics
-        Long newCustomersToday = customerRepository.countByCreatedAtBetween(
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        Long totalCustomers = customerRepository.count();
+        AnalyticsWindows windows = AnalyticsWindows.current();
+        
+        // Delivery windows come from day rollups when they cover the month, else from delivery rows
+        CompletableFuture<DeliveryRepository.DeliveryWindowCounts> deliveryFuture = analyticsQueryExecutor.submit(() ->
+                analyticsRollupService.findDeliveryWindows(RollupScope.GLOBAL, AnalyticsRollup.GLOBAL_KEY,
+                                DeliveryStatus.DELIVERY_FAILED, windows)
+                        .orElseGet(() -> deliveryRepository.summarizeWindows(DeliveryStatus.DELIVERY_FAILED,
+                                windows.getTodayStart(), windows.getTodayEnd(), windows.getWeekStart(),
+                                windows.getMonthStart(), windows.getNow())));
+        CompletableFuture<PaymentRepository.PaymentWindowTotals> paymentFuture = analyticsQueryExecutor.submit(() ->
+                paymentRepository.summarizeWindows(windows.getTodayStart(), windows.getTodayEnd(),
+                        windows.getWeekStart(), windows.getMonthStart(), windows.getNow()));
+        CompletableFuture<DriverRepository.DriverStatusCounts> driverFuture = analyticsQueryExecutor.submit(() ->
+                driverRepository.summarizeStatuses(windows.localTodayStart(), windows.localNow()));
+        CompletableFuture<PartnerRepository.PartnerCounts> partnerFuture = analyticsQueryExecutor.submit(
+                partnerRepository::summarizeCounts);
+        CompletableFuture<CustomerRepository.CustomerCounts> customerFuture = analyticsQueryExecutor.submit(() ->
+                customerRepository.summarizeCounts(windows.getTodayStart(), windows.getTodayEnd()));
+        
+        DeliveryRepository.DeliveryWindowCounts deliveries = analyticsQueryExecutor.await(deliveryFuture);
+        PaymentRepository.PaymentWindowTotals revenue = analyticsQueryExecutor.await(paymentFuture);
+        DriverRepository.DriverStatusCounts drivers = analyticsQueryExecutor.await(driverFuture);
+        PartnerRepository.PartnerCounts partners = analyticsQueryExecutor.await(partnerFuture);
+        CustomerRepository.CustomerCounts customers = analyticsQueryExecutor.await(customerFuture);
         
         return AdminAnalyticsSummaryDTO.builder()
-                .totalDeliveriesToday(totalDeliveriesToday)
-                .totalDeliveriesThisWeek(totalDeliveriesThisWeek)
-                .totalDeliveriesThisMonth(totalDeliveriesThisMonth)
-                .failedDeliveriesToday(failedDeliveriesToday)
-                .failedDeliveriesThisWeek(failedDeliveriesThisWeek)
-                .failedDeliveriesThisMonth(failedDeliveriesThisMonth)
-                .activeDriversToday(activeDriversToday)
-                .totalDrivers(totalDrivers)
-                .driversOnDelivery(driversOnDelivery)
-                .driversAvailable(driversAvailable)
-                .totalRevenueToday(totalRevenueToday != null ? totalRevenueToday : BigDecimal.ZERO)
-                .totalRevenueThisWeek(totalRevenueThisWeek != null ? totalRevenueThisWeek : BigDecimal.ZERO)
-                .totalRevenueThisMonth(totalRevenueThisMonth != null ? totalRevenueThisMonth : BigDecimal.ZERO)
-                .averageOrderValue(averageOrderValue != null ? averageOrderValue : BigDecimal.ZERO)
-                .activePartners(activePartners)
-                .totalPartners(totalPartners)
-                .newCustomersToday(newCustomersToday)
-                .totalCustomers(totalCustomers)
+                .totalDeliveriesToday(deliveries.getTotalToday())
+                .totalDeliveriesThisWeek(deliveries.getTotalThisWeek())
+                .totalDeliveriesThisMonth(deliveries.getTotalThisMonth())
+                .failedDeliveriesToday(deliveries.getStatusToday())
+                .failedDeliveriesThisWeek(deliveries.getStatusThisWeek())
+                .failedDeliveriesThisMonth(deliveries.getStatusThisMonth())
+                .activeDriversToday(drivers.getActiveToday())
+                .totalDrivers(drivers.getTotalDrivers())
+                .driversOnDelivery(drivers.getDriversOnDelivery())
+                .driversAvailable(drivers.getDriversAvailable())
+                .totalRevenueToday(orZero(revenue.getCompletedToday()))
+                .totalRevenueThisWeek(orZero(revenue.getCompletedThisWeek()))
+                .totalRevenueThisMonth(orZero(revenue.getCompletedThisMonth()))
+                .averageOrderValue(orZero(revenue.getAverageAmount()))
+                .activePartners(partners.getActivePartners())
+                .totalPartners(partners.getTotalPartners())
+                .newCustomersToday(customers.getNewCustomers())
+                .totalCustomers(customers.getTotalCustomers())
                 .fromDate(fromDate)
                 .toDate(toDate)
                 .build();
     }
     
     // Partner Dashboard Analytics
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PartnerAnalyticsSummaryDTO getPartnerAnalyticsSummary(Long partnerId, LocalDate fromDate, LocalDate toDate) {
+        return analyticsSummaryCache.get("partner-summary:" + partnerId + ":" + fromDate + ":" + toDate,
+                PartnerAnalyticsSummaryDTO.class, () -> computePartnerAnalyticsSummary(partnerId, fromDate, toDate));
+    }
+    
+    private PartnerAnalyticsSummaryDTO computePartnerAnalyticsSummary(Long partnerId, LocalDate fromDate, LocalDate toDate) {
         log.info("Generating partner analytics summary for partnerId={} from {} to {}", partnerId, fromDate, toDate);
         
-        Instant startDate = fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        Instant endDate = toDate.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant();
-        
-        // Order metrics
-        Long totalOrdersToday = deliveryRepository.countByPartnerIdAndCreatedAtBetween(
-                partnerId,
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        Long totalOrdersThisWeek = deliveryRepository.countByPartnerIdAndCreatedAtBetween(
-                partnerId,
-                LocalDate.now().minusWeeks(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long totalOrdersThisMonth = deliveryRepository.countByPartnerIdAndCreatedAtBetween(
-                partnerId,
-                LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long completedOrdersToday = deliveryRepository.countByPartnerIdAndStatusAndCreatedAtBetween(
-                partnerId,
-                DeliveryStatus.DELIVERED,
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        Long completedOrdersThisWeek = deliveryRepository.countByPartnerIdAndStatusAndCreatedAtBetween(
-                partnerId,
-                DeliveryStatus.DELIVERED,
-                LocalDate.now().minusWeeks(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        Long completedOrdersThisMonth = deliveryRepository.countByPartnerIdAndStatusAndCreatedAtBetween(
-                partnerId,
-                DeliveryStatus.DELIVERED,
-                LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        // Billing metrics
-        BigDecimal totalBillingToday = paymentRepository.sumAmountByPartnerIdAndStatusAndCreatedAtBetween(
-                partnerId,
-                "COMPLETED",
-                LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                LocalDate.now().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant()
-        );
-        
-        BigDecimal totalBillingThisWeek = paymentRepository.sumAmountByPartnerIdAndStatusAndCreatedAtBetween(
-                partnerId,
-                "COMPLETED",
-                LocalDate.now().minusWeeks(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        BigDecimal totalBillingThisMonth = paymentRepository.sumAmountByPartnerIdAndStatusAndCreatedAtBetween(
-                partnerId,
-                "COMPLETED",
-                LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
-                Instant.now()
-        );
-        
-        BigDecimal pendingBillingAmount = paymentRepository.sumAmountByPartnerIdAndStatus(partnerId, "PENDING");
-        BigDecimal paidBillingAmount = paymentRepository.sumAmountByPartnerIdAndStatus(partnerId, "COMPLETED");
-        
-        // Inventory metrics
-        Long totalInventoryItems = inventoryItemRepository.countByPartnerIdAndActiveTrue(partnerId);
-        Long lowStockItems = inventoryItemRepository.countByPartnerIdAndQuantityLessThanAndActiveTrue(partnerId, 10L);
-        Long outOfStockItems = inventoryItemRepository.countByPartnerIdAndQuantityEqualsAndActiveTrue(partnerId, 0L);
-        Long expiredItems = inventoryItemRepository.countByPartnerIdAndExpiryDateBeforeAndActiveTrue(partnerId, LocalDate.now());
-        BigDecimal totalInventoryValue = inventoryItemRepository.sumTotalValueByPartnerIdAndActiveTrue(partnerId);
-        
-        // Performance metrics
-        BigDecimal averageOrderValue = paymentRepository.findAverageOrderValueByPartnerId(partnerId);
-        Long totalCustomers = deliveryRepository.countDistinctCustomerIdByPartnerId(partnerId);
-        Long repeatCustomers = deliveryRepository.countRepeatCustomersByPartnerId(partnerId);
+        AnalyticsWindows windows = AnalyticsWindows.current();
+        
+        CompletableFuture<DeliveryRepository.DeliveryWindowCounts> orderFuture = analyticsQueryExecutor.submit(() ->
+                analyticsRollupService.findDeliveryWindows(RollupScope.PARTNER, partnerId.toString(),
+                                DeliveryStatus.DELIVERED, windows)
+                        .orElseGet(() -> deliveryRepository.summarizeWindowsByPartnerId(partnerId, DeliveryStatus.DELIVERED,
+                                windows.getTodayStart(), windows.getTodayEnd(), windows.getWeekStart(),
+                                windows.getMonthStart(), windows.getNow())));
+        CompletableFuture<PaymentRepository.PaymentWindowTotals> billingFuture = analyticsQueryExecutor.submit(() ->
+                paymentRepository.summarizeWindowsByPartnerId(partnerId, windows.getTodayStart(), windows.getTodayEnd(),
+                        windows.getWeekStart(), windows.getMonthStart(), windows.getNow()));
+        CompletableFuture<InventoryItemRepository.InventorySummary> inventoryFuture = analyticsQueryExecutor.submit(() ->
+                inventoryItemRepository.summarizeByPartnerId(partnerId, LOW_STOCK_THRESHOLD, windows.getToday()));
+        // Distinct customers and percentiles merge the daily sketches of the requested range
+        CompletableFuture<DeliverySketchSummary> sketchFuture = analyticsQueryExecutor.submit(() ->
+                analyticsSketchService.summarizePartner(partnerId, fromDate, toDate));
+        CompletableFuture<Long> repeatCustomerFuture = analyticsQueryExecutor.submit(() ->
+                deliveryRepository.countRepeatCustomersByPartnerIdBetween(partnerId,
+                        fromDate.atStartOfDay(windows.getZone()).toInstant(),
+                        toDate.plusDays(1).atStartOfDay(windows.getZone()).toInstant()));
+        
+        DeliveryRepository.DeliveryWindowCounts orders = analyticsQueryExecutor.await(orderFuture);
+        PaymentRepository.PaymentWindowTotals billing = analyticsQueryExecutor.await(billingFuture);
+        InventoryItemRepository.InventorySummary inventory = analyticsQueryExecutor.await(inventoryFuture);
+        DeliverySketchSummary sketches = analyticsQueryExecutor.await(sketchFuture);
+        Long repeatCustomers = analyticsQueryExecutor.await(repeatCustomerFuture);
         
         return PartnerAnalyticsSummaryDTO.builder()
-                .totalOrdersToday(totalOrdersToday)
-                .totalOrdersThisWeek(totalOrdersThisWeek)
-                .totalOrdersThisMonth(totalOrdersThisMonth)
-                .completedOrdersToday(completedOrdersToday)
-                .completedOrdersThisWeek(completedOrdersThisWeek)
-                .completedOrdersThisMonth(completedOrdersThisMonth)
-                .totalBillingToday(totalBillingToday != null ? totalBillingToday : BigDecimal.ZERO)
-                .totalBillingThisWeek(totalBillingThisWeek != null ? totalBillingThisWeek : BigDecimal.ZERO)
-                .totalBillingThisMonth(totalBillingThisMonth != null ? totalBillingThisMonth : BigDecimal.ZERO)
-                .pendingBillingAmount(pendingBillingAmount != null ? pendingBillingAmount : BigDecimal.ZERO)
-                .paidBillingAmount(paidBillingAmount != null ? paidBillingAmount : BigDecimal.ZERO)
-                .totalInventoryItems(totalInventoryItems)
-                .lowStockItems(lowStockItems)
-                .outOfStockItems(outOfStockItems)
-                .expiredItems(expiredItems)
-                .totalInventoryValue(totalInventoryValue != null ? totalInventoryValue : BigDecimal.ZERO)
-                .averageOrderValue(averageOrderValue != null ? averageOrderValue : BigDecimal.ZERO)
-                .totalCustomers(totalCustomers)
-                .repeatCustomers(repeatCustomers)
+                .totalOrdersToday(orders.getTotalToday())
+                .totalOrdersThisWeek(orders.getTotalThisWeek())
+                .totalOrdersThisMonth(orders.getTotalThisMonth())
+                .completedOrdersToday(orders.getStatusToday())
+                .completedOrdersThisWeek(orders.getStatusThisWeek())
+                .completedOrdersThisMonth(orders.getStatusThisMonth())
+                .totalBillingToday(orZero(billing.getCompletedToday()))
+                .totalBillingThisWeek(orZero(billing.getCompletedThisWeek()))
+                .totalBillingThisMonth(orZero(billing.getCompletedThisMonth()))
+                .pendingBillingAmount(orZero(billing.getPendingTotal()))
+                .paidBillingAmount(orZero(billing.getCompletedTotal()))
+                .totalInventoryItems(inventory.getTotalItems())
+                .lowStockItems(inventory.getLowStockItems())
+                .outOfStockItems(inventory.getOutOfStockItems())
+                .expiredItems(inventory.getExpiredItems())
+                .totalInventoryValue(orZero(inventory.getTotalValue()))
+                .averageOrderValue(orZero(billing.getAverageAmount()))
+                .totalCustomers(sketches.getDistinctCustomers())
+                .repeatCustomers(repeatCustomers != null ? repeatCustomers : 0L)
+                .deliveryMinutesP50(sketches.getDeliveryMinutesP50())
+                .deliveryMinutesP95(sketches.getDeliveryMinutesP95())
+                .orderValueP50(toMoney(sketches.getOrderValueP50()))
+                .orderValueP95(toMoney(sketches.getOrderValueP95()))
                 .fromDate(fromDate)
                 .toDate(toDate)
                 .build();
@@ -311,6 +235,11 @@ public class AnalyticsService {
     
     // Compliance Report
     public ComplianceReportDTO getComplianceReport(LocalDate fromDate, LocalDate toDate) {
+        return analyticsSummaryCache.get("compliance-report:" + fromDate + ":" + toDate, ComplianceReportDTO.class,
+                () -> computeComplianceReport(fromDate, toDate));
+    }
+    
+    private ComplianceReportDTO computeComplianceReport(LocalDate fromDate, LocalDate toDate) {
         log.info("Generating compliance report from {} to {}", fromDate, toDate);
         
         Instant startDate = fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
@@ -441,6 +370,14 @@ public class AnalyticsService {
         return score.max(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
     }
     
+    private static BigDecimal toMoney(Double value) {
+        return value != null ? BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP) : null;
+    }
+    
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+    
     private String getComplianceStatus(BigDecimal score) {
         if (score.compareTo(BigDecimal.valueOf(90)) >= 0) return "EXCELLENT";
         if (score.compareTo(BigDecimal.valueOf(80)) >= 0) return "GOOD";
@@ -2,21 +2,31 @@ package org.driver.driverapp.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.driver.driverapp.dto.audit.request.CreateAuditLogRequestDTO;
 import org.driver.driverapp.dto.audit.response.AuditLogResponseDTO;
+import org.driver.driverapp.dto.audit.response.AuditStateResponseDTO;
 import org.driver.driverapp.enums.AuditAction;
 import org.driver.driverapp.enums.AuditEntityType;
 import org.driver.driverapp.mapper.AuditLogMapper;
 import org.driver.driverapp.model.AuditLog;
 import org.driver.driverapp.repository.AuditLogRepository;
+import org.driver.driverapp.service.audit.AuditArchive;
+import org.driver.driverapp.service.audit.AuditLogWriter;
+import org.driver.driverapp.service.audit.AuditSnapshotter;
+import org.driver.driverapp.service.audit.JsonFieldPatch;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,42 +39,54 @@ public class AuditLogService {
     private final AuditLogRepository auditLogRepository;
     private final AuditLogMapper auditLogMapper;
     private final ObjectMapper objectMapper;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditSnapshotter auditSnapshotter;
+    private final AuditArchive auditArchive;
     
     /**
-     * Create an audit log entry
+     * Create an audit log entry. Unless the writer runs in sync mode the entry is written
+     * after this call returns, and the response carries no id.
      */
     public AuditLogResponseDTO createAuditLog(CreateAuditLogRequestDTO request) {
         log.info("Creating audit log: entityType={}, entityId={}, action={}", 
                 request.getEntityType(), request.getEntityId(), request.getAction());
         
         AuditLog auditLog = auditLogMapper.toEntity(request);
-        AuditLog savedAuditLog = auditLogRepository.save(auditLog);
+        auditLogWriter.write(auditLog);
         
-        return auditLogMapper.toResponseDTO(savedAuditLog);
+        return auditLogMapper.toResponseDTO(auditLog);
     }
     
     /**
-     * Create audit log with before/after snapshots
+     * Create audit log with before/after snapshots. In diff mode only a patch of the changed
+     * fields is stored, captured field by field instead of serializing the entity graph.
      */
     public AuditLogResponseDTO createAuditLogWithSnapshots(AuditEntityType entityType, Long entityId, 
                                                           AuditAction action, Object beforeSnapshot, 
                                                           Object afterSnapshot, Long userId, String userEmail) {
+        CreateAuditLogRequestDTO.CreateAuditLogRequestDTOBuilder request = CreateAuditLogRequestDTO.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .action(action)
+                .userId(userId)
+                .userEmail(userEmail);
+        
+        if (auditSnapshotter.isDiffMode()) {
+            ArrayNode diff = auditSnapshotter.diff(beforeSnapshot, afterSnapshot);
+            request.snapshotDiff(diff.toString())
+                    .changesSummary(generateChangesSummary(beforeSnapshot, afterSnapshot, JsonFieldPatch.changedFields(diff)));
+            return createAuditLog(request.build());
+        }
+        
         try {
             String beforeJson = beforeSnapshot != null ? objectMapper.writeValueAsString(beforeSnapshot) : null;
             String afterJson = afterSnapshot != null ? objectMapper.writeValueAsString(afterSnapshot) : null;
             
-            CreateAuditLogRequestDTO request = CreateAuditLogRequestDTO.builder()
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .action(action)
-                    .userId(userId)
-                    .userEmail(userEmail)
-                    .beforeSnapshot(beforeJson)
+            request.beforeSnapshot(beforeJson)
                     .afterSnapshot(afterJson)
-                    .changesSummary(generateChangesSummary(beforeSnapshot, afterSnapshot))
-                    .build();
+                    .changesSummary(generateChangesSummary(beforeSnapshot, afterSnapshot, null));
             
-            return createAuditLog(request);
+            return createAuditLog(request.build());
         } catch (JsonProcessingException e) {
             log.error("Error serializing audit snapshots for entityType={}, entityId={}", entityType, entityId, e);
             throw new RuntimeException("Failed to create audit log", e);
@@ -72,45 +94,56 @@ public class AuditLogService {
     }
     
     /**
-     * Get audit logs by entity type and ID
+     * Get audit logs by entity type and ID, newest first, including archived entries
      */
     public List<AuditLogResponseDTO> getAuditLogsByEntity(AuditEntityType entityType, Long entityId) {
-        List<AuditLog> auditLogs = auditLogRepository.findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtDesc(entityType, entityId);
+        List<AuditLog> auditLogs = new ArrayList<>(
+                auditLogRepository.findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtDesc(entityType, entityId));
+        List<AuditLog> archived = auditArchive.findByEntity(entityType, entityId);
+        Collections.reverse(archived);
+        auditLogs.addAll(archived);
         return auditLogs.stream()
                 .map(auditLogMapper::toResponseDTO)
                 .toList();
     }
     
     /**
-     * Get audit logs by user
+     * Get audit logs by user, newest first, including archived entries
      */
     public Page<AuditLogResponseDTO> getAuditLogsByUser(Long userId, Pageable pageable) {
         Page<AuditLog> auditLogs = auditLogRepository.findByUserIdAndActiveTrueOrderByCreatedAtDesc(userId, pageable);
-        return auditLogs.map(auditLogMapper::toResponseDTO);
+        return withArchived(auditLogs, pageable, AuditArchive.Filter.byUser(userId));
     }
     
     /**
-     * Get audit logs by action
+     * Get audit logs by action, newest first, including archived entries
      */
     public Page<AuditLogResponseDTO> getAuditLogsByAction(AuditAction action, Pageable pageable) {
         Page<AuditLog> auditLogs = auditLogRepository.findByActionAndActiveTrueOrderByCreatedAtDesc(action, pageable);
-        return auditLogs.map(auditLogMapper::toResponseDTO);
+        return withArchived(auditLogs, pageable, AuditArchive.Filter.byAction(action));
     }
     
     /**
-     * Get audit logs by entity type
+     * Get audit logs by entity type, newest first, including archived entries
      */
     public Page<AuditLogResponseDTO> getAuditLogsByEntityType(AuditEntityType entityType, Pageable pageable) {
         Page<AuditLog> auditLogs = auditLogRepository.findByEntityTypeAndActiveTrueOrderByCreatedAtDesc(entityType, pageable);
-        return auditLogs.map(auditLogMapper::toResponseDTO);
+        return withArchived(auditLogs, pageable, AuditArchive.Filter.byEntityType(entityType));
     }
     
     /**
-     * Get audit logs by date range
+     * Get audit logs by date range, newest first. Archived entries are all older than those
+     * still in the table, so they follow the table's entries; the archive is only read for
+     * ranges it covers and pages reaching past the table's entries.
      */
     public Page<AuditLogResponseDTO> getAuditLogsByDateRange(Instant startDate, Instant endDate, Pageable pageable) {
-        Page<AuditLog> auditLogs = auditLogRepository.findByCreatedAtBetween(startDate, endDate, pageable);
-        return auditLogs.map(auditLogMapper::toResponseDTO);
+        Page<AuditLog> hot = auditLogRepository.findByCreatedAtBetween(startDate, endDate, pageable);
+        if (!auditArchive.overlaps(startDate, endDate)) {
+            return hot.map(auditLogMapper::toResponseDTO);
+        }
+        
+        return appendArchived(hot, pageable, auditArchive.countBetween(startDate, endDate),
+                (offset, limit) -> auditArchive.findBetween(startDate, endDate, offset, limit));
     }
     
     /**
@@ -122,31 +155,101 @@ public class AuditLogService {
     }
     
     /**
-     * Get recent audit logs for compliance scoring
+     * Reconstruct an entity's state by replaying its audit history from the first entry,
+     * archived entries included. Version n is the state after the n-th entry; the latest state
+     * when no version is given.
      */
-    public List<AuditLog> getRecentAuditLogsForCompliance(List<AuditEntityType> entityTypes, 
-                                                         Instant startDate, Instant endDate) {
-        return auditLogRepository.findRecentAuditLogsForCompliance(entityTypes, startDate, endDate);
+    @Transactional(readOnly = true)
+    public Optional<AuditStateResponseDTO> reconstructState(AuditEntityType entityType, Long entityId, Integer version) {
+        if (version != null && version < 1) {
+            throw new IllegalArgumentException("version must be at least 1");
+        }
+        
+        List<AuditLog> auditLogs = new ArrayList<>(auditArchive.findByEntity(entityType, entityId));
+        if (version != null && auditLogs.size() >= version) {
+            auditLogs = auditLogs.subList(0, version);
+        } else {
+            Pageable history = version != null ? PageRequest.of(0, version - auditLogs.size()) : Pageable.unpaged();
+            auditLogs.addAll(auditLogRepository.findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtAscIdAsc(
+                    entityType, entityId, history));
+        }
+        if (auditLogs.isEmpty() || (version != null && auditLogs.size() < version)) {
+            return Optional.empty();
+        }
+        
+        AuditLog last = auditLogs.get(auditLogs.size() - 1);
+        return Optional.of(AuditStateResponseDTO.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .version(auditLogs.size())
+                .auditLogId(last.getId())
+                .action(last.getAction())
+                .asOf(last.getCreatedAt())
+                .state(auditSnapshotter.replay(auditLogs))
+                .build());
     }
     
     /**
-     * Count audit logs by entity type and action
+     * Count audit logs by entity type and action, including archived entries
      */
     public Long countByEntityTypeAndAction(AuditEntityType entityType, AuditAction action) {
-        return auditLogRepository.countByEntityTypeAndAction(entityType, action);
+        return auditLogRepository.countByEntityTypeAndAction(entityType, action)
+                + countArchived(AuditArchive.Filter.byEntityType(entityType).andAction(action));
     }
     
     /**
-     * Count audit logs by user and action
+     * Count audit logs by user and action, including archived entries
      */
     public Long countByUserIdAndAction(Long userId, AuditAction action) {
-        return auditLogRepository.countByUserIdAndAction(userId, action);
+        return auditLogRepository.countByUserIdAndAction(userId, action)
+                + countArchived(AuditArchive.Filter.byUser(userId).andAction(action));
+    }
+    
+    private long countArchived(AuditArchive.Filter filter) {
+        return auditArchive.isEmpty() ? 0 : auditArchive.count(filter);
+    }
+    
+    /**
+     * A page of the table's entries followed by the archived entries matching the filter; only
+     * archive blocks whose index admits the filter are read.
+     */
+    private Page<AuditLogResponseDTO> withArchived(Page<AuditLog> hot, Pageable pageable, AuditArchive.Filter filter) {
+        if (auditArchive.isEmpty()) {
+            return hot.map(auditLogMapper::toResponseDTO);
+        }
+        return appendArchived(hot, pageable, auditArchive.count(filter),
+                (offset, limit) -> auditArchive.find(filter, offset, limit));
+    }
+    
+    /**
+     * Archived entries are all older than those still in the table, so they follow the table's
+     * entries and are only read for pages reaching past them.
+     */
+    private Page<AuditLogResponseDTO> appendArchived(Page<AuditLog> hot, Pageable pageable, long archivedTotal,
+                                                     ArchivedEntries archived) {
+        List<AuditLog> auditLogs = new ArrayList<>(hot.getContent());
+        if (archivedTotal == 0) {
+            return hot.map(auditLogMapper::toResponseDTO);
+        }
+        if (pageable.isUnpaged()) {
+            auditLogs.addAll(archived.find(0, Math.toIntExact(archivedTotal)));
+        } else if (auditLogs.size() < pageable.getPageSize()) {
+            long archivedOffset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+            auditLogs.addAll(archived.find(archivedOffset, pageable.getPageSize() - auditLogs.size()));
+        }
+        return new PageImpl<>(auditLogs, pageable, hot.getTotalElements() + archivedTotal)
+                .map(auditLogMapper::toResponseDTO);
+    }
+    
+    @FunctionalInterface
+    private interface ArchivedEntries {
+        List<AuditLog> find(long offset, int limit);
     }
     
     /**
      * Generate a summary of changes between before and after snapshots
      */
-    private String generateChangesSummary(Object before, Object after) {
+    private String generateChangesSummary(Object before, Object after, List<String> changedFields) {
         if (before == null && after == null) {
             return "No changes";
         }
@@ -159,8 +262,10 @@ public class AuditLogService {
             return "Entity deleted";
         }
         
-        // Simple change detection - in a real implementation, you might want to use a more sophisticated diff library
-        return "Entity updated";
+        if (changedFields == null) {
+            return "Entity updated";
+        }
+        return changedFields.isEmpty() ? "No changes" : "Entity updated: " + String.join(", ", changedFields);
     }
 }
 
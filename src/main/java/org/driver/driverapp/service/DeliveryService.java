@@ -14,13 +14,17 @@ import org.driver.driverapp.model.Partner;
 import org.driver.driverapp.repository.DeliveryRepository;
 import org.driver.driverapp.repository.DriverRepository;
 import org.driver.driverapp.repository.PartnerRepository;
+import org.driver.driverapp.service.delivery.DeliveryStatusChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -37,6 +41,7 @@ public class DeliveryService {
     private final PartnerRepository partnerRepository;
     private final DriverRepository driverRepository;
     private final DeliveryMapper deliveryMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     public DeliveryResponseDTO createDelivery(CreateDeliveryRequestDTO dto) {
         Partner pickupPartner = partnerRepository.findById(dto.getPickupPartnerId())
@@ -50,20 +55,61 @@ public class DeliveryService {
     }
 
     public List<DeliveryResponseDTO> getAllDeliveries() {
-        return deliveryRepository.findAll()
+        return deliveryRepository.findAllWithParties()
                 .stream()
                 .map(deliveryMapper::toDTO)
                 .collect(Collectors.toList());
     }
 
     public Optional<DeliveryResponseDTO> getDeliveryById(Long id) {
-        return deliveryRepository.findById(id).map(deliveryMapper::toDTO);
+        return deliveryRepository.findWithPartiesById(id).map(deliveryMapper::toDTO);
     }
 
     public void deleteDelivery(Long id) {
         deliveryRepository.deleteById(id);
     }
 
+    /**
+     * Move a delivery to a new status, enforcing the transitions allowed by {@link DeliveryStatus}.
+     * Re-applying the current status is a no-op, so client retries never publish a second event.
+     */
+    @Transactional
+    public DeliveryResponseDTO updateStatus(Long deliveryId, DeliveryStatus newStatus, String message) {
+        Delivery delivery = deliveryRepository.findWithPartiesById(deliveryId)
+                .orElseThrow(() -> new IllegalArgumentException("Delivery not found"));
+
+        DeliveryStatus previousStatus = delivery.getStatus();
+        if (previousStatus == newStatus) {
+            return deliveryMapper.toDTO(delivery);
+        }
+        if (previousStatus != null && !previousStatus.canTransitionTo(newStatus)) {
+            throw new IllegalStateException("Delivery cannot transition from " + previousStatus + " to " + newStatus);
+        }
+
+        log.info("Delivery {} status {} -> {}", deliveryId, previousStatus, newStatus);
+        delivery.setStatus(newStatus);
+        if (newStatus == DeliveryStatus.PICKED_UP && delivery.getPickupTime() == null) {
+            delivery.setPickupTime(OffsetDateTime.now(ZoneOffset.UTC));
+        } else if (newStatus == DeliveryStatus.DELIVERED && delivery.getDropoffTime() == null) {
+            delivery.setDropoffTime(OffsetDateTime.now(ZoneOffset.UTC));
+        }
+        Delivery savedDelivery = deliveryRepository.save(delivery);
+
+        eventPublisher.publishEvent(DeliveryStatusChangedEvent.builder()
+                .deliveryId(savedDelivery.getId())
+                .previousStatus(previousStatus)
+                .newStatus(newStatus)
+                .driverId(savedDelivery.getDriver() != null ? savedDelivery.getDriver().getId() : null)
+                .driverName(savedDelivery.getDriver() != null ? savedDelivery.getDriver().getName() : null)
+                .customerId(savedDelivery.getCustomer() != null ? savedDelivery.getCustomer().getId() : null)
+                .partnerId(savedDelivery.getPartner() != null ? savedDelivery.getPartner().getId() : null)
+                .message(message)
+                .changedAt(Instant.now())
+                .build());
+
+        return deliveryMapper.toDTO(savedDelivery);
+    }
+
     /**
      * Upload proof of delivery for a delivery
      * Business rule: A delivery cannot transition to COMPLETED without proof
@@ -132,10 +178,10 @@ public class DeliveryService {
      */
     private boolean canUploadProofOfDelivery(Delivery delivery) {
         // Can upload POD if delivery is in progress, picked up, or in transit
-        String status = delivery.getStatus();
-        return DeliveryStatus.IN_PROGRESS.name().equals(status) ||
-               DeliveryStatus.PICKED_UP.name().equals(status) ||
-               DeliveryStatus.IN_TRANSIT.name().equals(status);
+        DeliveryStatus status = delivery.getStatus();
+        return status == DeliveryStatus.IN_PROGRESS ||
+               status == DeliveryStatus.PICKED_UP ||
+               status == DeliveryStatus.IN_TRANSIT;
     }
     
     /**
@@ -0,0 +1,236 @@
+package org.driver.driverapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.driver.response.DriverDailyEarningDTO;
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.model.DriverEarningDaily;
+import org.driver.driverapp.repository.DriverEarningDailyRepository;
+import org.driver.driverapp.repository.DriverEarningRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Per-driver daily earnings, so a driver's totals and charts are read from a few
+ * {@link DriverEarningDaily} rows instead of aggregating their earnings. Creating an earning and
+ * changing its payout status update the rollups in the same transaction. Earnings count towards
+ * the day (UTC) they were created on, whatever day they are paid out.
+ */
+@Slf4j
+@Service
+public class DriverEarningRollupService {
+
+    static final ZoneId ZONE = ZoneOffset.UTC;
+
+    private final DriverEarningDailyRepository driverEarningDailyRepository;
+    private final DriverEarningRepository driverEarningRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate rowTemplate;
+
+    public DriverEarningRollupService(DriverEarningDailyRepository driverEarningDailyRepository,
+                                      DriverEarningRepository driverEarningRepository,
+                                      PlatformTransactionManager transactionManager) {
+        this.driverEarningDailyRepository = driverEarningDailyRepository;
+        this.driverEarningRepository = driverEarningRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rowTemplate = new TransactionTemplate(transactionManager);
+        this.rowTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Builds the rollups from the earnings table when there are none yet, e.g. on first start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (driverEarningDailyRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Replaces the rollups with sums over the earnings table. Earnings created or paid while it
+     * runs may be missed, so it is meant for startup.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<RollupKey, DriverEarningDaily> rollups = new TreeMap<>(RollupKey.ORDER);
+            Instant now = Instant.now();
+            try (Stream<Object[]> rows = driverEarningRepository.streamRollupRows()) {
+                rows.forEach(row -> {
+                    RollupKey key = new RollupKey((Long) row[0], day((Instant) row[1]), (PayoutStatus) row[2]);
+                    DriverEarningDaily rollup = rollups.computeIfAbsent(key, k -> rollup(k, now));
+                    rollup.setAmount(rollup.getAmount().add((BigDecimal) row[3]));
+                    rollup.setEarningCount(rollup.getEarningCount() + 1);
+                });
+            }
+            rollups.values().forEach(rollup -> rollup.setRevision(1));
+            driverEarningDailyRepository.deleteAllInBatch();
+            driverEarningDailyRepository.saveAll(rollups.values());
+            log.info("Rebuilt {} driver earning rollups", rollups.size());
+        });
+    }
+
+    /**
+     * Adds a set of changes to the rollups, merged per row, in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Collection<Change> changes) {
+        // Rows are updated in one order everywhere, so two transactions cannot wait on each other
+        Map<RollupKey, DriverEarningDaily> deltas = new TreeMap<>(RollupKey.ORDER);
+        Instant now = Instant.now();
+        for (Change change : changes) {
+            RollupKey key = new RollupKey(change.driverId, change.day, change.status);
+            DriverEarningDaily delta = deltas.computeIfAbsent(key, k -> rollup(k, now));
+            delta.setAmount(delta.getAmount().add(change.amount));
+            delta.setEarningCount(delta.getEarningCount() + change.count);
+        }
+
+        deltas.values().forEach(delta -> {
+            if (increment(delta, now) == 0) {
+                createRow(delta, now);
+                increment(delta, now);
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalEarnings(Long driverId) {
+        return driverEarningDailyRepository.sumAmountByDriverId(driverId);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal earnings(Long driverId, PayoutStatus payoutStatus) {
+        return driverEarningDailyRepository.sumAmountByDriverIdAndPayoutStatus(driverId, payoutStatus);
+    }
+
+    /**
+     * A driver's earnings per day of the inclusive range, leaving out days without earnings.
+     */
+    @Transactional(readOnly = true)
+    public List<DriverDailyEarningDTO> dailyEarnings(Long driverId, LocalDate fromDate, LocalDate toDate) {
+        Map<LocalDate, DriverDailyEarningDTO> days = new TreeMap<>();
+        for (DriverEarningDaily rollup : driverEarningDailyRepository
+                .findByDriverIdAndEarningDateBetweenOrderByEarningDateAsc(driverId, fromDate, toDate)) {
+            if (rollup.getEarningCount() == 0) {
+                continue;
+            }
+            DriverDailyEarningDTO day = days.computeIfAbsent(rollup.getEarningDate(), date -> DriverDailyEarningDTO.builder()
+                    .date(date)
+                    .totalAmount(BigDecimal.ZERO)
+                    .pendingAmount(BigDecimal.ZERO)
+                    .processingAmount(BigDecimal.ZERO)
+                    .paidAmount(BigDecimal.ZERO)
+                    .failedAmount(BigDecimal.ZERO)
+                    .build());
+            day.setEarningCount(day.getEarningCount() + rollup.getEarningCount());
+            day.setTotalAmount(day.getTotalAmount().add(rollup.getAmount()));
+            switch (rollup.getPayoutStatus()) {
+                case PENDING -> day.setPendingAmount(day.getPendingAmount().add(rollup.getAmount()));
+                case PROCESSING -> day.setProcessingAmount(day.getProcessingAmount().add(rollup.getAmount()));
+                case COMPLETED -> day.setPaidAmount(day.getPaidAmount().add(rollup.getAmount()));
+                case FAILED -> day.setFailedAmount(day.getFailedAmount().add(rollup.getAmount()));
+                default -> {
+                    // Only counted towards the total
+                }
+            }
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    /**
+     * A number that goes up whenever any of the driver's earnings is created or changes payout
+     * status; equal revisions mean unchanged earnings.
+     */
+    @Transactional(readOnly = true)
+    public long revision(Long driverId) {
+        return driverEarningDailyRepository.sumRevisionByDriverId(driverId);
+    }
+
+    public static LocalDate day(Instant createdAt) {
+        return (createdAt != null ? createdAt : Instant.now()).atZone(ZONE).toLocalDate();
+    }
+
+    private int increment(DriverEarningDaily delta, Instant now) {
+        return driverEarningDailyRepository.increment(delta.getDriverId(), delta.getEarningDate(),
+                delta.getPayoutStatus(), delta.getAmount(), delta.getEarningCount(), now);
+    }
+
+    // Commits an empty row on its own, so concurrent writers of a new row all end up incrementing it
+    private void createRow(DriverEarningDaily delta, Instant now) {
+        try {
+            rowTemplate.executeWithoutResult(status -> driverEarningDailyRepository.saveAndFlush(rollup(
+                    new RollupKey(delta.getDriverId(), delta.getEarningDate(), delta.getPayoutStatus()), now)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Driver earning rollup {} {} {} was created concurrently", delta.getDriverId(),
+                    delta.getEarningDate(), delta.getPayoutStatus());
+        }
+    }
+
+    private static DriverEarningDaily rollup(RollupKey key, Instant now) {
+        return DriverEarningDaily.builder()
+                .driverId(key.driverId)
+                .earningDate(key.day)
+                .payoutStatus(key.status)
+                .amount(BigDecimal.ZERO)
+                .updatedAt(now)
+                .build();
+    }
+
+    /**
+     * A signed change of a driver's earnings of one day in one payout status.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Change {
+        private final Long driverId;
+        private final LocalDate day;
+        private final PayoutStatus status;
+        private final BigDecimal amount;
+        private final long count;
+
+        /** A new pending earning. */
+        public static Change created(Long driverId, Instant createdAt, BigDecimal amount) {
+            return new Change(driverId, day(createdAt), PayoutStatus.PENDING, amount, 1);
+        }
+
+        /** An earning moving from one payout status to another. */
+        public static List<Change> moved(Long driverId, Instant createdAt, BigDecimal amount,
+                                         PayoutStatus from, PayoutStatus to) {
+            LocalDate day = day(createdAt);
+            return List.of(new Change(driverId, day, from, amount.negate(), -1),
+                    new Change(driverId, day, to, amount, 1));
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class RollupKey {
+        private static final Comparator<RollupKey> ORDER = Comparator.<RollupKey, Long>comparing(k -> k.driverId)
+                .thenComparing(k -> k.day)
+                .thenComparing(k -> k.status);
+
+        private final Long driverId;
+        private final LocalDate day;
+        private final PayoutStatus status;
+    }
+}
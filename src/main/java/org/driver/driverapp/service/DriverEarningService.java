@@ -2,7 +2,9 @@ package org.driver.driverapp.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.driver.response.DriverDailyEarningDTO;
 import org.driver.driverapp.dto.driver.response.DriverEarningResponseDTO;
+import org.driver.driverapp.dto.driver.response.DriverPayoutRunResultDTO;
 import org.driver.driverapp.enums.PayoutStatus;
 import org.driver.driverapp.exception.ResourceNotFoundException;
 import org.driver.driverapp.mapper.DriverEarningMapper;
@@ -12,6 +14,7 @@ import org.driver.driverapp.model.DriverEarning;
 import org.driver.driverapp.repository.DeliveryRepository;
 import org.driver.driverapp.repository.DriverEarningRepository;
 import org.driver.driverapp.repository.DriverRepository;
+import org.driver.driverapp.service.payment.DriverPayoutPipeline;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -19,10 +22,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.Map;
 
 @Slf4j
 @Service
@@ -33,6 +37,8 @@ public class DriverEarningService {
     private final DriverRepository driverRepository;
     private final DeliveryRepository deliveryRepository;
     private final DriverEarningMapper driverEarningMapper;
+    private final DriverPayoutPipeline driverPayoutPipeline;
+    private final DriverEarningRollupService driverEarningRollupService;
 
     @Transactional
     public DriverEarningResponseDTO createEarning(Long driverId, Long deliveryId, BigDecimal amount, String description) {
@@ -63,6 +69,8 @@ public class DriverEarningService {
                 .build();
 
         earning = driverEarningRepository.save(earning);
+        driverEarningRollupService.apply(List.of(
+                DriverEarningRollupService.Change.created(driverId, earning.getCreatedAt(), amount)));
         log.info("Earning created successfully: {}", earning.getId());
 
         return driverEarningMapper.toResponseDTO(earning);
@@ -124,6 +132,13 @@ public class DriverEarningService {
             }
         }
 
+        List<DriverEarningRollupService.Change> changes = new ArrayList<>();
+        for (DriverEarning earning : pendingEarnings) {
+            changes.addAll(DriverEarningRollupService.Change.moved(driverId, earning.getCreatedAt(),
+                    earning.getAmount(), PayoutStatus.PENDING, earning.getPayoutStatus()));
+        }
+        driverEarningRollupService.apply(changes);
+
         // Return the first earning as representative
         return driverEarningMapper.toResponseDTO(pendingEarnings.get(0));
     }
@@ -168,12 +183,26 @@ public class DriverEarningService {
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalEarningsByDriver(Long driverId) {
-        return driverEarningRepository.sumAmountByDriverId(driverId);
+        return driverEarningRollupService.totalEarnings(driverId);
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getPendingEarningsByDriver(Long driverId) {
-        return driverEarningRepository.sumAmountByDriverIdAndPayoutStatus(driverId, PayoutStatus.PENDING);
+        return driverEarningRollupService.earnings(driverId, PayoutStatus.PENDING);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DriverDailyEarningDTO> getDailyEarningsByDriver(Long driverId, LocalDate fromDate, LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("Date range must not end before it starts: " + fromDate + " to " + toDate);
+        }
+        return driverEarningRollupService.dailyEarnings(driverId, fromDate, toDate);
+    }
+
+    // Changes whenever any of the driver's earnings is created or changes payout status
+    @Transactional(readOnly = true)
+    public long getEarningsRevision(Long driverId) {
+        return driverEarningRollupService.revision(driverId);
     }
 
     @Transactional(readOnly = true)
@@ -213,23 +242,8 @@ public class DriverEarningService {
         return createEarning(delivery.getDriver().getId(), deliveryId, driverEarning, description);
     }
 
-    @Transactional
-    public void processAllPendingPayouts() {
+    public DriverPayoutRunResultDTO processAllPendingPayouts() {
         log.info("Processing all pending payouts");
-        List<DriverEarning> pendingEarnings = driverEarningRepository.findPendingPayouts();
-        
-        // Group by driver
-        Map<Long, List<DriverEarning>> earningsByDriver = pendingEarnings.stream()
-                .collect(java.util.stream.Collectors.groupingBy(earning -> earning.getDriver().getId()));
-        
-        for (Map.Entry<Long, List<DriverEarning>> entry : earningsByDriver.entrySet()) {
-            try {
-                processPayout(entry.getKey());
-            } catch (Exception e) {
-                log.error("Error processing payout for driver: {}", entry.getKey(), e);
-            }
-        }
-        
-        log.info("Processed payouts for {} drivers", earningsByDriver.size());
+        return driverPayoutPipeline.run();
     }
 }
@@ -2,6 +2,7 @@ package org.driver.driverapp.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.payment.response.PaymentProviderHealthDTO;
 import org.driver.driverapp.dto.payment.response.PaymentResponseDTO;
 import org.driver.driverapp.enums.PaymentProvider;
 import org.driver.driverapp.enums.PaymentStatus;
@@ -21,11 +22,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Service
@@ -37,13 +41,76 @@ public class PaymentService {
     private final DeliveryRepository deliveryRepository;
     private final PaymentProviderFactory paymentProviderFactory;
     private final PaymentMapper paymentMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Creates the payment and starts it with the provider. The payment is committed as PENDING
+     * before the provider is called and the provider's answer is recorded in a second, short
+     * transaction, so no transaction or connection is held while waiting on the provider. If the
+     * provider cannot be reached the payment is marked as failed.
+     */
+    public CompletableFuture<PaymentResponseDTO> initiatePayment(Long userId, Long deliveryId, PaymentProvider provider,
+                                                                 BigDecimal amount, String phoneNumber, String description) {
+        return initiatePayment(userId, deliveryId, provider, List.of(), amount, phoneNumber, description);
+    }
 
-    @Transactional
-    public PaymentResponseDTO initiatePayment(Long userId, Long deliveryId, PaymentProvider provider, 
-                                            BigDecimal amount, String phoneNumber, String description) {
+    /**
+     * As {@link #initiatePayment(Long, Long, PaymentProvider, BigDecimal, String, String)}, but
+     * if the preferred provider is failing the payment goes through the first available of the
+     * fallback providers instead.
+     */
+    public CompletableFuture<PaymentResponseDTO> initiatePayment(Long userId, Long deliveryId, PaymentProvider preferredProvider,
+                                                                 List<PaymentProvider> fallbackProviders, BigDecimal amount,
+                                                                 String phoneNumber, String description) {
         log.info("Initiating payment for user: {}, delivery: {}, provider: {}, amount: {}", 
-                userId, deliveryId, provider, amount);
+                userId, deliveryId, preferredProvider, amount);
+
+        PaymentProvider provider = paymentProviderFactory.selectProvider(preferredProvider, fallbackProviders);
+        PaymentProviderService providerService = paymentProviderFactory.getProvider(provider);
+        Payment payment = transactionTemplate.execute(status ->
+                createPendingPayment(userId, deliveryId, provider, amount, description));
+        Long paymentId = payment.getId();
+
+        // Initiate payment with provider
+        PaymentRequest paymentRequest = PaymentRequest.builder()
+                .userId(userId.toString())
+                .deliveryId(deliveryId.toString())
+                .amount(amount)
+                .currency("ETB")
+                .provider(provider)
+                .phoneNumber(phoneNumber)
+                .description(description)
+                .build();
 
+        return providerService.initiatePayment(paymentRequest)
+                .handle((providerResponse, error) -> transactionTemplate.execute(status ->
+                        recordInitiation(paymentId, providerResponse, error)));
+    }
+
+    /**
+     * Confirms the payment with its provider. As with initiation, the provider is called
+     * between two short transactions. If the provider cannot be reached the payment is left as
+     * it is and the returned future fails.
+     */
+    public CompletableFuture<PaymentResponseDTO> confirmPayment(String transactionRef) {
+        log.info("Confirming payment with transaction ref: {}", transactionRef);
+
+        PaymentResponseDTO current = transactionTemplate.execute(status ->
+                paymentMapper.toResponseDTO(findActiveByTransactionRef(transactionRef)));
+        if (current.getStatus() == PaymentStatus.COMPLETED) {
+            log.info("Payment already completed: {}", transactionRef);
+            return CompletableFuture.completedFuture(current);
+        }
+
+        // Confirm payment with provider
+        PaymentProviderService providerService = paymentProviderFactory.getProvider(current.getProvider());
+        return providerService.confirmPayment(transactionRef)
+                .thenApply(providerResponse -> transactionTemplate.execute(status ->
+                        recordConfirmation(transactionRef, providerResponse)));
+    }
+
+    private Payment createPendingPayment(Long userId, Long deliveryId, PaymentProvider provider,
+                                         BigDecimal amount, String description) {
         // Validate user
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
@@ -71,53 +138,37 @@ public class PaymentService {
                 .active(true)
                 .build();
 
-        payment = paymentRepository.save(payment);
-
-        // Initiate payment with provider
-        PaymentProviderService providerService = paymentProviderFactory.getProvider(provider);
-        PaymentRequest paymentRequest = PaymentRequest.builder()
-                .userId(userId.toString())
-                .deliveryId(deliveryId.toString())
-                .amount(amount)
-                .currency("ETB")
-                .provider(provider)
-                .phoneNumber(phoneNumber)
-                .description(description)
-                .build();
+        return paymentRepository.save(payment);
+    }
 
-        PaymentResponse providerResponse = providerService.initiatePayment(paymentRequest);
+    private PaymentResponseDTO recordInitiation(Long paymentId, PaymentResponse providerResponse, Throwable error) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + paymentId));
 
-        if (providerResponse.isSuccess()) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            payment.markAsFailed(cause.getMessage());
+            log.error("Payment initiation failed for payment {}: {}", paymentId, cause.getMessage());
+        } else if (providerResponse.isSuccess()) {
             payment.setTransactionRef(providerResponse.getTransactionRef());
             payment.setStatus(providerResponse.getStatus());
-            payment = paymentRepository.save(payment);
-            log.info("Payment initiated successfully: {}", payment.getId());
+            log.info("Payment initiated successfully: {}", paymentId);
         } else {
-            payment.setStatus(PaymentStatus.FAILED);
-            payment.setFailureReason(providerResponse.getMessage());
-            payment = paymentRepository.save(payment);
+            payment.markAsFailed(providerResponse.getMessage());
             log.error("Payment initiation failed: {}", providerResponse.getMessage());
         }
 
+        payment = paymentRepository.save(payment);
         return paymentMapper.toResponseDTO(payment);
     }
 
-    @Transactional
-    public PaymentResponseDTO confirmPayment(String transactionRef) {
-        log.info("Confirming payment with transaction ref: {}", transactionRef);
-
-        Payment payment = paymentRepository.findByTransactionRefAndActiveTrue(transactionRef)
-                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with transaction ref: " + transactionRef));
-
+    private PaymentResponseDTO recordConfirmation(String transactionRef, PaymentResponse providerResponse) {
+        Payment payment = findActiveByTransactionRef(transactionRef);
+        // A concurrent confirmation may have completed it while the provider was being called
         if (payment.isCompleted()) {
-            log.info("Payment already completed: {}", transactionRef);
             return paymentMapper.toResponseDTO(payment);
         }
 
-        // Confirm payment with provider
-        PaymentProviderService providerService = paymentProviderFactory.getProvider(payment.getProvider());
-        PaymentResponse providerResponse = providerService.confirmPayment(transactionRef);
-
         if (providerResponse.isSuccess()) {
             payment.markAsCompleted(transactionRef);
             log.info("Payment confirmed successfully: {}", transactionRef);
@@ -130,6 +181,11 @@ public class PaymentService {
         return paymentMapper.toResponseDTO(payment);
     }
 
+    private Payment findActiveByTransactionRef(String transactionRef) {
+        return paymentRepository.findByTransactionRefAndActiveTrue(transactionRef)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with transaction ref: " + transactionRef));
+    }
+
     @Transactional(readOnly = true)
     public PaymentResponseDTO getPaymentById(Long id) {
         Payment payment = paymentRepository.findById(id)
@@ -205,4 +261,8 @@ public class PaymentService {
     public List<PaymentProvider> getSupportedProviders() {
         return paymentProviderFactory.getSupportedProviders();
     }
+
+    public List<PaymentProviderHealthDTO> getProviderHealth() {
+        return paymentProviderFactory.getProviderHealth();
+    }
 }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.driver.driverapp.dto.wallet.request.CreditWalletRequestDTO;
 import org.driver.driverapp.dto.wallet.request.DebitWalletRequestDTO;
 import org.driver.driverapp.dto.wallet.response.WalletResponseDTO;
+import org.driver.driverapp.dto.wallet.response.WalletTransactionPageDTO;
 import org.driver.driverapp.dto.wallet.response.WalletTransactionResponseDTO;
 import org.driver.driverapp.enums.TransactionType;
 import org.driver.driverapp.enums.WalletOwnerType;
@@ -15,24 +16,45 @@ import org.driver.driverapp.model.Wallet;
 import org.driver.driverapp.model.WalletTransaction;
 import org.driver.driverapp.repository.WalletRepository;
 import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.driver.driverapp.service.wallet.TransactionCursor;
+import org.driver.driverapp.service.wallet.WalletAggregateService;
+import org.driver.driverapp.service.wallet.WalletBalanceRanking;
+import org.driver.driverapp.service.wallet.WalletShardLedger;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class WalletService {
 
+    // Largest page of transaction history, and the size of the recent, credit and debit lists
+    private static final int MAX_TRANSACTION_PAGE_SIZE = 500;
+    private static final int RECENT_TRANSACTIONS_LIMIT = 100;
+
     private final WalletRepository walletRepository;
     private final WalletTransactionRepository walletTransactionRepository;
     private final WalletMapper walletMapper;
     private final WalletTransactionMapper walletTransactionMapper;
+    private final WalletShardLedger walletShardLedger;
+    private final WalletAggregateService walletAggregateService;
+    private final WalletBalanceRanking walletBalanceRanking;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     public WalletResponseDTO createWallet(Long ownerId, WalletOwnerType ownerType, String description) {
@@ -59,85 +81,142 @@ public class WalletService {
         return walletMapper.toResponseDTO(wallet);
     }
 
-    @Transactional
     public WalletResponseDTO creditWallet(CreditWalletRequestDTO requestDTO) {
         log.info("Crediting wallet for owner: {}, type: {}, amount: {}", 
                 requestDTO.getOwnerId(), requestDTO.getOwnerType(), requestDTO.getAmount());
 
-        // Get or create wallet
-        Wallet wallet = getOrCreateWallet(requestDTO.getOwnerId(), requestDTO.getOwnerType());
-
-        // Record balance before transaction
-        BigDecimal balanceBefore = wallet.getBalance();
-
-        // Credit the wallet
-        wallet.credit(requestDTO.getAmount());
-        wallet = walletRepository.save(wallet);
-
-        // Create transaction record
-        WalletTransaction transaction = WalletTransaction.builder()
-                .wallet(wallet)
-                .transactionType(TransactionType.CREDIT)
-                .amount(requestDTO.getAmount())
-                .balanceBefore(balanceBefore)
-                .balanceAfter(wallet.getBalance())
-                .reference(requestDTO.getReference())
-                .description(requestDTO.getDescription())
-                .metadata(requestDTO.getMetadata())
-                .active(true)
-                .build();
-
-        walletTransactionRepository.save(transaction);
-
-        log.info("Wallet credited successfully: {}", wallet.getId());
-        return walletMapper.toResponseDTO(wallet);
+        AtomicReference<Wallet> shardedWallet = new AtomicReference<>();
+        WalletResponseDTO response = executeCreatingWallet(status -> {
+            // Get or create wallet
+            Wallet wallet = getOrCreateWallet(requestDTO.getOwnerId(), requestDTO.getOwnerType());
+            if (wallet.isSharded()) {
+                shardedWallet.set(wallet);
+                return null;
+            }
+
+            // Record balance before transaction
+            BigDecimal balanceBefore = wallet.getBalance();
+
+            // Credit the wallet
+            wallet.credit(requestDTO.getAmount());
+            wallet = walletRepository.save(wallet);
+
+            // Create transaction record
+            WalletTransaction transaction = WalletTransaction.builder()
+                    .wallet(wallet)
+                    .transactionType(TransactionType.CREDIT)
+                    .amount(requestDTO.getAmount())
+                    .balanceBefore(balanceBefore)
+                    .balanceAfter(wallet.getBalance())
+                    .reference(requestDTO.getReference())
+                    .description(requestDTO.getDescription())
+                    .metadata(requestDTO.getMetadata())
+                    .active(true)
+                    .build();
+
+            walletTransactionRepository.save(transaction);
+            walletAggregateService.record(wallet.getOwnerType(), wallet.getId(), TransactionType.CREDIT,
+                    requestDTO.getAmount());
+
+            log.info("Wallet credited successfully: {}", wallet.getId());
+            return walletMapper.toResponseDTO(wallet);
+        });
+        if (shardedWallet.get() != null) {
+            return applyToShards(shardedWallet.get(), TransactionType.CREDIT, requestDTO.getAmount(),
+                    requestDTO.getReference(), requestDTO.getDescription(), requestDTO.getMetadata());
+        }
+        walletBalanceRanking.update(response.getId(), response.getBalance());
+        return response;
     }
 
-    @Transactional
     public WalletResponseDTO debitWallet(DebitWalletRequestDTO requestDTO) {
         log.info("Debiting wallet for owner: {}, type: {}, amount: {}", 
                 requestDTO.getOwnerId(), requestDTO.getOwnerType(), requestDTO.getAmount());
 
-        // Get or create wallet
-        Wallet wallet = getOrCreateWallet(requestDTO.getOwnerId(), requestDTO.getOwnerType());
-
-        // Check if sufficient balance
-        if (!wallet.hasSufficientBalance(requestDTO.getAmount())) {
-            throw new IllegalStateException("Insufficient balance. Available: " + wallet.getBalance() + 
-                    ", Required: " + requestDTO.getAmount());
+        AtomicReference<Wallet> shardedWallet = new AtomicReference<>();
+        WalletResponseDTO response = executeCreatingWallet(status -> {
+            // Get or create wallet
+            Wallet wallet = getOrCreateWallet(requestDTO.getOwnerId(), requestDTO.getOwnerType());
+            if (wallet.isSharded()) {
+                shardedWallet.set(wallet);
+                return null;
+            }
+
+            // Check if sufficient balance
+            if (!wallet.hasSufficientBalance(requestDTO.getAmount())) {
+                throw new IllegalStateException("Insufficient balance. Available: " + wallet.getBalance() + 
+                        ", Required: " + requestDTO.getAmount());
+            }
+
+            // Record balance before transaction
+            BigDecimal balanceBefore = wallet.getBalance();
+
+            // Debit the wallet
+            wallet.debit(requestDTO.getAmount());
+            wallet = walletRepository.save(wallet);
+
+            // Create transaction record
+            WalletTransaction transaction = WalletTransaction.builder()
+                    .wallet(wallet)
+                    .transactionType(TransactionType.DEBIT)
+                    .amount(requestDTO.getAmount())
+                    .balanceBefore(balanceBefore)
+                    .balanceAfter(wallet.getBalance())
+                    .reference(requestDTO.getReference())
+                    .description(requestDTO.getDescription())
+                    .metadata(requestDTO.getMetadata())
+                    .active(true)
+                    .build();
+
+            walletTransactionRepository.save(transaction);
+            walletAggregateService.record(wallet.getOwnerType(), wallet.getId(), TransactionType.DEBIT,
+                    requestDTO.getAmount());
+
+            log.info("Wallet debited successfully: {}", wallet.getId());
+            return walletMapper.toResponseDTO(wallet);
+        });
+        if (shardedWallet.get() != null) {
+            return applyToShards(shardedWallet.get(), TransactionType.DEBIT, requestDTO.getAmount(),
+                    requestDTO.getReference(), requestDTO.getDescription(), requestDTO.getMetadata());
         }
+        walletBalanceRanking.update(response.getId(), response.getBalance());
+        return response;
+    }
 
-        // Record balance before transaction
-        BigDecimal balanceBefore = wallet.getBalance();
-
-        // Debit the wallet
-        wallet.debit(requestDTO.getAmount());
-        wallet = walletRepository.save(wallet);
-
-        // Create transaction record
-        WalletTransaction transaction = WalletTransaction.builder()
-                .wallet(wallet)
-                .transactionType(TransactionType.DEBIT)
-                .amount(requestDTO.getAmount())
-                .balanceBefore(balanceBefore)
-                .balanceAfter(wallet.getBalance())
-                .reference(requestDTO.getReference())
-                .description(requestDTO.getDescription())
-                .metadata(requestDTO.getMetadata())
-                .active(true)
-                .build();
+    /**
+     * Splits a hot wallet's balance into shards, so its credits and debits stop contending
+     * for the wallet row.
+     */
+    public WalletResponseDTO enableSharding(Long walletId, int shardCount) {
+        log.info("Sharding wallet {} into {} shards", walletId, shardCount);
+        return walletMapper.toResponseDTO(walletShardLedger.enableSharding(walletId, shardCount));
+    }
 
-        walletTransactionRepository.save(transaction);
+    // Runs outside a transaction: the ledger's writers commit the operation, and waiting on them holds no connection
+    private WalletResponseDTO applyToShards(Wallet wallet, TransactionType type, BigDecimal amount,
+                                            String reference, String description, String metadata) {
+        walletShardLedger.apply(wallet, type, amount, reference, description, metadata);
+        log.info("Sharded wallet {} {} successfully", wallet.getId(),
+                type == TransactionType.CREDIT ? "credited" : "debited");
+        WalletResponseDTO response = withLiveBalance(wallet);
+        walletBalanceRanking.update(wallet.getId(), response.getBalance());
+        return response;
+    }
 
-        log.info("Wallet debited successfully: {}", wallet.getId());
-        return walletMapper.toResponseDTO(wallet);
+    // The balance column of a sharded wallet lags its shards; responses carry the sum of the shards
+    private WalletResponseDTO withLiveBalance(Wallet wallet) {
+        WalletResponseDTO response = walletMapper.toResponseDTO(wallet);
+        if (wallet.isSharded() && response != null) {
+            response.setBalance(walletShardLedger.balance(wallet.getId()));
+        }
+        return response;
     }
 
     @Transactional(readOnly = true)
     public WalletResponseDTO getWalletById(Long id) {
         Wallet wallet = walletRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found with id: " + id));
-        return walletMapper.toResponseDTO(wallet);
+        return withLiveBalance(wallet);
     }
 
     @Transactional(readOnly = true)
@@ -145,7 +224,7 @@ public class WalletService {
         Wallet wallet = walletRepository.findByOwnerIdAndOwnerTypeAndActiveTrue(ownerId, ownerType)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for owner: " + ownerId + 
                         " and type: " + ownerType));
-        return walletMapper.toResponseDTO(wallet);
+        return withLiveBalance(wallet);
     }
 
     @Transactional(readOnly = true)
@@ -172,42 +251,97 @@ public class WalletService {
         return walletTransactionMapper.toResponseDTOList(transactions);
     }
 
+    /**
+     * A page of a wallet's transactions, newest first, starting after {@code cursor} (from the
+     * first transaction when null). Pages are read by keyset on (createdAt, id), so deep pages of
+     * long histories cost the same as the first.
+     */
+    @Transactional(readOnly = true)
+    public WalletTransactionPageDTO getWalletTransactionHistory(Long walletId, String cursor, int size) {
+        int limit = pageSize(size);
+        PageRequest page = PageRequest.of(0, limit + 1);
+        TransactionCursor position = cursor != null ? TransactionCursor.decode(cursor) : null;
+        List<WalletTransaction> transactions = position == null
+                ? walletTransactionRepository.findLatestByWalletId(walletId, page)
+                : walletTransactionRepository.findLatestByWalletIdBefore(walletId, position.getCreatedAt(),
+                        position.getId(), page);
+        return toPage(transactions, limit);
+    }
+
+    /**
+     * A page of all wallets' transactions, optionally of one type, newest first, starting after
+     * {@code cursor}.
+     */
+    @Transactional(readOnly = true)
+    public WalletTransactionPageDTO getTransactionFeed(TransactionType transactionType, String cursor, int size) {
+        int limit = pageSize(size);
+        PageRequest page = PageRequest.of(0, limit + 1);
+        TransactionCursor position = cursor != null ? TransactionCursor.decode(cursor) : null;
+        List<WalletTransaction> transactions;
+        if (transactionType == null) {
+            transactions = position == null
+                    ? walletTransactionRepository.findLatest(page)
+                    : walletTransactionRepository.findLatestBefore(position.getCreatedAt(), position.getId(), page);
+        } else {
+            transactions = position == null
+                    ? walletTransactionRepository.findLatestByTransactionType(transactionType, page)
+                    : walletTransactionRepository.findLatestByTransactionTypeBefore(transactionType,
+                            position.getCreatedAt(), position.getId(), page);
+        }
+        return toPage(transactions, limit);
+    }
+
     @Transactional(readOnly = true)
     public List<WalletTransactionResponseDTO> getRecentTransactions() {
-        List<WalletTransaction> transactions = walletTransactionRepository.findRecentTransactions();
-        return walletTransactionMapper.toResponseDTOList(transactions);
+        return getTransactionFeed(null, null, RECENT_TRANSACTIONS_LIMIT).getTransactions();
     }
 
     @Transactional(readOnly = true)
     public List<WalletTransactionResponseDTO> getCreditTransactions() {
-        List<WalletTransaction> transactions = walletTransactionRepository.findCreditTransactions();
-        return walletTransactionMapper.toResponseDTOList(transactions);
+        return getTransactionFeed(TransactionType.CREDIT, null, RECENT_TRANSACTIONS_LIMIT).getTransactions();
     }
 
     @Transactional(readOnly = true)
     public List<WalletTransactionResponseDTO> getDebitTransactions() {
-        List<WalletTransaction> transactions = walletTransactionRepository.findDebitTransactions();
-        return walletTransactionMapper.toResponseDTOList(transactions);
+        return getTransactionFeed(TransactionType.DEBIT, null, RECENT_TRANSACTIONS_LIMIT).getTransactions();
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_TRANSACTION_PAGE_SIZE));
+    }
+
+    // Transactions were read one past the limit, to tell whether another page follows
+    private WalletTransactionPageDTO toPage(List<WalletTransaction> transactions, int limit) {
+        List<WalletTransaction> page = transactions.size() > limit ? transactions.subList(0, limit) : transactions;
+        String nextCursor = null;
+        if (transactions.size() > limit) {
+            WalletTransaction last = page.get(page.size() - 1);
+            nextCursor = new TransactionCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return WalletTransactionPageDTO.builder()
+                .transactions(walletTransactionMapper.toResponseDTOList(page))
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalBalance() {
-        return walletRepository.sumTotalBalance();
+        return walletAggregateService.totalBalance();
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalBalanceByType(WalletOwnerType ownerType) {
-        return walletRepository.sumBalanceByOwnerType(ownerType);
+        return walletAggregateService.totalBalance(ownerType);
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalCredits() {
-        return walletTransactionRepository.sumAmountByTransactionType(TransactionType.CREDIT);
+        return walletAggregateService.totalCredits();
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalDebits() {
-        return walletTransactionRepository.sumAmountByTransactionType(TransactionType.DEBIT);
+        return walletAggregateService.totalDebits();
     }
 
     @Transactional(readOnly = true)
@@ -218,14 +352,18 @@ public class WalletService {
 
     @Transactional(readOnly = true)
     public List<WalletResponseDTO> getWalletsWithHighBalance(BigDecimal threshold) {
+        Optional<List<Long>> ranked = walletBalanceRanking.above(threshold);
+        if (ranked.isPresent()) {
+            return walletMapper.toResponseDTOList(findAllInOrder(ranked.get()));
+        }
         List<Wallet> wallets = walletRepository.findWalletsWithHighBalance(threshold);
         return walletMapper.toResponseDTOList(wallets);
     }
 
     @Transactional(readOnly = true)
     public List<WalletResponseDTO> getTopWalletsByBalance() {
-        List<Wallet> wallets = walletRepository.findTopWalletsByBalance();
-        return walletMapper.toResponseDTOList(wallets);
+        List<Long> walletIds = walletBalanceRanking.top(walletBalanceRanking.getTopSize());
+        return walletMapper.toResponseDTOList(findAllInOrder(walletIds));
     }
 
     @Transactional(readOnly = true)
@@ -240,6 +378,23 @@ public class WalletService {
         return walletMapper.toResponseDTOList(wallets);
     }
 
+    // Loads wallets by id, keeping the order of the ids
+    private List<Wallet> findAllInOrder(List<Long> walletIds) {
+        Map<Long, Wallet> wallets = walletRepository.findAllById(walletIds).stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+        return walletIds.stream().map(wallets::get).filter(Objects::nonNull).toList();
+    }
+
+    // A wallet created by a concurrent request fails the unique owner index and rolls back; the retry finds it
+    private <T> T executeCreatingWallet(TransactionCallback<T> callback) {
+        try {
+            return transactionTemplate.execute(callback);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Wallet created concurrently, retrying: {}", e.getMessage());
+            return transactionTemplate.execute(callback);
+        }
+    }
+
     private Wallet getOrCreateWallet(Long ownerId, WalletOwnerType ownerType) {
         return walletRepository.findByOwnerIdAndOwnerTypeAndActiveTrue(ownerId, ownerType)
                 .orElseGet(() -> {
@@ -0,0 +1,18 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A cached analytics result and the time it was computed, which decides whether it is still
+ * fresh or only good enough to serve while a refresh runs.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsCacheEntry {
+
+    private Object value;
+    private long computedAtMillis;
+}
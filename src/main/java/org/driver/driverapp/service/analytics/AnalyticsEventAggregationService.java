@@ -0,0 +1,114 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.analytics.response.AnalyticsEventAggregateResponseDTO;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+import org.driver.driverapp.model.AnalyticsConsumerOffset;
+import org.driver.driverapp.model.AnalyticsEventAggregate;
+import org.driver.driverapp.repository.AnalyticsConsumerOffsetRepository;
+import org.driver.driverapp.repository.AnalyticsEventAggregateRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists buffered analytics event windows. A flush merges the buffered aggregates into the
+ * stored ones and advances the stored partition offsets in one transaction, so after a crash
+ * the consumer resumes exactly after the last record reflected in the aggregates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsEventAggregationService {
+
+    private final AnalyticsEventAggregateRepository analyticsEventAggregateRepository;
+    private final AnalyticsConsumerOffsetRepository analyticsConsumerOffsetRepository;
+
+    /**
+     * Writes the buffer's aggregates and, when {@code consumerGroup} is set, its offsets. A buffer
+     * starting before a stored offset was consumed by a stale owner of the partition (e.g. across
+     * a rebalance) and is rejected with {@link IllegalStateException} before anything is written.
+     */
+    @Transactional
+    public void flush(AnalyticsEventWindowBuffer buffer, String consumerGroup, String topic) {
+        Instant now = Instant.now();
+        if (consumerGroup != null) {
+            advanceOffsets(buffer, consumerGroup, topic, now);
+        }
+
+        for (AnalyticsEventAggregate delta : buffer.getAggregates()) {
+            AnalyticsEventAggregate aggregate = analyticsEventAggregateRepository
+                    .findWindowForUpdate(delta.getWindowStart(), delta.getWindowSeconds(), delta.getType(), delta.getName())
+                    .orElseGet(() -> AnalyticsEventAggregate.builder()
+                            .windowStart(delta.getWindowStart())
+                            .windowSeconds(delta.getWindowSeconds())
+                            .type(delta.getType())
+                            .name(delta.getName())
+                            .build());
+            aggregate.merge(delta);
+            aggregate.setUpdatedAt(now);
+            analyticsEventAggregateRepository.save(aggregate);
+        }
+        log.debug("Flushed {} analytics event windows ({} events)", buffer.getAggregates().size(), buffer.getBufferedEvents());
+    }
+
+    /**
+     * The next offset to consume per partition, as committed with the aggregates.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, Long> storedOffsets(String consumerGroup, String topic) {
+        Map<Integer, Long> offsets = new HashMap<>();
+        for (AnalyticsConsumerOffset offset : analyticsConsumerOffsetRepository.findByConsumerGroupAndTopic(consumerGroup, topic)) {
+            offsets.put(offset.getPartitionId(), offset.getNextOffset());
+        }
+        return offsets;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AnalyticsEventAggregateResponseDTO> getAggregates(AnalyticsRecordType type, String name,
+                                                                  Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return analyticsEventAggregateRepository
+                .findByTypeAndNameAndWindowStartGreaterThanEqualAndWindowStartLessThanOrderByWindowStartAsc(type, name, from, to)
+                .stream()
+                .map(aggregate -> AnalyticsEventAggregateResponseDTO.builder()
+                        .type(aggregate.getType())
+                        .name(aggregate.getName())
+                        .windowStart(aggregate.getWindowStart())
+                        .windowEnd(aggregate.getWindowStart().plusSeconds(aggregate.getWindowSeconds()))
+                        .eventCount(aggregate.getEventCount())
+                        .valueSum(aggregate.getValueSum())
+                        .valueMin(aggregate.getValueMin())
+                        .valueMax(aggregate.getValueMax())
+                        .build())
+                .toList();
+    }
+
+    private void advanceOffsets(AnalyticsEventWindowBuffer buffer, String consumerGroup, String topic, Instant now) {
+        for (Map.Entry<Integer, Long> next : buffer.getNextOffsets().entrySet()) {
+            int partition = next.getKey();
+            long firstOffset = buffer.getFirstOffsets().get(partition);
+            AnalyticsConsumerOffset stored = analyticsConsumerOffsetRepository
+                    .findPartitionForUpdate(consumerGroup, topic, partition)
+                    .orElseGet(() -> AnalyticsConsumerOffset.builder()
+                            .consumerGroup(consumerGroup)
+                            .topic(topic)
+                            .partitionId(partition)
+                            .build());
+            if (stored.getId() != null && firstOffset < stored.getNextOffset()) {
+                throw new IllegalStateException("Offsets " + firstOffset + ".." + next.getValue() + " of " + topic + "-"
+                        + partition + " were already aggregated up to " + stored.getNextOffset());
+            }
+            stored.setNextOffset(next.getValue());
+            stored.setUpdatedAt(now);
+            analyticsConsumerOffsetRepository.save(stored);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.driver.driverapp.service.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch consumer of {@link KafkaConfig#ANALYTICS_EVENT_TOPIC}. Events are folded into tumbling
+ * windows in memory and flushed, together with the offsets they cover, once the buffer is large
+ * or old enough, when the container goes idle and before partitions are revoked.
+ * <p>
+ * Offsets are owned by {@code analytics_consumer_offset} rather than Kafka: on assignment the
+ * consumer seeks to the stored offsets, and a failed flush discards the buffer and seeks back
+ * to them, so every event is counted exactly once. All callbacks run on the single consumer
+ * thread, which is what makes the unsynchronized buffer safe.
+ */
+@Slf4j
+@Component
+public class AnalyticsEventConsumer extends AbstractConsumerSeekAware {
+
+    private final AnalyticsEventAggregationService analyticsEventAggregationService;
+    private final AnalyticsEventWindowBuffer buffer;
+    private final long flushMaxEvents;
+    private final long flushIntervalMs;
+    private final Counter flushFailedCounter;
+
+    public AnalyticsEventConsumer(AnalyticsEventAggregationService analyticsEventAggregationService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${analytics.events.window-seconds:60}") int windowSeconds,
+                                  @Value("${analytics.events.flush-max-events:5000}") long flushMaxEvents,
+                                  @Value("${analytics.events.flush-interval-ms:10000}") long flushIntervalMs) {
+        this.analyticsEventAggregationService = analyticsEventAggregationService;
+        this.buffer = new AnalyticsEventWindowBuffer(windowSeconds);
+        this.flushMaxEvents = flushMaxEvents;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushFailedCounter = Counter.builder(MetricsConfig.ANALYTICS_EVENT_FLUSH_FAILED_COUNTER)
+                .description("Analytics event window flushes that were rolled back")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(id = KafkaConfig.ANALYTICS_EVENT_CONSUMER_GROUP,
+            topics = KafkaConfig.ANALYTICS_EVENT_TOPIC,
+            containerFactory = "analyticsEventListenerContainerFactory",
+            autoStartup = "${analytics.events.consumer.auto-startup:true}")
+    public void onEvents(List<ConsumerRecord<String, AnalyticsEventDTO>> records) {
+        for (ConsumerRecord<String, AnalyticsEventDTO> record : records) {
+            AnalyticsEventDTO event = record.value();
+            // Records that failed deserialization arrive with a null value and are skipped
+            if (event != null && event.getType() != null && event.getName() != null) {
+                buffer.add(event, Instant.ofEpochMilli(record.timestamp()));
+            } else {
+                log.warn("Skipping malformed analytics event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            }
+            buffer.markConsumed(record.partition(), record.offset());
+        }
+        if (buffer.getBufferedEvents() >= flushMaxEvents || buffer.ageMillis() >= flushIntervalMs) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        super.onPartitionsAssigned(assignments, callback);
+        Map<Integer, Long> stored = analyticsEventAggregationService.storedOffsets(
+                KafkaConfig.ANALYTICS_EVENT_CONSUMER_GROUP, KafkaConfig.ANALYTICS_EVENT_TOPIC);
+        for (TopicPartition partition : assignments.keySet()) {
+            Long offset = stored.get(partition.partition());
+            if (offset != null) {
+                callback.seek(partition.topic(), partition.partition(), offset);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (!buffer.isEmpty()) {
+            try {
+                analyticsEventAggregationService.flush(buffer,
+                        KafkaConfig.ANALYTICS_EVENT_CONSUMER_GROUP, KafkaConfig.ANALYTICS_EVENT_TOPIC);
+            } catch (RuntimeException e) {
+                // The next owner resumes from the stored offsets
+                flushFailedCounter.increment();
+                log.error("Failed to flush analytics events before partitions were revoked", e);
+            }
+            buffer.clear();
+        }
+        super.onPartitionsRevoked(partitions);
+    }
+
+    @Override
+    public void onIdleContainer(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (!buffer.isEmpty()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        try {
+            analyticsEventAggregationService.flush(buffer,
+                    KafkaConfig.ANALYTICS_EVENT_CONSUMER_GROUP, KafkaConfig.ANALYTICS_EVENT_TOPIC);
+            buffer.clear();
+        } catch (RuntimeException e) {
+            flushFailedCounter.increment();
+            log.error("Failed to flush analytics events; replaying from the stored offsets", e);
+            rewind();
+        }
+    }
+
+    // Drops the buffer and re-reads each buffered partition from its last flushed offset. Without
+    // a readable stored offset the first buffered offset is used, which is where the last flush ended.
+    private void rewind() {
+        Map<Integer, Long> resumeAt = new HashMap<>(buffer.getFirstOffsets());
+        buffer.clear();
+        try {
+            analyticsEventAggregationService.storedOffsets(
+                            KafkaConfig.ANALYTICS_EVENT_CONSUMER_GROUP, KafkaConfig.ANALYTICS_EVENT_TOPIC)
+                    .forEach((partition, offset) -> resumeAt.computeIfPresent(partition, (p, first) -> Math.max(first, offset)));
+        } catch (RuntimeException e) {
+            log.warn("Could not read stored analytics offsets, rewinding to the buffered offsets: {}", e.getMessage());
+        }
+        getSeekCallbacks().forEach((partition, callback) -> {
+            Long offset = resumeAt.get(partition.partition());
+            if (offset != null) {
+                callback.seek(partition.topic(), partition.partition(), offset);
+            }
+        });
+    }
+}
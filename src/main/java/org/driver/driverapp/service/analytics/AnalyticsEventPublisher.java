@@ -0,0 +1,94 @@
+package org.driver.driverapp.service.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Entry point for analytics events. With the {@code kafka} transport events go to
+ * {@link KafkaConfig#ANALYTICS_EVENT_TOPIC}, keyed by type and name so each series is aggregated
+ * by a single consumer. With {@code in-process}, or when no Kafka template is configured, they
+ * are queued in memory and aggregated on a schedule, which suits local runs but loses queued
+ * events on shutdown.
+ */
+@Slf4j
+@Component
+public class AnalyticsEventPublisher {
+
+    private final ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider;
+    private final AnalyticsEventAggregationService analyticsEventAggregationService;
+    private final boolean inProcess;
+    private final int windowSeconds;
+    private final BlockingQueue<AnalyticsEventDTO> inProcessQueue;
+    private final Counter droppedCounter;
+
+    public AnalyticsEventPublisher(ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider,
+                                   AnalyticsEventAggregationService analyticsEventAggregationService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${analytics.events.transport:kafka}") String transport,
+                                   @Value("${analytics.events.window-seconds:60}") int windowSeconds,
+                                   @Value("${analytics.events.in-process.capacity:10000}") int inProcessCapacity) {
+        this.kafkaTemplateProvider = kafkaTemplateProvider;
+        this.analyticsEventAggregationService = analyticsEventAggregationService;
+        this.inProcess = "in-process".equalsIgnoreCase(transport);
+        this.windowSeconds = windowSeconds;
+        this.inProcessQueue = new LinkedBlockingQueue<>(inProcessCapacity);
+        this.droppedCounter = Counter.builder(MetricsConfig.ANALYTICS_EVENT_DROPPED_COUNTER)
+                .description("Analytics events rejected because the in-process queue was full")
+                .register(meterRegistry);
+    }
+
+    public void publish(AnalyticsEventDTO event) {
+        if (event.getOccurredAt() == null) {
+            event.setOccurredAt(Instant.now());
+        }
+
+        KafkaTemplate<String, Object> kafkaTemplate = inProcess ? null : kafkaTemplateProvider.getIfAvailable();
+        if (kafkaTemplate == null) {
+            if (!inProcessQueue.offer(event)) {
+                droppedCounter.increment();
+                throw new IllegalStateException("Analytics event queue is full");
+            }
+            return;
+        }
+        kafkaTemplate.send(KafkaConfig.ANALYTICS_EVENT_TOPIC, event.getType() + ":" + event.getName(), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish analytics event: type={}, name={}", event.getType(), event.getName(), ex);
+                    }
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.events.flush-interval-ms:10000}")
+    public void flushInProcessEvents() {
+        List<AnalyticsEventDTO> events = new ArrayList<>();
+        inProcessQueue.drainTo(events);
+        if (events.isEmpty()) {
+            return;
+        }
+
+        AnalyticsEventWindowBuffer buffer = new AnalyticsEventWindowBuffer(windowSeconds);
+        for (AnalyticsEventDTO event : events) {
+            buffer.add(event, event.getOccurredAt());
+        }
+        try {
+            analyticsEventAggregationService.flush(buffer, null, null);
+        } catch (RuntimeException e) {
+            log.error("Failed to aggregate {} in-process analytics events", events.size(), e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+import org.driver.driverapp.model.AnalyticsEventAggregate;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Folds analytics events into tumbling event-time windows in memory until they are flushed,
+ * remembering the range of offsets consumed from each partition since the last flush.
+ * Not thread-safe; each instance belongs to a single consumer thread.
+ */
+public class AnalyticsEventWindowBuffer {
+
+    @Getter
+    private final int windowSeconds;
+    private final Map<WindowKey, AnalyticsEventAggregate> windows = new HashMap<>();
+    private final Map<Integer, Long> firstOffsets = new HashMap<>();
+    private final Map<Integer, Long> nextOffsets = new HashMap<>();
+    private long bufferedEvents;
+    private long bufferedSince;
+
+    public AnalyticsEventWindowBuffer(int windowSeconds) {
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("windowSeconds must be positive");
+        }
+        this.windowSeconds = windowSeconds;
+    }
+
+    public void add(AnalyticsEventDTO event, Instant receivedAt) {
+        Instant occurredAt = event.getOccurredAt() != null ? event.getOccurredAt() : receivedAt;
+        Instant windowStart = windowStart(occurredAt);
+        startIfEmpty();
+        bufferedEvents++;
+        windows.computeIfAbsent(new WindowKey(windowStart, event.getType(), event.getName()),
+                key -> AnalyticsEventAggregate.builder()
+                        .windowStart(key.windowStart)
+                        .windowSeconds(windowSeconds)
+                        .type(key.type)
+                        .name(key.name)
+                        .build())
+                .add(event.getValue());
+    }
+
+    /**
+     * Records that the record at {@code offset} has been consumed, whether or not it carried an
+     * event, so the flushed offsets move past undeserializable records as well.
+     */
+    public void markConsumed(int partition, long offset) {
+        startIfEmpty();
+        firstOffsets.putIfAbsent(partition, offset);
+        nextOffsets.merge(partition, offset + 1, Math::max);
+    }
+
+    public Instant windowStart(Instant occurredAt) {
+        long epochSecond = occurredAt.getEpochSecond();
+        return Instant.ofEpochSecond(epochSecond - Math.floorMod(epochSecond, windowSeconds));
+    }
+
+    public Collection<AnalyticsEventAggregate> getAggregates() {
+        return Collections.unmodifiableCollection(windows.values());
+    }
+
+    public Map<Integer, Long> getFirstOffsets() {
+        return Collections.unmodifiableMap(firstOffsets);
+    }
+
+    public Map<Integer, Long> getNextOffsets() {
+        return Collections.unmodifiableMap(nextOffsets);
+    }
+
+    public boolean isEmpty() {
+        return windows.isEmpty() && nextOffsets.isEmpty();
+    }
+
+    public long getBufferedEvents() {
+        return bufferedEvents;
+    }
+
+    public long ageMillis() {
+        return isEmpty() ? 0 : System.currentTimeMillis() - bufferedSince;
+    }
+
+    public void clear() {
+        windows.clear();
+        firstOffsets.clear();
+        nextOffsets.clear();
+        bufferedEvents = 0;
+    }
+
+    private void startIfEmpty() {
+        if (isEmpty()) {
+            bufferedSince = System.currentTimeMillis();
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class WindowKey {
+        private final Instant windowStart;
+        private final AnalyticsRecordType type;
+        private final String name;
+    }
+}
@@ -0,0 +1,40 @@
+package org.driver.driverapp.service.analytics;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.driver.driverapp.model.Customer;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Payment;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Marks the rollup bucket of every written delivery, payment or customer as dirty.
+ * Instantiated by Hibernate through Spring, so the tracker is resolved lazily and the
+ * listener is a no-op in contexts that do not define one.
+ */
+public class AnalyticsRollupEntityListener {
+
+    private final ObjectProvider<AnalyticsRollupTracker> trackerProvider;
+
+    public AnalyticsRollupEntityListener(ObjectProvider<AnalyticsRollupTracker> trackerProvider) {
+        this.trackerProvider = trackerProvider;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        AnalyticsRollupTracker tracker = trackerProvider.getIfAvailable();
+        if (tracker == null) {
+            return;
+        }
+        if (entity instanceof Delivery delivery) {
+            tracker.markChanged(delivery.getCreatedAt());
+        } else if (entity instanceof Payment payment) {
+            tracker.markChanged(payment.getCreatedAt());
+        } else if (entity instanceof Customer customer) {
+            tracker.markChanged(customer.getCreatedAt());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.driver.driverapp.service.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.RollupGranularity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives the analytics rollups: refreshes dirty buckets shortly after their source rows
+ * change, backfills history in parallel, and periodically reconciles recent days against
+ * the source rows.
+ */
+@Slf4j
+@Component
+public class AnalyticsRollupJob {
+
+    private final AnalyticsRollupService analyticsRollupService;
+    private final AnalyticsRollupTracker analyticsRollupTracker;
+    private final ExecutorService backfillExecutor;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final Counter reconcileMismatchCounter;
+    private final int reconcileDays;
+
+    public AnalyticsRollupJob(AnalyticsRollupService analyticsRollupService,
+                              AnalyticsRollupTracker analyticsRollupTracker,
+                              MeterRegistry meterRegistry,
+                              @Value("${analytics.rollups.backfill-parallelism:4}") int backfillParallelism,
+                              @Value("${analytics.rollups.reconcile-days:3}") int reconcileDays) {
+        this.analyticsRollupService = analyticsRollupService;
+        this.analyticsRollupTracker = analyticsRollupTracker;
+        this.backfillExecutor = Executors.newFixedThreadPool(backfillParallelism);
+        this.reconcileMismatchCounter = Counter.builder(MetricsConfig.ANALYTICS_ROLLUP_MISMATCH_COUNTER)
+                .description("Rollup days that disagreed with their source rows during reconciliation")
+                .register(meterRegistry);
+        this.reconcileDays = reconcileDays;
+    }
+
+    /**
+     * Rebuilds the hour buckets written since the last run and the days containing them.
+     * Today's day bucket is refreshed on every run so it always exists, which is what marks
+     * a day as covered for readers.
+     */
+    @Scheduled(fixedDelayString = "${analytics.rollups.refresh-interval-ms:30000}")
+    public void refreshDirtyBuckets() {
+        TreeSet<Instant> days = new TreeSet<>();
+        days.add(RollupGranularity.DAY.bucketStart(Instant.now(), AnalyticsRollupService.ZONE));
+
+        for (Instant hour : analyticsRollupTracker.drain()) {
+            try {
+                analyticsRollupService.refreshHour(hour);
+                days.add(RollupGranularity.DAY.bucketStart(hour, AnalyticsRollupService.ZONE));
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh analytics rollup for hour {}, will retry: {}", hour, e.getMessage());
+                analyticsRollupTracker.markDirty(hour);
+            }
+        }
+        for (Instant day : days) {
+            try {
+                analyticsRollupService.refreshDay(day);
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh analytics rollup for day {}: {}", day, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every day in the inclusive range, several days at a time. Only one backfill may
+     * run at a time; the returned future completes with the number of days rebuilt.
+     */
+    public CompletableFuture<Integer> backfill(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("fromDate must not be after toDate");
+        }
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("An analytics rollup backfill is already running");
+        }
+
+        log.info("Starting analytics rollup backfill from {} to {}", fromDate, toDate);
+        List<CompletableFuture<Void>> days = new ArrayList<>();
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)) {
+            Instant dayStart = date.atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+            days.add(CompletableFuture.runAsync(() -> analyticsRollupService.rebuildDay(dayStart), backfillExecutor));
+        }
+
+        return CompletableFuture.allOf(days.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> {
+                    backfillRunning.set(false);
+                    if (error != null) {
+                        log.error("Analytics rollup backfill from {} to {} failed", fromDate, toDate, error);
+                    } else {
+                        log.info("Finished analytics rollup backfill of {} days", days.size());
+                    }
+                })
+                .thenApply(ignored -> days.size());
+    }
+
+    /**
+     * Re-aggregates the most recent days from source rows and rebuilds any day whose rollups
+     * have drifted, e.g. because of bulk updates that bypass the entity listener.
+     */
+    @Scheduled(cron = "${analytics.rollups.reconcile-cron:0 15 3 * * *}")
+    public int reconcileRecentDays() {
+        LocalDate today = LocalDate.now(AnalyticsRollupService.ZONE);
+        int repaired = 0;
+        for (int i = 0; i < reconcileDays; i++) {
+            Instant dayStart = today.minusDays(i).atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+            if (!analyticsRollupService.matchesSourceRows(dayStart)) {
+                log.warn("Analytics rollups for {} disagree with source rows; rebuilding", dayStart);
+                reconcileMismatchCounter.increment();
+                analyticsRollupService.rebuildDay(dayStart);
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdown();
+    }
+}
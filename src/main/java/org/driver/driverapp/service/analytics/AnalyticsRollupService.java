@@ -0,0 +1,224 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.RollupGranularity;
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.AnalyticsRollup;
+import org.driver.driverapp.repository.AnalyticsRollupRepository;
+import org.driver.driverapp.repository.CustomerRepository;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.repository.PaymentRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maintains the hourly and daily {@link AnalyticsRollup} tables and serves dashboard windows
+ * from them. An hour bucket is always rebuilt from its source rows, and a day bucket from its
+ * hours, so refreshing a bucket twice is harmless and a missed change is repaired by the
+ * next refresh or reconciliation of that bucket.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsRollupService {
+
+    static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final AnalyticsRollupRepository analyticsRollupRepository;
+    private final DeliveryRepository deliveryRepository;
+    private final PaymentRepository paymentRepository;
+    private final CustomerRepository customerRepository;
+    private final AnalyticsSketchService analyticsSketchService;
+
+    @Transactional
+    public void refreshHour(Instant hourStart) {
+        Instant hourEnd = RollupGranularity.HOUR.nextBucket(hourStart, ZONE);
+        replaceBucket(RollupGranularity.HOUR, hourStart, aggregateSourceRows(RollupGranularity.HOUR, hourStart, hourEnd));
+    }
+
+    /**
+     * Rebuilds the day from its hours, and the day's sketches from its source rows in the same
+     * transaction so a day with rollups always has sketches too.
+     */
+    @Transactional
+    public void refreshDay(Instant dayStart) {
+        Instant dayEnd = RollupGranularity.DAY.nextBucket(dayStart, ZONE);
+        replaceBucket(RollupGranularity.DAY, dayStart, sumHourBuckets(dayStart, dayEnd));
+        analyticsSketchService.refreshDay(dayStart);
+    }
+
+    /**
+     * Rebuilds every hour of the day from source rows and then the day itself.
+     */
+    @Transactional
+    public void rebuildDay(Instant dayStart) {
+        Instant dayEnd = RollupGranularity.DAY.nextBucket(dayStart, ZONE);
+        for (Instant hour = dayStart; hour.isBefore(dayEnd); hour = RollupGranularity.HOUR.nextBucket(hour, ZONE)) {
+            refreshHour(hour);
+        }
+        refreshDay(dayStart);
+    }
+
+    /**
+     * Compares the stored day rollups with a fresh aggregation of the day's source rows.
+     */
+    @Transactional(readOnly = true)
+    public boolean matchesSourceRows(Instant dayStart) {
+        Instant dayEnd = RollupGranularity.DAY.nextBucket(dayStart, ZONE);
+        Map<String, AnalyticsRollup> expected = byScopeKey(aggregateSourceRows(RollupGranularity.DAY, dayStart, dayEnd));
+        Map<String, AnalyticsRollup> stored = byScopeKey(
+                analyticsRollupRepository.findByGranularityAndBucketStart(RollupGranularity.DAY, dayStart));
+
+        if (!expected.keySet().equals(stored.keySet())) {
+            return false;
+        }
+        return expected.entrySet().stream()
+                .allMatch(entry -> entry.getValue().sameTotals(stored.get(entry.getKey())));
+    }
+
+    /**
+     * Delivery counts for the dashboard windows of one scope, read from day rollups. Empty when
+     * the windows do not fall on day boundaries or any day in the month window has not been
+     * rolled up yet, in which case callers should aggregate the source rows instead.
+     */
+    @Transactional(readOnly = true)
+    public Optional<DeliveryRepository.DeliveryWindowCounts> findDeliveryWindows(RollupScope scope,
+                                                                                 String scopeKey,
+                                                                                 DeliveryStatus status,
+                                                                                 AnalyticsWindows windows) {
+        if (status != DeliveryStatus.DELIVERED && status != DeliveryStatus.DELIVERY_FAILED) {
+            return Optional.empty();
+        }
+        if (!RollupGranularity.DAY.isAligned(windows.getTodayStart(), windows.getZone())
+                || !RollupGranularity.DAY.isAligned(windows.getWeekStart(), windows.getZone())
+                || !RollupGranularity.DAY.isAligned(windows.getMonthStart(), windows.getZone())) {
+            return Optional.empty();
+        }
+
+        long expectedDays = ChronoUnit.DAYS.between(windows.getToday().minusMonths(1), windows.getToday()) + 1;
+        long coveredDays = analyticsRollupRepository.countByGranularityAndScopeAndScopeKeyAndBucketStartBetween(
+                RollupGranularity.DAY, RollupScope.GLOBAL, AnalyticsRollup.GLOBAL_KEY,
+                windows.getMonthStart(), windows.getTodayStart());
+        if (coveredDays < expectedDays) {
+            log.debug("Rollups cover {} of {} days for the dashboard windows; reading source rows", coveredDays, expectedDays);
+            return Optional.empty();
+        }
+
+        AnalyticsRollupRepository.RollupWindowTotals totals = analyticsRollupRepository.summarizeDayWindows(
+                scope, scopeKey, windows.getTodayStart(), windows.getWeekStart(), windows.getMonthStart());
+        return Optional.of(RollupDeliveryWindowCounts.of(totals, status));
+    }
+
+    private void replaceBucket(RollupGranularity granularity, Instant bucketStart, List<AnalyticsRollup> rollups) {
+        analyticsRollupRepository.deleteBucket(granularity, bucketStart);
+        analyticsRollupRepository.saveAll(rollups);
+    }
+
+    private List<AnalyticsRollup> aggregateSourceRows(RollupGranularity granularity, Instant start, Instant end) {
+        Instant refreshedAt = Instant.now();
+        Map<RollupScope, Map<String, AnalyticsRollup>> rollups = new EnumMap<>(RollupScope.class);
+        rollup(rollups, granularity, start, refreshedAt, RollupScope.GLOBAL, AnalyticsRollup.GLOBAL_KEY);
+
+        for (Object[] row : deliveryRepository.aggregateForRollup(start, end)) {
+            for (AnalyticsRollup rollup : scopesOf(rollups, granularity, start, refreshedAt, (Long) row[0], (String) row[1])) {
+                rollup.setDeliveriesCreated(rollup.getDeliveriesCreated() + toLong(row[2]));
+                rollup.setDeliveriesDelivered(rollup.getDeliveriesDelivered() + toLong(row[3]));
+                rollup.setDeliveriesFailed(rollup.getDeliveriesFailed() + toLong(row[4]));
+                rollup.setDeliveriesCanceled(rollup.getDeliveriesCanceled() + toLong(row[5]));
+            }
+        }
+        for (Object[] row : paymentRepository.aggregateForRollup(start, end)) {
+            for (AnalyticsRollup rollup : scopesOf(rollups, granularity, start, refreshedAt, (Long) row[0], (String) row[1])) {
+                rollup.setPaymentsCompleted(rollup.getPaymentsCompleted() + toLong(row[2]));
+                rollup.setRevenueCompleted(rollup.getRevenueCompleted().add(toBigDecimal(row[3])));
+            }
+        }
+        for (Object[] row : customerRepository.aggregateForRollup(start, end)) {
+            for (AnalyticsRollup rollup : scopesOf(rollups, granularity, start, refreshedAt, null, (String) row[0])) {
+                rollup.setNewCustomers(rollup.getNewCustomers() + toLong(row[1]));
+            }
+        }
+
+        return rollups.values().stream().flatMap(byKey -> byKey.values().stream()).toList();
+    }
+
+    private List<AnalyticsRollup> sumHourBuckets(Instant dayStart, Instant dayEnd) {
+        Instant refreshedAt = Instant.now();
+        Map<RollupScope, Map<String, AnalyticsRollup>> rollups = new EnumMap<>(RollupScope.class);
+        rollup(rollups, RollupGranularity.DAY, dayStart, refreshedAt, RollupScope.GLOBAL, AnalyticsRollup.GLOBAL_KEY);
+
+        for (Object[] row : analyticsRollupRepository.sumHourBucketsByScope(dayStart, dayEnd)) {
+            AnalyticsRollup rollup = rollup(rollups, RollupGranularity.DAY, dayStart, refreshedAt,
+                    (RollupScope) row[0], (String) row[1]);
+            rollup.setDeliveriesCreated(toLong(row[2]));
+            rollup.setDeliveriesDelivered(toLong(row[3]));
+            rollup.setDeliveriesFailed(toLong(row[4]));
+            rollup.setDeliveriesCanceled(toLong(row[5]));
+            rollup.setPaymentsCompleted(toLong(row[6]));
+            rollup.setRevenueCompleted(toBigDecimal(row[7]));
+            rollup.setNewCustomers(toLong(row[8]));
+        }
+
+        return rollups.values().stream().flatMap(byKey -> byKey.values().stream()).toList();
+    }
+
+    // The global rollup plus the partner and region rollups a source row belongs to
+    private List<AnalyticsRollup> scopesOf(Map<RollupScope, Map<String, AnalyticsRollup>> rollups,
+                                           RollupGranularity granularity, Instant bucketStart, Instant refreshedAt,
+                                           Long partnerId, String region) {
+        List<AnalyticsRollup> scopes = new ArrayList<>(3);
+        scopes.add(rollup(rollups, granularity, bucketStart, refreshedAt, RollupScope.GLOBAL, AnalyticsRollup.GLOBAL_KEY));
+        if (partnerId != null) {
+            scopes.add(rollup(rollups, granularity, bucketStart, refreshedAt, RollupScope.PARTNER, partnerId.toString()));
+        }
+        if (region != null && !region.isBlank()) {
+            scopes.add(rollup(rollups, granularity, bucketStart, refreshedAt, RollupScope.REGION, region));
+        }
+        return scopes;
+    }
+
+    private AnalyticsRollup rollup(Map<RollupScope, Map<String, AnalyticsRollup>> rollups,
+                                   RollupGranularity granularity, Instant bucketStart, Instant refreshedAt,
+                                   RollupScope scope, String scopeKey) {
+        return rollups.computeIfAbsent(scope, s -> new HashMap<>())
+                .computeIfAbsent(scopeKey, key -> AnalyticsRollup.builder()
+                        .granularity(granularity)
+                        .bucketStart(bucketStart)
+                        .scope(scope)
+                        .scopeKey(key)
+                        .refreshedAt(refreshedAt)
+                        .build());
+    }
+
+    private static Map<String, AnalyticsRollup> byScopeKey(List<AnalyticsRollup> rollups) {
+        Map<String, AnalyticsRollup> byKey = new HashMap<>();
+        for (AnalyticsRollup rollup : rollups) {
+            byKey.put(rollup.getScope() + ":" + rollup.getScopeKey(), rollup);
+        }
+        return byKey;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
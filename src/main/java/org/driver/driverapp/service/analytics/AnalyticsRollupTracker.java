@@ -0,0 +1,53 @@
+package org.driver.driverapp.service.analytics;
+
+import org.driver.driverapp.enums.RollupGranularity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hour buckets whose source rows changed since the last rollup refresh. Changes made inside a
+ * transaction are only recorded once it commits, so a refresh never reads uncommitted state
+ * and rolled-back writes leave no trace.
+ */
+@Component
+public class AnalyticsRollupTracker {
+
+    private final Set<Instant> dirtyHours = ConcurrentHashMap.newKeySet();
+
+    public void markChanged(Instant createdAt) {
+        Instant hour = RollupGranularity.HOUR.bucketStart(
+                createdAt != null ? createdAt : Instant.now(), AnalyticsRollupService.ZONE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirtyHours.add(hour);
+                }
+            });
+        } else {
+            dirtyHours.add(hour);
+        }
+    }
+
+    public void markDirty(Instant hourStart) {
+        dirtyHours.add(hourStart);
+    }
+
+    public List<Instant> drain() {
+        List<Instant> drained = new ArrayList<>();
+        for (Instant hour : dirtyHours) {
+            if (dirtyHours.remove(hour)) {
+                drained.add(hour);
+            }
+        }
+        drained.sort(null);
+        return drained;
+    }
+}
@@ -0,0 +1,96 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.RollupGranularity;
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.AnalyticsDailySketch;
+import org.driver.driverapp.model.AnalyticsRollup;
+import org.driver.driverapp.repository.AnalyticsDailySketchRepository;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the {@link AnalyticsDailySketch} rows and answers distinct-customer counts and
+ * percentiles for any day range by merging them. A day is rebuilt from its source rows as a
+ * whole, since sketches cannot forget values, and is refreshed together with its day rollup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsSketchService {
+
+    private final AnalyticsDailySketchRepository analyticsDailySketchRepository;
+    private final DeliveryRepository deliveryRepository;
+
+    @Transactional
+    public void refreshDay(Instant dayStart) {
+        Instant dayEnd = RollupGranularity.DAY.nextBucket(dayStart, AnalyticsRollupService.ZONE);
+        DeliverySketch global = new DeliverySketch();
+        Map<Long, DeliverySketch> partners = new HashMap<>();
+        for (Object[] row : deliveryRepository.findSketchSourceRows(dayStart, dayEnd)) {
+            global.add(row);
+            partners.computeIfAbsent((Long) row[0], id -> new DeliverySketch()).add(row);
+        }
+
+        Instant refreshedAt = Instant.now();
+        List<AnalyticsDailySketch> sketches = new ArrayList<>(partners.size() + 1);
+        sketches.add(global.toEntity(dayStart, RollupScope.GLOBAL, AnalyticsRollup.GLOBAL_KEY, refreshedAt));
+        partners.forEach((partnerId, sketch) ->
+                sketches.add(sketch.toEntity(dayStart, RollupScope.PARTNER, partnerId.toString(), refreshedAt)));
+
+        analyticsDailySketchRepository.deleteDay(dayStart);
+        analyticsDailySketchRepository.saveAll(sketches);
+    }
+
+    /**
+     * Merges the partner's sketches for the inclusive date range. Days that have not been
+     * sketched yet, e.g. before a backfill, are sketched from their source rows on the fly.
+     */
+    @Transactional(readOnly = true)
+    public DeliverySketchSummary summarizePartner(Long partnerId, LocalDate fromDate, LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("fromDate must not be after toDate");
+        }
+        Instant from = fromDate.atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+        Instant to = toDate.plusDays(1).atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+
+        DeliverySketch merged = new DeliverySketch();
+        for (AnalyticsDailySketch sketch : analyticsDailySketchRepository
+                .findByScopeAndScopeKeyAndBucketStartGreaterThanEqualAndBucketStartLessThan(
+                        RollupScope.PARTNER, partnerId.toString(), from, to)) {
+            merged.merge(sketch);
+        }
+
+        Set<Instant> sketchedDays = new HashSet<>(analyticsDailySketchRepository.findSketchedDays(from, to));
+        List<Instant> missingDays = new ArrayList<>();
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)) {
+            Instant dayStart = date.atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+            if (!sketchedDays.contains(dayStart)) {
+                missingDays.add(dayStart);
+            }
+        }
+        if (!missingDays.isEmpty()) {
+            log.debug("{} of the requested days have no sketches; reading their source rows", missingDays.size());
+            Instant missingEnd = RollupGranularity.DAY.nextBucket(missingDays.get(missingDays.size() - 1),
+                    AnalyticsRollupService.ZONE);
+            for (Object[] row : deliveryRepository.findSketchSourceRowsByPartnerId(partnerId, missingDays.get(0), missingEnd)) {
+                Instant day = RollupGranularity.DAY.bucketStart((Instant) row[2], AnalyticsRollupService.ZONE);
+                if (!sketchedDays.contains(day)) {
+                    merged.add(row);
+                }
+            }
+        }
+        return merged.summarize();
+    }
+}
@@ -0,0 +1,153 @@
+package org.driver.driverapp.service.analytics;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Stale-while-revalidate cache for expensive analytics results, stored in the
+ * {@value #CACHE_NAME} cache. Entries younger than the freshness window are served as is;
+ * older entries are served immediately while one background refresh replaces them, until the
+ * cache's own TTL drops them. Concurrent misses and refreshes of one key share a single
+ * computation on this instance, so an expiry under load costs one recompute, not one per
+ * request. Cache failures degrade to computing the result.
+ */
+@Slf4j
+@Component
+public class AnalyticsSummaryCache {
+
+    public static final String CACHE_NAME = "analytics-cache";
+
+    private final Cache cache;
+    private final long freshForMillis;
+    private final ThreadPoolExecutor refreshExecutor;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public AnalyticsSummaryCache(CacheManager cacheManager,
+                                 @Value("${analytics.cache.fresh-for-ms:60000}") long freshForMillis,
+                                 @Value("${analytics.cache.refresh-parallelism:2}") int refreshParallelism) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.freshForMillis = freshForMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Refreshes only ever replace a value that is still being served, so excess ones are dropped
+        this.refreshExecutor = new ThreadPoolExecutor(refreshParallelism, refreshParallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100), runnable -> {
+                    Thread thread = new Thread(runnable, "analytics-cache-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> T get(String key, Class<T> type, Supplier<T> loader) {
+        AnalyticsCacheEntry entry = read(key);
+        if (entry != null && type.isInstance(entry.getValue())) {
+            if (System.currentTimeMillis() - entry.getComputedAtMillis() >= freshForMillis) {
+                refreshInBackground(key, loader);
+            }
+            return type.cast(entry.getValue());
+        }
+        return type.cast(load(key, loader));
+    }
+
+    private Object load(String key, Supplier<?> loader) {
+        while (true) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+            if (leader == null) {
+                compute(key, loader, flight);
+                return await(flight);
+            }
+            Object value = await(leader);
+            // Null only when the joined refresh was dropped; compute instead
+            if (value != null) {
+                return value;
+            }
+        }
+    }
+
+    private void refreshInBackground(String key, Supplier<?> loader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, flight) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                compute(key, loader, flight);
+                if (flight.isCompletedExceptionally()) {
+                    log.warn("Background refresh of analytics cache key {} failed; serving the stale value", key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, flight);
+            flight.complete(null);
+            log.debug("Analytics cache refresh queue is full; skipping refresh of {}", key);
+        }
+    }
+
+    private void compute(String key, Supplier<?> loader, CompletableFuture<Object> flight) {
+        try {
+            Object value = loader.get();
+            write(key, value);
+            flight.complete(value);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+        } finally {
+            // Removed only after the write, so later callers find the new entry
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private AnalyticsCacheEntry read(String key) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.get(key, AnalyticsCacheEntry.class);
+        } catch (RuntimeException e) {
+            log.debug("Analytics cache read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, Object value) {
+        if (cache == null || value == null) {
+            return;
+        }
+        try {
+            cache.put(key, new AnalyticsCacheEntry(value, System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            log.debug("Analytics cache write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,51 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * The today / this week / this month boundaries used by the dashboard summaries,
+ * resolved once per request so every aggregate is computed against the same instant.
+ */
+@Getter
+public final class AnalyticsWindows {
+
+    private final LocalDate today;
+    private final Instant todayStart;
+    private final Instant todayEnd;
+    private final Instant weekStart;
+    private final Instant monthStart;
+    private final Instant now;
+    private final ZoneId zone;
+
+    private AnalyticsWindows(LocalDate today, Instant now, ZoneId zone) {
+        this.today = today;
+        this.now = now;
+        this.zone = zone;
+        this.todayStart = today.atStartOfDay(zone).toInstant();
+        this.todayEnd = today.atTime(23, 59, 59).atZone(zone).toInstant();
+        this.weekStart = today.minusWeeks(1).atStartOfDay(zone).toInstant();
+        this.monthStart = today.minusMonths(1).atStartOfDay(zone).toInstant();
+    }
+
+    public static AnalyticsWindows current() {
+        ZoneId zone = ZoneId.systemDefault();
+        return new AnalyticsWindows(LocalDate.now(zone), Instant.now(), zone);
+    }
+
+    public static AnalyticsWindows of(LocalDate today, Instant now, ZoneId zone) {
+        return new AnalyticsWindows(today, now, zone);
+    }
+
+    public LocalDateTime localTodayStart() {
+        return LocalDateTime.ofInstant(todayStart, zone);
+    }
+
+    public LocalDateTime localNow() {
+        return LocalDateTime.ofInstant(now, zone);
+    }
+}
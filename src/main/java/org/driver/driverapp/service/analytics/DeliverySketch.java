@@ -0,0 +1,76 @@
+package org.driver.driverapp.service.analytics;
+
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.AnalyticsDailySketch;
+import org.driver.driverapp.service.analytics.sketch.HyperLogLog;
+import org.driver.driverapp.service.analytics.sketch.TDigest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * In-memory counterpart of {@link AnalyticsDailySketch}: built from delivery source rows or by
+ * merging stored days.
+ */
+class DeliverySketch {
+
+    private long deliveries;
+    private final HyperLogLog customers = new HyperLogLog();
+    private final TDigest deliveryMinutes = new TDigest();
+    private final TDigest orderValue = new TDigest();
+
+    /**
+     * Adds one row of {@code DeliveryRepository.findSketchSourceRows}: partner id, customer id,
+     * created at, delivered at and price.
+     */
+    void add(Object[] row) {
+        deliveries++;
+        if (row[1] != null) {
+            customers.add((Long) row[1]);
+        }
+        Instant createdAt = (Instant) row[2];
+        OffsetDateTime deliveredAt = (OffsetDateTime) row[3];
+        if (createdAt != null && deliveredAt != null && !deliveredAt.toInstant().isBefore(createdAt)) {
+            deliveryMinutes.add(Duration.between(createdAt, deliveredAt.toInstant()).toMillis() / 60_000.0);
+        }
+        double price = row[4] != null ? ((Number) row[4]).doubleValue() : 0;
+        if (price > 0) {
+            orderValue.add(price);
+        }
+    }
+
+    void merge(AnalyticsDailySketch stored) {
+        deliveries += stored.getDeliveries();
+        customers.merge(HyperLogLog.fromBytes(stored.getCustomersHll()));
+        deliveryMinutes.merge(TDigest.fromBytes(stored.getDeliveryMinutesDigest()));
+        orderValue.merge(TDigest.fromBytes(stored.getOrderValueDigest()));
+    }
+
+    AnalyticsDailySketch toEntity(Instant bucketStart, RollupScope scope, String scopeKey, Instant refreshedAt) {
+        return AnalyticsDailySketch.builder()
+                .bucketStart(bucketStart)
+                .scope(scope)
+                .scopeKey(scopeKey)
+                .deliveries(deliveries)
+                .customersHll(customers.toBytes())
+                .deliveryMinutesDigest(deliveryMinutes.toBytes())
+                .orderValueDigest(orderValue.toBytes())
+                .refreshedAt(refreshedAt)
+                .build();
+    }
+
+    DeliverySketchSummary summarize() {
+        return new DeliverySketchSummary(
+                deliveries,
+                customers.estimate(),
+                quantile(deliveryMinutes, 0.5),
+                quantile(deliveryMinutes, 0.95),
+                quantile(orderValue, 0.5),
+                quantile(orderValue, 0.95));
+    }
+
+    private static Double quantile(TDigest digest, double q) {
+        return digest.size() > 0 ? digest.quantile(q) : null;
+    }
+}
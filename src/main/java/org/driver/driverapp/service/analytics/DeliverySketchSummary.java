@@ -0,0 +1,20 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Approximate delivery statistics for a day range, merged from daily sketches. Percentiles are
+ * null when no delivery in the range contributed a value.
+ */
+@Getter
+@AllArgsConstructor
+public class DeliverySketchSummary {
+
+    private final long deliveries;
+    private final long distinctCustomers;
+    private final Double deliveryMinutesP50;
+    private final Double deliveryMinutesP95;
+    private final Double orderValueP50;
+    private final Double orderValueP95;
+}
@@ -0,0 +1,34 @@
+package org.driver.driverapp.service.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.repository.AnalyticsRollupRepository;
+import org.driver.driverapp.repository.DeliveryRepository;
+
+/**
+ * Day-rollup window totals presented in the shape of the single-pass delivery aggregate,
+ * with the status columns taken from the delivered or failed counters.
+ */
+@Getter
+@AllArgsConstructor
+class RollupDeliveryWindowCounts implements DeliveryRepository.DeliveryWindowCounts {
+
+    private final Long totalToday;
+    private final Long totalThisWeek;
+    private final Long totalThisMonth;
+    private final Long statusToday;
+    private final Long statusThisWeek;
+    private final Long statusThisMonth;
+
+    static RollupDeliveryWindowCounts of(AnalyticsRollupRepository.RollupWindowTotals totals, DeliveryStatus status) {
+        boolean delivered = status == DeliveryStatus.DELIVERED;
+        return new RollupDeliveryWindowCounts(
+                totals.getCreatedToday(),
+                totals.getCreatedThisWeek(),
+                totals.getCreatedThisMonth(),
+                delivered ? totals.getDeliveredToday() : totals.getFailedToday(),
+                delivered ? totals.getDeliveredThisWeek() : totals.getFailedThisWeek(),
+                delivered ? totals.getDeliveredThisMonth() : totals.getFailedThisMonth());
+    }
+}
@@ -0,0 +1,219 @@
+package org.driver.driverapp.service.analytics.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest for quantile estimates. Values are buffered and periodically merged into
+ * centroids whose size is bounded by the arcsine scale function, which keeps the tails (p95,
+ * p99) accurate with a few hundred centroids regardless of how many values were added. Digests
+ * merge by re-compressing their centroids together.
+ */
+public final class TDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("compression must be at least 10");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[capacity * 5];
+        this.bufferWeights = new double[capacity * 5];
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Cannot add a non-finite value to a t-digest");
+        }
+        addCentroid(value, 1);
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            addCentroid(other.means[i], other.weights[i]);
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Estimated value at quantile {@code q} in [0, 1], or {@code NaN} when the digest is empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q must be between 0 and 1");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+
+        double total = 0;
+        for (int i = 0; i < centroids; i++) {
+            total += weights[i];
+        }
+        double index = q * total;
+
+        // Between the minimum and the centre of the first centroid
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + gap > index) {
+                double z = (index - weightSoFar) / gap;
+                return means[i] + z * (means[i + 1] - means[i]);
+            }
+            weightSoFar += gap;
+        }
+        // Between the centre of the last centroid and the maximum
+        int last = centroids - 1;
+        double z = Math.min(1, (index - weightSoFar) / (weights[last] / 2));
+        return means[last] + z * (max - means[last]);
+    }
+
+    public byte[] toBytes() {
+        compress();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + 8 + 8 + 4 + centroids * 16);
+        buffer.putDouble(compression).putLong(count).putDouble(min).putDouble(max).putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            buffer.putDouble(means[i]).putDouble(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    public static TDigest fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        TDigest digest = new TDigest(buffer.getDouble());
+        digest.count = buffer.getLong();
+        digest.min = buffer.getDouble();
+        digest.max = buffer.getDouble();
+        int centroids = buffer.getInt();
+        if (centroids < 0 || buffer.remaining() != centroids * 16) {
+            throw new IllegalArgumentException("Invalid t-digest encoding");
+        }
+        for (int i = 0; i < centroids; i++) {
+            digest.addCentroid(buffer.getDouble(), buffer.getDouble());
+        }
+        return digest;
+    }
+
+    private void addCentroid(double mean, double weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int n = centroids + buffered;
+        double[] allMeans = new double[n];
+        double[] allWeights = new double[n];
+        System.arraycopy(means, 0, allMeans, 0, centroids);
+        System.arraycopy(weights, 0, allWeights, 0, centroids);
+        System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+        sortByMean(allMeans, allWeights);
+
+        double total = 0;
+        for (double weight : allWeights) {
+            total += weight;
+        }
+
+        int out = 0;
+        double mean = allMeans[0];
+        double weight = allWeights[0];
+        double weightSoFar = 0;
+        double limit = total * kToQ(qToK(0) + 1);
+        for (int i = 1; i < n; i++) {
+            double proposed = weight + allWeights[i];
+            if (weightSoFar + proposed <= limit) {
+                mean += (allMeans[i] - mean) * allWeights[i] / proposed;
+                weight = proposed;
+            } else {
+                out = emit(out, mean, weight);
+                weightSoFar += weight;
+                limit = total * kToQ(qToK(weightSoFar / total) + 1);
+                mean = allMeans[i];
+                weight = allWeights[i];
+            }
+        }
+        centroids = emit(out, mean, weight);
+        buffered = 0;
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index * 2);
+            weights = Arrays.copyOf(weights, index * 2);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    // Arcsine scale function: centroids near the tails hold fewer points than those near the median
+    private double qToK(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double kToQ(double k) {
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    private static void sortByMean(double[] means, double[] weights) {
+        Integer[] order = new Integer[means.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(means[a], means[b]));
+        double[] sortedMeans = new double[means.length];
+        double[] sortedWeights = new double[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedMeans[i] = means[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        System.arraycopy(sortedMeans, 0, means, 0, means.length);
+        System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+    }
+}
@@ -0,0 +1,358 @@
+package org.driver.driverapp.service.audit;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.model.AuditLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Audit log entries moved out of {@code audit_logs}, kept as one immutable segment file per
+ * day. A day is only ever replaced as a whole: a new segment with the next sequence number is
+ * written next to the old one and swapped in, so readers never see a partial day.
+ */
+@Slf4j
+@Component
+public class AuditArchive {
+
+    public static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("audit-(\\d{8})-(\\d{4})\\.seg");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Path directory;
+    private final int blockEntries;
+    private final ConcurrentNavigableMap<LocalDate, AuditSegment> segments = new ConcurrentSkipListMap<>();
+
+    public AuditArchive(@Value("${audit.archive.dir:archive/audit}") String directory,
+                        @Value("${audit.archive.block-entries:512}") int blockEntries) {
+        this.directory = Paths.get(directory);
+        this.blockEntries = blockEntries;
+    }
+
+    /**
+     * Opens the existing segments. Leftovers of an interrupted replace, i.e. temporary files and
+     * segments superseded by a higher sequence number, are deleted.
+     */
+    @PostConstruct
+    public void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                LocalDate day = LocalDate.parse(matcher.group(1), DAY_FORMAT);
+                int sequence = Integer.parseInt(matcher.group(2));
+                AuditSegment current = segments.get(day);
+                if (current != null && current.getSequence() > sequence) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                segments.put(day, AuditSegment.open(file, day, sequence));
+                if (current != null) {
+                    Files.deleteIfExists(current.getPath());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load audit archive from " + directory, e);
+        }
+        log.info("Loaded {} audit archive segments from {}", segments.size(), directory);
+    }
+
+    public boolean contains(LocalDate day) {
+        return segments.containsKey(day);
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Whether any archived entry may fall in the inclusive range.
+     */
+    public boolean overlaps(Instant from, Instant to) {
+        long fromMicros = AuditSegment.toMicros(from);
+        long toMicros = AuditSegment.toMicros(to);
+        return segments.values().stream().anyMatch(segment -> segment.overlaps(fromMicros, toMicros));
+    }
+
+    /**
+     * Number of active archived entries in the inclusive range. Blocks entirely inside the range
+     * are counted from the index without being read.
+     */
+    public long countBetween(Instant from, Instant to) {
+        long fromMicros = AuditSegment.toMicros(from);
+        long toMicros = AuditSegment.toMicros(to);
+        long count = 0;
+        for (AuditSegment segment : segments.values()) {
+            if (!segment.overlaps(fromMicros, toMicros)) {
+                continue;
+            }
+            for (AuditSegment.Block block : segment.blocks()) {
+                if (block.within(fromMicros, toMicros)) {
+                    count += block.getActiveCount();
+                } else if (block.overlaps(fromMicros, toMicros)) {
+                    count += segment.read(block).stream().filter(auditLog -> matches(auditLog, from, to)).count();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Active archived entries in the inclusive range, newest first, skipping {@code offset} of
+     * them. Skipped blocks entirely inside the range are not read.
+     */
+    public List<AuditLog> findBetween(Instant from, Instant to, long offset, int limit) {
+        long fromMicros = AuditSegment.toMicros(from);
+        long toMicros = AuditSegment.toMicros(to);
+        List<AuditLog> result = new ArrayList<>(Math.min(limit, 1024));
+        long skip = offset;
+        for (AuditSegment segment : segments.descendingMap().values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!segment.overlaps(fromMicros, toMicros)) {
+                continue;
+            }
+            List<AuditSegment.Block> blocks = segment.blocks();
+            for (int i = blocks.size() - 1; i >= 0 && result.size() < limit; i--) {
+                AuditSegment.Block block = blocks.get(i);
+                if (!block.overlaps(fromMicros, toMicros)) {
+                    continue;
+                }
+                if (block.within(fromMicros, toMicros) && skip >= block.getActiveCount()) {
+                    skip -= block.getActiveCount();
+                    continue;
+                }
+                List<AuditLog> entries = segment.read(block);
+                for (int j = entries.size() - 1; j >= 0 && result.size() < limit; j--) {
+                    AuditLog auditLog = entries.get(j);
+                    if (!matches(auditLog, from, to)) {
+                        continue;
+                    }
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        result.add(auditLog);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Active archived entries of one entity, oldest first. Blocks whose entity filter rules the
+     * entity out are not read.
+     */
+    public List<AuditLog> findByEntity(AuditEntityType entityType, Long entityId) {
+        List<AuditLog> result = new ArrayList<>();
+        for (AuditSegment segment : segments.values()) {
+            for (AuditSegment.Block block : segment.blocks()) {
+                if (!block.mightContain(entityType, entityId)) {
+                    continue;
+                }
+                for (AuditLog auditLog : segment.read(block)) {
+                    if (auditLog.isActive() && auditLog.getEntityType() == entityType
+                            && auditLog.getEntityId().equals(entityId)) {
+                        result.add(auditLog);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of active archived entries matching the filter. Blocks whose index rules the filter
+     * out are not read.
+     */
+    public long count(Filter filter) {
+        long count = 0;
+        for (AuditSegment segment : segments.values()) {
+            for (AuditSegment.Block block : segment.blocks()) {
+                if (filter.mightMatch(block)) {
+                    count += segment.read(block).stream().filter(filter::matches).count();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Active archived entries matching the filter, newest first, skipping {@code offset} of them.
+     * Blocks whose index rules the filter out are not read.
+     */
+    public List<AuditLog> find(Filter filter, long offset, int limit) {
+        List<AuditLog> result = new ArrayList<>(Math.min(limit, 1024));
+        long skip = offset;
+        for (AuditSegment segment : segments.descendingMap().values()) {
+            List<AuditSegment.Block> blocks = segment.blocks();
+            for (int i = blocks.size() - 1; i >= 0 && result.size() < limit; i--) {
+                if (!filter.mightMatch(blocks.get(i))) {
+                    continue;
+                }
+                List<AuditLog> entries = segment.read(blocks.get(i));
+                for (int j = entries.size() - 1; j >= 0 && result.size() < limit; j--) {
+                    AuditLog auditLog = entries.get(j);
+                    if (!filter.matches(auditLog)) {
+                        continue;
+                    }
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        result.add(auditLog);
+                    }
+                }
+            }
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Every archived entry of the day, including inactive ones, ordered by creation time and id.
+     */
+    public Iterator<AuditLog> readDay(LocalDate day) {
+        AuditSegment segment = segments.get(day);
+        return segment != null ? segment.iterator() : Collections.emptyIterator();
+    }
+
+    /**
+     * Replaces the day's segment with the given entries, which must be ordered by creation time
+     * and id. The previous segment is deleted once the new one is in place. Inside a transaction
+     * the new segment only takes the previous one's place when the transaction commits, and is
+     * deleted if it rolls back, so entries whose removal from the table is rolled back are never
+     * served from both. A crash between writing the file and the commit leaves the new segment
+     * to be loaded next to the rows; the next archive run merges them again and removes the rows.
+     */
+    public void replaceDay(LocalDate day, Iterator<AuditLog> auditLogs) throws IOException {
+        Files.createDirectories(directory);
+        AuditSegment previous = segments.get(day);
+        int sequence = previous != null ? previous.getSequence() + 1 : 1;
+        Path target = directory.resolve(String.format("audit-%s-%04d.seg", DAY_FORMAT.format(day), sequence));
+        AuditSegment segment = AuditSegment.write(target, day, sequence, auditLogs, blockEntries);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(segment, previous);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    publish(segment, previous);
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(segment.getPath());
+                } catch (IOException e) {
+                    log.warn("Could not delete audit segment {} of a rolled back archive run", segment.getPath(), e);
+                }
+            }
+        });
+    }
+
+    private void publish(AuditSegment segment, AuditSegment previous) {
+        segments.put(segment.getDay(), segment);
+        if (previous != null) {
+            try {
+                Files.deleteIfExists(previous.getPath());
+            } catch (IOException e) {
+                // Superseded by the higher sequence number, so the next load deletes it
+                log.warn("Could not delete superseded audit segment {}", previous.getPath(), e);
+            }
+        }
+        log.info("Archived {} audit logs for {} in {}", segment.getEntryCount(), segment.getDay(),
+                segment.getPath().getFileName());
+    }
+
+    public static Instant dayStart(LocalDate day) {
+        return day.atStartOfDay(ZONE).toInstant();
+    }
+
+    private static boolean matches(AuditLog auditLog, Instant from, Instant to) {
+        return auditLog.isActive() && !auditLog.getCreatedAt().isBefore(from) && !auditLog.getCreatedAt().isAfter(to);
+    }
+
+    /**
+     * Active archived entries of one user, action or entity type, or of several of them at once;
+     * the segments' block index can rule out each condition.
+     */
+    public static final class Filter {
+
+        private final Long userId;
+        private final AuditAction action;
+        private final AuditEntityType entityType;
+
+        private Filter(Long userId, AuditAction action, AuditEntityType entityType) {
+            this.userId = userId;
+            this.action = action;
+            this.entityType = entityType;
+        }
+
+        public static Filter byUser(Long userId) {
+            return new Filter(userId, null, null);
+        }
+
+        public static Filter byAction(AuditAction action) {
+            return new Filter(null, action, null);
+        }
+
+        public static Filter byEntityType(AuditEntityType entityType) {
+            return new Filter(null, null, entityType);
+        }
+
+        public Filter andAction(AuditAction action) {
+            return new Filter(userId, action, entityType);
+        }
+
+        boolean mightMatch(AuditSegment.Block block) {
+            return block.getActiveCount() > 0
+                    && (userId == null || block.mightContainUser(userId))
+                    && (action == null || block.mightContain(action))
+                    && (entityType == null || block.mightContain(entityType));
+        }
+
+        boolean matches(AuditLog auditLog) {
+            return auditLog.isActive()
+                    && (userId == null || userId.equals(auditLog.getUserId()))
+                    && (action == null || auditLog.getAction() == action)
+                    && (entityType == null || auditLog.getEntityType() == entityType);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.driver.driverapp.service.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.repository.AuditLogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Moves audit log entries older than the retention period from {@code audit_logs} into the
+ * {@link AuditArchive}, one day at a time. Each day is streamed in creation order, merged with
+ * what is already archived for it, written as that day's new segment and then deleted from the
+ * table, all in one transaction. The new segment is only served once that transaction commits;
+ * if the delete fails it is discarded, the rows stay in the table and the next run merges them
+ * again. Entries are deduplicated by id, so nothing is archived twice.
+ */
+@Slf4j
+@Component
+public class AuditArchiveJob {
+
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditArchive auditArchive;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter archivedCounter;
+    private final int retentionDays;
+
+    public AuditArchiveJob(AuditLogRepository auditLogRepository,
+                           AuditArchive auditArchive,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${audit.archive.retention-days:90}") int retentionDays) {
+        if (retentionDays < 1) {
+            throw new IllegalArgumentException("audit.archive.retention-days must be at least 1");
+        }
+        this.auditLogRepository = auditLogRepository;
+        this.auditArchive = auditArchive;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.archivedCounter = Counter.builder(MetricsConfig.AUDIT_LOG_ARCHIVED_COUNTER)
+                .description("Audit log entries moved from the audit table to the archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${audit.archive.cron:0 0 4 * * *}")
+    public void archiveExpired() {
+        run();
+    }
+
+    /**
+     * Starts a run in the background; the returned future completes with the number of entries archived.
+     */
+    public CompletableFuture<Integer> start() {
+        if (running.get()) {
+            throw new IllegalStateException("An audit archive run is already running");
+        }
+        return CompletableFuture.supplyAsync(this::run, runExecutor);
+    }
+
+    /**
+     * Archives every day before the retention cutoff that still has entries in the table, oldest
+     * first. Returns the number of entries archived.
+     */
+    public int run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An audit archive run is already running");
+        }
+        try {
+            LocalDate cutoffDay = LocalDate.now(AuditArchive.ZONE).minusDays(retentionDays);
+            Instant cutoff = AuditArchive.dayStart(cutoffDay);
+            int archived = 0;
+            LocalDate previous = null;
+            Instant oldest;
+            while ((oldest = auditLogRepository.findOldestCreatedAtBefore(cutoff)) != null) {
+                LocalDate day = oldest.atZone(AuditArchive.ZONE).toLocalDate();
+                // A day that is still there after being archived failed to delete; stop rather than loop
+                if (previous != null && !day.isAfter(previous)) {
+                    log.warn("Audit logs for {} are still in the table after archiving, stopping", day);
+                    break;
+                }
+                Integer dayCount = transactionTemplate.execute(status -> archiveDay(day));
+                archived += dayCount;
+                previous = day;
+            }
+            if (archived > 0) {
+                log.info("Archived {} audit logs from before {}", archived, cutoffDay);
+            }
+            return archived;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int archiveDay(LocalDate day) {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<AuditLog> rows = auditLogRepository.streamCreatedBetween(
+                AuditArchive.dayStart(day), AuditArchive.dayStart(day.plusDays(1)))) {
+            Iterator<AuditLog> hot = rows.peek(auditLog -> {
+                // Nothing is written back, so the session need not track what has been read
+                entityManager.detach(auditLog);
+                ids.add(auditLog.getId());
+            }).iterator();
+            auditArchive.replaceDay(day, new MergingIterator(auditArchive.readDay(day), hot));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive audit logs for " + day, e);
+        }
+
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK_SIZE) {
+            auditLogRepository.deleteByIdIn(ids.subList(from, Math.min(ids.size(), from + DELETE_CHUNK_SIZE)));
+        }
+        archivedCounter.increment(ids.size());
+        return ids.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdown();
+    }
+
+    /**
+     * Merges two iterators ordered by creation time and id. An entry present in both is taken
+     * from the table, which holds its latest state.
+     */
+    static final class MergingIterator implements Iterator<AuditLog> {
+
+        private final Iterator<AuditLog> archived;
+        private final Iterator<AuditLog> hot;
+        private AuditLog nextArchived;
+        private AuditLog nextHot;
+
+        MergingIterator(Iterator<AuditLog> archived, Iterator<AuditLog> hot) {
+            this.archived = archived;
+            this.hot = hot;
+            this.nextArchived = archived.hasNext() ? archived.next() : null;
+            this.nextHot = hot.hasNext() ? hot.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextArchived != null || nextHot != null;
+        }
+
+        @Override
+        public AuditLog next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextHot == null) {
+                return takeArchived();
+            }
+            if (nextArchived == null) {
+                return takeHot();
+            }
+            if (nextArchived.getId().equals(nextHot.getId())) {
+                takeArchived();
+                return takeHot();
+            }
+            int order = nextArchived.getCreatedAt().compareTo(nextHot.getCreatedAt());
+            if (order == 0) {
+                order = nextArchived.getId().compareTo(nextHot.getId());
+            }
+            return order < 0 ? takeArchived() : takeHot();
+        }
+
+        private AuditLog takeArchived() {
+            AuditLog current = nextArchived;
+            nextArchived = archived.hasNext() ? archived.next() : null;
+            return current;
+        }
+
+        private AuditLog takeHot() {
+            AuditLog current = nextHot;
+            nextHot = hot.hasNext() ? hot.next() : null;
+            return current;
+        }
+    }
+}
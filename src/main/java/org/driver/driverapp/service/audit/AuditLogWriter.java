@@ -0,0 +1,332 @@
+package org.driver.driverapp.service.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.model.AuditLogOutbox;
+import org.driver.driverapp.repository.AuditLogOutboxRepository;
+import org.driver.driverapp.repository.AuditLogRepository;
+import org.driver.driverapp.service.compliance.ComplianceBucketService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit log entries off the request path. In {@code async} mode an entry is queued in a
+ * bounded ring buffer once the caller's transaction commits, and a scheduled flush drains the
+ * ring in batches. In {@code durable} mode the entry goes to the outbox in the caller's
+ * transaction and the relay moves outbox batches on, so nothing is lost on a crash. {@code sync}
+ * saves the entry in the caller's transaction as before.
+ * <p>
+ * Batches are inserted into {@code audit_logs} with one JDBC batch and counted towards the
+ * compliance buckets in the same transaction. With the {@code kafka} sink they are also published
+ * to {@link KafkaConfig#AUDIT_LOG_TOPIC} for downstream consumers before the transaction commits.
+ * A queued batch that fails is retried with a doubling backoff; once it has failed
+ * {@code maxAttempts} times it is split until the entries that still fail on their own are
+ * isolated, and those are logged and dropped so they cannot hold up the queue.
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String INSERT_AUDIT_LOG = "INSERT INTO \"audit_logs\" (\"entity_type\", \"entity_id\", " +
+            "\"action\", \"user_id\", \"user_email\", \"before_snapshot\", \"after_snapshot\", \"snapshot_diff\", " +
+            "\"changes_summary\", \"ip_address\", \"user_agent\", \"active\", \"version\", \"created_at\") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+
+    enum Mode { SYNC, ASYNC, DURABLE }
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditLogOutboxRepository auditLogOutboxRepository;
+    private final ComplianceBucketService complianceBucketService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedRingBuffer<AuditLog> queue;
+    private final Mode mode;
+    private final boolean kafkaSink;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    // A queued batch that failed, retried ahead of the queue
+    private final List<AuditLog> failedBatch = new ArrayList<>();
+    private int failedAttempts;
+    private long retryAt;
+    private final Counter createdCounter;
+    private final Counter overflowCounter;
+    private final Counter droppedCounter;
+    private final Timer queueFlushTimer;
+    private final Timer outboxFlushTimer;
+
+    public AuditLogWriter(AuditLogRepository auditLogRepository,
+                          AuditLogOutboxRepository auditLogOutboxRepository,
+                          ComplianceBucketService complianceBucketService,
+                          JdbcTemplate jdbcTemplate,
+                          ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${audit.writer.mode:async}") String mode,
+                          @Value("${audit.writer.sink:jdbc}") String sink,
+                          @Value("${audit.writer.queue-capacity:16384}") int queueCapacity,
+                          @Value("${audit.writer.batch-size:500}") int batchSize,
+                          @Value("${audit.writer.max-attempts:6}") int maxAttempts,
+                          @Value("${audit.writer.retry-backoff-ms:1000}") long retryBackoffMs) {
+        this.auditLogRepository = auditLogRepository;
+        this.auditLogOutboxRepository = auditLogOutboxRepository;
+        this.complianceBucketService = complianceBucketService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.kafkaTemplateProvider = kafkaTemplateProvider;
+        // Flushes run after the caller's commit or on the scheduler, never inside another transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new BoundedRingBuffer<>(queueCapacity);
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.kafkaSink = "kafka".equalsIgnoreCase(sink);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMs);
+        this.createdCounter = Counter.builder(MetricsConfig.AUDIT_LOG_CREATED_COUNTER)
+                .description("Total number of audit logs created")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder(MetricsConfig.AUDIT_LOG_QUEUE_OVERFLOW_COUNTER)
+                .description("Audit logs written synchronously because the write queue was full")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder(MetricsConfig.AUDIT_LOG_DROPPED_COUNTER)
+                .description("Audit logs dropped because they could not be written")
+                .register(meterRegistry);
+        this.queueFlushTimer = Timer.builder(MetricsConfig.AUDIT_LOG_FLUSH_TIMER)
+                .description("Duration of audit log batch writes")
+                .tag("source", "queue")
+                .register(meterRegistry);
+        this.outboxFlushTimer = Timer.builder(MetricsConfig.AUDIT_LOG_FLUSH_TIMER)
+                .description("Duration of audit log batch writes")
+                .tag("source", "outbox")
+                .register(meterRegistry);
+        Gauge.builder(MetricsConfig.AUDIT_LOG_QUEUE_DEPTH_GAUGE, this, AuditLogWriter::queuedEntries)
+                .description("Audit logs queued and not yet written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes the entry according to the configured mode. Called in the caller's transaction;
+     * in {@code async} mode nothing is queued if that transaction rolls back.
+     */
+    public void write(AuditLog auditLog) {
+        if (auditLog.getCreatedAt() == null) {
+            auditLog.setCreatedAt(Instant.now());
+        }
+        switch (mode) {
+            case SYNC -> writeNow(auditLog);
+            case DURABLE -> auditLogOutboxRepository.save(AuditLogOutbox.of(auditLog));
+            case ASYNC -> {
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            enqueue(auditLog);
+                        }
+                    });
+                } else {
+                    enqueue(auditLog);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far, one batch per transaction. A failed batch is kept and
+     * retried before anything else is drained, once its backoff has passed.
+     */
+    @Scheduled(fixedDelayString = "${audit.writer.flush-interval-ms:200}")
+    public synchronized int flushQueue() {
+        int written = 0;
+        if (!failedBatch.isEmpty()) {
+            if (System.nanoTime() - retryAt < 0) {
+                return 0;
+            }
+            int retried = retryFailedBatch();
+            if (retried < 0) {
+                return 0;
+            }
+            written += retried;
+        }
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!tryWrite(batch)) {
+                failedBatch.addAll(batch);
+                failedAttempts = 1;
+                retryAt = System.nanoTime() + retryBackoffNanos;
+                break;
+            }
+            written += batch.size();
+            batch.clear();
+        }
+        return written;
+    }
+
+    /**
+     * Moves outbox entries on in batches, deleting each batch in the transaction that writes
+     * it. Entries locked by another instance's relay are skipped.
+     */
+    @Scheduled(fixedDelayString = "${audit.writer.outbox.poll-interval-ms:1000}")
+    public int relayOutbox() {
+        if (mode != Mode.DURABLE) {
+            return 0;
+        }
+        int relayed = 0;
+        int count;
+        do {
+            long start = System.nanoTime();
+            try {
+                count = transactionTemplate.execute(status -> {
+                    List<AuditLogOutbox> entries = auditLogOutboxRepository.lockOldest(PageRequest.of(0, batchSize));
+                    if (!entries.isEmpty()) {
+                        writeBatch(entries.stream().map(AuditLogOutbox::toAuditLog).toList());
+                        auditLogOutboxRepository.deleteAllInBatch(entries);
+                    }
+                    return entries.size();
+                });
+            } catch (RuntimeException e) {
+                log.error("Failed to relay audit log outbox, will retry", e);
+                break;
+            }
+            if (count > 0) {
+                outboxFlushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            relayed += count;
+        } while (count == batchSize);
+        return relayed;
+    }
+
+    public int queuedEntries() {
+        return queue.size() + failedBatch.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushQueue();
+    }
+
+    private void enqueue(AuditLog auditLog) {
+        if (!queue.offer(auditLog)) {
+            log.warn("Audit log queue is full; writing entityType={}, entityId={} synchronously",
+                    auditLog.getEntityType(), auditLog.getEntityId());
+            overflowCounter.increment();
+            transactionTemplate.executeWithoutResult(status -> writeNow(auditLog));
+        }
+    }
+
+    private void writeNow(AuditLog auditLog) {
+        complianceBucketService.recordAuditLog(auditLogRepository.save(auditLog));
+        createdCounter.increment();
+    }
+
+    private void writeBatch(List<AuditLog> auditLogs) {
+        insert(auditLogs);
+        KafkaTemplate<String, Object> kafkaTemplate = kafkaSink ? kafkaTemplateProvider.getIfAvailable() : null;
+        if (kafkaTemplate != null) {
+            publish(kafkaTemplate, auditLogs);
+        }
+        complianceBucketService.recordAuditLogs(auditLogs);
+        createdCounter.increment(auditLogs.size());
+    }
+
+    private void insert(List<AuditLog> auditLogs) {
+        jdbcTemplate.batchUpdate(INSERT_AUDIT_LOG, auditLogs, auditLogs.size(), (ps, auditLog) -> {
+            ps.setString(1, auditLog.getEntityType().name());
+            ps.setLong(2, auditLog.getEntityId());
+            ps.setString(3, auditLog.getAction().name());
+            ps.setObject(4, auditLog.getUserId());
+            ps.setString(5, auditLog.getUserEmail());
+            ps.setString(6, auditLog.getBeforeSnapshot());
+            ps.setString(7, auditLog.getAfterSnapshot());
+            ps.setString(8, auditLog.getSnapshotDiff());
+            ps.setString(9, auditLog.getChangesSummary());
+            ps.setString(10, auditLog.getIpAddress());
+            ps.setString(11, auditLog.getUserAgent());
+            ps.setBoolean(12, auditLog.isActive());
+            ps.setTimestamp(13, Timestamp.from(auditLog.getCreatedAt()));
+        });
+    }
+
+    // Sends the whole batch before waiting, so the producer can group it, and only returns once
+    // every record is acknowledged; a failure rolls back the insert and the batch is retried
+    private void publish(KafkaTemplate<String, Object> kafkaTemplate, List<AuditLog> auditLogs) {
+        CompletableFuture<?>[] sends = auditLogs.stream()
+                .map(auditLog -> kafkaTemplate.send(KafkaConfig.AUDIT_LOG_TOPIC,
+                        auditLog.getEntityType() + ":" + auditLog.getEntityId(), auditLog))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(sends).join();
+    }
+
+    private boolean tryWrite(List<AuditLog> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} queued audit logs", batch.size(), e);
+            return false;
+        }
+        queueFlushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    // Returns the entries written, or -1 while the batch keeps failing and has attempts left
+    private int retryFailedBatch() {
+        int written;
+        if (tryWrite(failedBatch)) {
+            written = failedBatch.size();
+        } else if (++failedAttempts < maxAttempts) {
+            retryAt = System.nanoTime() + (retryBackoffNanos << Math.min(failedAttempts - 1, 16));
+            log.warn("Retrying {} audit logs after {} failed attempts", failedBatch.size(), failedAttempts);
+            return -1;
+        } else {
+            written = writeSplitting(failedBatch);
+        }
+        failedBatch.clear();
+        failedAttempts = 0;
+        return written;
+    }
+
+    // Halves a failed batch until every part is written or is a single entry that fails on its own
+    private int writeSplitting(List<AuditLog> failed) {
+        if (failed.size() == 1) {
+            AuditLog auditLog = failed.get(0);
+            log.error("Dropping audit log entityType={}, entityId={}, action={}, userId={}, createdAt={} " +
+                            "after {} failed attempts", auditLog.getEntityType(), auditLog.getEntityId(),
+                    auditLog.getAction(), auditLog.getUserId(), auditLog.getCreatedAt(), maxAttempts);
+            droppedCounter.increment();
+            return 0;
+        }
+        int written = 0;
+        int half = failed.size() / 2;
+        for (List<AuditLog> part : List.of(failed.subList(0, half), failed.subList(half, failed.size()))) {
+            written += tryWrite(part) ? part.size() : writeSplitting(part);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,547 @@
+package org.driver.driverapp.service.audit;
+
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.model.AuditLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable archive file holding a day of audit log entries ordered by creation time and id.
+ * Entries are stored in Deflate-compressed blocks followed by a sparse index with one entry per
+ * block: its first and last creation time, entry and active counts, small Bloom filters of the
+ * entities and users in it, and bit sets of its actions and entity types. Readers map the file
+ * and only inflate the blocks the index cannot rule out. Segments of format version 1 have no
+ * user, action or entity type index, so none of their blocks is ruled out by those.
+ * <p>
+ * Layout: {@code blocks | index | trailer}, all big-endian; the fixed-size trailer locates the
+ * index.
+ */
+final class AuditSegment {
+
+    static final int MAGIC = 0x41554453;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int BLOOM_WORDS = 4;
+    private static final int BLOOM_BITS = BLOOM_WORDS * Long.SIZE;
+    private static final int BLOOM_HASHES = 3;
+    private static final int INDEX_ENTRY_BYTES_V1 = 3 * Long.BYTES + 4 * Integer.BYTES + BLOOM_WORDS * Long.BYTES;
+    private static final int INDEX_ENTRY_BYTES = INDEX_ENTRY_BYTES_V1 + 2 * Long.BYTES + BLOOM_WORDS * Long.BYTES;
+    private static final int TRAILER_BYTES = 5 * Long.BYTES + 3 * Integer.BYTES;
+
+    private final Path path;
+    private final LocalDate day;
+    private final int sequence;
+    private final MappedByteBuffer buffer;
+    private final List<Block> blocks;
+    private final long entryCount;
+    private final long minMicros;
+    private final long maxMicros;
+
+    private AuditSegment(Path path, LocalDate day, int sequence, MappedByteBuffer buffer, List<Block> blocks,
+                         long entryCount, long minMicros, long maxMicros) {
+        this.path = path;
+        this.day = day;
+        this.sequence = sequence;
+        this.buffer = buffer;
+        this.blocks = blocks;
+        this.entryCount = entryCount;
+        this.minMicros = minMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Writes the entries, which must be ordered by creation time and id, to a temporary file
+     * that is synced and then moved into place, so a segment file is either complete or absent.
+     */
+    static AuditSegment write(Path target, LocalDate day, int sequence, Iterator<AuditLog> auditLogs,
+                              int blockEntries) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel, blockEntries);
+            while (auditLogs.hasNext()) {
+                writer.append(auditLogs.next());
+            }
+            writer.finish();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(target, day, sequence);
+    }
+
+    static AuditSegment open(Path path, LocalDate day, int sequence) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < TRAILER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an audit segment: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int trailer = buffer.capacity() - TRAILER_BYTES;
+        long indexOffset = buffer.getLong(trailer);
+        long entryCount = buffer.getLong(trailer + 8);
+        long minMicros = buffer.getLong(trailer + 16);
+        long maxMicros = buffer.getLong(trailer + 24);
+        int blockCount = buffer.getInt(trailer + 40);
+        int version = buffer.getInt(trailer + 44);
+        int magic = buffer.getInt(trailer + 48);
+        int entryBytes = version == 1 ? INDEX_ENTRY_BYTES_V1 : INDEX_ENTRY_BYTES;
+        if (magic != MAGIC || version < 1 || version > FORMAT_VERSION
+                || indexOffset + (long) blockCount * entryBytes != trailer) {
+            throw new IOException("Not an audit segment: " + path);
+        }
+
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            int at = (int) indexOffset + i * entryBytes;
+            long[] bloom = readWords(buffer, at + 40);
+            long actions = -1L;
+            long entityTypes = -1L;
+            long[] userBloom = null;
+            if (version > 1) {
+                actions = buffer.getLong(at + INDEX_ENTRY_BYTES_V1);
+                entityTypes = buffer.getLong(at + INDEX_ENTRY_BYTES_V1 + 8);
+                userBloom = readWords(buffer, at + INDEX_ENTRY_BYTES_V1 + 16);
+            }
+            blocks.add(new Block(buffer.getLong(at), buffer.getLong(at + 8), buffer.getLong(at + 16),
+                    buffer.getInt(at + 24), buffer.getInt(at + 28), buffer.getInt(at + 32) >>> 16,
+                    buffer.getInt(at + 32) & 0xFFFF, bloom, actions, entityTypes, userBloom));
+        }
+        return new AuditSegment(path, day, sequence, buffer, blocks, entryCount, minMicros, maxMicros);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    LocalDate getDay() {
+        return day;
+    }
+
+    int getSequence() {
+        return sequence;
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    boolean overlaps(long fromMicros, long toMicros) {
+        return entryCount > 0 && maxMicros >= fromMicros && minMicros <= toMicros;
+    }
+
+    List<Block> blocks() {
+        return blocks;
+    }
+
+    /**
+     * Inflates and decodes one block; entries come back in file order.
+     */
+    List<AuditLog> read(Block block) {
+        ByteBuffer compressed = buffer.slice((int) block.offset, block.compressedLength);
+        byte[] bytes = new byte[block.uncompressedLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < bytes.length && !inflater.finished()) {
+                int n = inflater.inflate(bytes, inflated, bytes.length - inflated);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != bytes.length) {
+                throw new IllegalStateException("Truncated block in audit segment " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block in audit segment " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        List<AuditLog> auditLogs = new ArrayList<>(block.entryCount);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            for (int i = 0; i < block.entryCount; i++) {
+                auditLogs.add(readEntry(in));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt block in audit segment " + path, e);
+        }
+        return auditLogs;
+    }
+
+    /**
+     * Every entry of the segment in file order, inflating one block at a time.
+     */
+    Iterator<AuditLog> iterator() {
+        return new Iterator<>() {
+            private int nextBlock;
+            private Iterator<AuditLog> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && nextBlock < blocks.size()) {
+                    current = read(blocks.get(nextBlock++)).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public AuditLog next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static long[] readWords(MappedByteBuffer buffer, int at) {
+        long[] words = new long[BLOOM_WORDS];
+        for (int w = 0; w < BLOOM_WORDS; w++) {
+            words[w] = buffer.getLong(at + w * Long.BYTES);
+        }
+        return words;
+    }
+
+    // Bit of a name in a 64-bit set; names sharing a bit only make the set less selective
+    private static long nameBit(Enum<?> value) {
+        return 1L << (value.name().hashCode() & 63);
+    }
+
+    private static int[] bloomBits(AuditEntityType entityType, long entityId) {
+        return bloomBits(entityId * 0x9E3779B97F4A7C15L ^ entityType.name().hashCode());
+    }
+
+    private static int[] userBloomBits(long userId) {
+        return bloomBits(userId * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    private static boolean bloomContains(long[] bloom, int[] bits) {
+        for (int bit : bits) {
+            if ((bloom[bit >>> 6] & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void bloomAdd(long[] bloom, int[] bits) {
+        for (int bit : bits) {
+            bloom[bit >>> 6] |= 1L << (bit & 63);
+        }
+    }
+
+    private static int[] bloomBits(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int[] bits = new int[BLOOM_HASHES];
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            bits[i] = Math.floorMod(h1 + i * h2, BLOOM_BITS);
+        }
+        return bits;
+    }
+
+    private static void writeEntry(DataOutputStream out, AuditLog auditLog) throws IOException {
+        out.writeLong(auditLog.getId());
+        out.writeUTF(auditLog.getEntityType().name());
+        out.writeLong(auditLog.getEntityId());
+        out.writeUTF(auditLog.getAction().name());
+        writeNullableLong(out, auditLog.getUserId());
+        writeNullableString(out, auditLog.getUserEmail());
+        writeNullableString(out, auditLog.getBeforeSnapshot());
+        writeNullableString(out, auditLog.getAfterSnapshot());
+        writeNullableString(out, auditLog.getSnapshotDiff());
+        writeNullableString(out, auditLog.getChangesSummary());
+        writeNullableString(out, auditLog.getIpAddress());
+        writeNullableString(out, auditLog.getUserAgent());
+        out.writeBoolean(auditLog.isActive());
+        writeNullableLong(out, auditLog.getVersion());
+        out.writeLong(auditLog.getCreatedAt().getEpochSecond());
+        out.writeInt(auditLog.getCreatedAt().getNano());
+    }
+
+    private static AuditLog readEntry(DataInputStream in) throws IOException {
+        return AuditLog.builder()
+                .id(in.readLong())
+                .entityType(AuditEntityType.valueOf(in.readUTF()))
+                .entityId(in.readLong())
+                .action(AuditAction.valueOf(in.readUTF()))
+                .userId(readNullableLong(in))
+                .userEmail(readNullableString(in))
+                .beforeSnapshot(readNullableString(in))
+                .afterSnapshot(readNullableString(in))
+                .snapshotDiff(readNullableString(in))
+                .changesSummary(readNullableString(in))
+                .ipAddress(readNullableString(in))
+                .userAgent(readNullableString(in))
+                .active(in.readBoolean())
+                .version(readNullableLong(in))
+                .createdAt(Instant.ofEpochSecond(in.readLong(), in.readInt()))
+                .build();
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    // Length-prefixed UTF-8, since snapshots can exceed the 64 KB limit of writeUTF
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Index entry of one compressed block. Times are epoch microseconds rounded down, so range
+     * checks against them are conservative.
+     */
+    static final class Block {
+
+        private final long firstMicros;
+        private final long lastMicros;
+        private final long offset;
+        private final int compressedLength;
+        private final int uncompressedLength;
+        private final int entryCount;
+        private final int activeCount;
+        private final long[] bloom;
+        private final long actions;
+        private final long entityTypes;
+        private final long[] userBloom;
+
+        private Block(long firstMicros, long lastMicros, long offset, int compressedLength, int uncompressedLength,
+                      int entryCount, int activeCount, long[] bloom, long actions, long entityTypes,
+                      long[] userBloom) {
+            this.firstMicros = firstMicros;
+            this.lastMicros = lastMicros;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.uncompressedLength = uncompressedLength;
+            this.entryCount = entryCount;
+            this.activeCount = activeCount;
+            this.bloom = bloom;
+            this.actions = actions;
+            this.entityTypes = entityTypes;
+            this.userBloom = userBloom;
+        }
+
+        boolean overlaps(long fromMicros, long toMicros) {
+            return lastMicros >= fromMicros && firstMicros <= toMicros;
+        }
+
+        // Strictly inside the range even allowing for the rounding of the bounds
+        boolean within(long fromMicros, long toMicros) {
+            return firstMicros > fromMicros && lastMicros < toMicros;
+        }
+
+        boolean mightContain(AuditEntityType entityType, long entityId) {
+            return bloomContains(bloom, bloomBits(entityType, entityId));
+        }
+
+        boolean mightContain(AuditEntityType entityType) {
+            return (entityTypes & nameBit(entityType)) != 0;
+        }
+
+        boolean mightContain(AuditAction action) {
+            return (actions & nameBit(action)) != 0;
+        }
+
+        boolean mightContainUser(long userId) {
+            return userBloom == null || bloomContains(userBloom, userBloomBits(userId));
+        }
+
+        int getActiveCount() {
+            return activeCount;
+        }
+    }
+
+    private static final class Writer {
+
+        private final FileChannel channel;
+        private final int blockEntries;
+        private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        private final DataOutputStream blockOut = new DataOutputStream(blockBytes);
+        private final Deflater deflater = new Deflater();
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private long position;
+        private long entryCount;
+        private long minMicros = Long.MAX_VALUE;
+        private long maxMicros = Long.MIN_VALUE;
+        private int blockCount;
+        private int blockEntryCount;
+        private int blockActiveCount;
+        private long blockFirstMicros;
+        private long blockLastMicros;
+        private long[] blockBloom = new long[BLOOM_WORDS];
+        private long blockActions;
+        private long blockEntityTypes;
+        private long[] blockUserBloom = new long[BLOOM_WORDS];
+        private AuditLog previous;
+
+        private Writer(FileChannel channel, int blockEntries) {
+            if (blockEntries < 1 || blockEntries > 0xFFFF) {
+                throw new IllegalArgumentException("blockEntries must be between 1 and " + 0xFFFF);
+            }
+            this.channel = channel;
+            this.blockEntries = blockEntries;
+        }
+
+        private void append(AuditLog auditLog) throws IOException {
+            if (previous != null && (auditLog.getCreatedAt().isBefore(previous.getCreatedAt())
+                    || (auditLog.getCreatedAt().equals(previous.getCreatedAt()) && auditLog.getId() <= previous.getId()))) {
+                throw new IllegalArgumentException("Audit logs must be ordered by creation time and id");
+            }
+            previous = auditLog;
+
+            long micros = toMicros(auditLog.getCreatedAt());
+            if (blockEntryCount == 0) {
+                blockFirstMicros = micros;
+            }
+            blockLastMicros = micros;
+            minMicros = Math.min(minMicros, micros);
+            maxMicros = Math.max(maxMicros, micros);
+            bloomAdd(blockBloom, bloomBits(auditLog.getEntityType(), auditLog.getEntityId()));
+            blockActions |= nameBit(auditLog.getAction());
+            blockEntityTypes |= nameBit(auditLog.getEntityType());
+            if (auditLog.getUserId() != null) {
+                bloomAdd(blockUserBloom, userBloomBits(auditLog.getUserId()));
+            }
+            writeEntry(blockOut, auditLog);
+            blockEntryCount++;
+            if (auditLog.isActive()) {
+                blockActiveCount++;
+            }
+            entryCount++;
+            if (blockEntryCount == blockEntries) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockEntryCount == 0) {
+                return;
+            }
+            byte[] raw = blockBytes.toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            writeFully(ByteBuffer.wrap(compressed.toByteArray()));
+
+            indexOut.writeLong(blockFirstMicros);
+            indexOut.writeLong(blockLastMicros);
+            indexOut.writeLong(position);
+            indexOut.writeInt(compressed.size());
+            indexOut.writeInt(raw.length);
+            indexOut.writeInt(blockEntryCount << 16 | blockActiveCount);
+            indexOut.writeInt(0); // reserved
+            for (long word : blockBloom) {
+                indexOut.writeLong(word);
+            }
+            indexOut.writeLong(blockActions);
+            indexOut.writeLong(blockEntityTypes);
+            for (long word : blockUserBloom) {
+                indexOut.writeLong(word);
+            }
+            position += compressed.size();
+
+            blockCount++;
+            blockBytes.reset();
+            blockEntryCount = 0;
+            blockActiveCount = 0;
+            blockBloom = new long[BLOOM_WORDS];
+            blockActions = 0;
+            blockEntityTypes = 0;
+            blockUserBloom = new long[BLOOM_WORDS];
+        }
+
+        private void finish() throws IOException {
+            flushBlock();
+            deflater.end();
+            long indexOffset = position;
+            writeFully(ByteBuffer.wrap(index.toByteArray()));
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            trailer.putLong(indexOffset);
+            trailer.putLong(entryCount);
+            trailer.putLong(entryCount > 0 ? minMicros : 0);
+            trailer.putLong(entryCount > 0 ? maxMicros : 0);
+            trailer.putLong(0);
+            trailer.putInt(blockCount);
+            trailer.putInt(FORMAT_VERSION);
+            trailer.putInt(MAGIC);
+            trailer.flip();
+            writeFully(trailer);
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+}
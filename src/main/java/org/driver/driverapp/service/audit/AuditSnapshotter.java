@@ -0,0 +1,178 @@
+package org.driver.driverapp.service.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Transient;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.model.AuditLog;
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Field-level audit snapshots. An object is captured as a flat JSON object of its own fields:
+ * collections are left out and associated entities are reduced to their id, read from the proxy
+ * when the association is lazy, so capturing never loads anything. In {@code diff} mode audit
+ * entries store the JSON-Patch between two such snapshots, and an entity's state at a version
+ * is rebuilt by replaying its entries in order.
+ */
+@Component
+public class AuditSnapshotter {
+
+    private final ObjectMapper objectMapper;
+    private final boolean diffMode;
+    private final Map<Class<?>, List<Field>> fieldsByClass = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<Field>> idFieldByClass = new ConcurrentHashMap<>();
+
+    public AuditSnapshotter(ObjectMapper objectMapper,
+                            @Value("${audit.snapshots.mode:diff}") String mode) {
+        this.objectMapper = objectMapper;
+        this.diffMode = "diff".equalsIgnoreCase(mode);
+    }
+
+    public boolean isDiffMode() {
+        return diffMode;
+    }
+
+    /**
+     * Snapshot of the object's fields, or null for null. Maps and JSON objects are taken as
+     * they are.
+     */
+    public ObjectNode capture(Object source) {
+        if (source == null) {
+            return null;
+        }
+        if (source instanceof ObjectNode node) {
+            return node.deepCopy();
+        }
+        ObjectNode snapshot = objectMapper.createObjectNode();
+        if (source instanceof Map<?, ?> map) {
+            map.forEach((name, value) -> snapshot.set(String.valueOf(name), objectMapper.valueToTree(value)));
+            return snapshot;
+        }
+
+        Object target = Hibernate.unproxy(source);
+        for (Field field : fieldsOf(target.getClass())) {
+            Object value = read(field, target);
+            if (field.getType().isAnnotationPresent(Entity.class)) {
+                value = identifierOf(value);
+            }
+            snapshot.set(field.getName(), objectMapper.valueToTree(value));
+        }
+        return snapshot;
+    }
+
+    /**
+     * The patch turning the snapshot of {@code before} into the snapshot of {@code after}.
+     */
+    public ArrayNode diff(Object before, Object after) {
+        return JsonFieldPatch.diff(capture(before), capture(after));
+    }
+
+    /**
+     * Replays audit entries, oldest first, into the state after the last one. Diff entries are
+     * applied to the state so far; entries with a full after snapshot replace it.
+     */
+    public ObjectNode replay(List<AuditLog> history) {
+        ObjectNode state = objectMapper.createObjectNode();
+        for (AuditLog entry : history) {
+            if (entry.getSnapshotDiff() != null) {
+                JsonFieldPatch.apply(state, parse(entry, entry.getSnapshotDiff()));
+            } else if (entry.getAfterSnapshot() != null) {
+                JsonNode after = parse(entry, entry.getAfterSnapshot());
+                if (after.isObject()) {
+                    state = (ObjectNode) after;
+                }
+            } else if (entry.getAction() == AuditAction.DELETE) {
+                state = objectMapper.createObjectNode();
+            }
+        }
+        return state;
+    }
+
+    private JsonNode parse(AuditLog entry, String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable snapshot in audit log " + entry.getId(), e);
+        }
+    }
+
+    private List<Field> fieldsOf(Class<?> type) {
+        return fieldsByClass.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (isSnapshotField(field)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static boolean isSnapshotField(Field field) {
+        int modifiers = field.getModifiers();
+        Class<?> type = field.getType();
+        return !Modifier.isStatic(modifiers)
+                && !Modifier.isTransient(modifiers)
+                && !field.isSynthetic()
+                && !field.isAnnotationPresent(Transient.class)
+                && !field.isAnnotationPresent(OneToMany.class)
+                && !field.isAnnotationPresent(ManyToMany.class)
+                && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type)
+                && !type.isArray();
+    }
+
+    private Object identifierOf(Object entity) {
+        if (entity == null) {
+            return null;
+        }
+        if (entity instanceof HibernateProxy proxy) {
+            return proxy.getHibernateLazyInitializer().getInternalIdentifier();
+        }
+        return idFieldByClass.computeIfAbsent(entity.getClass(), AuditSnapshotter::findIdField)
+                .map(field -> read(field, entity))
+                .orElse(null);
+    }
+
+    private static Optional<Field> findIdField(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    field.setAccessible(true);
+                    return Optional.of(field);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Object read(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read " + field, e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.driver.driverapp.service.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-Patch (RFC 6902) diffs between flat field snapshots. Only top-level fields are compared,
+ * so every operation is an {@code add}, {@code replace} or {@code remove} of one field, and a
+ * field whose nested value changed is replaced as a whole.
+ */
+public final class JsonFieldPatch {
+
+    private JsonFieldPatch() {
+    }
+
+    /**
+     * Operations turning {@code before} into {@code after}; either may be null for a created or
+     * deleted entity. Fields are visited in the order they appear, removals last.
+     */
+    public static ArrayNode diff(ObjectNode before, ObjectNode after) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        if (after != null) {
+            Iterator<Map.Entry<String, JsonNode>> fields = after.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode previous = before != null ? before.get(field.getKey()) : null;
+                if (previous == null) {
+                    patch.add(operation("add", field.getKey()).set("value", field.getValue()));
+                } else if (!previous.equals(field.getValue())) {
+                    patch.add(operation("replace", field.getKey()).set("value", field.getValue()));
+                }
+            }
+        }
+        if (before != null) {
+            Iterator<String> names = before.fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (after == null || !after.has(name)) {
+                    patch.add(operation("remove", name));
+                }
+            }
+        }
+        return patch;
+    }
+
+    /**
+     * Applies a patch produced by {@link #diff} in place. Replacing a field the state does not
+     * have yet adds it, so a history that starts after the entity was created still replays.
+     */
+    public static ObjectNode apply(ObjectNode state, JsonNode patch) {
+        for (JsonNode operation : patch) {
+            String field = fieldName(operation.path("path").asText());
+            switch (operation.path("op").asText()) {
+                case "add", "replace" -> state.set(field, operation.get("value"));
+                case "remove" -> state.remove(field);
+                default -> throw new IllegalArgumentException("Unsupported patch operation: " + operation);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Names of the fields a patch touches, in patch order.
+     */
+    public static List<String> changedFields(JsonNode patch) {
+        List<String> fields = new ArrayList<>(patch.size());
+        for (JsonNode operation : patch) {
+            fields.add(fieldName(operation.path("path").asText()));
+        }
+        return fields;
+    }
+
+    private static ObjectNode operation(String op, String field) {
+        ObjectNode operation = JsonNodeFactory.instance.objectNode();
+        operation.put("op", op);
+        operation.put("path", "/" + field.replace("~", "~0").replace("/", "~1"));
+        return operation;
+    }
+
+    // Paths are single JSON Pointer tokens, escaped as in RFC 6901
+    private static String fieldName(String path) {
+        if (!path.startsWith("/") || path.indexOf('/', 1) >= 0) {
+            throw new IllegalArgumentException("Unsupported patch path: " + path);
+        }
+        return path.substring(1).replace("~1", "/").replace("~0", "~");
+    }
+}
@@ -0,0 +1,132 @@
+package org.driver.driverapp.service.compliance;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.service.audit.AuditArchive;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives the compliance action buckets: flushes pending increments, backfills history from
+ * the audit log, and nightly rebuilds recent days so increments lost with an instance are
+ * repaired. Days already moved to the audit archive are never rebuilt, since their entries
+ * are no longer in the audit table.
+ */
+@Slf4j
+@Component
+public class ComplianceBucketJob {
+
+    private final ComplianceBucketService complianceBucketService;
+    private final ComplianceBucketTracker complianceBucketTracker;
+    private final AuditArchive auditArchive;
+    private final ExecutorService backfillExecutor;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final int reconcileDays;
+
+    public ComplianceBucketJob(ComplianceBucketService complianceBucketService,
+                               ComplianceBucketTracker complianceBucketTracker,
+                               AuditArchive auditArchive,
+                               @Value("${compliance.buckets.backfill-parallelism:2}") int backfillParallelism,
+                               @Value("${compliance.buckets.reconcile-days:2}") int reconcileDays) {
+        this.complianceBucketService = complianceBucketService;
+        this.complianceBucketTracker = complianceBucketTracker;
+        this.auditArchive = auditArchive;
+        this.backfillExecutor = Executors.newFixedThreadPool(backfillParallelism);
+        this.reconcileDays = reconcileDays;
+    }
+
+    /**
+     * Applies the increments recorded since the last flush. Increments that fail to apply, e.g.
+     * because another instance created the same bucket concurrently, are retried next time.
+     */
+    @Scheduled(fixedDelayString = "${compliance.buckets.flush-interval-ms:5000}")
+    public synchronized void flushPending() {
+        Map<ComplianceBucketKey, Long> increments = complianceBucketTracker.drain();
+        if (increments.isEmpty()) {
+            return;
+        }
+        try {
+            complianceBucketService.apply(increments);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} compliance bucket increments, will retry: {}", increments.size(), e.getMessage());
+            complianceBucketTracker.restore(increments);
+        }
+    }
+
+    /**
+     * Rebuilds every day in the inclusive range from the audit log, several days at a time. Meant
+     * for past days, like {@link #rebuildRecentDays()}. Only one backfill may run at a time; the
+     * returned future completes with the number of days rebuilt; archived days are skipped.
+     */
+    public CompletableFuture<Integer> backfill(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("fromDate must not be after toDate");
+        }
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("A compliance bucket backfill is already running");
+        }
+
+        log.info("Starting compliance bucket backfill from {} to {}", fromDate, toDate);
+        flushPending();
+        List<CompletableFuture<Void>> days = new ArrayList<>();
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)) {
+            LocalDate day = date;
+            if (isArchived(day)) {
+                continue;
+            }
+            days.add(CompletableFuture.runAsync(() -> complianceBucketService.rebuildDay(day), backfillExecutor));
+        }
+
+        return CompletableFuture.allOf(days.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> {
+                    backfillRunning.set(false);
+                    if (error != null) {
+                        log.error("Compliance bucket backfill from {} to {} failed", fromDate, toDate, error);
+                    } else {
+                        log.info("Finished compliance bucket backfill of {} days", days.size());
+                    }
+                })
+                .thenApply(ignored -> days.size());
+    }
+
+    /**
+     * Rebuilds the days before today. Today is left to the increments, since a rebuild racing
+     * with writes that have committed but not been flushed would count them twice.
+     */
+    @Scheduled(cron = "${compliance.buckets.reconcile-cron:0 30 3 * * *}")
+    public void rebuildRecentDays() {
+        flushPending();
+        LocalDate today = LocalDate.now(ComplianceBucketService.ZONE);
+        for (int i = 1; i <= reconcileDays; i++) {
+            LocalDate day = today.minusDays(i);
+            if (!isArchived(day)) {
+                complianceBucketService.rebuildDay(day);
+            }
+        }
+    }
+
+    // Rebuilding an archived day from the audit table would reset its buckets to zero
+    private boolean isArchived(LocalDate day) {
+        if (!auditArchive.contains(day)) {
+            return false;
+        }
+        log.warn("Not rebuilding compliance buckets for {}, its audit logs are archived", day);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushPending();
+        backfillExecutor.shutdown();
+    }
+}
@@ -0,0 +1,25 @@
+package org.driver.driverapp.service.compliance;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.ComplianceScope;
+
+import java.time.Instant;
+
+/**
+ * Identifies one compliance action bucket: a subject, a day and an action.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+class ComplianceBucketKey {
+
+    private final ComplianceScope scope;
+    private final long subjectId;
+    private final Instant bucketStart;
+    private final AuditAction action;
+}
@@ -0,0 +1,250 @@
+package org.driver.driverapp.service.compliance;
+
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.model.ComplianceActionBucket;
+import org.driver.driverapp.repository.AuditLogRepository;
+import org.driver.driverapp.repository.ComplianceActionBucketRepository;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.repository.InventoryItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the daily {@link ComplianceActionBucket} counts that compliance scores are read
+ * from. Every audit log entry counts towards the system, and towards the driver or partner it
+ * belongs to: the driver or partner itself, a delivery's assigned driver and partner, or an
+ * inventory item's partner. Ownership is resolved when the entry is written; a rebuilt day
+ * uses current ownership instead.
+ * <p>
+ * With {@code compliance.buckets.read-from-audit-logs} set, action counts are read straight from
+ * {@code audit_logs} instead, e.g. while the buckets are rebuilt after an outage.
+ */
+@Slf4j
+@Service
+public class ComplianceBucketService {
+
+    static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final ComplianceActionBucketRepository complianceActionBucketRepository;
+    private final AuditLogRepository auditLogRepository;
+    private final DeliveryRepository deliveryRepository;
+    private final InventoryItemRepository inventoryItemRepository;
+    private final ComplianceBucketTracker complianceBucketTracker;
+    private final boolean readFromAuditLogs;
+
+    public ComplianceBucketService(ComplianceActionBucketRepository complianceActionBucketRepository,
+                                   AuditLogRepository auditLogRepository,
+                                   DeliveryRepository deliveryRepository,
+                                   InventoryItemRepository inventoryItemRepository,
+                                   ComplianceBucketTracker complianceBucketTracker,
+                                   @Value("${compliance.buckets.read-from-audit-logs:false}") boolean readFromAuditLogs) {
+        this.complianceActionBucketRepository = complianceActionBucketRepository;
+        this.auditLogRepository = auditLogRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.complianceBucketTracker = complianceBucketTracker;
+        this.readFromAuditLogs = readFromAuditLogs;
+    }
+
+    /**
+     * Counts a newly written audit log entry. Called in the audit write transaction; the
+     * buckets are updated by the next flush after it commits.
+     */
+    public void recordAuditLog(AuditLog auditLog) {
+        recordAuditLogs(List.of(auditLog));
+    }
+
+    /**
+     * Counts a batch of newly written audit log entries, resolving the owners of all their
+     * deliveries and inventory items with one query each.
+     */
+    public void recordAuditLogs(Collection<AuditLog> auditLogs) {
+        Set<Long> deliveryIds = new HashSet<>();
+        Set<Long> inventoryItemIds = new HashSet<>();
+        for (AuditLog auditLog : auditLogs) {
+            if (!auditLog.isActive()) {
+                continue;
+            }
+            if (auditLog.getEntityType() == AuditEntityType.DELIVERY) {
+                deliveryIds.add(auditLog.getEntityId());
+            } else if (auditLog.getEntityType() == AuditEntityType.INVENTORY_ITEM) {
+                inventoryItemIds.add(auditLog.getEntityId());
+            }
+        }
+        Map<Long, Object[]> deliveryOwners = new HashMap<>();
+        if (!deliveryIds.isEmpty()) {
+            for (Object[] row : deliveryRepository.findComplianceOwnerIds(deliveryIds)) {
+                deliveryOwners.put((Long) row[0], row);
+            }
+        }
+        Map<Long, Long> itemPartners = new HashMap<>();
+        if (!inventoryItemIds.isEmpty()) {
+            for (Object[] row : inventoryItemRepository.findPartnerIds(inventoryItemIds)) {
+                itemPartners.put((Long) row[0], (Long) row[1]);
+            }
+        }
+
+        List<ComplianceBucketKey> keys = new ArrayList<>(auditLogs.size() * 3);
+        Instant now = Instant.now();
+        for (AuditLog auditLog : auditLogs) {
+            if (!auditLog.isActive()) {
+                continue;
+            }
+            Instant createdAt = auditLog.getCreatedAt() != null ? auditLog.getCreatedAt() : now;
+            Instant day = dayStart(createdAt.atZone(ZONE).toLocalDate());
+            AuditAction action = auditLog.getAction();
+            Long entityId = auditLog.getEntityId();
+
+            keys.add(new ComplianceBucketKey(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT, day, action));
+            switch (auditLog.getEntityType()) {
+                case DRIVER -> keys.add(new ComplianceBucketKey(ComplianceScope.DRIVER, entityId, day, action));
+                case PARTNER -> keys.add(new ComplianceBucketKey(ComplianceScope.PARTNER, entityId, day, action));
+                case DELIVERY -> {
+                    Object[] owners = deliveryOwners.get(entityId);
+                    if (owners != null && owners[1] != null) {
+                        keys.add(new ComplianceBucketKey(ComplianceScope.DRIVER, (Long) owners[1], day, action));
+                    }
+                    if (owners != null && owners[2] != null) {
+                        keys.add(new ComplianceBucketKey(ComplianceScope.PARTNER, (Long) owners[2], day, action));
+                    }
+                }
+                case INVENTORY_ITEM -> {
+                    Long partnerId = itemPartners.get(entityId);
+                    if (partnerId != null) {
+                        keys.add(new ComplianceBucketKey(ComplianceScope.PARTNER, partnerId, day, action));
+                    }
+                }
+                default -> {
+                    // Only counted towards the system
+                }
+            }
+        }
+        if (!keys.isEmpty()) {
+            complianceBucketTracker.increment(keys);
+        }
+    }
+
+    /**
+     * Adds increments to their buckets, creating missing buckets.
+     */
+    @Transactional
+    void apply(Map<ComplianceBucketKey, Long> increments) {
+        Instant now = Instant.now();
+        List<ComplianceActionBucket> created = new ArrayList<>();
+        increments.forEach((key, delta) -> {
+            int updated = complianceActionBucketRepository.increment(
+                    key.getScope(), key.getSubjectId(), key.getBucketStart(), key.getAction(), delta, now);
+            if (updated == 0) {
+                created.add(bucket(key, delta, now));
+            }
+        });
+        complianceActionBucketRepository.saveAll(created);
+    }
+
+    /**
+     * Replaces every bucket of the day with counts aggregated from the day's audit log entries.
+     */
+    @Transactional
+    public void rebuildDay(LocalDate date) {
+        Instant start = dayStart(date);
+        Instant end = dayStart(date.plusDays(1));
+        Map<ComplianceBucketKey, Long> counts = new HashMap<>();
+
+        for (Object[] row : auditLogRepository.countActionsBetween(start, end)) {
+            counts.merge(new ComplianceBucketKey(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT,
+                    start, (AuditAction) row[0]), ((Number) row[1]).longValue(), Long::sum);
+        }
+        addSubjectCounts(counts, ComplianceScope.DRIVER, start,
+                auditLogRepository.countEntityActionsBetween(AuditEntityType.DRIVER, start, end));
+        addSubjectCounts(counts, ComplianceScope.DRIVER, start,
+                auditLogRepository.countDeliveryActionsByDriverBetween(start, end));
+        addSubjectCounts(counts, ComplianceScope.PARTNER, start,
+                auditLogRepository.countEntityActionsBetween(AuditEntityType.PARTNER, start, end));
+        addSubjectCounts(counts, ComplianceScope.PARTNER, start,
+                auditLogRepository.countDeliveryActionsByPartnerBetween(start, end));
+        addSubjectCounts(counts, ComplianceScope.PARTNER, start,
+                auditLogRepository.countInventoryActionsByPartnerBetween(start, end));
+
+        Instant now = Instant.now();
+        complianceActionBucketRepository.deleteDay(start);
+        complianceActionBucketRepository.saveAll(counts.entrySet().stream()
+                .map(entry -> bucket(entry.getKey(), entry.getValue(), now))
+                .toList());
+        log.debug("Rebuilt {} compliance action buckets for {}", counts.size(), date);
+    }
+
+    /**
+     * Action counts of one subject summed over the inclusive day range, indexed by action ordinal.
+     */
+    @Transactional(readOnly = true)
+    public long[] sumActionCounts(ComplianceScope scope, long subjectId, LocalDate fromDate, LocalDate toDate) {
+        if (readFromAuditLogs) {
+            return countAuditLogActions(scope, subjectId, fromDate, toDate);
+        }
+        long[] counts = ComplianceScoreCalculator.emptyCounts();
+        for (Object[] row : complianceActionBucketRepository.findCounts(
+                scope, subjectId, dayStart(fromDate), dayStart(toDate.plusDays(1)))) {
+            counts[((AuditAction) row[1]).ordinal()] += ((Number) row[2]).longValue();
+        }
+        return counts;
+    }
+
+    /**
+     * Action counts of one subject over the inclusive day range, aggregated from the audit log
+     * with current ownership, as a rebuild would count them. Indexed by action ordinal.
+     */
+    @Transactional(readOnly = true)
+    public long[] countAuditLogActions(ComplianceScope scope, long subjectId, LocalDate fromDate, LocalDate toDate) {
+        Instant start = dayStart(fromDate);
+        Instant end = dayStart(toDate.plusDays(1));
+        List<Object[]> rows = switch (scope) {
+            case DRIVER -> auditLogRepository.countDriverComplianceActions(subjectId, start, end);
+            case PARTNER -> auditLogRepository.countPartnerComplianceActions(subjectId, start, end);
+            case SYSTEM -> auditLogRepository.countActionsBetween(start, end);
+        };
+        long[] counts = ComplianceScoreCalculator.emptyCounts();
+        for (Object[] row : rows) {
+            counts[((AuditAction) row[0]).ordinal()] += ((Number) row[1]).longValue();
+        }
+        return counts;
+    }
+
+    static Instant dayStart(LocalDate date) {
+        return date.atStartOfDay(ZONE).toInstant();
+    }
+
+    private static void addSubjectCounts(Map<ComplianceBucketKey, Long> counts, ComplianceScope scope,
+                                         Instant day, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            counts.merge(new ComplianceBucketKey(scope, (Long) row[0], day, (AuditAction) row[1]),
+                    ((Number) row[2]).longValue(), Long::sum);
+        }
+    }
+
+    private static ComplianceActionBucket bucket(ComplianceBucketKey key, long count, Instant updatedAt) {
+        return ComplianceActionBucket.builder()
+                .scope(key.getScope())
+                .subjectId(key.getSubjectId())
+                .bucketStart(key.getBucketStart())
+                .action(key.getAction())
+                .actionCount(count)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
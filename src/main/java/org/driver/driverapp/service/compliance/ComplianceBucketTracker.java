@@ -0,0 +1,64 @@
+package org.driver.driverapp.service.compliance;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bucket increments recorded since the last flush. Increments made inside a transaction are
+ * only recorded once it commits, so rolled-back audit writes are never counted.
+ */
+@Component
+public class ComplianceBucketTracker {
+
+    private final ConcurrentHashMap<ComplianceBucketKey, Long> pending = new ConcurrentHashMap<>();
+
+    void increment(List<ComplianceBucketKey> keys) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(keys);
+                }
+            });
+        } else {
+            add(keys);
+        }
+    }
+
+    /**
+     * Removes and returns the pending increments.
+     */
+    Map<ComplianceBucketKey, Long> drain() {
+        Map<ComplianceBucketKey, Long> drained = new HashMap<>();
+        for (ComplianceBucketKey key : pending.keySet()) {
+            Long delta = pending.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Puts back increments whose flush failed so the next flush retries them.
+     */
+    void restore(Map<ComplianceBucketKey, Long> increments) {
+        increments.forEach((key, delta) -> pending.merge(key, delta, Long::sum));
+    }
+
+    public int pendingBuckets() {
+        return pending.size();
+    }
+
+    private void add(List<ComplianceBucketKey> keys) {
+        for (ComplianceBucketKey key : keys) {
+            pending.merge(key, 1L, Long::sum);
+        }
+    }
+}
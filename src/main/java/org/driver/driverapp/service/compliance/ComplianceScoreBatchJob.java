@@ -0,0 +1,209 @@
+package org.driver.driverapp.service.compliance;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.repository.ComplianceActionBucketRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Scores every subject with audit activity in the scoring window and stores the results in
+ * {@code compliance_score}. The window's buckets are streamed once, already grouped per subject;
+ * consecutive chunks of subjects are scored on a fork-join pool while the next chunk is read,
+ * and each scored chunk is written as one JDBC batch. A run replaces its score date in a single
+ * transaction, so readers see either the previous or the new scores.
+ */
+@Slf4j
+@Component
+public class ComplianceScoreBatchJob {
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String INSERT_SCORE = "INSERT INTO \"compliance_score\" (\"scope\", \"subject_id\", " +
+            "\"score_date\", \"window_days\", \"action_count\", \"score\", \"status\", \"computed_at\") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SCORE_DATE = "DELETE FROM \"compliance_score\" WHERE \"score_date\" = ?";
+
+    private final ComplianceActionBucketRepository complianceActionBucketRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool scoringPool;
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong progress = new AtomicLong();
+    private final AtomicLong throughput = new AtomicLong();
+    private final Counter scoredCounter;
+    private final Timer durationTimer;
+    private final int batchSize;
+    private final int windowDays;
+
+    public ComplianceScoreBatchJob(ComplianceActionBucketRepository complianceActionBucketRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${compliance.scores.parallelism:4}") int parallelism,
+                                   @Value("${compliance.scores.batch-size:1000}") int batchSize,
+                                   @Value("${compliance.scores.window-days:30}") int windowDays) {
+        this.complianceActionBucketRepository = complianceActionBucketRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scoringPool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+        this.windowDays = windowDays;
+        this.scoredCounter = Counter.builder(MetricsConfig.COMPLIANCE_SCORE_BATCH_SCORED_COUNTER)
+                .description("Subjects scored by the compliance score batch job")
+                .register(meterRegistry);
+        this.durationTimer = Timer.builder(MetricsConfig.COMPLIANCE_SCORE_BATCH_DURATION_TIMER)
+                .description("Duration of compliance score batch runs")
+                .register(meterRegistry);
+        Gauge.builder(MetricsConfig.COMPLIANCE_SCORE_BATCH_PROGRESS_GAUGE, progress, AtomicLong::get)
+                .description("Subjects scored so far by the running or last compliance score batch run")
+                .register(meterRegistry);
+        Gauge.builder(MetricsConfig.COMPLIANCE_SCORE_BATCH_THROUGHPUT_GAUGE, throughput, AtomicLong::get)
+                .description("Subjects per second scored by the last completed compliance score batch run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${compliance.scores.cron:0 45 3 * * *}")
+    public void scoreYesterday() {
+        run(LocalDate.now(ComplianceBucketService.ZONE).minusDays(1));
+    }
+
+    /**
+     * Starts a run in the background; the returned future completes with the number of subjects scored.
+     */
+    public CompletableFuture<Integer> start(LocalDate scoreDate) {
+        if (running.get()) {
+            throw new IllegalStateException("A compliance score batch run is already running");
+        }
+        return CompletableFuture.supplyAsync(() -> run(scoreDate), runExecutor);
+    }
+
+    /**
+     * Scores the window ending on {@code scoreDate} and replaces that date's stored scores.
+     * Returns the number of subjects scored.
+     */
+    public int run(LocalDate scoreDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A compliance score batch run is already running");
+        }
+        progress.set(0);
+        long startedAt = System.nanoTime();
+        log.info("Starting compliance score batch run for {} over {} days", scoreDate, windowDays);
+        try {
+            Integer scored = transactionTemplate.execute(status -> scoreAndWrite(scoreDate));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+            durationTimer.record(elapsed);
+            throughput.set(scored * 1_000L / Math.max(1, elapsed.toMillis()));
+            log.info("Scored {} compliance subjects for {} in {} ms", scored, scoreDate, elapsed.toMillis());
+            return scored;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int scoreAndWrite(LocalDate scoreDate) {
+        Instant from = ComplianceBucketService.dayStart(scoreDate.minusDays(windowDays - 1L));
+        Instant to = ComplianceBucketService.dayStart(scoreDate.plusDays(1));
+        Timestamp computedAt = Timestamp.from(Instant.now());
+        jdbcTemplate.update(DELETE_SCORE_DATE, Date.valueOf(scoreDate));
+
+        int scored = 0;
+        List<SubjectCounts> chunk = new ArrayList<>(batchSize);
+        ForkJoinTask<List<Object[]>> scoring = null;
+        SubjectCounts subject = null;
+        try (Stream<Object[]> rows = complianceActionBucketRepository.streamSubjectCounts(from, to)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                ComplianceScope scope = (ComplianceScope) row[0];
+                long subjectId = (Long) row[1];
+                if (subject == null || subject.scope != scope || subject.subjectId != subjectId) {
+                    subject = new SubjectCounts(scope, subjectId);
+                    if (chunk.size() == batchSize) {
+                        scored += write(scoring);
+                        scoring = score(chunk, scoreDate, computedAt);
+                        chunk = new ArrayList<>(batchSize);
+                    }
+                    chunk.add(subject);
+                }
+                subject.counts[((AuditAction) row[2]).ordinal()] += ((Number) row[3]).longValue();
+            }
+        }
+        scored += write(scoring);
+        scored += write(chunk.isEmpty() ? null : score(chunk, scoreDate, computedAt));
+        return scored;
+    }
+
+    // Scores a chunk in parallel while the caller keeps reading
+    private ForkJoinTask<List<Object[]>> score(List<SubjectCounts> chunk, LocalDate scoreDate, Timestamp computedAt) {
+        Date date = Date.valueOf(scoreDate);
+        return scoringPool.submit(() -> chunk.parallelStream()
+                .map(subject -> subject.toRow(date, windowDays, computedAt))
+                .toList());
+    }
+
+    private int write(ForkJoinTask<List<Object[]>> scoring) {
+        if (scoring == null) {
+            return 0;
+        }
+        List<Object[]> rows = scoring.join();
+        jdbcTemplate.batchUpdate(INSERT_SCORE, rows);
+        progress.addAndGet(rows.size());
+        scoredCounter.increment(rows.size());
+        return rows.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdown();
+        scoringPool.shutdown();
+    }
+
+    private static final class SubjectCounts {
+
+        private final ComplianceScope scope;
+        private final long subjectId;
+        private final long[] counts = ComplianceScoreCalculator.emptyCounts();
+
+        private SubjectCounts(ComplianceScope scope, long subjectId) {
+            this.scope = scope;
+            this.subjectId = subjectId;
+        }
+
+        private Object[] toRow(Date scoreDate, int windowDays, Timestamp computedAt) {
+            long score = ComplianceScoreCalculator.scoreHundredths(counts);
+            return new Object[]{scope.name(), subjectId, scoreDate, windowDays,
+                    ComplianceScoreCalculator.totalActions(counts),
+                    ComplianceScoreCalculator.toBigDecimal(score),
+                    ComplianceScoreCalculator.status(score), computedAt};
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.driver.driverapp.service.compliance;
+
+import org.driver.driverapp.enums.AuditAction;
+
+import java.math.BigDecimal;
+
+/**
+ * Compliance score arithmetic on primitive longs. Action counts are arrays indexed by
+ * {@link AuditAction#ordinal()}, and scores are fixed-point hundredths (9050 is 90.50).
+ */
+public final class ComplianceScoreCalculator {
+
+    public static final long MAX_SCORE = 100_00;
+
+    // Status thresholds, in hundredths
+    private static final long EXCELLENT_THRESHOLD = 90_00;
+    private static final long GOOD_THRESHOLD = 80_00;
+    private static final long FAIR_THRESHOLD = 70_00;
+    private static final long POOR_THRESHOLD = 60_00;
+
+    private static final int ACTIONS = AuditAction.values().length;
+
+    // Positive actions improve compliance, negative actions reduce it; the rest only count towards the total
+    private static final long[] WEIGHTS = new long[ACTIONS];
+
+    static {
+        WEIGHTS[AuditAction.COMPLETE.ordinal()] = 10;
+        WEIGHTS[AuditAction.VERIFY.ordinal()] = 5;
+        WEIGHTS[AuditAction.ACTIVATE.ordinal()] = 3;
+        WEIGHTS[AuditAction.PAYMENT_COMPLETED.ordinal()] = 8;
+        WEIGHTS[AuditAction.LOGIN.ordinal()] = 1;
+        WEIGHTS[AuditAction.DELETE.ordinal()] = -15;
+        WEIGHTS[AuditAction.DEACTIVATE.ordinal()] = -10;
+        WEIGHTS[AuditAction.UNVERIFY.ordinal()] = -8;
+        WEIGHTS[AuditAction.CANCEL.ordinal()] = -12;
+        WEIGHTS[AuditAction.PAYMENT_FAILED.ordinal()] = -20;
+        WEIGHTS[AuditAction.LOGOUT.ordinal()] = -1;
+    }
+
+    private ComplianceScoreCalculator() {
+    }
+
+    public static long[] emptyCounts() {
+        return new long[ACTIONS];
+    }
+
+    public static long totalActions(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * The weighted action score per action, rounded half-up to two decimals, scaled by 100 and
+     * clamped to 0..100. Returned in hundredths; 0 when there were no actions.
+     */
+    public static long scoreHundredths(long[] counts) {
+        long total = 0;
+        long weighted = 0;
+        for (int i = 0; i < ACTIONS; i++) {
+            total += counts[i];
+            weighted += WEIGHTS[i] * counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long perAction = divideHalfUp(weighted * 100, total);
+        return Math.max(0, Math.min(MAX_SCORE, perAction * 100));
+    }
+
+    public static String status(long hundredths) {
+        if (hundredths >= EXCELLENT_THRESHOLD) {
+            return "EXCELLENT";
+        } else if (hundredths >= GOOD_THRESHOLD) {
+            return "GOOD";
+        } else if (hundredths >= FAIR_THRESHOLD) {
+            return "FAIR";
+        } else if (hundredths >= POOR_THRESHOLD) {
+            return "POOR";
+        } else {
+            return "CRITICAL";
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long hundredths) {
+        return BigDecimal.valueOf(hundredths, 2);
+    }
+
+    // Rounds half away from zero, like RoundingMode.HALF_UP; divisor must be positive
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,28 @@
+package org.driver.driverapp.service.delivery;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.driver.driverapp.enums.DeliveryStatus;
+
+import java.time.Instant;
+
+/**
+ * Raised by {@link org.driver.driverapp.service.DeliveryService} for every accepted status transition.
+ * Published to subscribers only after the transition has committed.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class DeliveryStatusChangedEvent {
+
+    private final Long deliveryId;
+    private final DeliveryStatus previousStatus;
+    private final DeliveryStatus newStatus;
+    private final Long driverId;
+    private final String driverName;
+    private final Long customerId;
+    private final Long partnerId;
+    private final String message;
+    private final Instant changedAt;
+}
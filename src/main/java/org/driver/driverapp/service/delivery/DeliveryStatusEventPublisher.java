@@ -0,0 +1,58 @@
+package org.driver.driverapp.service.delivery;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.dto.websocket.DeliveryStatusDTO;
+import org.driver.driverapp.service.websocket.WebSocketService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Fans committed delivery status transitions out to WebSocket subscribers and the
+ * {@link KafkaConfig#DELIVERY_STATUS_TOPIC} topic. Rolled-back transitions are never published.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeliveryStatusEventPublisher {
+
+    private final WebSocketService webSocketService;
+    private final ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeliveryStatusChanged(DeliveryStatusChangedEvent event) {
+        DeliveryStatusDTO payload = DeliveryStatusDTO.builder()
+                .deliveryId(event.getDeliveryId())
+                .previousStatus(event.getPreviousStatus() != null ? event.getPreviousStatus().name() : null)
+                .status(event.getNewStatus().name())
+                .timestamp(event.getChangedAt())
+                .message(event.getMessage())
+                .driverId(event.getDriverId())
+                .driverName(event.getDriverName())
+                .customerId(event.getCustomerId())
+                .partnerId(event.getPartnerId())
+                .build();
+
+        try {
+            webSocketService.sendDeliveryStatusUpdate(payload);
+        } catch (Exception e) {
+            log.error("Failed to push status update for delivery: {}", event.getDeliveryId(), e);
+        }
+
+        KafkaTemplate<String, Object> kafkaTemplate = kafkaTemplateProvider.getIfAvailable();
+        if (kafkaTemplate == null) {
+            return;
+        }
+        // Keyed by delivery id so every transition of a delivery lands on the same partition, in order
+        kafkaTemplate.send(KafkaConfig.DELIVERY_STATUS_TOPIC, event.getDeliveryId().toString(), payload)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish status update for delivery: {}", event.getDeliveryId(), ex);
+                    }
+                });
+    }
+}
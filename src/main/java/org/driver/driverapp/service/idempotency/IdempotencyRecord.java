@@ -0,0 +1,27 @@
+package org.driver.driverapp.service.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What is known about one idempotency key: whether its request is still running or has
+ * completed, a fingerprint of the request body that claimed it and, once completed, the
+ * response as JSON so that retries can be answered with it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public enum Status { IN_FLIGHT, COMPLETED }
+
+    private Status status;
+    private String fingerprint;
+    private String response;
+    private long expiresAtMillis;
+
+    boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
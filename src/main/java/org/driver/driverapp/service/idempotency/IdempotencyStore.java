@@ -0,0 +1,272 @@
+package org.driver.driverapp.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.exception.IdempotencyKeyConflictException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs write requests at most once per client-supplied idempotency key. The first request
+ * with a key claims it; once it completes, its response is kept for the TTL and returned to
+ * every retry with the same key and body without running the request again. A retry that
+ * arrives while the first request is still running, or that reuses the key for a different
+ * body, is refused with an {@link IdempotencyKeyConflictException}. A failed request gives
+ * its key back, so it can be retried; so does a response the caller marks as failed.
+ *
+ * <p>Records live in a local map, which answers retries on this instance without a network
+ * call, and in Redis, which shares claims and responses across instances. Claims held by a
+ * request that never finishes expire after the shorter in-flight TTL. When Redis cannot be
+ * reached the store degrades to the local map.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    static final String KEY_PREFIX = "idempotency:";
+
+    private final ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration inFlightTtl;
+    private final int maxLocalEntries;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, IdempotencyRecord> local = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyStore(ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${payment.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${payment.idempotency.in-flight-ttl-ms:60000}") long inFlightTtlMillis,
+                            @Value("${payment.idempotency.max-local-entries:10000}") int maxLocalEntries) {
+        this(redisTemplateProvider, objectMapper, meterRegistry, Duration.ofHours(ttlHours),
+                Duration.ofMillis(inFlightTtlMillis), maxLocalEntries, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider, ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry, Duration ttl, Duration inFlightTtl, int maxLocalEntries,
+                     LongSupplier clock) {
+        this.redisTemplateProvider = redisTemplateProvider;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.inFlightTtl = inFlightTtl;
+        this.maxLocalEntries = maxLocalEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs {@code action} unless {@code key} already completed in {@code scope}, in which case
+     * the stored response is returned. Without a key the action simply runs.
+     */
+    public <T> T execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String storeKey = storeKey(scope, key);
+        String fingerprint = fingerprint(request);
+        T replayed = claim(scope, storeKey, fingerprint, responseType);
+        if (replayed != null) {
+            return replayed;
+        }
+        T response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(storeKey);
+            throw e;
+        }
+        complete(storeKey, fingerprint, response);
+        return response;
+    }
+
+    /**
+     * Asynchronous form of {@link #execute}: the key is claimed before {@code action} starts
+     * and completed or released when its future finishes.
+     */
+    public <T> CompletableFuture<T> executeAsync(String scope, String key, Object request, Class<T> responseType,
+                                                 Supplier<CompletableFuture<T>> action) {
+        return executeAsync(scope, key, request, responseType, response -> true, action);
+    }
+
+    /**
+     * Like {@link #executeAsync(String, String, Object, Class, Supplier)}, but only responses
+     * matching {@code completed} are stored; for any other the key is given back, as for an
+     * error, so a retry runs the request again.
+     */
+    public <T> CompletableFuture<T> executeAsync(String scope, String key, Object request, Class<T> responseType,
+                                                 Predicate<? super T> completed,
+                                                 Supplier<CompletableFuture<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String storeKey = storeKey(scope, key);
+        String fingerprint = fingerprint(request);
+        T replayed = claim(scope, storeKey, fingerprint, responseType);
+        if (replayed != null) {
+            return CompletableFuture.completedFuture(replayed);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException e) {
+            release(storeKey);
+            throw e;
+        }
+        return future.whenComplete((response, error) -> {
+            if (error != null || !completed.test(response)) {
+                release(storeKey);
+            } else {
+                complete(storeKey, fingerprint, response);
+            }
+        });
+    }
+
+    // Returns the stored response of a completed request, or null once this caller holds the key
+    private <T> T claim(String scope, String storeKey, String fingerprint, Class<T> responseType) {
+        long now = clock.getAsLong();
+        IdempotencyRecord claim = new IdempotencyRecord(IdempotencyRecord.Status.IN_FLIGHT, fingerprint, null,
+                now + inFlightTtl.toMillis());
+        IdempotencyRecord existing = local.compute(storeKey, (k, current) ->
+                current == null || current.isExpired(now) ? claim : current);
+        if (existing != claim) {
+            return answer(scope, existing, fingerprint, responseType);
+        }
+
+        RedisTemplate<String, Object> redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(storeKey, claim, inFlightTtl);
+            if (Boolean.FALSE.equals(claimed)
+                    && redisTemplate.opsForValue().get(storeKey) instanceof IdempotencyRecord shared) {
+                // Another instance holds the key
+                local.remove(storeKey, claim);
+                if (shared.getStatus() == IdempotencyRecord.Status.COMPLETED && local.size() < maxLocalEntries) {
+                    local.putIfAbsent(storeKey, shared);
+                }
+                return answer(scope, shared, fingerprint, responseType);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Idempotency claim in Redis failed for {}; using the local record: {}", storeKey, e.getMessage());
+        }
+        return null;
+    }
+
+    private <T> T answer(String scope, IdempotencyRecord record, String fingerprint, Class<T> responseType) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            conflict(scope);
+            throw new IdempotencyKeyConflictException("Idempotency key was already used for a different request");
+        }
+        if (record.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+            conflict(scope);
+            throw new IdempotencyKeyConflictException("A request with this idempotency key is still being processed");
+        }
+        try {
+            T response = objectMapper.readValue(record.getResponse(), responseType);
+            Counter.builder(MetricsConfig.IDEMPOTENCY_REPLAYED_COUNTER)
+                    .description("Retried write requests answered with a stored response")
+                    .tag("scope", scope)
+                    .register(meterRegistry)
+                    .increment();
+            return response;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key is unreadable", e);
+        }
+    }
+
+    private void complete(String storeKey, String fingerprint, Object response) {
+        IdempotencyRecord record;
+        try {
+            record = new IdempotencyRecord(IdempotencyRecord.Status.COMPLETED, fingerprint,
+                    objectMapper.writeValueAsString(response), clock.getAsLong() + ttl.toMillis());
+        } catch (JsonProcessingException e) {
+            // The request has run; without a stored response a retry may run it again
+            log.error("Could not store the response for idempotency key {}", storeKey, e);
+            release(storeKey);
+            return;
+        }
+        if (local.size() < maxLocalEntries) {
+            local.put(storeKey, record);
+        } else {
+            // Redis keeps the response; the local map only holds this instance's claims once full
+            local.remove(storeKey);
+        }
+        RedisTemplate<String, Object> redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(storeKey, record, ttl);
+        } catch (RuntimeException e) {
+            log.warn("Could not store idempotency key {} in Redis: {}", storeKey, e.getMessage());
+        }
+    }
+
+    private void release(String storeKey) {
+        local.remove(storeKey);
+        RedisTemplate<String, Object> redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(storeKey);
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {} in Redis; it expires with its claim: {}",
+                    storeKey, e.getMessage());
+        }
+    }
+
+    private void conflict(String scope) {
+        Counter.builder(MetricsConfig.IDEMPOTENCY_CONFLICT_COUNTER)
+                .description("Retried write requests refused because their key is in use")
+                .tag("scope", scope)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = clock.getAsLong();
+        local.values().removeIf(record -> record.isExpired(now));
+    }
+
+    int localSize() {
+        return local.size();
+    }
+
+    private static String storeKey(String scope, String key) {
+        return KEY_PREFIX + scope + ":" + key;
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.driver.response.DriverPayoutRunResultDTO;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.model.DriverPayoutBatch;
+import org.driver.driverapp.repository.DriverEarningRepository;
+import org.driver.driverapp.repository.DriverPayoutBatchRepository;
+import org.driver.driverapp.service.DriverEarningRollupService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pays out every driver's pending earnings through the payout provider. A run first claims the
+ * pending earnings, a chunk of drivers per transaction: each driver gets a
+ * {@link DriverPayoutBatch} and their earnings move to PROCESSING with one
+ * {@code UPDATE ... WHERE id IN} statement. The batches are then partitioned by driver across a
+ * fixed pool of workers, each calling the provider for one driver at a time, and their results
+ * are written a chunk at a time with JDBC batches, or sooner once the oldest waiting result is a
+ * quarter of {@code resumeAfter} old. Both steps move the earnings' daily rollups
+ * along in the same transaction.
+ *
+ * <p>A batch is PROCESSING from its claim until its result is written, and belongs to the run
+ * named in it. Right before and right after calling the provider, a worker stamps the batch, but
+ * only while its run still owns it; a batch that a crashed run left behind is taken over by a later run, on
+ * this or another instance, once its stamp is older than {@code resumeAfter}. A batch is
+ * therefore paid by one run at a time, and only its owner writes the result. The batch id is
+ * sent as the idempotency key of the payout, so a provider that honours it does not pay a
+ * resumed batch twice when the crashed run had already paid it.
+ */
+@Slf4j
+@Component
+public class DriverPayoutPipeline {
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String LOCK_PENDING_EARNINGS = "SELECT \"id\", \"driver_id\", \"amount\", \"created_at\" " +
+            "FROM \"driver_earning\" WHERE \"driver_id\" IN (:driverIds) AND \"payout_status\" = 'PENDING' " +
+            "AND \"active\" = TRUE ORDER BY \"id\" FOR UPDATE";
+    private static final String SELECT_PHONE_NUMBERS = "SELECT \"id\", \"phone_number\" FROM \"driver\" " +
+            "WHERE \"id\" IN (:driverIds)";
+    private static final String CLAIM_EARNINGS = "UPDATE \"driver_earning\" SET \"payout_status\" = 'PROCESSING', " +
+            "\"payout_batch_id\" = :batchId, \"updated_at\" = :updatedAt, \"version\" = \"version\" + 1 " +
+            "WHERE \"id\" IN (:ids)";
+    private static final String SELECT_CLAIMED_EARNINGS = "SELECT \"payout_batch_id\", \"driver_id\", \"amount\", " +
+            "\"created_at\" FROM \"driver_earning\" WHERE \"payout_batch_id\" IN (:batchIds) AND \"payout_status\" = 'PROCESSING'";
+    private static final String TAKE_OVER_BATCH = "UPDATE \"driver_payout_batch\" SET \"run_id\" = ?, \"updated_at\" = ? " +
+            "WHERE \"id\" = ? AND \"status\" = 'PROCESSING' AND \"updated_at\" < ?";
+    private static final String STAMP_BATCH = "UPDATE \"driver_payout_batch\" SET \"updated_at\" = ? " +
+            "WHERE \"id\" = ? AND \"status\" = 'PROCESSING' AND \"run_id\" = ?";
+    private static final String FINISH_BATCH = "UPDATE \"driver_payout_batch\" SET \"status\" = ?, " +
+            "\"payout_reference\" = ?, \"failure_reason\" = ?, \"updated_at\" = ? " +
+            "WHERE \"id\" = ? AND \"status\" = 'PROCESSING' AND \"run_id\" = ?";
+    private static final String COMPLETE_EARNINGS = "UPDATE \"driver_earning\" SET \"payout_status\" = 'COMPLETED', " +
+            "\"payout_reference\" = ?, \"payout_date\" = ?, \"updated_at\" = ?, \"version\" = \"version\" + 1 " +
+            "WHERE \"payout_batch_id\" = ? AND \"payout_status\" = 'PROCESSING'";
+    private static final String FAIL_EARNINGS = "UPDATE \"driver_earning\" SET \"payout_status\" = 'FAILED', " +
+            "\"failure_reason\" = ?, \"updated_at\" = ?, \"version\" = \"version\" + 1 " +
+            "WHERE \"payout_batch_id\" = ? AND \"payout_status\" = 'PROCESSING'";
+
+    private final DriverEarningRepository driverEarningRepository;
+    private final DriverPayoutBatchRepository driverPayoutBatchRepository;
+    private final PaymentProviderFactory paymentProviderFactory;
+    private final DriverEarningRollupService driverEarningRollupService;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workerPool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+    private final PaymentProvider provider;
+    private final int workers;
+    private final int batchSize;
+    private final Duration resumeAfter;
+    private final Duration recordWithin;
+
+    public DriverPayoutPipeline(DriverEarningRepository driverEarningRepository,
+                                DriverPayoutBatchRepository driverPayoutBatchRepository,
+                                PaymentProviderFactory paymentProviderFactory,
+                                DriverEarningRollupService driverEarningRollupService,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${driver.payouts.provider:TELEBIRR}") PaymentProvider provider,
+                                @Value("${driver.payouts.workers:8}") int workers,
+                                @Value("${driver.payouts.batch-size:200}") int batchSize,
+                                @Value("${driver.payouts.resume-after-ms:600000}") long resumeAfterMs) {
+        this.driverEarningRepository = driverEarningRepository;
+        this.driverPayoutBatchRepository = driverPayoutBatchRepository;
+        this.paymentProviderFactory = paymentProviderFactory;
+        this.driverEarningRollupService = driverEarningRollupService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.provider = provider;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.resumeAfter = Duration.ofMillis(resumeAfterMs);
+        // Well inside resumeAfter, so a paid batch waiting for the rest of its chunk is not taken over
+        this.recordWithin = resumeAfter.dividedBy(4);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "driver-payout-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.completedCounter = Counter.builder(MetricsConfig.DRIVER_PAYOUT_COUNTER)
+                .description("Driver payouts sent to the payout provider")
+                .tag("status", "completed")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder(MetricsConfig.DRIVER_PAYOUT_COUNTER)
+                .description("Driver payouts sent to the payout provider")
+                .tag("status", "failed")
+                .register(meterRegistry);
+    }
+
+    public DriverPayoutRunResultDTO run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A driver payout run is already running");
+        }
+        try {
+            String runId = UUID.randomUUID().toString();
+            List<Payout> payouts = new ArrayList<>(takeOver(runId));
+            int resumed = payouts.size();
+
+            List<Long> driverIds = driverEarningRepository.findDriverIdsWithPendingPayouts();
+            for (int from = 0; from < driverIds.size(); from += batchSize) {
+                List<Long> chunk = driverIds.subList(from, Math.min(driverIds.size(), from + batchSize));
+                payouts.addAll(transactionTemplate.execute(status -> claim(runId, chunk)));
+            }
+            log.info("Driver payout run {} paying {} drivers ({} resumed) through {} workers",
+                    runId, payouts.size(), resumed, workers);
+
+            // A driver always lands in the same partition, so a driver is never paid twice at once
+            List<List<Payout>> partitions = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            payouts.forEach(payout -> partitions.get((int) Math.floorMod(payout.driverId, (long) workers)).add(payout));
+            List<CompletableFuture<Tally>> futures = partitions.stream()
+                    .filter(partition -> !partition.isEmpty())
+                    .map(partition -> CompletableFuture.supplyAsync(() -> pay(partition), workerPool))
+                    .toList();
+            Tally total = new Tally();
+            for (CompletableFuture<Tally> partition : futures) {
+                total.add(partition.join());
+            }
+
+            log.info("Driver payout run {} completed {} payouts of {} ETB and failed {}",
+                    runId, total.completed, total.amountPaid, total.failed);
+            return DriverPayoutRunResultDTO.builder()
+                    .runId(runId)
+                    .drivers(payouts.size())
+                    .resumed(resumed)
+                    .completed(total.completed)
+                    .failed(total.failed)
+                    .amountPaid(total.amountPaid)
+                    .build();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Batches an earlier run claimed but stopped stamping; only those this run manages to take over are paid
+    private List<Payout> takeOver(String runId) {
+        Instant cutoff = Instant.now().minus(resumeAfter);
+        List<DriverPayoutBatch> stale = driverPayoutBatchRepository.findByStatusAndUpdatedAtBeforeOrderByIdAsc(
+                PayoutStatus.PROCESSING, cutoff);
+        if (stale.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        int[] taken = jdbcTemplate.batchUpdate(TAKE_OVER_BATCH, stale.stream()
+                .map(batch -> new Object[]{runId, now, batch.getId(), Timestamp.from(cutoff)})
+                .toList());
+        List<DriverPayoutBatch> batches = new ArrayList<>(stale.size());
+        for (int i = 0; i < stale.size(); i++) {
+            if (taken[i] != 0) {
+                batches.add(stale.get(i));
+            }
+        }
+        if (batches.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, String> phoneNumbers = phoneNumbers(batches.stream().map(DriverPayoutBatch::getDriverId).toList());
+        return batches.stream()
+                .map(batch -> new Payout(batch.getId(), runId, batch.getDriverId(), batch.getAmount(),
+                        phoneNumbers.get(batch.getDriverId())))
+                .toList();
+    }
+
+    private List<Payout> claim(String runId, List<Long> driverIds) {
+        Map<Long, List<Long>> earningIds = new TreeMap<>();
+        Map<Long, BigDecimal> amounts = new HashMap<>();
+        List<DriverEarningRollupService.Change> rollupChanges = new ArrayList<>();
+        namedParameterJdbcTemplate.query(LOCK_PENDING_EARNINGS, Map.of("driverIds", driverIds), rs -> {
+            long driverId = rs.getLong("driver_id");
+            BigDecimal amount = rs.getBigDecimal("amount");
+            earningIds.computeIfAbsent(driverId, id -> new ArrayList<>()).add(rs.getLong("id"));
+            amounts.merge(driverId, amount, BigDecimal::add);
+            rollupChanges.addAll(DriverEarningRollupService.Change.moved(driverId,
+                    instant(rs.getTimestamp("created_at")), amount, PayoutStatus.PENDING, PayoutStatus.PROCESSING));
+        });
+        if (earningIds.isEmpty()) {
+            return List.of();
+        }
+
+        Instant now = Instant.now();
+        List<DriverPayoutBatch> batches = driverPayoutBatchRepository.saveAll(earningIds.keySet().stream()
+                .map(driverId -> DriverPayoutBatch.builder()
+                        .runId(runId)
+                        .driverId(driverId)
+                        .amount(amounts.get(driverId))
+                        .earningCount(earningIds.get(driverId).size())
+                        .status(PayoutStatus.PROCESSING)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build())
+                .toList());
+        Map<Long, String> phoneNumbers = phoneNumbers(new ArrayList<>(earningIds.keySet()));
+        List<Payout> payouts = new ArrayList<>(batches.size());
+        for (DriverPayoutBatch batch : batches) {
+            namedParameterJdbcTemplate.update(CLAIM_EARNINGS, Map.of("batchId", batch.getId(),
+                    "updatedAt", Timestamp.from(now), "ids", earningIds.get(batch.getDriverId())));
+            payouts.add(new Payout(batch.getId(), runId, batch.getDriverId(), batch.getAmount(),
+                    phoneNumbers.get(batch.getDriverId())));
+        }
+        driverEarningRollupService.apply(rollupChanges);
+        return payouts;
+    }
+
+    private Map<Long, String> phoneNumbers(List<Long> driverIds) {
+        Map<Long, String> phoneNumbers = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_PHONE_NUMBERS, Map.of("driverIds", driverIds),
+                rs -> { phoneNumbers.put(rs.getLong("id"), rs.getString("phone_number")); });
+        return phoneNumbers;
+    }
+
+    private Tally pay(List<Payout> partition) {
+        Tally tally = new Tally();
+        PaymentProviderService providerService = paymentProviderFactory.getProvider(provider);
+        List<Payout> paid = new ArrayList<>(batchSize);
+        Instant oldestPaidAt = null;
+        for (Payout payout : partition) {
+            if (!paid.isEmpty() && isDue(oldestPaidAt)) {
+                record(paid, tally);
+                paid.clear();
+            }
+            if (!stamp(payout)) {
+                log.warn("Payout batch {} for driver {} was taken over by another run", payout.batchId, payout.driverId);
+                continue;
+            }
+            PaymentRequest request = PaymentRequest.builder()
+                    .userId(payout.driverId.toString())
+                    .amount(payout.amount)
+                    .currency("ETB")
+                    .provider(provider)
+                    .phoneNumber(payout.phoneNumber)
+                    .description("Driver payout")
+                    .idempotencyKey("driver-payout-" + payout.batchId)
+                    .build();
+            try {
+                PaymentResponse response = providerService.initiatePayment(request).join();
+                if (response.isSuccess()) {
+                    payout.reference = response.getTransactionRef();
+                } else {
+                    payout.failureReason = "Payout rejected by " + provider + ": " + response.getMessage();
+                }
+            } catch (CompletionException e) {
+                payout.failureReason = "Payout failed: " + e.getCause().getMessage();
+            } catch (RuntimeException e) {
+                payout.failureReason = "Payout failed: " + e.getMessage();
+            }
+            // Stamped again, so a slow provider call does not leave the batch looking abandoned
+            if (!stamp(payout)) {
+                log.warn("Payout batch {} for driver {} was taken over by another run while it was paid",
+                        payout.batchId, payout.driverId);
+                continue;
+            }
+            if (paid.isEmpty()) {
+                oldestPaidAt = Instant.now();
+            }
+            paid.add(payout);
+            if (paid.size() == batchSize || isDue(oldestPaidAt)) {
+                record(paid, tally);
+                paid.clear();
+            }
+        }
+        record(paid, tally);
+        return tally;
+    }
+
+    private boolean stamp(Payout payout) {
+        return jdbcTemplate.update(STAMP_BATCH, Timestamp.from(Instant.now()), payout.batchId, payout.runId) != 0;
+    }
+
+    private boolean isDue(Instant oldestPaidAt) {
+        return !Instant.now().isBefore(oldestPaidAt.plus(recordWithin));
+    }
+
+    private void record(List<Payout> paid, Tally tally) {
+        if (paid.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Payout> recorded = transactionTemplate.execute(status -> {
+            int[] finished = jdbcTemplate.batchUpdate(FINISH_BATCH, paid.stream()
+                    .map(payout -> new Object[]{payout.reference != null ? "COMPLETED" : "FAILED",
+                            payout.reference, payout.failureReason, now, payout.batchId, payout.runId})
+                    .toList());
+            // A batch another run finished in the meantime keeps that run's result
+            Map<Long, Payout> owned = new TreeMap<>();
+            for (int i = 0; i < paid.size(); i++) {
+                if (finished[i] != 0) {
+                    owned.put(paid.get(i).batchId, paid.get(i));
+                }
+            }
+            if (owned.isEmpty()) {
+                return List.of();
+            }
+            List<DriverEarningRollupService.Change> rollupChanges = new ArrayList<>();
+            namedParameterJdbcTemplate.query(SELECT_CLAIMED_EARNINGS, Map.of("batchIds", owned.keySet()), rs -> {
+                Payout payout = owned.get(rs.getLong("payout_batch_id"));
+                rollupChanges.addAll(DriverEarningRollupService.Change.moved(rs.getLong("driver_id"),
+                        instant(rs.getTimestamp("created_at")), rs.getBigDecimal("amount"), PayoutStatus.PROCESSING,
+                        payout.reference != null ? PayoutStatus.COMPLETED : PayoutStatus.FAILED));
+            });
+            jdbcTemplate.batchUpdate(COMPLETE_EARNINGS, owned.values().stream()
+                    .filter(payout -> payout.reference != null)
+                    .map(payout -> new Object[]{payout.reference, now, now, payout.batchId})
+                    .toList());
+            jdbcTemplate.batchUpdate(FAIL_EARNINGS, owned.values().stream()
+                    .filter(payout -> payout.reference == null)
+                    .map(payout -> new Object[]{payout.failureReason, now, payout.batchId})
+                    .toList());
+            driverEarningRollupService.apply(rollupChanges);
+            return new ArrayList<>(owned.values());
+        });
+
+        for (Payout payout : recorded) {
+            if (payout.reference != null) {
+                tally.completed++;
+                tally.amountPaid = tally.amountPaid.add(payout.amount);
+                completedCounter.increment();
+            } else {
+                tally.failed++;
+                failedCounter.increment();
+                log.warn("Payout batch {} for driver {} failed: {}", payout.batchId, payout.driverId,
+                        payout.failureReason);
+            }
+        }
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdownNow();
+    }
+
+    private static final class Payout {
+        private final Long batchId;
+        private final String runId;
+        private final Long driverId;
+        private final BigDecimal amount;
+        private final String phoneNumber;
+        // Set by the provider call: the payout reference on success, the reason otherwise
+        private String reference;
+        private String failureReason;
+
+        private Payout(Long batchId, String runId, Long driverId, BigDecimal amount, String phoneNumber) {
+            this.batchId = batchId;
+            this.runId = runId;
+            this.driverId = driverId;
+            this.amount = amount;
+            this.phoneNumber = phoneNumber;
+        }
+    }
+
+    private static final class Tally {
+        private int completed;
+        private int failed;
+        private BigDecimal amountPaid = BigDecimal.ZERO;
+
+        private void add(Tally other) {
+            completed += other.completed;
+            failed += other.failed;
+            amountPaid = amountPaid.add(other.amountPaid);
+        }
+    }
+}
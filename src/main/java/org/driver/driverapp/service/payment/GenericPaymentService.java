@@ -6,10 +6,18 @@ import org.driver.driverapp.enums.PaymentStatus;
 
 import java.math.BigDecimal;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class GenericPaymentService implements PaymentProviderService {
 
+    // Simulated network latency; no thread waits while a call is "in flight"
+    private static final Executor INITIATE_LATENCY = CompletableFuture.delayedExecutor(80, TimeUnit.MILLISECONDS);
+    private static final Executor CONFIRM_LATENCY = CompletableFuture.delayedExecutor(60, TimeUnit.MILLISECONDS);
+    private static final Executor REFUND_LATENCY = CompletableFuture.delayedExecutor(90, TimeUnit.MILLISECONDS);
+
     private final PaymentProvider provider;
     private final String prefix;
 
@@ -24,21 +32,19 @@ public class GenericPaymentService implements PaymentProviderService {
     }
 
     @Override
-    public PaymentResponse initiatePayment(PaymentRequest request) {
+    public CompletableFuture<PaymentResponse> initiatePayment(PaymentRequest request) {
         log.info("Initiating {} payment for amount: {} ETB", provider, request.getAmount());
-        
-        try {
-            Thread.sleep(80);
-            
+
+        return CompletableFuture.supplyAsync(() -> {
             String transactionRef = prefix + "_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
-            
+
             return PaymentResponse.builder()
                     .success(true)
                     .transactionRef(transactionRef)
                     .status(PaymentStatus.PROCESSING)
                     .message("Payment initiated successfully")
                     .build();
-        } catch (Exception e) {
+        }, INITIATE_LATENCY).exceptionally(e -> {
             log.error("{} payment initiation failed", provider, e);
             return PaymentResponse.builder()
                     .success(false)
@@ -46,19 +52,17 @@ public class GenericPaymentService implements PaymentProviderService {
                     .message("Payment initiation failed")
                     .errorCode(prefix + "_001")
                     .build();
-        }
+        });
     }
 
     @Override
-    public PaymentResponse confirmPayment(String transactionRef) {
+    public CompletableFuture<PaymentResponse> confirmPayment(String transactionRef) {
         log.info("Confirming {} payment: {}", provider, transactionRef);
-        
-        try {
-            Thread.sleep(60);
-            
+
+        return CompletableFuture.supplyAsync(() -> {
             // Simulate 90% success rate for other providers
             boolean success = Math.random() > 0.10;
-            
+
             if (success) {
                 return PaymentResponse.builder()
                         .success(true)
@@ -75,7 +79,7 @@ public class GenericPaymentService implements PaymentProviderService {
                         .errorCode(prefix + "_002")
                         .build();
             }
-        } catch (Exception e) {
+        }, CONFIRM_LATENCY).exceptionally(e -> {
             log.error("{} payment confirmation failed", provider, e);
             return PaymentResponse.builder()
                     .success(false)
@@ -83,23 +87,19 @@ public class GenericPaymentService implements PaymentProviderService {
                     .message("Payment confirmation failed")
                     .errorCode(prefix + "_003")
                     .build();
-        }
+        });
     }
 
     @Override
-    public PaymentResponse refundPayment(String transactionRef, BigDecimal amount) {
+    public CompletableFuture<PaymentResponse> refundPayment(String transactionRef, BigDecimal amount) {
         log.info("Processing {} refund: {} for amount: {}", provider, transactionRef, amount);
-        
-        try {
-            Thread.sleep(90);
-            
-            return PaymentResponse.builder()
-                    .success(true)
-                    .transactionRef("REF_" + transactionRef)
-                    .status(PaymentStatus.COMPLETED)
-                    .message("Refund processed successfully")
-                    .build();
-        } catch (Exception e) {
+
+        return CompletableFuture.supplyAsync(() -> PaymentResponse.builder()
+                .success(true)
+                .transactionRef("REF_" + transactionRef)
+                .status(PaymentStatus.COMPLETED)
+                .message("Refund processed successfully")
+                .build(), REFUND_LATENCY).exceptionally(e -> {
             log.error("{} refund failed", provider, e);
             return PaymentResponse.builder()
                     .success(false)
@@ -107,7 +107,7 @@ public class GenericPaymentService implements PaymentProviderService {
                     .message("Refund failed")
                     .errorCode(prefix + "_004")
                     .build();
-        }
+        });
     }
 
     @Override
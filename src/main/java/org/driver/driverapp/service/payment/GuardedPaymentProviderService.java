@@ -0,0 +1,117 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs every call to the wrapped provider through that provider's {@link PaymentCircuitBreaker}
+ * and {@link PaymentBulkhead}, and records its latency per operation and outcome.
+ */
+class GuardedPaymentProviderService implements PaymentProviderService {
+
+    private static final List<String> OPERATIONS = List.of("initiate", "confirm", "refund");
+
+    private final PaymentProviderService delegate;
+    private final PaymentBulkhead bulkhead;
+    private final PaymentCircuitBreaker circuitBreaker;
+    private final Counter circuitRejectedCounter;
+    private final Map<String, Map<Outcome, Timer>> timers;
+
+    GuardedPaymentProviderService(PaymentProviderService delegate, PaymentBulkhead bulkhead,
+                                  PaymentCircuitBreaker circuitBreaker, Counter circuitRejectedCounter,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.circuitRejectedCounter = circuitRejectedCounter;
+        this.timers = OPERATIONS.stream().collect(Collectors.toUnmodifiableMap(
+                operation -> operation, operation -> timers(operation, meterRegistry)));
+    }
+
+    @Override
+    public PaymentProvider getProvider() {
+        return delegate.getProvider();
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> initiatePayment(PaymentRequest request) {
+        return call("initiate", () -> delegate.initiatePayment(request));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> confirmPayment(String transactionRef) {
+        return call("confirm", () -> delegate.confirmPayment(transactionRef));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPayment(String transactionRef, BigDecimal amount) {
+        return call("refund", () -> delegate.refundPayment(transactionRef, amount));
+    }
+
+    @Override
+    public boolean isSupported(PaymentProvider provider) {
+        return delegate.isSupported(provider);
+    }
+
+    private CompletableFuture<PaymentResponse> call(String operation, Supplier<CompletableFuture<PaymentResponse>> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            circuitRejectedCounter.increment();
+            return CompletableFuture.failedFuture(new PaymentProviderUnavailableException(getProvider(),
+                    PaymentProviderUnavailableException.Reason.CIRCUIT_OPEN,
+                    getProvider() + " is failing, payments through it are paused"));
+        }
+
+        long startedAt = System.nanoTime();
+        return bulkhead.execute(call).whenComplete((response, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof PaymentProviderUnavailableException unavailable
+                    && unavailable.getReason() == PaymentProviderUnavailableException.Reason.BULKHEAD_FULL) {
+                // Never reached the provider, so it says nothing about the provider's health
+                circuitBreaker.release();
+                return;
+            }
+
+            Outcome outcome = error != null ? Outcome.ERROR : response.isSuccess() ? Outcome.SUCCESS : Outcome.DECLINED;
+            timers.get(operation).get(outcome).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        });
+    }
+
+    // Registered once per operation and outcome, so recording a call does no meter lookup
+    private Map<Outcome, Timer> timers(String operation, MeterRegistry meterRegistry) {
+        Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            timers.put(outcome, Timer.builder(MetricsConfig.PAYMENT_PROCESSING_TIMER)
+                    .description("Payment provider call duration")
+                    .tag("provider", getProvider().name())
+                    .tag("operation", operation)
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        return timers;
+    }
+
+    private enum Outcome {
+        SUCCESS, DECLINED, ERROR
+    }
+}
@@ -0,0 +1,120 @@
+package org.driver.driverapp.service.payment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A provider reached over HTTP, such as the local payment provider simulator. Requests are
+ * sent asynchronously; a provider that answers with a 5xx status, cannot be reached or does
+ * not answer in time fails the returned future, so the provider's circuit breaker counts it,
+ * while declines come back as unsuccessful responses.
+ */
+@Slf4j
+public class HttpPaymentProviderService implements PaymentProviderService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final PaymentProvider provider;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    public HttpPaymentProviderService(PaymentProvider provider, HttpClient httpClient, ObjectMapper objectMapper,
+                                      String baseUrl, Duration requestTimeout) {
+        this.provider = provider;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl.replaceAll("/+$", "") + "/" + provider.name().toLowerCase(Locale.ROOT) + "/payments";
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public PaymentProvider getProvider() {
+        return provider;
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> initiatePayment(PaymentRequest request) {
+        log.info("Initiating {} payment for amount: {} ETB", provider, request.getAmount());
+        return post(baseUrl, request, request.getIdempotencyKey());
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> confirmPayment(String transactionRef) {
+        log.info("Confirming {} payment: {}", provider, transactionRef);
+        return post(baseUrl + "/" + encode(transactionRef) + "/confirm", Map.of(), null);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPayment(String transactionRef, BigDecimal amount) {
+        log.info("Processing {} refund: {} for amount: {}", provider, transactionRef, amount);
+        return post(baseUrl + "/" + encode(transactionRef) + "/refund", Map.of("amount", amount), null);
+    }
+
+    @Override
+    public boolean isSupported(PaymentProvider provider) {
+        return this.provider.equals(provider);
+    }
+
+    private CompletableFuture<PaymentResponse> post(String url, Object body, String idempotencyKey) {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+            if (idempotencyKey != null) {
+                builder.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+            }
+            request = builder.build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (cause instanceof HttpTimeoutException) {
+                            throw new PaymentProviderUnavailableException(provider,
+                                    PaymentProviderUnavailableException.Reason.TIMEOUT,
+                                    provider + " did not answer within " + requestTimeout.toMillis() + " ms", cause);
+                        }
+                        throw new CompletionException(cause);
+                    }
+                    if (response.statusCode() >= 500) {
+                        throw new IllegalStateException(provider + " answered HTTP " + response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), PaymentResponse.class);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(provider + " sent an unreadable response (HTTP "
+                                + response.statusCode() + ")", e);
+                    }
+                });
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Isolates the calls to one payment provider. Only up to the current concurrency limit of calls
+ * may be in flight; further calls fail immediately instead of queueing, so a slow provider cannot
+ * tie up request threads. Results are handed back on the bulkhead's own small pool, so whatever
+ * the caller chains onto them, e.g. recording the result in the database, is bounded per
+ * provider too and never runs on the provider client's threads.
+ * <p>
+ * The limit adapts to the provider (AIMD): each call answered within the latency target raises
+ * it by {@code 1/limit}, up to {@code maxConcurrentCalls}, while the bulkhead is in use; each
+ * timeout or slower answer halves it, down to {@code minConcurrentCalls}. A degrading provider
+ * is thus given less concurrent work before it times out entirely.
+ */
+public final class PaymentBulkhead {
+
+    private static final double BACKOFF_RATIO = 0.5;
+
+    private final PaymentProvider provider;
+    private final int minConcurrentCalls;
+    private final int maxConcurrentCalls;
+    private final long latencyTargetNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Counter rejectedCounter;
+    private double limit;
+    private volatile int currentLimit;
+
+    PaymentBulkhead(PaymentProvider provider, int minConcurrentCalls, int maxConcurrentCalls, int threads,
+                    Duration timeout, Duration latencyTarget, Counter rejectedCounter) {
+        if (minConcurrentCalls < 1 || maxConcurrentCalls < minConcurrentCalls || threads < 1) {
+            throw new IllegalArgumentException("Need 1 <= minConcurrentCalls <= maxConcurrentCalls and threads >= 1");
+        }
+        this.provider = provider;
+        this.minConcurrentCalls = minConcurrentCalls;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.limit = maxConcurrentCalls;
+        this.currentLimit = maxConcurrentCalls;
+        this.timeout = timeout;
+        this.rejectedCounter = rejectedCounter;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each completion holds a permit until it has run, so the queue never needs more room than the largest limit
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentCalls), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-" + provider.name().toLowerCase() + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Starts the call if the limit allows it. The returned future fails with
+     * {@link PaymentProviderUnavailableException} when the bulkhead is full or the provider does
+     * not answer within the timeout.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        if (!tryAcquire()) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(new PaymentProviderUnavailableException(provider,
+                    PaymentProviderUnavailableException.Reason.BULKHEAD_FULL,
+                    provider + " is handling " + currentLimit + " payment calls already, try again later"));
+        }
+
+        long startedAt = System.nanoTime();
+        CompletableFuture<T> pending;
+        try {
+            pending = call.get();
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            onSample(System.nanoTime() - startedAt, unwrap(error) instanceof TimeoutException);
+            try {
+                executor.execute(() -> {
+                    try {
+                        complete(result, value, error);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                result.completeExceptionally(new PaymentProviderUnavailableException(provider,
+                        PaymentProviderUnavailableException.Reason.BULKHEAD_FULL, provider + " bulkhead is shut down", e));
+            }
+        });
+        return result;
+    }
+
+    public PaymentProvider getProvider() {
+        return provider;
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int availablePermits() {
+        return Math.max(0, currentLimit - inFlight.get());
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= currentLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void onSample(long latencyNanos, boolean timedOut) {
+        if (timedOut || latencyNanos > latencyTargetNanos) {
+            limit = Math.max(minConcurrentCalls, limit * BACKOFF_RATIO);
+        } else if (inFlight.get() * 2 >= limit) {
+            // Only grow while the limit is actually in use, or it drifts up unchecked when idle
+            limit = Math.min(maxConcurrentCalls, limit + 1.0 / limit);
+        }
+        currentLimit = (int) limit;
+    }
+
+    private <T> void complete(CompletableFuture<T> result, T value, Throwable error) {
+        if (error == null) {
+            result.complete(value);
+            return;
+        }
+        Throwable cause = unwrap(error);
+        if (cause instanceof TimeoutException) {
+            cause = new PaymentProviderUnavailableException(provider, PaymentProviderUnavailableException.Reason.TIMEOUT,
+                    provider + " did not answer within " + timeout.toMillis() + " ms", cause);
+        }
+        result.completeExceptionally(cause);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,58 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link PaymentBulkhead} per payment provider, so each provider's slowness or outage is
+ * contained to its own permits and threads.
+ */
+@Component
+public class PaymentBulkheads {
+
+    private final Map<PaymentProvider, PaymentBulkhead> bulkheads = new EnumMap<>(PaymentProvider.class);
+
+    public PaymentBulkheads(MeterRegistry meterRegistry,
+                            @Value("${payment.bulkhead.min-concurrent-calls:2}") int minConcurrentCalls,
+                            @Value("${payment.bulkhead.max-concurrent-calls:25}") int maxConcurrentCalls,
+                            @Value("${payment.bulkhead.threads:4}") int threads,
+                            @Value("${payment.bulkhead.timeout-ms:5000}") long timeoutMs,
+                            @Value("${payment.bulkhead.latency-target-ms:1000}") long latencyTargetMs) {
+        for (PaymentProvider provider : PaymentProvider.values()) {
+            Counter rejected = Counter.builder(MetricsConfig.PAYMENT_BULKHEAD_REJECTED_COUNTER)
+                    .description("Payment provider calls rejected because the provider's bulkhead was full")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            PaymentBulkhead bulkhead = new PaymentBulkhead(provider, minConcurrentCalls, maxConcurrentCalls, threads,
+                    Duration.ofMillis(timeoutMs), Duration.ofMillis(latencyTargetMs), rejected);
+            Gauge.builder(MetricsConfig.PAYMENT_BULKHEAD_AVAILABLE_GAUGE, bulkhead, PaymentBulkhead::availablePermits)
+                    .description("Free call permits in the payment provider's bulkhead")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            Gauge.builder(MetricsConfig.PAYMENT_BULKHEAD_LIMIT_GAUGE, bulkhead, PaymentBulkhead::getLimit)
+                    .description("Current adaptive concurrency limit of the payment provider's bulkhead")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            bulkheads.put(provider, bulkhead);
+        }
+    }
+
+    public PaymentBulkhead forProvider(PaymentProvider provider) {
+        return bulkheads.get(provider);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(PaymentBulkhead::shutdown);
+    }
+}
@@ -0,0 +1,153 @@
+package org.driver.driverapp.service.payment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.PaymentProvider;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for one payment provider. The outcomes of the last
+ * {@code windowSize} calls are kept in a ring; once at least {@code minimumCalls} are recorded
+ * and the share of failures reaches the threshold the circuit opens and calls are refused
+ * without reaching the provider. After {@code openDuration} it lets {@code halfOpenCalls} probe
+ * calls through: if all of them succeed the circuit closes again, any failure reopens it.
+ * <p>
+ * Only calls that did not get an answer count as failures; a provider declining a payment is
+ * healthy.
+ */
+@Slf4j
+public final class PaymentCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final PaymentProvider provider;
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoTime;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    PaymentCircuitBreaker(PaymentProvider provider, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls, LongSupplier nanoTime) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Need 1 <= minimumCalls <= windowSize and halfOpenCalls >= 1");
+        }
+        this.provider = provider;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Claims permission for one call. Every {@code true} must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openDurationNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probesStarted >= halfOpenCalls) {
+                    yield false;
+                }
+                probesStarted++;
+                yield true;
+            }
+        };
+    }
+
+    /** Whether a call would currently be let through, without claiming it. */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nanoTime.getAsLong() - openedAt >= openDurationNanos;
+            case HALF_OPEN -> probesStarted < halfOpenCalls;
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /** Gives back a permit whose call never reached the provider, recording nothing. */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Failure share of the recorded calls in percent, 0 while nothing is recorded. */
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0 : failures * 100.0 / recorded;
+    }
+
+    public PaymentProvider getProvider() {
+        return provider;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void transitionTo(State target) {
+        log.warn("Payment provider {} circuit {} -> {}", provider, state, target);
+        state = target;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (target == State.OPEN) {
+            openedAt = nanoTime.getAsLong();
+        } else if (target == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link PaymentCircuitBreaker} per payment provider, with its state, error rate and refused
+ * calls exported per provider.
+ */
+@Component
+public class PaymentCircuitBreakers {
+
+    private final Map<PaymentProvider, PaymentCircuitBreaker> breakers = new EnumMap<>(PaymentProvider.class);
+    private final Map<PaymentProvider, Counter> rejectedCounters = new EnumMap<>(PaymentProvider.class);
+
+    public PaymentCircuitBreakers(MeterRegistry meterRegistry,
+                                  @Value("${payment.circuit-breaker.window-size:20}") int windowSize,
+                                  @Value("${payment.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                  @Value("${payment.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                                  @Value("${payment.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+                                  @Value("${payment.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        for (PaymentProvider provider : PaymentProvider.values()) {
+            PaymentCircuitBreaker breaker = new PaymentCircuitBreaker(provider, windowSize, minimumCalls,
+                    failureRateThreshold, Duration.ofMillis(openDurationMs), halfOpenCalls, System::nanoTime);
+            Gauge.builder(MetricsConfig.PAYMENT_CIRCUIT_STATE_GAUGE, breaker, b -> b.getState().ordinal())
+                    .description("Payment provider circuit state: 0 closed, 1 open, 2 half-open")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            Gauge.builder(MetricsConfig.PAYMENT_ERROR_RATE_GAUGE, breaker, PaymentCircuitBreaker::failureRate)
+                    .description("Percentage of failed calls among the payment provider's recent calls")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            rejectedCounters.put(provider, Counter.builder(MetricsConfig.PAYMENT_CIRCUIT_REJECTED_COUNTER)
+                    .description("Payment provider calls refused because the provider's circuit was open")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry));
+            breakers.put(provider, breaker);
+        }
+    }
+
+    public PaymentCircuitBreaker forProvider(PaymentProvider provider) {
+        return breakers.get(provider);
+    }
+
+    Counter rejectedCounter(PaymentProvider provider) {
+        return rejectedCounters.get(provider);
+    }
+}
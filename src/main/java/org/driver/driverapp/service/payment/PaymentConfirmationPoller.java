@@ -0,0 +1,262 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
+import org.driver.driverapp.repository.PaymentRepository;
+import org.driver.driverapp.repository.PaymentRepository.PendingConfirmation;
+import org.driver.driverapp.service.analytics.AnalyticsRollupTracker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives payments that have been PENDING or PROCESSING for too long to a final status by
+ * asking their provider. Stale payments are paged in id order with keyset pagination, each
+ * page's confirmations run concurrently with at most a fixed number in flight per provider,
+ * and the page's outcomes are written back as one JDBC batch. Payments the provider still
+ * reports as pending, or that could not be confirmed, are left for the next poll; the status
+ * guard on the update keeps a concurrent confirmation from being overwritten.
+ */
+@Slf4j
+@Component
+public class PaymentConfirmationPoller {
+
+    static final List<PaymentStatus> UNCONFIRMED = List.of(PaymentStatus.PENDING, PaymentStatus.PROCESSING);
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String UPDATE_STATUS = "UPDATE \"payment\" SET \"status\" = ?, " +
+            "\"failure_reason\" = COALESCE(?, \"failure_reason\"), \"updated_at\" = ?, \"version\" = \"version\" + 1 " +
+            "WHERE \"id\" = ? AND \"status\" IN ('PENDING', 'PROCESSING')";
+
+    private final PaymentRepository paymentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentProviderFactory paymentProviderFactory;
+    private final ObjectProvider<AnalyticsRollupTracker> rollupTrackerProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong throughput = new AtomicLong();
+    private final Duration staleAfter;
+    private final int pageSize;
+    private final int parallelismPerProvider;
+
+    public PaymentConfirmationPoller(PaymentRepository paymentRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     PaymentProviderFactory paymentProviderFactory,
+                                     ObjectProvider<AnalyticsRollupTracker> rollupTrackerProvider,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${payment.confirmation.stale-after-ms:300000}") long staleAfterMillis,
+                                     @Value("${payment.confirmation.page-size:200}") int pageSize,
+                                     @Value("${payment.confirmation.parallelism-per-provider:4}") int parallelismPerProvider) {
+        this.paymentRepository = paymentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentProviderFactory = paymentProviderFactory;
+        this.rollupTrackerProvider = rollupTrackerProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.staleAfter = Duration.ofMillis(staleAfterMillis);
+        this.pageSize = pageSize;
+        this.parallelismPerProvider = parallelismPerProvider;
+        Gauge.builder(MetricsConfig.PAYMENT_CONFIRMATION_BACKLOG_GAUGE, backlog, AtomicLong::get)
+                .description("Stale unconfirmed payments left after the last confirmation poll")
+                .register(meterRegistry);
+        Gauge.builder(MetricsConfig.PAYMENT_CONFIRMATION_THROUGHPUT_GAUGE, throughput, AtomicLong::get)
+                .description("Payments per second resolved by the last confirmation poll")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.confirmation.poll-interval-ms:60000}")
+    public void poll() {
+        // Polls run off the scheduler thread, which the other scheduled jobs share
+        if (!running.get()) {
+            runExecutor.execute(() -> {
+                try {
+                    run();
+                } catch (IllegalStateException e) {
+                    log.debug("Skipping payment confirmation poll: {}", e.getMessage());
+                } catch (RuntimeException e) {
+                    log.error("Payment confirmation poll failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Confirms every payment that has been unconfirmed for longer than the stale age. Returns
+     * the number of payments moved to COMPLETED or FAILED.
+     */
+    public int run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A payment confirmation poll is already running");
+        }
+        long startedAt = System.nanoTime();
+        try {
+            Instant cutoff = Instant.now().minus(staleAfter);
+            int resolved = 0;
+            long afterId = 0;
+            List<PendingConfirmation> page;
+            do {
+                page = paymentRepository.findPendingConfirmationsAfter(UNCONFIRMED, cutoff, afterId,
+                        PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                resolved += write(page, confirm(page));
+            } while (page.size() == pageSize);
+
+            long elapsedMillis = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+            throughput.set(resolved * 1_000L / Math.max(1, elapsedMillis));
+            backlog.set(paymentRepository.countPendingConfirmations(UNCONFIRMED, cutoff));
+            if (resolved > 0) {
+                log.info("Payment confirmation poll resolved {} payments in {} ms, {} left", resolved, elapsedMillis,
+                        backlog.get());
+            }
+            return resolved;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Confirms one page; returns the provider's answer per payment id, missing where the call failed
+    private Map<Long, PaymentResponse> confirm(List<PendingConfirmation> page) {
+        Map<PaymentProvider, Queue<PendingConfirmation>> byProvider = new EnumMap<>(PaymentProvider.class);
+        for (PendingConfirmation payment : page) {
+            if (paymentProviderFactory.isAvailable(payment.getProvider())) {
+                byProvider.computeIfAbsent(payment.getProvider(), provider -> new ConcurrentLinkedQueue<>()).add(payment);
+            }
+        }
+
+        Map<Long, PaymentResponse> responses = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        byProvider.forEach((provider, queue) -> {
+            PaymentProviderService service = paymentProviderFactory.getProvider(provider);
+            for (int i = 0; i < Math.min(parallelismPerProvider, queue.size()); i++) {
+                lanes.add(drain(service, queue, responses));
+            }
+        });
+        CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).join();
+        return responses;
+    }
+
+    // One of a provider's lanes: confirms queued payments one after another until the queue is empty
+    private CompletableFuture<Void> drain(PaymentProviderService service, Queue<PendingConfirmation> queue,
+                                          Map<Long, PaymentResponse> responses) {
+        PendingConfirmation payment = queue.poll();
+        if (payment == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<PaymentResponse> call;
+        try {
+            call = service.confirmPayment(payment.getTransactionRef());
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((response, error) -> {
+            if (error == null) {
+                responses.put(payment.getId(), response);
+                return null;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof PaymentProviderUnavailableException unavailable
+                    && unavailable.getReason() != PaymentProviderUnavailableException.Reason.TIMEOUT) {
+                // The provider is failing or busy with live traffic; the rest waits for the next poll
+                queue.clear();
+            }
+            count("error");
+            log.debug("Could not confirm payment {} with {}: {}", payment.getId(), service.getProvider(),
+                    cause.getMessage());
+            return null;
+        }).thenCompose(ignored -> drain(service, queue, responses));
+    }
+
+    private int write(List<PendingConfirmation> page, Map<Long, PaymentResponse> responses) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<PendingConfirmation> updated = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        List<String> outcomes = new ArrayList<>();
+        for (PendingConfirmation payment : page) {
+            PaymentResponse response = responses.get(payment.getId());
+            if (response == null) {
+                continue;
+            }
+            if (!response.isSuccess()) {
+                rows.add(new Object[]{PaymentStatus.FAILED.name(), response.getMessage(), now, payment.getId()});
+                outcomes.add("failed");
+            } else if (response.getStatus() == null || response.getStatus() == PaymentStatus.COMPLETED) {
+                rows.add(new Object[]{PaymentStatus.COMPLETED.name(), null, now, payment.getId()});
+                outcomes.add("completed");
+            } else {
+                count("pending");
+                continue;
+            }
+            updated.add(payment);
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Integer written = transactionTemplate.execute(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS, rows);
+            AnalyticsRollupTracker rollupTracker = rollupTrackerProvider.getIfAvailable();
+            int changed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                // Zero when a concurrent confirmation got there first
+                if (counts[i] != 0) {
+                    changed++;
+                    count(outcomes.get(i));
+                    if (rollupTracker != null) {
+                        rollupTracker.markChanged(updated.get(i).getCreatedAt());
+                    }
+                }
+            }
+            return changed;
+        });
+        return written != null ? written : 0;
+    }
+
+    private void count(String outcome) {
+        Counter.builder(MetricsConfig.PAYMENT_CONFIRMATION_POLLED_COUNTER)
+                .description("Stale payments checked with their provider by the confirmation poller")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdownNow();
+    }
+}
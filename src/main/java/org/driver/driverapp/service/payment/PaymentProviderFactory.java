@@ -1,12 +1,15 @@
 package org.driver.driverapp.service.payment;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.dto.payment.response.PaymentProviderHealthDTO;
 import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -14,12 +17,21 @@ import java.util.stream.Collectors;
 public class PaymentProviderFactory {
 
     private final Map<PaymentProvider, PaymentProviderService> providerMap;
+    private final PaymentBulkheads paymentBulkheads;
+    private final PaymentCircuitBreakers paymentCircuitBreakers;
 
-    public PaymentProviderFactory(List<PaymentProviderService> paymentProviders) {
+    public PaymentProviderFactory(List<PaymentProviderService> paymentProviders, PaymentBulkheads paymentBulkheads,
+                                  PaymentCircuitBreakers paymentCircuitBreakers, MeterRegistry meterRegistry) {
+        this.paymentBulkheads = paymentBulkheads;
+        this.paymentCircuitBreakers = paymentCircuitBreakers;
         this.providerMap = paymentProviders.stream()
                 .collect(Collectors.toMap(
                         PaymentProviderService::getProvider,
-                        Function.identity()
+                        provider -> new GuardedPaymentProviderService(provider,
+                                paymentBulkheads.forProvider(provider.getProvider()),
+                                paymentCircuitBreakers.forProvider(provider.getProvider()),
+                                paymentCircuitBreakers.rejectedCounter(provider.getProvider()),
+                                meterRegistry)
                 ));
     }
 
@@ -38,4 +50,56 @@ public class PaymentProviderFactory {
     public boolean isProviderSupported(PaymentProvider provider) {
         return providerMap.containsKey(provider);
     }
+
+    /**
+     * Whether the provider is supported and its circuit currently lets calls through.
+     */
+    public boolean isAvailable(PaymentProvider provider) {
+        return providerMap.containsKey(provider) && paymentCircuitBreakers.forProvider(provider).isCallPermitted();
+    }
+
+    public List<PaymentProvider> getAvailableProviders() {
+        return providerMap.keySet().stream().filter(this::isAvailable).toList();
+    }
+
+    /**
+     * Picks the preferred provider, or the first of the fallbacks in order if the preferred one
+     * is failing, so payments steer away from a provider whose circuit is open.
+     */
+    public PaymentProvider selectProvider(PaymentProvider preferred, List<PaymentProvider> fallbacks) {
+        getProvider(preferred);
+        List<PaymentProvider> candidates = new ArrayList<>();
+        candidates.add(preferred);
+        if (fallbacks != null) {
+            candidates.addAll(fallbacks);
+        }
+        for (PaymentProvider candidate : candidates) {
+            if (isAvailable(candidate)) {
+                if (candidate != preferred) {
+                    log.warn("Payment provider {} is unavailable, falling back to {}", preferred, candidate);
+                }
+                return candidate;
+            }
+        }
+        throw new PaymentProviderUnavailableException(preferred, PaymentProviderUnavailableException.Reason.CIRCUIT_OPEN,
+                "No available payment provider among " + candidates);
+    }
+
+    public List<PaymentProviderHealthDTO> getProviderHealth() {
+        return providerMap.keySet().stream()
+                .sorted()
+                .map(provider -> {
+                    PaymentCircuitBreaker breaker = paymentCircuitBreakers.forProvider(provider);
+                    PaymentBulkhead bulkhead = paymentBulkheads.forProvider(provider);
+                    return PaymentProviderHealthDTO.builder()
+                            .provider(provider)
+                            .circuitState(breaker.getState().name())
+                            .failureRate(breaker.failureRate())
+                            .concurrencyLimit(bulkhead.getLimit())
+                            .inFlight(bulkhead.getInFlight())
+                            .available(breaker.isCallPermitted())
+                            .build();
+                })
+                .toList();
+    }
 }
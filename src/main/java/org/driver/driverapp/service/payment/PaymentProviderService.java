@@ -3,16 +3,21 @@ package org.driver.driverapp.service.payment;
 import org.driver.driverapp.enums.PaymentProvider;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * A payment provider's API. Calls are asynchronous: implementations must not block the calling
+ * thread while waiting for the provider.
+ */
 public interface PaymentProviderService {
     
     PaymentProvider getProvider();
     
-    PaymentResponse initiatePayment(PaymentRequest request);
+    CompletableFuture<PaymentResponse> initiatePayment(PaymentRequest request);
     
-    PaymentResponse confirmPayment(String transactionRef);
+    CompletableFuture<PaymentResponse> confirmPayment(String transactionRef);
     
-    PaymentResponse refundPayment(String transactionRef, BigDecimal amount);
+    CompletableFuture<PaymentResponse> refundPayment(String transactionRef, BigDecimal amount);
     
     boolean isSupported(PaymentProvider provider);
 }
@@ -0,0 +1,428 @@
+package org.driver.driverapp.service.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.payment.response.PaymentReconciliationMismatchDTO;
+import org.driver.driverapp.dto.payment.response.PaymentReconciliationResultDTO;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.enums.ReconciliationMismatchType;
+import org.driver.driverapp.model.PaymentReconciliationCheckpoint;
+import org.driver.driverapp.repository.PaymentReconciliationCheckpointRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reconciles a provider settlement file from the inbox directory against the payments table.
+ * The file is split into partitions of whole lines that are streamed in parallel. Each partition
+ * reads its records in batches, looks the batch's references up with one query and matches them
+ * in memory (a hash join), then marks the matched payments reconciled in one JDBC batch. The
+ * partition's checkpoint is committed in the same transaction, so a run that is interrupted
+ * resumes after the last reconciled batch when the same file is submitted again.
+ * <p>
+ * Records that do not match a payment of that provider with the same amount are published to
+ * {@link KafkaConfig#PAYMENT_RECONCILIATION_TOPIC} once their batch has committed. Each batch
+ * records its references in {@code payment_settlement_reference} with its checkpoint, so a
+ * reference repeated in another batch or partition, or before a resume, is reported as a
+ * duplicate without holding the file's references in memory. They are deleted once every
+ * partition of the file has completed.
+ */
+@Slf4j
+@Component
+public class PaymentReconciliationJob {
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String SELECT_PAYMENTS = "SELECT \"id\", \"transaction_ref\", \"amount\", \"provider\", " +
+            "\"status\", \"reconciled\" FROM \"payment\" WHERE \"active\" = TRUE AND \"transaction_ref\" IN (:refs)";
+    private static final String MARK_RECONCILED = "UPDATE \"payment\" SET \"reconciled\" = TRUE, " +
+            "\"reconciled_at\" = ?, \"version\" = \"version\" + 1 WHERE \"id\" = ? AND \"reconciled\" = FALSE";
+    private static final String SELECT_REFERENCES = "SELECT \"transaction_ref\" FROM \"payment_settlement_reference\" " +
+            "WHERE \"file_key\" = :fileKey AND \"transaction_ref\" IN (:refs)";
+    private static final String INSERT_REFERENCE = "INSERT INTO \"payment_settlement_reference\" " +
+            "(\"file_key\", \"transaction_ref\", \"file_offset\") VALUES (?, ?, ?)";
+    private static final String DELETE_REFERENCES = "DELETE FROM \"payment_settlement_reference\" WHERE \"file_key\" = ?";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentReconciliationCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService partitionPool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter reconciledCounter;
+    private final Map<ReconciliationMismatchType, Counter> mismatchCounters = new EnumMap<>(ReconciliationMismatchType.class);
+    private final Path inboxDir;
+    private final int partitions;
+    private final int batchSize;
+
+    public PaymentReconciliationJob(JdbcTemplate jdbcTemplate,
+                                    PaymentReconciliationCheckpointRepository checkpointRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payment.reconciliation.inbox-dir:settlements/inbox}") String inboxDir,
+                                    @Value("${payment.reconciliation.partitions:4}") int partitions,
+                                    @Value("${payment.reconciliation.parallelism:4}") int parallelism,
+                                    @Value("${payment.reconciliation.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.kafkaTemplateProvider = kafkaTemplateProvider;
+        this.objectMapper = objectMapper;
+        this.inboxDir = Paths.get(inboxDir).toAbsolutePath().normalize();
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partitionPool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciliation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reconciledCounter = Counter.builder(MetricsConfig.PAYMENT_RECONCILED_COUNTER)
+                .description("Payments marked reconciled from provider settlement files")
+                .register(meterRegistry);
+        for (ReconciliationMismatchType type : ReconciliationMismatchType.values()) {
+            mismatchCounters.put(type, Counter.builder(MetricsConfig.PAYMENT_RECONCILIATION_MISMATCH_COUNTER)
+                    .description("Settlement records that did not match a payment")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Starts a run in the background; the returned future completes with the run's totals.
+     */
+    public CompletableFuture<PaymentReconciliationResultDTO> start(PaymentProvider provider, String fileName) {
+        if (running.get()) {
+            throw new IllegalStateException("A payment reconciliation run is already running");
+        }
+        Path file = resolve(fileName);
+        return CompletableFuture.supplyAsync(() -> run(provider, file), runExecutor);
+    }
+
+    /**
+     * Reconciles {@code fileName} from the inbox directory, resuming any earlier run of the same
+     * file from its checkpoints.
+     */
+    public PaymentReconciliationResultDTO run(PaymentProvider provider, String fileName) {
+        return run(provider, resolve(fileName));
+    }
+
+    private PaymentReconciliationResultDTO run(PaymentProvider provider, Path file) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A payment reconciliation run is already running");
+        }
+        try {
+            SettlementFile settlementFile = SettlementFile.open(file, objectMapper);
+            String fileName = file.getFileName().toString();
+            // The size is part of the key, so a corrected file with the same name starts over
+            String fileKey = provider + ":" + fileName + ":" + settlementFile.size();
+
+            Map<Integer, PaymentReconciliationCheckpoint> checkpoints = checkpointRepository
+                    .findByFileKeyOrderByPartitionIndexAsc(fileKey).stream()
+                    .collect(Collectors.toMap(PaymentReconciliationCheckpoint::getPartitionIndex, Function.identity()));
+            // The split only depends on the file and the count, so a resumed run sees the same partitions
+            int partitionCount = checkpoints.isEmpty() ? partitions : checkpoints.values().iterator().next().getPartitionCount();
+            List<long[]> ranges = settlementFile.partitions(partitionCount);
+            log.info("Reconciling {} settlement file {} in {} partitions ({} resumed)",
+                    provider, fileName, ranges.size(), checkpoints.size());
+
+            List<CompletableFuture<Tally>> futures = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                PartitionRun partition = new PartitionRun(provider, fileName, fileKey, settlementFile,
+                        i, ranges.size(), ranges.get(i), checkpoints.get(i));
+                futures.add(CompletableFuture.supplyAsync(partition::reconcile, partitionPool));
+            }
+            Tally total = new Tally();
+            for (CompletableFuture<Tally> partition : futures) {
+                total.add(partition.join());
+            }
+            // Every partition got to its end, so no later run of this file reads the references again
+            int released = jdbcTemplate.update(DELETE_REFERENCES, fileKey);
+            log.debug("Released {} settlement references of {}", released, fileName);
+
+            log.info("Reconciled {} settlement file {}: {} records, {} reconciled, {} already reconciled, {} mismatches",
+                    provider, fileName, total.records, total.reconciled, total.alreadyReconciled, total.mismatches);
+            return PaymentReconciliationResultDTO.builder()
+                    .provider(provider)
+                    .fileName(fileName)
+                    .partitions(ranges.size())
+                    .resumedPartitions(checkpoints.size())
+                    .records(total.records)
+                    .reconciled(total.reconciled)
+                    .alreadyReconciled(total.alreadyReconciled)
+                    .mismatches(total.mismatches)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read settlement file " + file.getFileName(), e);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Path resolve(String fileName) {
+        Path file = inboxDir.resolve(fileName).normalize();
+        if (!file.getParent().equals(inboxDir) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("No settlement file named " + fileName + " in the inbox");
+        }
+        return file;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdown();
+        partitionPool.shutdownNow();
+    }
+
+    private final class PartitionRun {
+
+        private final PaymentProvider provider;
+        private final String fileName;
+        private final String fileKey;
+        private final SettlementFile file;
+        private final long[] range;
+        private final PaymentReconciliationCheckpoint checkpoint;
+
+        private PartitionRun(PaymentProvider provider, String fileName, String fileKey, SettlementFile file,
+                             int index, int count, long[] range, PaymentReconciliationCheckpoint checkpoint) {
+            this.provider = provider;
+            this.fileName = fileName;
+            this.fileKey = fileKey;
+            this.file = file;
+            this.range = range;
+            this.checkpoint = checkpoint != null ? checkpoint : PaymentReconciliationCheckpoint.builder()
+                    .fileKey(fileKey)
+                    .partitionIndex(index)
+                    .partitionCount(count)
+                    .nextOffset(range[0])
+                    .endOffset(range[1])
+                    .build();
+        }
+
+        private Tally reconcile() {
+            Tally tally = new Tally();
+            if (checkpoint.isCompleted()) {
+                return tally;
+            }
+            try (SettlementFile.RecordReader reader = file.reader(checkpoint.getNextOffset(), range[1])) {
+                List<SettlementFile.SettlementRecord> batch = new ArrayList<>(batchSize);
+                SettlementFile.SettlementRecord record;
+                while ((record = reader.next()) != null) {
+                    batch.add(record);
+                    if (batch.size() == batchSize) {
+                        reconcileBatch(batch, reader.position(), tally);
+                        batch.clear();
+                    }
+                }
+                reconcileBatch(batch, range[1], tally);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read settlement file " + fileName, e);
+            }
+            return tally;
+        }
+
+        private void reconcileBatch(List<SettlementFile.SettlementRecord> batch, long nextOffset, Tally tally) {
+            List<PaymentReconciliationMismatchDTO> mismatches = new ArrayList<>();
+            int[] counts = null;
+            while (counts == null) {
+                try {
+                    counts = transactionTemplate.execute(status -> {
+                        mismatches.clear();
+                        int[] result = match(batch, mismatches);
+                        checkpoint.setNextOffset(nextOffset);
+                        checkpoint.setUpdatedAt(Instant.now());
+                        checkpointRepository.save(checkpoint);
+                        return result;
+                    });
+                } catch (DuplicateKeyException e) {
+                    // Another partition recorded one of the references first; the retry sees it as a duplicate
+                    log.debug("Retrying settlement batch of {} at byte {} after a concurrent reference",
+                            fileName, checkpoint.getNextOffset());
+                }
+            }
+
+            tally.records += batch.size();
+            tally.reconciled += counts[0];
+            tally.alreadyReconciled += counts[1];
+            tally.mismatches += mismatches.size();
+            reconciledCounter.increment(counts[0]);
+            // Only reported once committed, so a retried batch does not report them twice
+            mismatches.forEach(this::publish);
+        }
+
+        // Returns {reconciled, already reconciled}; mismatches are collected into the given list
+        private int[] match(List<SettlementFile.SettlementRecord> batch, List<PaymentReconciliationMismatchDTO> mismatches) {
+            Set<String> refs = new HashSet<>();
+            for (SettlementFile.SettlementRecord record : batch) {
+                if (!record.isMalformed()) {
+                    refs.add(record.getTransactionRef());
+                }
+            }
+            Map<String, PaymentRow> payments = new HashMap<>();
+            // References recorded by earlier batches of the file, then by this one as it goes
+            Set<String> seen = new HashSet<>();
+            if (!refs.isEmpty()) {
+                namedParameterJdbcTemplate.query(SELECT_PAYMENTS, Map.of("refs", refs), rs -> {
+                    payments.put(rs.getString("transaction_ref"), new PaymentRow(rs.getLong("id"),
+                            rs.getBigDecimal("amount"), rs.getString("provider"), rs.getString("status"),
+                            rs.getBoolean("reconciled")));
+                });
+                seen.addAll(namedParameterJdbcTemplate.queryForList(SELECT_REFERENCES,
+                        Map.of("fileKey", fileKey, "refs", refs), String.class));
+            }
+
+            Timestamp reconciledAt = Timestamp.from(Instant.now());
+            List<Object[]> updates = new ArrayList<>();
+            List<Object[]> references = new ArrayList<>();
+            int alreadyReconciled = 0;
+            for (SettlementFile.SettlementRecord record : batch) {
+                PaymentRow payment = record.isMalformed() ? null : payments.get(record.getTransactionRef());
+                ReconciliationMismatchType type = null;
+                String detail = null;
+                if (record.isMalformed()) {
+                    type = ReconciliationMismatchType.MALFORMED_RECORD;
+                    detail = record.getError();
+                } else if (!seen.add(record.getTransactionRef())) {
+                    type = ReconciliationMismatchType.DUPLICATE_REFERENCE;
+                    detail = "Reference appears more than once in the file";
+                } else if (payment == null) {
+                    type = ReconciliationMismatchType.UNKNOWN_REFERENCE;
+                    detail = "No active payment with this reference";
+                } else if (!provider.name().equals(payment.provider)) {
+                    type = ReconciliationMismatchType.PROVIDER_MISMATCH;
+                    detail = "Payment was made through " + payment.provider;
+                } else if (payment.amount.compareTo(record.getAmount()) != 0) {
+                    type = ReconciliationMismatchType.AMOUNT_MISMATCH;
+                    detail = "Settled amount differs from the payment amount";
+                } else if (!PaymentStatus.COMPLETED.name().equals(payment.status)) {
+                    type = ReconciliationMismatchType.STATUS_MISMATCH;
+                    detail = "Payment is " + payment.status;
+                } else if (payment.reconciled) {
+                    alreadyReconciled++;
+                } else {
+                    updates.add(new Object[]{reconciledAt, payment.id});
+                }
+
+                if (!record.isMalformed() && type != ReconciliationMismatchType.DUPLICATE_REFERENCE) {
+                    references.add(new Object[]{fileKey, record.getTransactionRef(), record.getOffset()});
+                }
+                if (type != null) {
+                    mismatches.add(PaymentReconciliationMismatchDTO.builder()
+                            .provider(provider)
+                            .fileName(fileName)
+                            .fileOffset(record.getOffset())
+                            .type(type)
+                            .transactionRef(record.getTransactionRef())
+                            .paymentId(payment != null ? payment.id : null)
+                            .expectedAmount(payment != null ? payment.amount : null)
+                            .settledAmount(record.getAmount())
+                            .detail(detail)
+                            .build());
+                }
+            }
+
+            if (!references.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_REFERENCE, references);
+            }
+            int reconciled = 0;
+            if (!updates.isEmpty()) {
+                for (int updated : jdbcTemplate.batchUpdate(MARK_RECONCILED, updates)) {
+                    // Drivers may only report that the statement succeeded
+                    reconciled += updated < 0 ? 1 : updated;
+                }
+            }
+            return new int[]{reconciled, alreadyReconciled};
+        }
+
+        private void publish(PaymentReconciliationMismatchDTO mismatch) {
+            mismatchCounters.get(mismatch.getType()).increment();
+            log.warn("Settlement mismatch in {} at byte {}: {} {} - {}", mismatch.getFileName(), mismatch.getFileOffset(),
+                    mismatch.getType(), mismatch.getTransactionRef(), mismatch.getDetail());
+            KafkaTemplate<String, Object> kafkaTemplate = kafkaTemplateProvider.getIfAvailable();
+            if (kafkaTemplate == null) {
+                return;
+            }
+            String key = mismatch.getTransactionRef() != null ? mismatch.getTransactionRef() : mismatch.getFileName();
+            kafkaTemplate.send(KafkaConfig.PAYMENT_RECONCILIATION_TOPIC, key, mismatch)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("Failed to publish settlement mismatch for {}", key, ex);
+                        }
+                    });
+        }
+    }
+
+    private static final class PaymentRow {
+
+        private final long id;
+        private final BigDecimal amount;
+        private final String provider;
+        private final String status;
+        private final boolean reconciled;
+
+        private PaymentRow(long id, BigDecimal amount, String provider, String status, boolean reconciled) {
+            this.id = id;
+            this.amount = amount;
+            this.provider = provider;
+            this.status = status;
+            this.reconciled = reconciled;
+        }
+    }
+
+    private static final class Tally {
+
+        private long records;
+        private long reconciled;
+        private long alreadyReconciled;
+        private long mismatches;
+
+        private void add(Tally other) {
+            records += other.records;
+            reconciled += other.reconciled;
+            alreadyReconciled += other.alreadyReconciled;
+            mismatches += other.mismatches;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.driver.driverapp.service.payment;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,4 +22,7 @@ public class PaymentRequest {
     private String phoneNumber;
     private String description;
     private String metadata;
+    // Sent to HTTP providers as the Idempotency-Key header; a retried request with the same key is not paid again
+    @JsonIgnore
+    private String idempotencyKey;
 }
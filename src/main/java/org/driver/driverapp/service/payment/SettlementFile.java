@@ -0,0 +1,306 @@
+package org.driver.driverapp.service.payment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A provider settlement file, split into byte ranges of whole lines so that several threads can
+ * stream it at once, each in constant memory. CSV files start with a header naming their
+ * columns; JSON lines files hold one object per line. A record needs the transaction reference
+ * and the settled amount, a status is optional.
+ */
+final class SettlementFile {
+
+    enum Format { CSV, JSON_LINES }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Format format;
+    private final long size;
+    private final long dataStart;
+    private final ObjectMapper objectMapper;
+    // CSV column positions, -1 when absent
+    private final int referenceColumn;
+    private final int amountColumn;
+    private final int statusColumn;
+
+    private SettlementFile(Path path, Format format, long size, long dataStart, ObjectMapper objectMapper,
+                           int referenceColumn, int amountColumn, int statusColumn) {
+        this.path = path;
+        this.format = format;
+        this.size = size;
+        this.dataStart = dataStart;
+        this.objectMapper = objectMapper;
+        this.referenceColumn = referenceColumn;
+        this.amountColumn = amountColumn;
+        this.statusColumn = statusColumn;
+    }
+
+    static SettlementFile open(Path path, ObjectMapper objectMapper) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        long size = Files.size(path);
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return new SettlementFile(path, Format.JSON_LINES, size, 0, objectMapper, -1, -1, -1);
+        }
+        if (!name.endsWith(".csv")) {
+            throw new IllegalArgumentException("Unsupported settlement file type: " + path.getFileName());
+        }
+
+        try (LineReader reader = new LineReader(path, 0)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return new SettlementFile(path, Format.CSV, size, 0, objectMapper, -1, -1, -1);
+            }
+            List<String> columns = splitCsv(header).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT).replace("_", ""))
+                    .toList();
+            int referenceColumn = columns.indexOf("transactionref");
+            int amountColumn = columns.indexOf("amount");
+            if (referenceColumn < 0 || amountColumn < 0) {
+                throw new IllegalArgumentException("Settlement file " + path.getFileName()
+                        + " needs transaction_ref and amount columns, found " + columns);
+            }
+            return new SettlementFile(path, Format.CSV, size, reader.position(), objectMapper,
+                    referenceColumn, amountColumn, columns.indexOf("status"));
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Splits the records into at most {@code count} ranges {@code [start, end)} of about equal
+     * size. Every boundary is the start of a line, so each line belongs to exactly one range.
+     */
+    List<long[]> partitions(int count) throws IOException {
+        List<long[]> ranges = new ArrayList<>(count);
+        long start = dataStart;
+        for (int i = 1; i < count; i++) {
+            long boundary = lineStartAtOrAfter(dataStart + (size - dataStart) * i / count);
+            if (boundary > start && boundary < size) {
+                ranges.add(new long[]{start, boundary});
+                start = boundary;
+            }
+        }
+        ranges.add(new long[]{start, size});
+        return ranges;
+    }
+
+    /**
+     * Reads the records of the lines starting in {@code [from, end)}; {@code from} must be the
+     * start of a line.
+     */
+    RecordReader reader(long from, long end) throws IOException {
+        return new RecordReader(new LineReader(path, from), end);
+    }
+
+    private long lineStartAtOrAfter(long offset) throws IOException {
+        if (offset <= dataStart) {
+            return dataStart;
+        }
+        // Reading from the byte before lands right after it if that byte already ends a line
+        try (LineReader reader = new LineReader(path, offset - 1)) {
+            reader.readLine();
+            return reader.position();
+        }
+    }
+
+    private SettlementRecord parse(String line, long offset) {
+        String reference;
+        String amount;
+        String status;
+        if (format == Format.CSV) {
+            List<String> fields = splitCsv(line);
+            reference = field(fields, referenceColumn);
+            amount = field(fields, amountColumn);
+            status = field(fields, statusColumn);
+        } else {
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                reference = text(node.has("transactionRef") ? node.get("transactionRef") : node.get("transaction_ref"));
+                amount = text(node.get("amount"));
+                status = text(node.get("status"));
+            } catch (JsonProcessingException e) {
+                return SettlementRecord.malformed(offset, null, "Unreadable record: " + e.getOriginalMessage());
+            }
+        }
+
+        if (reference == null || reference.isBlank()) {
+            return SettlementRecord.malformed(offset, null, "Missing transaction reference");
+        }
+        reference = reference.trim();
+        if (amount == null || amount.isBlank()) {
+            return SettlementRecord.malformed(offset, reference, "Missing amount");
+        }
+        try {
+            return new SettlementRecord(offset, reference, new BigDecimal(amount.trim()),
+                    status != null ? status.trim() : null, null);
+        } catch (NumberFormatException e) {
+            return SettlementRecord.malformed(offset, reference, "Unreadable amount: " + amount);
+        }
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static final class SettlementRecord {
+
+        private final long offset;
+        private final String transactionRef;
+        private final BigDecimal amount;
+        private final String status;
+        private final String error;
+
+        static SettlementRecord malformed(long offset, String transactionRef, String error) {
+            return new SettlementRecord(offset, transactionRef, null, null, error);
+        }
+
+        boolean isMalformed() {
+            return error != null;
+        }
+    }
+
+    /**
+     * Records of one partition, in file order. {@link #position()} is the offset of the first
+     * line not yet returned, which is where a resumed read starts.
+     */
+    final class RecordReader implements Closeable {
+
+        private final LineReader lines;
+        private final long end;
+
+        private RecordReader(LineReader lines, long end) {
+            this.lines = lines;
+            this.end = end;
+        }
+
+        SettlementRecord next() throws IOException {
+            while (lines.position() < end) {
+                long offset = lines.position();
+                String line = lines.readLine();
+                if (line == null) {
+                    return null;
+                }
+                if (!line.isBlank()) {
+                    return parse(line, offset);
+                }
+            }
+            return null;
+        }
+
+        long position() {
+            return Math.min(lines.position(), end);
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+
+    // Reads UTF-8 lines while tracking the byte offset, which a Reader cannot do
+    private static final class LineReader implements Closeable {
+
+        private final FileChannel channel;
+        private final InputStream in;
+        private long position;
+        private byte[] buffer = new byte[256];
+
+        private LineReader(Path path, long from) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.channel.position(from);
+            this.in = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+            this.position = from;
+        }
+
+        private String readLine() throws IOException {
+            int length = 0;
+            int b;
+            boolean read = false;
+            while ((b = in.read()) != -1) {
+                read = true;
+                position++;
+                if (b == '\n') {
+                    break;
+                }
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = (byte) b;
+            }
+            if (!read) {
+                return null;
+            }
+            if (length > 0 && buffer[length - 1] == '\r') {
+                length--;
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private long position() {
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+            channel.close();
+        }
+    }
+}
@@ -7,34 +7,39 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 public class TeleBirrPaymentService implements PaymentProviderService {
 
+    // Simulated TeleBirr API latency; no thread waits while a call is "in flight"
+    private static final Executor INITIATE_LATENCY = CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS);
+    private static final Executor CONFIRM_LATENCY = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+    private static final Executor REFUND_LATENCY = CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS);
+
     @Override
     public PaymentProvider getProvider() {
         return PaymentProvider.TELEBIRR;
     }
 
     @Override
-    public PaymentResponse initiatePayment(PaymentRequest request) {
+    public CompletableFuture<PaymentResponse> initiatePayment(PaymentRequest request) {
         log.info("Initiating TeleBirr payment for amount: {} ETB", request.getAmount());
-        
+
         // Simulate API call to TeleBirr
-        try {
-            // Simulate processing time
-            Thread.sleep(100);
-            
+        return CompletableFuture.supplyAsync(() -> {
             String transactionRef = "TEL_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
-            
+
             return PaymentResponse.builder()
                     .success(true)
                     .transactionRef(transactionRef)
                     .status(PaymentStatus.PROCESSING)
                     .message("Payment initiated successfully")
                     .build();
-        } catch (Exception e) {
+        }, INITIATE_LATENCY).exceptionally(e -> {
             log.error("TeleBirr payment initiation failed", e);
             return PaymentResponse.builder()
                     .success(false)
@@ -42,20 +47,18 @@ public class TeleBirrPaymentService implements PaymentProviderService {
                     .message("Payment initiation failed")
                     .errorCode("TEL_001")
                     .build();
-        }
+        });
     }
 
     @Override
-    public PaymentResponse confirmPayment(String transactionRef) {
+    public CompletableFuture<PaymentResponse> confirmPayment(String transactionRef) {
         log.info("Confirming TeleBirr payment: {}", transactionRef);
-        
+
         // Simulate payment confirmation
-        try {
-            Thread.sleep(50);
-            
+        return CompletableFuture.supplyAsync(() -> {
             // Simulate 95% success rate
             boolean success = Math.random() > 0.05;
-            
+
             if (success) {
                 return PaymentResponse.builder()
                         .success(true)
@@ -72,7 +75,7 @@ public class TeleBirrPaymentService implements PaymentProviderService {
                         .errorCode("TEL_002")
                         .build();
             }
-        } catch (Exception e) {
+        }, CONFIRM_LATENCY).exceptionally(e -> {
             log.error("TeleBirr payment confirmation failed", e);
             return PaymentResponse.builder()
                     .success(false)
@@ -80,23 +83,19 @@ public class TeleBirrPaymentService implements PaymentProviderService {
                     .message("Payment confirmation failed")
                     .errorCode("TEL_003")
                     .build();
-        }
+        });
     }
 
     @Override
-    public PaymentResponse refundPayment(String transactionRef, BigDecimal amount) {
+    public CompletableFuture<PaymentResponse> refundPayment(String transactionRef, BigDecimal amount) {
         log.info("Processing TeleBirr refund: {} for amount: {}", transactionRef, amount);
-        
-        try {
-            Thread.sleep(100);
-            
-            return PaymentResponse.builder()
-                    .success(true)
-                    .transactionRef("REF_" + transactionRef)
-                    .status(PaymentStatus.COMPLETED)
-                    .message("Refund processed successfully")
-                    .build();
-        } catch (Exception e) {
+
+        return CompletableFuture.supplyAsync(() -> PaymentResponse.builder()
+                .success(true)
+                .transactionRef("REF_" + transactionRef)
+                .status(PaymentStatus.COMPLETED)
+                .message("Refund processed successfully")
+                .build(), REFUND_LATENCY).exceptionally(e -> {
             log.error("TeleBirr refund failed", e);
             return PaymentResponse.builder()
                     .success(false)
@@ -104,7 +103,7 @@ public class TeleBirrPaymentService implements PaymentProviderService {
                     .message("Refund failed")
                     .errorCode("TEL_004")
                     .build();
-        }
+        });
     }
 
     @Override
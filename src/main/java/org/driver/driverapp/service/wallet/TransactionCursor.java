@@ -0,0 +1,37 @@
+package org.driver.driverapp.service.wallet;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a transaction history ordered by creation time and id: the (createdAt, id) of the
+ * last transaction a page returned. Clients get it as an opaque URL-safe string.
+ */
+@Getter
+@AllArgsConstructor
+public final class TransactionCursor {
+
+    private final Instant createdAt;
+    private final Long id;
+
+    public String encode() {
+        String position = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            return new TransactionCursor(Instant.parse(position.substring(0, separator)),
+                    Long.valueOf(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid transaction cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.driver.driverapp.service.wallet;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.model.WalletAggregate;
+import org.driver.driverapp.repository.WalletAggregateRepository;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletShardRepository;
+import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running wallet totals per owner type, so treasury totals are read from a few
+ * {@link WalletAggregate} rows instead of summing the wallet and transaction tables. Every
+ * credit and debit adds to the totals in its own transaction. An owner type's totals are
+ * spread over slots, picked from the wallet (or wallet shard) id, so concurrent writers rarely
+ * wait on the same row; within a transaction slots are updated in a fixed order.
+ */
+@Slf4j
+@Service
+public class WalletAggregateService {
+
+    private final WalletAggregateRepository walletAggregateRepository;
+    private final WalletRepository walletRepository;
+    private final WalletShardRepository walletShardRepository;
+    private final WalletTransactionRepository walletTransactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+
+    public WalletAggregateService(WalletAggregateRepository walletAggregateRepository,
+                                  WalletRepository walletRepository,
+                                  WalletShardRepository walletShardRepository,
+                                  WalletTransactionRepository walletTransactionRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${wallet.aggregates.slots:16}") int slots) {
+        this.walletAggregateRepository = walletAggregateRepository;
+        this.walletRepository = walletRepository;
+        this.walletShardRepository = walletShardRepository;
+        this.walletTransactionRepository = walletTransactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.slots = slots;
+    }
+
+    /**
+     * Builds the totals from the wallet and transaction tables unless every slot is already
+     * there, e.g. on first start or after the slot count changed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (walletAggregateRepository.count() != (long) slots * WalletOwnerType.values().length) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Replaces the totals with sums over the wallet and transaction tables. Credits and debits
+     * committed while it runs may be missed, so it is meant for startup.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<WalletOwnerType, WalletAggregate> totals = new EnumMap<>(WalletOwnerType.class);
+            Instant now = Instant.now();
+            for (WalletOwnerType ownerType : WalletOwnerType.values()) {
+                totals.put(ownerType, aggregate(ownerType, 0, now));
+            }
+            for (Object[] row : walletRepository.sumUnshardedBalanceGroupedByOwnerType()) {
+                WalletAggregate total = totals.get((WalletOwnerType) row[0]);
+                total.setBalance(total.getBalance().add((BigDecimal) row[1]));
+            }
+            for (Object[] row : walletShardRepository.sumBalanceGroupedByOwnerType()) {
+                WalletAggregate total = totals.get((WalletOwnerType) row[0]);
+                total.setBalance(total.getBalance().add((BigDecimal) row[1]));
+            }
+            for (Object[] row : walletTransactionRepository.sumAmountGroupedByOwnerTypeAndTransactionType()) {
+                WalletAggregate total = totals.get((WalletOwnerType) row[0]);
+                if (row[1] == TransactionType.CREDIT) {
+                    total.setCredits(total.getCredits().add((BigDecimal) row[2]));
+                } else if (row[1] == TransactionType.DEBIT) {
+                    total.setDebits(total.getDebits().add((BigDecimal) row[2]));
+                }
+            }
+
+            // Slot 0 carries the totals, the other slots start empty
+            List<WalletAggregate> rows = new ArrayList<>(totals.values());
+            for (WalletOwnerType ownerType : WalletOwnerType.values()) {
+                for (int slot = 1; slot < slots; slot++) {
+                    rows.add(aggregate(ownerType, slot, now));
+                }
+            }
+            walletAggregateRepository.deleteAllInBatch();
+            walletAggregateRepository.saveAll(rows);
+            log.info("Rebuilt wallet aggregates over {} slots", slots);
+        });
+    }
+
+    /**
+     * Adds a credit or debit to the totals. Runs in the caller's transaction; {@code stripe}
+     * picks the slot, so writers of different wallets or wallet shards spread out.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(WalletOwnerType ownerType, long stripe, TransactionType type, BigDecimal amount) {
+        apply(List.of(new Change(ownerType, stripe, type, amount)));
+    }
+
+    /**
+     * Adds a set of credits and debits to the totals, merged per slot, in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Collection<Change> changes) {
+        // Slots are updated in one order everywhere, so two transactions cannot wait on each other
+        Map<SlotKey, WalletAggregate> deltas = new TreeMap<>(Comparator.comparing(SlotKey::getOwnerType)
+                .thenComparingInt(SlotKey::getSlot));
+        Instant now = Instant.now();
+        for (Change change : changes) {
+            SlotKey key = new SlotKey(change.ownerType, (int) Math.floorMod(change.stripe, (long) slots));
+            WalletAggregate delta = deltas.computeIfAbsent(key, k -> aggregate(k.ownerType, k.slot, now));
+            if (change.type == TransactionType.CREDIT) {
+                delta.setBalance(delta.getBalance().add(change.amount));
+                delta.setCredits(delta.getCredits().add(change.amount));
+            } else {
+                delta.setBalance(delta.getBalance().subtract(change.amount));
+                delta.setDebits(delta.getDebits().add(change.amount));
+            }
+        }
+
+        List<WalletAggregate> created = new ArrayList<>();
+        deltas.values().forEach(delta -> {
+            int updated = walletAggregateRepository.increment(delta.getOwnerType(), delta.getSlot(),
+                    delta.getBalance(), delta.getCredits(), delta.getDebits(), now);
+            if (updated == 0) {
+                created.add(delta);
+            }
+        });
+        walletAggregateRepository.saveAll(created);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalBalance() {
+        return walletAggregateRepository.sumBalance();
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalBalance(WalletOwnerType ownerType) {
+        return walletAggregateRepository.sumBalanceByOwnerType(ownerType);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalCredits() {
+        return walletAggregateRepository.sumCredits();
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalDebits() {
+        return walletAggregateRepository.sumDebits();
+    }
+
+    private static WalletAggregate aggregate(WalletOwnerType ownerType, int slot, Instant now) {
+        return WalletAggregate.builder()
+                .ownerType(ownerType)
+                .slot(slot)
+                .balance(BigDecimal.ZERO)
+                .credits(BigDecimal.ZERO)
+                .debits(BigDecimal.ZERO)
+                .updatedAt(now)
+                .build();
+    }
+
+    /**
+     * A credit or debit of a wallet of {@code ownerType}; {@code stripe} is the wallet's id, or
+     * its id plus the shard index for a wallet shard.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Change {
+        private final WalletOwnerType ownerType;
+        private final long stripe;
+        private final TransactionType type;
+        private final BigDecimal amount;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class SlotKey {
+        private final WalletOwnerType ownerType;
+        private final int slot;
+    }
+}
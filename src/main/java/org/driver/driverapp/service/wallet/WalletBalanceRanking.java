@@ -0,0 +1,162 @@
+package org.driver.driverapp.service.wallet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletRepository.WalletBalance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * In-memory ranking of the wallets with the highest balances, so the top wallets and the
+ * wallets above a high threshold are answered without reading the wallet table. It holds up to
+ * {@code capacity} wallets, loaded from the balance index at startup and updated after every
+ * credit or debit this instance commits.
+ *
+ * <p>Every wallet it does not hold has a balance of at most {@code floor}. Held wallets above
+ * the floor are therefore ranked exactly; once a read would reach below the floor, because held
+ * wallets were debited, the ranking is reloaded first. It is also reloaded periodically, to pick
+ * up writes of other instances and sharded wallets' synced balances.
+ */
+@Slf4j
+@Component
+public class WalletBalanceRanking {
+
+    private static final Comparator<Ranked> ORDER = Comparator.comparing((Ranked ranked) -> ranked.balance)
+            .reversed()
+            .thenComparing(ranked -> ranked.walletId);
+
+    private final WalletRepository walletRepository;
+    private final int topSize;
+    private final int capacity;
+    private final TreeSet<Ranked> ranking = new TreeSet<>(ORDER);
+    private final Map<Long, Ranked> byWallet = new HashMap<>();
+    // Highest balance a wallet outside the ranking can have; null while the ranking holds every wallet
+    private BigDecimal floor;
+    private boolean loaded;
+
+    public WalletBalanceRanking(WalletRepository walletRepository,
+                                @Value("${wallet.ranking.top-size:50}") int topSize) {
+        this.walletRepository = walletRepository;
+        this.topSize = topSize;
+        // Room beyond the top wallets, so debits of a few of them do not force a reload
+        this.capacity = topSize * 2;
+    }
+
+    public int getTopSize() {
+        return topSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${wallet.ranking.refresh-interval-ms:60000}",
+            initialDelayString = "${wallet.ranking.refresh-interval-ms:60000}")
+    public void reload() {
+        List<WalletBalance> top = walletRepository.findTopBalances(PageRequest.of(0, capacity + 1));
+        synchronized (this) {
+            ranking.clear();
+            byWallet.clear();
+            top.stream().limit(capacity).forEach(wallet -> add(new Ranked(wallet.getId(), wallet.getBalance())));
+            floor = top.size() > capacity ? top.get(capacity).getBalance() : null;
+            loaded = true;
+        }
+        log.debug("Reloaded the wallet balance ranking with {} wallets", top.size());
+    }
+
+    /**
+     * Records a wallet's committed balance.
+     */
+    public synchronized void update(Long walletId, BigDecimal balance) {
+        if (!loaded) {
+            return;
+        }
+        Ranked current = byWallet.get(walletId);
+        if (current != null) {
+            ranking.remove(current);
+            add(new Ranked(walletId, balance));
+        } else if (ranking.size() < capacity && floor == null) {
+            add(new Ranked(walletId, balance));
+        } else if (ranking.isEmpty() || balance.compareTo(ranking.last().balance) > 0) {
+            add(new Ranked(walletId, balance));
+        } else {
+            raiseFloor(balance);
+        }
+        while (ranking.size() > capacity) {
+            Ranked evicted = ranking.pollLast();
+            byWallet.remove(evicted.walletId);
+            raiseFloor(evicted.balance);
+        }
+    }
+
+    /**
+     * Ids of the {@code limit} wallets with the highest balances, highest first.
+     */
+    public List<Long> top(int limit) {
+        synchronized (this) {
+            if (loaded && exactDownTo(limit)) {
+                return ranking.stream().limit(limit).map(ranked -> ranked.walletId).toList();
+            }
+        }
+        reload();
+        synchronized (this) {
+            return ranking.stream().limit(limit).map(ranked -> ranked.walletId).toList();
+        }
+    }
+
+    /**
+     * Ids of the wallets with a balance above {@code threshold}, highest first, when the ranking
+     * holds all of them; empty when the threshold is too low for the ranking to answer.
+     */
+    public synchronized Optional<List<Long>> above(BigDecimal threshold) {
+        if (!loaded || floor != null && threshold.compareTo(floor) < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(ranking.stream()
+                .takeWhile(ranked -> ranked.balance.compareTo(threshold) > 0)
+                .map(ranked -> ranked.walletId)
+                .toList());
+    }
+
+    // True when the first count held wallets are known to outrank every wallet that is not held
+    private boolean exactDownTo(int count) {
+        if (floor == null) {
+            return true;
+        }
+        if (count == 0 || ranking.size() < count) {
+            return false;
+        }
+        Ranked last = ranking.stream().skip(count - 1L).findFirst().orElseThrow();
+        return last.balance.compareTo(floor) >= 0;
+    }
+
+    private void add(Ranked ranked) {
+        ranking.add(ranked);
+        byWallet.put(ranked.walletId, ranked);
+    }
+
+    private void raiseFloor(BigDecimal balance) {
+        if (floor == null || balance.compareTo(floor) > 0) {
+            floor = balance;
+        }
+    }
+
+    private static final class Ranked {
+        private final Long walletId;
+        private final BigDecimal balance;
+
+        private Ranked(Long walletId, BigDecimal balance) {
+            this.walletId = walletId;
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package org.driver.driverapp.service.wallet;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.exception.ResourceNotFoundException;
+import org.driver.driverapp.exception.WalletOperationNotAppliedException;
+import org.driver.driverapp.model.Wallet;
+import org.driver.driverapp.model.WalletShard;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletShardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Balance ledger for hot wallets, whose balance is split into shards so that concurrent
+ * credits and debits do not all serialize on one row. Each shard index has a writer thread
+ * that applies the operations queued for it in batches: one transaction per batch, one JDBC
+ * batch of in-place shard updates and one of transaction rows, so the row lock of a shard is
+ * taken once per batch rather than once per operation. The batch adds its amounts to the
+ * {@link WalletAggregateService} totals in the same transaction. Operations are striped across
+ * the wallet's shards round robin.
+ *
+ * <p>A debit larger than its shard's balance borrows from the other shards: it then runs in
+ * its own transaction that locks all the wallet's shards. Every transaction takes its locks in
+ * (wallet, shard) order, and aggregate slots after that, so writers cannot deadlock each
+ * other. The wallet's balance is the sum of its shards; the wallet row's balance column is
+ * brought up to date periodically for listings.
+ *
+ * <p>The writer threads start once the bean is initialized and stop when it is destroyed.
+ */
+@Slf4j
+@Component
+public class WalletShardLedger {
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String ADD_TO_SHARD = "UPDATE \"wallet_shard\" SET \"balance\" = \"balance\" + ?, " +
+            "\"updated_at\" = ? WHERE \"wallet_id\" = ? AND \"shard_index\" = ? AND \"balance\" + ? >= 0";
+    private static final String SELECT_SHARD_BALANCES = "SELECT \"wallet_id\", \"balance\" FROM \"wallet_shard\" " +
+            "WHERE \"shard_index\" = :shardIndex AND \"wallet_id\" IN (:walletIds)";
+    private static final String LOCK_WALLET_SHARDS = "SELECT \"shard_index\", \"balance\" FROM \"wallet_shard\" " +
+            "WHERE \"wallet_id\" = ? ORDER BY \"shard_index\" FOR UPDATE";
+    private static final String SET_SHARD = "UPDATE \"wallet_shard\" SET \"balance\" = ?, \"updated_at\" = ? " +
+            "WHERE \"wallet_id\" = ? AND \"shard_index\" = ?";
+    static final String INSERT_TRANSACTION = "INSERT INTO \"wallet_transaction\" (\"wallet_id\", " +
+            "\"transaction_type\", \"amount\", \"balance_before\", \"balance_after\", \"reference\", \"description\", " +
+            "\"metadata\", \"shard_index\", \"active\", \"version\", \"created_at\", \"updated_at\") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, 0, ?, ?)";
+    private static final String SYNC_WALLET_BALANCES = "UPDATE \"wallet\" SET \"balance\" = (SELECT " +
+            "COALESCE(SUM(s.\"balance\"), 0) FROM \"wallet_shard\" s WHERE s.\"wallet_id\" = \"wallet\".\"id\"), " +
+            "\"version\" = \"version\" + 1 WHERE \"shard_count\" > 0 AND \"balance\" <> (SELECT " +
+            "COALESCE(SUM(s.\"balance\"), 0) FROM \"wallet_shard\" s WHERE s.\"wallet_id\" = \"wallet\".\"id\")";
+
+    private final WalletRepository walletRepository;
+    private final WalletShardRepository walletShardRepository;
+    private final WalletAggregateService walletAggregateService;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<BlockingQueue<Operation>> queues;
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicInteger stripe = new AtomicInteger();
+    private final DistributionSummary batchSizeSummary;
+    private final Counter borrowCounter;
+    private final int batchSize;
+    private final long operationTimeoutMs;
+    private volatile boolean stopped;
+
+    public WalletShardLedger(WalletRepository walletRepository,
+                             WalletShardRepository walletShardRepository,
+                             WalletAggregateService walletAggregateService,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${wallet.shards.max-shards:8}") int maxShards,
+                             @Value("${wallet.shards.batch-size:200}") int batchSize,
+                             @Value("${wallet.shards.operation-timeout-ms:10000}") long operationTimeoutMs) {
+        this.walletRepository = walletRepository;
+        this.walletShardRepository = walletShardRepository;
+        this.walletAggregateService = walletAggregateService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.operationTimeoutMs = operationTimeoutMs;
+        this.batchSizeSummary = DistributionSummary.builder(MetricsConfig.WALLET_SHARD_BATCH_SIZE_SUMMARY)
+                .description("Wallet operations applied per shard batch")
+                .register(meterRegistry);
+        this.borrowCounter = Counter.builder(MetricsConfig.WALLET_SHARD_BORROW_COUNTER)
+                .description("Debits that borrowed across the shards of a wallet")
+                .register(meterRegistry);
+        this.queues = IntStream.range(0, maxShards)
+                .<BlockingQueue<Operation>>mapToObj(i -> new LinkedBlockingQueue<>())
+                .toList();
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!writers.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < queues.size(); i++) {
+            int shardIndex = i;
+            Thread writer = new Thread(() -> write(shardIndex), "wallet-shard-writer-" + shardIndex);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    public int getMaxShards() {
+        return queues.size();
+    }
+
+    /**
+     * Splits the wallet's balance into {@code shardCount} shards; the current balance goes to
+     * the first shard.
+     */
+    public Wallet enableSharding(Long walletId, int shardCount) {
+        if (shardCount < 2 || shardCount > getMaxShards()) {
+            throw new IllegalArgumentException("Shard count must be between 2 and " + getMaxShards());
+        }
+        return transactionTemplate.execute(status -> {
+            Wallet wallet = walletRepository.findById(walletId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Wallet not found with id: " + walletId));
+            if (wallet.isSharded()) {
+                throw new IllegalStateException("Wallet " + walletId + " is already sharded");
+            }
+            Instant now = Instant.now();
+            walletShardRepository.saveAll(IntStream.range(0, shardCount)
+                    .mapToObj(shardIndex -> WalletShard.builder()
+                            .walletId(walletId)
+                            .shardIndex(shardIndex)
+                            .balance(shardIndex == 0 ? wallet.getBalance() : BigDecimal.ZERO)
+                            .updatedAt(now)
+                            .build())
+                    .toList());
+            wallet.setShardCount(shardCount);
+            // Saved through the entity, so the version check fails a concurrent unsharded write
+            return walletRepository.save(wallet);
+        });
+    }
+
+    /**
+     * Queues a credit or debit of a sharded wallet. The future completes once the batch that
+     * applied it has committed, or fails with a {@link WalletOperationNotAppliedException} if a
+     * debit exceeds the wallet's balance.
+     */
+    public CompletableFuture<Entry> submit(Wallet wallet, TransactionType type, BigDecimal amount,
+                                           String reference, String description, String metadata) {
+        return enqueue(wallet, type, amount, reference, description, metadata).result;
+    }
+
+    /**
+     * Queues a credit or debit of a sharded wallet and waits for it. An operation still queued
+     * after the configured operation timeout is withdrawn and fails with a
+     * {@link WalletOperationNotAppliedException}; one a writer has already taken is waited for
+     * until its batch commits or rolls back, so a failure never hides a change that commits later.
+     */
+    public Entry apply(Wallet wallet, TransactionType type, BigDecimal amount,
+                       String reference, String description, String metadata) {
+        Operation operation = enqueue(wallet, type, amount, reference, description, metadata);
+        try {
+            return operation.result.get(operationTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        } catch (TimeoutException e) {
+            if (operation.claim()) {
+                throw new WalletOperationNotAppliedException("Wallet " + wallet.getId() + " " + type +
+                        " was not applied within " + operationTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (operation.claim()) {
+                throw new WalletOperationNotAppliedException("Interrupted waiting for wallet " + wallet.getId() +
+                        " " + type);
+            }
+        }
+        // A writer holds the operation and completes it either way; join does not give up on interrupts
+        try {
+            return operation.result.join();
+        } catch (CompletionException e) {
+            throw failure(e.getCause());
+        }
+    }
+
+    /**
+     * The wallet's balance: the sum of its shards, read in one statement.
+     */
+    public BigDecimal balance(Long walletId) {
+        return walletShardRepository.sumBalanceByWalletId(walletId);
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.shards.sync-interval-ms:5000}")
+    public void syncWalletBalances() {
+        int updated = jdbcTemplate.update(SYNC_WALLET_BALANCES);
+        if (updated > 0) {
+            log.debug("Synced the balance column of {} sharded wallets", updated);
+        }
+    }
+
+    private static RuntimeException failure(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    private Operation enqueue(Wallet wallet, TransactionType type, BigDecimal amount,
+                              String reference, String description, String metadata) {
+        if (!wallet.isSharded()) {
+            throw new IllegalArgumentException("Wallet " + wallet.getId() + " is not sharded");
+        }
+        int shardIndex = Math.floorMod(stripe.getAndIncrement(), Math.min(wallet.getShardCount(), getMaxShards()));
+        Operation operation = new Operation(wallet.getId(), wallet.getOwnerType(), shardIndex, type, amount,
+                reference, description, metadata, new CompletableFuture<>());
+        if (stopped) {
+            operation.result.completeExceptionally(new WalletOperationNotAppliedException(
+                    "Wallet shard ledger is shut down"));
+        } else {
+            queues.get(shardIndex).add(operation);
+        }
+        return operation;
+    }
+
+    private void write(int shardIndex) {
+        BlockingQueue<Operation> queue = queues.get(shardIndex);
+        List<Operation> batch = new ArrayList<>(batchSize);
+        while (!stopped) {
+            try {
+                Operation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Whatever queued up while the previous batch committed goes into this one
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                // Operations whose caller stopped waiting for them are dropped unapplied
+                batch.removeIf(operation -> !operation.claim());
+                if (!batch.isEmpty()) {
+                    applyBatch(shardIndex, batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Wallet shard {} batch of {} operations failed", shardIndex, batch.size(), e);
+                batch.forEach(operation -> operation.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        List<Operation> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(operation -> operation.result.completeExceptionally(
+                new WalletOperationNotAppliedException("Wallet shard ledger is shut down")));
+    }
+
+    private void applyBatch(int shardIndex, List<Operation> batch) {
+        // Stable sort: locks are taken in wallet order, each wallet's operations stay in arrival order
+        List<Operation> ordered = batch.stream().sorted(Comparator.comparing(Operation::getWalletId)).toList();
+        List<Operation> applied = new ArrayList<>(ordered.size());
+        List<Operation> overdrawn = new ArrayList<>();
+        List<Operation> missing = new ArrayList<>();
+        Map<Operation, Entry> entries = transactionTemplate.execute(status -> {
+            applied.clear();
+            overdrawn.clear();
+            missing.clear();
+            Timestamp now = Timestamp.from(Instant.now());
+            int[] counts = jdbcTemplate.batchUpdate(ADD_TO_SHARD, ordered.stream()
+                    .map(operation -> new Object[]{operation.delta(), now, operation.walletId, shardIndex,
+                            operation.delta()})
+                    .toList());
+            // Only a debit can fail the balance check; a credit that updated nothing has no shard row
+            for (int i = 0; i < counts.length; i++) {
+                Operation operation = ordered.get(i);
+                if (counts[i] != 0) {
+                    applied.add(operation);
+                } else if (operation.type == TransactionType.DEBIT) {
+                    overdrawn.add(operation);
+                } else {
+                    missing.add(operation);
+                }
+            }
+            return applied.isEmpty() ? Map.of() : record(shardIndex, applied, now);
+        });
+        batchSizeSummary.record(batch.size());
+        applied.forEach(operation -> operation.result.complete(entries.get(operation)));
+        missing.forEach(operation -> operation.result.completeExceptionally(new WalletOperationNotAppliedException(
+                "Shard " + shardIndex + " of wallet " + operation.walletId + " does not exist")));
+        overdrawn.forEach(this::borrow);
+    }
+
+    // Inserts the transaction rows of applied operations, with the shard balances they moved between
+    private Map<Operation, Entry> record(int shardIndex, List<Operation> applied, Timestamp now) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_SHARD_BALANCES, Map.of("shardIndex", shardIndex,
+                "walletIds", applied.stream().map(Operation::getWalletId).distinct().toList()), rs -> {
+            balances.put(rs.getLong("wallet_id"), rs.getBigDecimal("balance"));
+        });
+
+        // The final balances are known, so walk back to get each operation's before and after
+        Map<Operation, Entry> entries = new HashMap<>();
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            Operation operation = applied.get(i);
+            BigDecimal after = balances.get(operation.walletId);
+            BigDecimal before = after.subtract(operation.delta());
+            balances.put(operation.walletId, before);
+            entries.put(operation, new Entry(shardIndex, before, after));
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, applied.stream()
+                .map(operation -> transactionRow(operation, entries.get(operation), now))
+                .toList());
+        walletAggregateService.apply(applied.stream()
+                .map(operation -> new WalletAggregateService.Change(operation.ownerType,
+                        operation.walletId + shardIndex, operation.type, operation.amount))
+                .toList());
+        return entries;
+    }
+
+    // A debit its shard cannot cover, taken from the wallet's shards in index order
+    private void borrow(Operation operation) {
+        try {
+            Entry entry = transactionTemplate.execute(status -> {
+                List<BigDecimal> shards = jdbcTemplate.query(LOCK_WALLET_SHARDS,
+                        (rs, rowNum) -> rs.getBigDecimal("balance"), operation.walletId);
+                BigDecimal total = shards.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+                if (total.compareTo(operation.amount) < 0) {
+                    throw new WalletOperationNotAppliedException("Insufficient balance. Available: " + total +
+                            ", Required: " + operation.amount);
+                }
+
+                Timestamp now = Timestamp.from(Instant.now());
+                BigDecimal remaining = operation.amount;
+                List<Object[]> updates = new ArrayList<>();
+                for (int shardIndex = 0; shardIndex < shards.size() && remaining.signum() > 0; shardIndex++) {
+                    BigDecimal taken = remaining.min(shards.get(shardIndex));
+                    if (taken.signum() > 0) {
+                        updates.add(new Object[]{shards.get(shardIndex).subtract(taken), now, operation.walletId,
+                                shardIndex});
+                        remaining = remaining.subtract(taken);
+                    }
+                }
+                jdbcTemplate.batchUpdate(SET_SHARD, updates);
+                // All shards are locked, so the wallet's own balance before and after is exact
+                Entry walletEntry = new Entry(null, total, total.subtract(operation.amount));
+                jdbcTemplate.update(INSERT_TRANSACTION, transactionRow(operation, walletEntry, now));
+                walletAggregateService.record(operation.ownerType, operation.walletId, operation.type,
+                        operation.amount);
+                return walletEntry;
+            });
+            borrowCounter.increment();
+            operation.result.complete(entry);
+        } catch (RuntimeException e) {
+            operation.result.completeExceptionally(e);
+        }
+    }
+
+    private static Object[] transactionRow(Operation operation, Entry entry, Timestamp now) {
+        return new Object[]{operation.walletId, operation.type.name(), operation.amount, entry.balanceBefore,
+                entry.balanceAfter, operation.reference, operation.description, operation.metadata,
+                entry.shardIndex, now, now};
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        writers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Where an operation was applied: a shard and that shard's balances, or, when
+     * {@code shardIndex} is null, the whole wallet and its balances.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Entry {
+        private final Integer shardIndex;
+        private final BigDecimal balanceBefore;
+        private final BigDecimal balanceAfter;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Operation {
+        private final Long walletId;
+        private final WalletOwnerType ownerType;
+        private final int shardIndex;
+        private final TransactionType type;
+        private final BigDecimal amount;
+        private final String reference;
+        private final String description;
+        private final String metadata;
+        private final CompletableFuture<Entry> result;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        // Taken by the writer before applying the operation, or by a caller that gave up waiting
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private BigDecimal delta() {
+            return type == TransactionType.DEBIT ? amount.negate() : amount;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.driver.driverapp.service.wallet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.exception.ResourceNotFoundException;
+import org.driver.driverapp.model.Wallet;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletShardRepository;
+import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.driver.driverapp.repository.WalletTransactionRepository.StatementEntry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a wallet's statement for a time range as CSV or JSON lines, oldest transaction first,
+ * each with the wallet's balance after it. Transactions are read through a database cursor and
+ * written as they arrive, so a statement of any length is exported in constant memory.
+ *
+ * <p>The opening balance is the current balance less the transactions since the start of the
+ * range, which only reads the recent part of the history. The balance and the transactions are
+ * read in one repeatable-read transaction, so concurrent credits and debits cannot skew it.
+ */
+@Slf4j
+@Service
+public class WalletStatementExporter {
+
+    public enum Format { CSV, JSON_LINES }
+
+    private static final String CSV_HEADER = "id,created_at,transaction_type,amount,balance,reference,description";
+
+    private final WalletRepository walletRepository;
+    private final WalletShardRepository walletShardRepository;
+    private final WalletTransactionRepository walletTransactionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public WalletStatementExporter(WalletRepository walletRepository,
+                                   WalletShardRepository walletShardRepository,
+                                   WalletTransactionRepository walletTransactionRepository,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager) {
+        this.walletRepository = walletRepository;
+        this.walletShardRepository = walletShardRepository;
+        this.walletTransactionRepository = walletTransactionRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Writes the statement of transactions created from {@code from} (inclusive) to {@code to}
+     * (exclusive); the stream is flushed but left open.
+     */
+    public void export(Long walletId, Instant from, Instant to, Format format, OutputStream out) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Statement range must end after it starts: " + from + " to " + to);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Wallet wallet = walletRepository.findById(walletId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Wallet not found with id: " + walletId));
+            BigDecimal current = wallet.isSharded()
+                    ? walletShardRepository.sumBalanceByWalletId(walletId)
+                    : wallet.getBalance();
+            BigDecimal balance = current.subtract(walletTransactionRepository.sumNetAmountByWalletIdSince(walletId, from));
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            int lines = 0;
+            try (Stream<StatementEntry> entries = walletTransactionRepository.streamStatement(walletId, from, to)) {
+                if (format == Format.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                Iterator<StatementEntry> iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    StatementEntry entry = iterator.next();
+                    if (entry.getTransactionType() == TransactionType.CREDIT) {
+                        balance = balance.add(entry.getAmount());
+                    } else if (entry.getTransactionType() == TransactionType.DEBIT) {
+                        balance = balance.subtract(entry.getAmount());
+                    }
+                    writer.write(format == Format.CSV ? csvLine(entry, balance) : jsonLine(entry, balance));
+                    writer.write('\n');
+                    lines++;
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write statement of wallet " + walletId, e);
+            }
+            log.info("Exported statement of wallet {} from {} to {} with {} transactions", walletId, from, to, lines);
+        });
+    }
+
+    private static String csvLine(StatementEntry entry, BigDecimal balance) {
+        return String.join(",", String.valueOf(entry.getId()), entry.getCreatedAt().toString(),
+                entry.getTransactionType().name(), entry.getAmount().toPlainString(), balance.toPlainString(),
+                csvField(entry.getReference()), csvField(entry.getDescription()));
+    }
+
+    // Quotes a field holding a separator, quote or line break, doubling its quotes
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private String jsonLine(StatementEntry entry, BigDecimal balance) throws IOException {
+        ObjectNode line = objectMapper.createObjectNode()
+                .put("id", entry.getId())
+                .put("createdAt", entry.getCreatedAt().toString())
+                .put("transactionType", entry.getTransactionType().name())
+                .put("amount", entry.getAmount())
+                .put("balance", balance)
+                .put("reference", entry.getReference())
+                .put("description", entry.getDescription());
+        return objectMapper.writeValueAsString(line);
+    }
+}
@@ -0,0 +1,442 @@
+package org.driver.driverapp.service.wallet;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.wallet.request.BulkTransferRequestDTO;
+import org.driver.driverapp.dto.wallet.request.TransferLegDTO;
+import org.driver.driverapp.dto.wallet.response.BulkTransferResponseDTO;
+import org.driver.driverapp.dto.wallet.response.TransferLegResultDTO;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.enums.TransferLegStatus;
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.exception.WalletOperationNotAppliedException;
+import org.driver.driverapp.model.Wallet;
+import org.driver.driverapp.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Applies bulk transfers between wallets, such as a day's driver payouts. Wallets are
+ * resolved up front with one query per owner type, and missing destination wallets are
+ * created; the unique constraint on owners, which covers inactive wallets too, makes a
+ * concurrent creation fail, after which the wallet is read back. Legs are then applied in chunks, one transaction per chunk: the
+ * chunk's wallets are locked in id order, legs are applied in request order against the locked
+ * balances, and balances and transaction rows are written as JDBC batches.
+ *
+ * <p>Every leg is either completed or rejected with a reason, e.g. an insufficient source
+ * balance; rejected legs do not affect the others. A leg touching a sharded wallet is applied
+ * after its chunk commits, one wallet at a time: the source is debited, through the
+ * {@link WalletShardLedger} when it is sharded, then the destination is credited the same way.
+ * If the credit is known not to have been applied the source is credited back and the leg is
+ * rejected; if its outcome is unknown the source is left alone and the leg is reported in doubt.
+ */
+@Slf4j
+@Service
+public class WalletTransferService {
+
+    // Identifiers are quoted to match the schema Hibernate generates with globally quoted identifiers
+    private static final String LOCK_WALLETS = "SELECT \"id\", \"owner_type\", \"balance\", \"shard_count\" " +
+            "FROM \"wallet\" WHERE \"id\" IN (:walletIds) AND \"active\" = TRUE ORDER BY \"id\" FOR UPDATE";
+    private static final String SET_BALANCE = "UPDATE \"wallet\" SET \"balance\" = ?, \"updated_at\" = ?, " +
+            "\"version\" = \"version\" + 1 WHERE \"id\" = ?";
+    private static final int CREATE_ATTEMPTS = 3;
+    private static final String REVERSAL_DESCRIPTION = "Reversal of a bulk transfer leg that could not be credited";
+
+    private final WalletRepository walletRepository;
+    private final WalletAggregateService walletAggregateService;
+    private final WalletShardLedger walletShardLedger;
+    private final WalletBalanceRanking walletBalanceRanking;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+
+    public WalletTransferService(WalletRepository walletRepository,
+                                 WalletAggregateService walletAggregateService,
+                                 WalletShardLedger walletShardLedger,
+                                 WalletBalanceRanking walletBalanceRanking,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${wallet.transfers.batch-size:1000}") int batchSize) {
+        this.walletRepository = walletRepository;
+        this.walletAggregateService = walletAggregateService;
+        this.walletShardLedger = walletShardLedger;
+        this.walletBalanceRanking = walletBalanceRanking;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+    }
+
+    public BulkTransferResponseDTO transfer(BulkTransferRequestDTO request) {
+        List<TransferLegDTO> legs = request.getLegs();
+        log.info("Applying bulk transfer of {} legs", legs.size());
+        Map<OwnerKey, Long> walletIds = resolveWallets(legs);
+
+        List<TransferLegResultDTO> results = new ArrayList<>(legs.size());
+        for (int start = 0; start < legs.size(); start += batchSize) {
+            results.addAll(applyChunk(legs, start, Math.min(start + batchSize, legs.size()), walletIds));
+        }
+
+        Map<TransferLegStatus, Integer> counts = new EnumMap<>(TransferLegStatus.class);
+        for (TransferLegStatus status : TransferLegStatus.values()) {
+            counts.put(status, 0);
+        }
+        results.forEach(result -> counts.merge(result.getStatus(), 1, Integer::sum));
+        counts.forEach(this::count);
+        log.info("Bulk transfer completed {} legs, rejected {} and left {} in doubt",
+                counts.get(TransferLegStatus.COMPLETED), counts.get(TransferLegStatus.REJECTED),
+                counts.get(TransferLegStatus.IN_DOUBT));
+        return BulkTransferResponseDTO.builder()
+                .completed(counts.get(TransferLegStatus.COMPLETED))
+                .rejected(counts.get(TransferLegStatus.REJECTED))
+                .inDoubt(counts.get(TransferLegStatus.IN_DOUBT))
+                .results(results)
+                .build();
+    }
+
+    // Ids of the active wallets of every owner in the legs; destinations without a wallet get one
+    private Map<OwnerKey, Long> resolveWallets(List<TransferLegDTO> legs) {
+        Set<OwnerKey> owners = new HashSet<>();
+        Set<OwnerKey> destinations = new HashSet<>();
+        for (TransferLegDTO leg : legs) {
+            source(leg).ifPresent(owners::add);
+            OwnerKey destination = new OwnerKey(leg.getDestinationOwnerType(), leg.getDestinationOwnerId());
+            owners.add(destination);
+            destinations.add(destination);
+        }
+
+        Map<OwnerKey, Long> walletIds = findWallets(owners);
+        for (int attempt = 1; attempt <= CREATE_ATTEMPTS; attempt++) {
+            List<OwnerKey> missing = destinations.stream().filter(owner -> !walletIds.containsKey(owner)).toList();
+            if (missing.isEmpty()) {
+                break;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> walletRepository.saveAll(missing.stream()
+                        .map(owner -> Wallet.builder()
+                                .ownerId(owner.ownerId)
+                                .ownerType(owner.ownerType)
+                                .balance(BigDecimal.ZERO)
+                                .active(true)
+                                .build())
+                        .toList()));
+                log.info("Created {} wallets for bulk transfer destinations", missing.size());
+            } catch (DataIntegrityViolationException e) {
+                // Another request created one of them first
+                log.debug("Concurrent wallet creation for bulk transfer destinations: {}", e.getMessage());
+            }
+            walletIds.putAll(findWallets(new HashSet<>(missing)));
+        }
+        return walletIds;
+    }
+
+    private Map<OwnerKey, Long> findWallets(Set<OwnerKey> owners) {
+        Map<WalletOwnerType, List<Long>> ownerIds = new EnumMap<>(WalletOwnerType.class);
+        owners.forEach(owner -> ownerIds.computeIfAbsent(owner.ownerType, type -> new ArrayList<>()).add(owner.ownerId));
+        Map<OwnerKey, Long> walletIds = new HashMap<>();
+        ownerIds.forEach((ownerType, ids) -> walletRepository.findByOwnerTypeAndOwnerIdInAndActiveTrue(ownerType, ids)
+                .forEach(wallet -> walletIds.put(new OwnerKey(ownerType, wallet.getOwnerId()), wallet.getId())));
+        return walletIds;
+    }
+
+    private List<TransferLegResultDTO> applyChunk(List<TransferLegDTO> legs, int start, int end,
+                                                  Map<OwnerKey, Long> walletIds) {
+        Map<Long, BigDecimal> committed = new TreeMap<>();
+        Map<Long, Boolean> sharded = new HashMap<>();
+        List<TransferLegResultDTO> results;
+        try {
+            results = transactionTemplate.execute(status -> {
+                committed.clear();
+                sharded.clear();
+                return applyLegs(legs, start, end, walletIds, committed, sharded);
+            });
+        } catch (RuntimeException e) {
+            log.error("Bulk transfer legs {} to {} failed", start, end - 1, e);
+            List<TransferLegResultDTO> failed = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                failed.add(rejected(i, "Not applied: " + e.getMessage()));
+            }
+            return failed;
+        }
+        committed.forEach(walletBalanceRanking::update);
+        // Legs left out of the chunk's transaction because they touch a sharded wallet
+        for (int i = start; i < end; i++) {
+            if (results.get(i - start) == null) {
+                results.set(i - start, applyShardedLeg(i, legs.get(i), walletIds, sharded));
+            }
+        }
+        return results;
+    }
+
+    // Debits the source, then credits the destination, each in its own transaction. Only a
+    // WalletOperationNotAppliedException means a step left its wallet unchanged.
+    private TransferLegResultDTO applyShardedLeg(int index, TransferLegDTO leg, Map<OwnerKey, Long> walletIds,
+                                                 Map<Long, Boolean> sharded) {
+        Long sourceId = source(leg).map(walletIds::get).orElse(null);
+        Long destinationId = walletIds.get(new OwnerKey(leg.getDestinationOwnerType(), leg.getDestinationOwnerId()));
+        BigDecimal sourceBalance = null;
+        if (sourceId != null) {
+            try {
+                sourceBalance = applyToWallet(sourceId, sharded.get(sourceId), TransactionType.DEBIT, leg,
+                        leg.getDescription());
+            } catch (WalletOperationNotAppliedException e) {
+                return rejected(index, e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Bulk transfer leg {} may or may not have debited wallet {}", index, sourceId, e);
+                return inDoubt(index, "Debit outcome unknown: " + e.getMessage());
+            }
+        }
+        BigDecimal destinationBalance;
+        try {
+            destinationBalance = applyToWallet(destinationId, sharded.get(destinationId), TransactionType.CREDIT, leg,
+                    leg.getDescription());
+        } catch (WalletOperationNotAppliedException e) {
+            if (sourceId == null) {
+                return rejected(index, e.getMessage());
+            }
+            try {
+                applyToWallet(sourceId, sharded.get(sourceId), TransactionType.CREDIT, leg, REVERSAL_DESCRIPTION);
+            } catch (RuntimeException reversal) {
+                log.error("Bulk transfer leg {} debited wallet {} but neither credited wallet {} nor reversed",
+                        index, sourceId, destinationId, reversal);
+                return rejected(index, "Not credited and not reversed: " + e.getMessage());
+            }
+            return rejected(index, "Reversed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // The credit may still commit, so reversing the debit could pay the leg twice
+            log.error("Bulk transfer leg {} debited wallet {} and may or may not have credited wallet {}",
+                    index, sourceId, destinationId, e);
+            return inDoubt(index, "Credit outcome unknown: " + e.getMessage());
+        }
+        return TransferLegResultDTO.builder()
+                .index(index)
+                .status(TransferLegStatus.COMPLETED)
+                .sourceWalletId(sourceId)
+                .destinationWalletId(destinationId)
+                .sourceBalanceAfter(sourceBalance)
+                .destinationBalanceAfter(destinationBalance)
+                .build();
+    }
+
+    // Credits or debits one wallet of a sharded leg and returns the wallet's balance after it
+    private BigDecimal applyToWallet(Long walletId, boolean shardedWallet, TransactionType type, TransferLegDTO leg,
+                                     String description) {
+        BigDecimal balance;
+        if (shardedWallet) {
+            Wallet wallet = walletRepository.findById(walletId)
+                    .orElseThrow(() -> new WalletOperationNotAppliedException("Wallet not found with id: " + walletId));
+            walletShardLedger.apply(wallet, type, leg.getAmount(), leg.getReference(), description, null);
+            balance = walletShardLedger.balance(walletId);
+        } else {
+            balance = transactionTemplate.execute(status -> {
+                Map<Long, LockedWallet> wallets = lockWallets(Set.of(walletId));
+                LockedWallet wallet = wallets.get(walletId);
+                if (wallet == null) {
+                    throw new WalletOperationNotAppliedException("Wallet not found with id: " + walletId);
+                }
+                if (type == TransactionType.DEBIT && wallet.balance.compareTo(leg.getAmount()) < 0) {
+                    throw new WalletOperationNotAppliedException("Insufficient balance. Available: " + wallet.balance +
+                            ", Required: " + leg.getAmount());
+                }
+                BigDecimal before = wallet.balance;
+                BigDecimal after = type == TransactionType.DEBIT ? before.subtract(leg.getAmount())
+                        : before.add(leg.getAmount());
+                Timestamp now = Timestamp.from(Instant.now());
+                jdbcTemplate.update(SET_BALANCE, after, now, walletId);
+                jdbcTemplate.update(WalletShardLedger.INSERT_TRANSACTION, new Object[]{walletId, type.name(),
+                        leg.getAmount(), before, after, leg.getReference(), description, null, null, now, now});
+                walletAggregateService.apply(List.of(new WalletAggregateService.Change(wallet.ownerType, walletId,
+                        type, leg.getAmount())));
+                return after;
+            });
+        }
+        walletBalanceRanking.update(walletId, balance);
+        return balance;
+    }
+
+    private Map<Long, LockedWallet> lockWallets(Set<Long> walletIds) {
+        Map<Long, LockedWallet> wallets = new HashMap<>();
+        if (!walletIds.isEmpty()) {
+            namedParameterJdbcTemplate.query(LOCK_WALLETS, Map.of("walletIds", walletIds), rs -> {
+                wallets.put(rs.getLong("id"), new LockedWallet(WalletOwnerType.valueOf(rs.getString("owner_type")),
+                        rs.getBigDecimal("balance"), rs.getInt("shard_count") > 0));
+            });
+        }
+        return wallets;
+    }
+
+    // Runs in the chunk's transaction; fills balances with the final balance of every wallet it changed,
+    // and leaves a null result for each leg touching a sharded wallet, recording those wallets in sharded
+    private List<TransferLegResultDTO> applyLegs(List<TransferLegDTO> legs, int start, int end,
+                                                 Map<OwnerKey, Long> walletIds, Map<Long, BigDecimal> balances,
+                                                 Map<Long, Boolean> sharded) {
+        Set<Long> involved = new TreeSet<>();
+        for (int i = start; i < end; i++) {
+            TransferLegDTO leg = legs.get(i);
+            source(leg).map(walletIds::get).ifPresent(involved::add);
+            Long destinationId = walletIds.get(new OwnerKey(leg.getDestinationOwnerType(), leg.getDestinationOwnerId()));
+            if (destinationId != null) {
+                involved.add(destinationId);
+            }
+        }
+        Map<Long, LockedWallet> wallets = lockWallets(involved);
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<TransferLegResultDTO> results = new ArrayList<>(end - start);
+        List<Object[]> transactionRows = new ArrayList<>();
+        List<WalletAggregateService.Change> changes = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            TransferLegDTO leg = legs.get(i);
+            Long sourceId = source(leg).map(walletIds::get).orElse(null);
+            Long destinationId = walletIds.get(new OwnerKey(leg.getDestinationOwnerType(), leg.getDestinationOwnerId()));
+            LockedWallet source = sourceId != null ? wallets.get(sourceId) : null;
+            LockedWallet destination = destinationId != null ? wallets.get(destinationId) : null;
+            String rejection = validate(leg, sourceId, source, destinationId, destination);
+            if (rejection != null) {
+                results.add(rejected(i, rejection));
+                continue;
+            }
+            if (source != null && source.sharded || destination.sharded) {
+                if (sourceId != null) {
+                    sharded.put(sourceId, source.sharded);
+                }
+                sharded.put(destinationId, destination.sharded);
+                results.add(null);
+                continue;
+            }
+
+            BigDecimal amount = leg.getAmount();
+            if (source != null) {
+                BigDecimal before = source.balance;
+                source.balance = before.subtract(amount);
+                transactionRows.add(transactionRow(sourceId, TransactionType.DEBIT, leg, before, source.balance, now));
+                changes.add(new WalletAggregateService.Change(source.ownerType, sourceId, TransactionType.DEBIT, amount));
+                balances.put(sourceId, source.balance);
+            }
+            BigDecimal before = destination.balance;
+            destination.balance = before.add(amount);
+            transactionRows.add(transactionRow(destinationId, TransactionType.CREDIT, leg, before, destination.balance,
+                    now));
+            changes.add(new WalletAggregateService.Change(destination.ownerType, destinationId, TransactionType.CREDIT,
+                    amount));
+            balances.put(destinationId, destination.balance);
+
+            results.add(TransferLegResultDTO.builder()
+                    .index(i)
+                    .status(TransferLegStatus.COMPLETED)
+                    .sourceWalletId(sourceId)
+                    .destinationWalletId(destinationId)
+                    .sourceBalanceAfter(source != null ? source.balance : null)
+                    .destinationBalanceAfter(destination.balance)
+                    .build());
+        }
+
+        if (!balances.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_BALANCE, balances.entrySet().stream()
+                    .map(entry -> new Object[]{entry.getValue(), now, entry.getKey()})
+                    .toList());
+            jdbcTemplate.batchUpdate(WalletShardLedger.INSERT_TRANSACTION, transactionRows);
+            walletAggregateService.apply(changes);
+        }
+        return results;
+    }
+
+    private static String validate(TransferLegDTO leg, Long sourceId, LockedWallet source,
+                                   Long destinationId, LockedWallet destination) {
+        if ((leg.getSourceOwnerId() == null) != (leg.getSourceOwnerType() == null)) {
+            return "Source owner id and type must be given together";
+        }
+        if (leg.getSourceOwnerId() != null && source == null) {
+            return "Wallet not found for owner: " + leg.getSourceOwnerId() + " and type: " + leg.getSourceOwnerType();
+        }
+        if (destination == null) {
+            return "Wallet not found for owner: " + leg.getDestinationOwnerId() + " and type: "
+                    + leg.getDestinationOwnerType();
+        }
+        if (destinationId.equals(sourceId)) {
+            return "Source and destination are the same wallet";
+        }
+        // A sharded wallet's balance column lags its shards; the ledger checks its debits
+        if (source != null && !source.sharded && source.balance.compareTo(leg.getAmount()) < 0) {
+            return "Insufficient balance. Available: " + source.balance + ", Required: " + leg.getAmount();
+        }
+        return null;
+    }
+
+    private static Optional<OwnerKey> source(TransferLegDTO leg) {
+        return leg.getSourceOwnerId() != null && leg.getSourceOwnerType() != null
+                ? Optional.of(new OwnerKey(leg.getSourceOwnerType(), leg.getSourceOwnerId()))
+                : Optional.empty();
+    }
+
+    private static Object[] transactionRow(Long walletId, TransactionType type, TransferLegDTO leg,
+                                           BigDecimal before, BigDecimal after, Timestamp now) {
+        return new Object[]{walletId, type.name(), leg.getAmount(), before, after, leg.getReference(),
+                leg.getDescription(), null, null, now, now};
+    }
+
+    private static TransferLegResultDTO rejected(int index, String message) {
+        return TransferLegResultDTO.builder()
+                .index(index)
+                .status(TransferLegStatus.REJECTED)
+                .message(message)
+                .build();
+    }
+
+    private static TransferLegResultDTO inDoubt(int index, String message) {
+        return TransferLegResultDTO.builder()
+                .index(index)
+                .status(TransferLegStatus.IN_DOUBT)
+                .message(message)
+                .build();
+    }
+
+    private void count(TransferLegStatus status, int legs) {
+        Counter.builder(MetricsConfig.WALLET_TRANSFER_LEGS_COUNTER)
+                .description("Bulk wallet transfer legs applied, rejected or left in doubt")
+                .tag("status", status.name().toLowerCase())
+                .register(meterRegistry)
+                .increment(legs);
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class OwnerKey {
+        private final WalletOwnerType ownerType;
+        private final Long ownerId;
+    }
+
+    @AllArgsConstructor
+    private static final class LockedWallet {
+        private final WalletOwnerType ownerType;
+        private BigDecimal balance;
+        private final boolean sharded;
+    }
+}
@@ -0,0 +1,287 @@
+package org.driver.driverapp.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.service.payment.PaymentResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Standalone HTTP stand-in for the mobile-money providers, for benchmarking payment throughput
+ * and resilience end to end on one machine. Each provider is served under its lower-case name:
+ *
+ * <pre>
+ * POST /{provider}/payments                      initiate, body is a PaymentRequest; repeated
+ *                                                Idempotency-Key headers get the first answer again
+ * POST /{provider}/payments/{transactionRef}/confirm
+ * POST /{provider}/payments/{transactionRef}/refund
+ * GET  /health
+ * </pre>
+ *
+ * and answers with a PaymentResponse after a delay drawn from the provider's
+ * {@link SimulatorProfile.LatencyProfile}. Per the profile, calls may fail with HTTP 503, be
+ * declined, or go unanswered, and scripted outage windows fail every call for a while. Delays
+ * are scheduled rather than slept, so thousands of calls can be in flight at once.
+ *
+ * <p>Run it with {@code --port=8089} and optionally {@code --profile=path/to/profile.json};
+ * without a profile the bundled {@value #DEFAULT_PROFILE} is used.
+ */
+@Slf4j
+public class PaymentProviderSimulator {
+
+    static final String DEFAULT_PROFILE = "payment-simulator/profile.json";
+
+    private final SimulatorProfile profile;
+    private final ObjectMapper objectMapper;
+    private final HttpServer server;
+    private final ExecutorService handlerExecutor;
+    private final ScheduledExecutorService responseScheduler;
+    private final Map<String, PaymentStatus> transactions = new ConcurrentHashMap<>();
+    private final Map<String, PaymentResponse> initiated = new ConcurrentHashMap<>();
+    private final long startedAt = System.nanoTime();
+
+    private PaymentProviderSimulator(SimulatorProfile profile, ObjectMapper objectMapper, int port) throws IOException {
+        this.profile = profile;
+        this.objectMapper = objectMapper;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.handlerExecutor = Executors.newFixedThreadPool(4, runnable ->
+                new Thread(runnable, "payment-simulator-" + threadCount.incrementAndGet()));
+        this.responseScheduler = Executors.newScheduledThreadPool(2, runnable ->
+                new Thread(runnable, "payment-simulator-response-" + threadCount.incrementAndGet()));
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.server.setExecutor(handlerExecutor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts a simulator on {@code port}, or on a free port when it is 0.
+     */
+    public static PaymentProviderSimulator start(SimulatorProfile profile, int port) throws IOException {
+        PaymentProviderSimulator simulator = new PaymentProviderSimulator(profile, new ObjectMapper(), port);
+        simulator.server.start();
+        log.info("Payment provider simulator listening on port {}", simulator.getPort());
+        return simulator;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        responseScheduler.shutdownNow();
+        handlerExecutor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8089;
+        String profilePath = null;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--profile=")) {
+                profilePath = arg.substring("--profile=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        SimulatorProfile profile;
+        if (profilePath != null) {
+            profile = objectMapper.readValue(Files.readString(Path.of(profilePath)), SimulatorProfile.class);
+        } else {
+            try (InputStream in = PaymentProviderSimulator.class.getClassLoader().getResourceAsStream(DEFAULT_PROFILE)) {
+                if (in == null) {
+                    throw new IllegalStateException("Bundled simulator profile not found: " + DEFAULT_PROFILE);
+                }
+                profile = objectMapper.readValue(in, SimulatorProfile.class);
+            }
+        }
+        PaymentProviderSimulator simulator = start(profile, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::stop));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+        if (path.length == 1 && path[0].equals("health") && exchange.getRequestMethod().equals("GET")) {
+            write(exchange, 200, Map.of("status", "UP"));
+            return;
+        }
+
+        PaymentProvider provider = path.length >= 2 && path[1].equals("payments") ? provider(path[0]) : null;
+        if (provider == null || !exchange.getRequestMethod().equals("POST")
+                || !(path.length == 2 || path.length == 4 && (path[3].equals("confirm") || path[3].equals("refund")))) {
+            write(exchange, 404, Map.of("message", "Not found"));
+            return;
+        }
+        JsonNode body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            body = bytes.length > 0 ? objectMapper.readTree(bytes) : objectMapper.createObjectNode();
+        } catch (IOException e) {
+            write(exchange, 400, Map.of("message", "Unreadable request body"));
+            return;
+        }
+
+        SimulatorProfile.ProviderProfile providerProfile = profile.forProvider(provider);
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+        SimulatorProfile.OutageWindow outage = providerProfile.getOutages().stream()
+                .filter(window -> window.isActive(elapsedSeconds))
+                .findFirst()
+                .orElse(null);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (outage != null && outage.getMode() == SimulatorProfile.OutageWindow.Mode.TIMEOUT
+                || outage == null && random.nextDouble() < providerProfile.getTimeoutRate()) {
+            // The caller gives up long before this; the connection is only dropped to free it
+            responseScheduler.schedule(() -> exchange.close(), providerProfile.getHangMs(), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        int status;
+        Object response;
+        if (outage != null || random.nextDouble() < providerProfile.getErrorRate()) {
+            status = 503;
+            response = Map.of("message", provider + " is temporarily unavailable");
+        } else {
+            status = 200;
+            boolean declined = random.nextDouble() < providerProfile.getDeclineRate();
+            response = path.length == 2
+                    ? initiate(provider, exchange.getRequestHeaders().getFirst("Idempotency-Key"), body, declined)
+                    : path[3].equals("confirm") ? confirm(provider, path[2], declined)
+                    : refund(provider, path[2]);
+        }
+        long delay = Math.max(0, providerProfile.getLatency().sample(random));
+        responseScheduler.schedule(() -> {
+            try {
+                write(exchange, status, response);
+            } catch (IOException e) {
+                log.debug("Simulator could not answer {}: {}", exchange.getRequestURI(), e.getMessage());
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private PaymentResponse initiate(PaymentProvider provider, String idempotencyKey, JsonNode body, boolean declined) {
+        if (idempotencyKey == null) {
+            return initiate(provider, body, declined);
+        }
+        String key = provider + ":" + idempotencyKey;
+        PaymentResponse previous = initiated.get(key);
+        if (previous != null) {
+            return previous;
+        }
+        PaymentResponse response = initiate(provider, body, declined);
+        previous = initiated.putIfAbsent(key, response);
+        return previous != null ? previous : response;
+    }
+
+    private PaymentResponse initiate(PaymentProvider provider, JsonNode body, boolean declined) {
+        JsonNode amount = body.get("amount");
+        if (declined || amount == null || !amount.isNumber() || amount.decimalValue().signum() <= 0) {
+            return PaymentResponse.builder()
+                    .success(false)
+                    .status(PaymentStatus.FAILED)
+                    .message(declined ? "Payment declined by subscriber" : "Invalid amount")
+                    .errorCode(prefix(provider) + "_001")
+                    .build();
+        }
+        String transactionRef = prefix(provider) + "_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        transactions.put(transactionRef, PaymentStatus.PROCESSING);
+        return PaymentResponse.builder()
+                .success(true)
+                .transactionRef(transactionRef)
+                .status(PaymentStatus.PROCESSING)
+                .message("Payment initiated successfully")
+                .build();
+    }
+
+    private PaymentResponse confirm(PaymentProvider provider, String transactionRef, boolean declined) {
+        PaymentStatus current = transactions.get(transactionRef);
+        if (current == null) {
+            return unknown(provider, transactionRef);
+        }
+        // Confirming twice gives the same answer, as real providers do
+        PaymentStatus status = current != PaymentStatus.PROCESSING ? current
+                : declined ? PaymentStatus.FAILED : PaymentStatus.COMPLETED;
+        transactions.put(transactionRef, status);
+        boolean success = status == PaymentStatus.COMPLETED;
+        return PaymentResponse.builder()
+                .success(success)
+                .transactionRef(transactionRef)
+                .status(status)
+                .message(success ? "Payment confirmed successfully" : "Payment confirmation failed")
+                .errorCode(success ? null : prefix(provider) + "_002")
+                .build();
+    }
+
+    private PaymentResponse refund(PaymentProvider provider, String transactionRef) {
+        if (transactions.get(transactionRef) != PaymentStatus.COMPLETED) {
+            return unknown(provider, transactionRef);
+        }
+        transactions.put(transactionRef, PaymentStatus.REFUNDED);
+        return PaymentResponse.builder()
+                .success(true)
+                .transactionRef("REF_" + transactionRef)
+                .status(PaymentStatus.COMPLETED)
+                .message("Refund processed successfully")
+                .build();
+    }
+
+    private static PaymentResponse unknown(PaymentProvider provider, String transactionRef) {
+        return PaymentResponse.builder()
+                .success(false)
+                .transactionRef(transactionRef)
+                .status(PaymentStatus.FAILED)
+                .message("No completed transaction " + transactionRef)
+                .errorCode(prefix(provider) + "_404")
+                .build();
+    }
+
+    private void write(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static PaymentProvider provider(String segment) {
+        try {
+            return PaymentProvider.valueOf(segment.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String prefix(PaymentProvider provider) {
+        return switch (provider) {
+            case TELEBIRR -> "TEL";
+            case CBE_BIRR -> "CBE";
+            case M_BIRR -> "MBIR";
+            case HELLOCASH -> "HCASH";
+            case AMOLE -> "AMOLE";
+            default -> "GEN";
+        };
+    }
+}
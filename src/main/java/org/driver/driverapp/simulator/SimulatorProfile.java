@@ -0,0 +1,130 @@
+package org.driver.driverapp.simulator;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.driver.driverapp.enums.PaymentProvider;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * How the {@link PaymentProviderSimulator} behaves: a default {@link ProviderProfile} and
+ * optional per-provider overrides, usually read from a JSON script.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SimulatorProfile {
+
+    @Builder.Default
+    private ProviderProfile defaults = new ProviderProfile();
+
+    @Builder.Default
+    private Map<PaymentProvider, ProviderProfile> providers = new EnumMap<>(PaymentProvider.class);
+
+    public ProviderProfile forProvider(PaymentProvider provider) {
+        return providers.getOrDefault(provider, defaults);
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ProviderProfile {
+
+        @Builder.Default
+        private LatencyProfile latency = new LatencyProfile();
+
+        // Fractions of calls answered with HTTP 503, declined, or left unanswered
+        private double errorRate;
+        private double declineRate;
+        private double timeoutRate;
+
+        // How long an unanswered call is held before the connection is dropped
+        @Builder.Default
+        private long hangMs = 30_000;
+
+        @Builder.Default
+        private List<OutageWindow> outages = new ArrayList<>();
+    }
+
+    /**
+     * Response delay distribution: {@code FIXED} uses {@code valueMs}, {@code UNIFORM} draws
+     * between {@code minMs} and {@code maxMs}, and {@code LOGNORMAL} is shaped by its median
+     * and 99th percentile, which gives the long tail real provider APIs show.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class LatencyProfile {
+
+        public enum Type { FIXED, UNIFORM, LOGNORMAL }
+
+        // z-score of the 99th percentile of a standard normal distribution
+        private static final double P99_Z = 2.3263;
+
+        @Builder.Default
+        private Type type = Type.FIXED;
+        @Builder.Default
+        private long valueMs = 50;
+        private long minMs;
+        private long maxMs;
+        private long medianMs;
+        private long p99Ms;
+
+        public long sample(Random random) {
+            return switch (type) {
+                case FIXED -> valueMs;
+                case UNIFORM -> minMs + (maxMs > minMs ? (long) (random.nextDouble() * (maxMs - minMs)) : 0);
+                case LOGNORMAL -> {
+                    double median = Math.max(1, medianMs);
+                    double sigma = Math.log(Math.max(p99Ms, median) / median) / P99_Z;
+                    yield Math.round(Math.exp(Math.log(median) + sigma * random.nextGaussian()));
+                }
+            };
+        }
+    }
+
+    /**
+     * A period, in seconds since the simulator started, during which every call fails with
+     * HTTP 503 ({@code ERROR}) or goes unanswered ({@code TIMEOUT}). With a repeat interval the
+     * window recurs for as long as the simulator runs.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class OutageWindow {
+
+        public enum Mode { ERROR, TIMEOUT }
+
+        private long startSeconds;
+        private long durationSeconds;
+        private long repeatEverySeconds;
+        @Builder.Default
+        private Mode mode = Mode.ERROR;
+
+        public boolean isActive(double elapsedSeconds) {
+            if (elapsedSeconds < startSeconds) {
+                return false;
+            }
+            double intoWindow = elapsedSeconds - startSeconds;
+            if (repeatEverySeconds > 0) {
+                intoWindow %= repeatEverySeconds;
+            }
+            return intoWindow < durationSeconds;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- Delivery Status Enum Migration
+-- V13__delivery_status_enum.sql
+
+-- Create enum for delivery statuses (4 bytes per row instead of a VARCHAR(32))
+CREATE TYPE delivery_status AS ENUM (
+    'CREATED',
+    'PENDING',
+    'ACCEPTED',
+    'IN_PROGRESS',
+    'PICKED_UP',
+    'IN_TRANSIT',
+    'DELIVERED',
+    'CANCELED',
+    'DELAYED',
+    'DELIVERY_FAILED'
+);
+
+-- Normalise legacy free-form values before the cast
+UPDATE delivery SET status = UPPER(TRIM(status)) WHERE status IS NOT NULL;
+UPDATE delivery SET status = 'CANCELED' WHERE status = 'CANCELLED';
+UPDATE delivery SET status = 'DELIVERED' WHERE status = 'COMPLETED';
+UPDATE delivery SET status = 'CREATED'
+WHERE status IS NULL
+   OR status NOT IN ('CREATED', 'PENDING', 'ACCEPTED', 'IN_PROGRESS', 'PICKED_UP', 'IN_TRANSIT',
+                     'DELIVERED', 'CANCELED', 'DELAYED', 'DELIVERY_FAILED');
+
+-- Convert the column
+DROP INDEX IF EXISTS ix_delivery_status;
+ALTER TABLE delivery ALTER COLUMN status TYPE delivery_status USING status::delivery_status;
+ALTER TABLE delivery ALTER COLUMN status SET NOT NULL;
+
+-- Status lookups only target active deliveries; terminal rows stay out of the index
+CREATE INDEX IF NOT EXISTS ix_delivery_active_status ON delivery (status, driver_id)
+WHERE status NOT IN ('DELIVERED', 'CANCELED', 'DELIVERY_FAILED');
@@ -0,0 +1,12 @@
+-- Analytics Summary Indexes
+-- V14__analytics_summary_indexes.sql
+
+-- The dashboard summaries aggregate every window from one range scan starting at the
+-- month boundary; status is carried in the index so the scan never visits the heap.
+CREATE INDEX IF NOT EXISTS ix_delivery_created_at ON delivery (created_at) INCLUDE (status);
+
+-- Partner dashboards scan the same range restricted to one partner.
+CREATE INDEX IF NOT EXISTS ix_delivery_partner_created_at ON delivery (partner_id, created_at) INCLUDE (status);
+
+-- Distinct / repeat customer counts group a partner's deliveries by customer.
+CREATE INDEX IF NOT EXISTS ix_delivery_partner_customer ON delivery (partner_id, customer_id);
@@ -0,0 +1,24 @@
+-- Analytics Rollups Migration
+-- V15__analytics_rollups.sql
+
+-- Hourly and daily aggregates per scope (GLOBAL, PARTNER, REGION); scope_key is the partner id
+-- or region name and empty for the global scope. Buckets are keyed by source row creation time.
+CREATE TABLE analytics_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    granularity VARCHAR(8) NOT NULL CHECK (granularity IN ('HOUR', 'DAY')),
+    bucket_start TIMESTAMPTZ NOT NULL,
+    scope VARCHAR(16) NOT NULL CHECK (scope IN ('GLOBAL', 'PARTNER', 'REGION')),
+    scope_key VARCHAR(100) NOT NULL DEFAULT '',
+    deliveries_created BIGINT NOT NULL DEFAULT 0,
+    deliveries_delivered BIGINT NOT NULL DEFAULT 0,
+    deliveries_failed BIGINT NOT NULL DEFAULT 0,
+    deliveries_canceled BIGINT NOT NULL DEFAULT 0,
+    payments_completed BIGINT NOT NULL DEFAULT 0,
+    revenue_completed NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    new_customers BIGINT NOT NULL DEFAULT 0,
+    refreshed_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_analytics_rollup_bucket UNIQUE (granularity, bucket_start, scope, scope_key)
+);
+
+-- Window reads filter one scope over a bucket range
+CREATE INDEX idx_analytics_rollup_scope_bucket ON analytics_rollup (granularity, scope, scope_key, bucket_start);
@@ -0,0 +1,32 @@
+-- Analytics Event Aggregates Migration
+-- V16__analytics_event_aggregates.sql
+
+-- Tumbling-window aggregates of the analytics-events stream, one row per window, type and name.
+-- Flushes merge into existing rows, so a window may be written several times.
+CREATE TABLE analytics_event_aggregate (
+    id BIGSERIAL PRIMARY KEY,
+    window_start TIMESTAMPTZ NOT NULL,
+    window_seconds INTEGER NOT NULL CHECK (window_seconds > 0),
+    type analytics_record_type NOT NULL,
+    name VARCHAR(100) NOT NULL,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    value_sum NUMERIC(19, 4) NOT NULL DEFAULT 0,
+    value_min NUMERIC(19, 4),
+    value_max NUMERIC(19, 4),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_analytics_event_aggregate_window UNIQUE (window_start, window_seconds, type, name)
+);
+
+-- Reads select one series over a time range
+CREATE INDEX idx_analytics_event_aggregate_series ON analytics_event_aggregate (type, name, window_start);
+
+-- Next offset per partition, committed in the same transaction as the aggregates it covers
+CREATE TABLE analytics_consumer_offset (
+    id BIGSERIAL PRIMARY KEY,
+    consumer_group VARCHAR(100) NOT NULL,
+    topic VARCHAR(100) NOT NULL,
+    partition_id INTEGER NOT NULL,
+    next_offset BIGINT NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_analytics_consumer_offset_partition UNIQUE (consumer_group, topic, partition_id)
+);
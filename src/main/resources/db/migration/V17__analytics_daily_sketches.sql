@@ -0,0 +1,20 @@
+-- Analytics Daily Sketches Migration
+-- V17__analytics_daily_sketches.sql
+
+-- Per-day HyperLogLog (distinct customers) and t-digest (delivery minutes, order value) sketches,
+-- globally and per partner. Rebuilt with the day rollups and merged to answer any day range.
+CREATE TABLE analytics_daily_sketch (
+    id BIGSERIAL PRIMARY KEY,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    scope VARCHAR(16) NOT NULL CHECK (scope IN ('GLOBAL', 'PARTNER', 'REGION')),
+    scope_key VARCHAR(100) NOT NULL DEFAULT '',
+    deliveries BIGINT NOT NULL DEFAULT 0,
+    customers_hll BYTEA NOT NULL,
+    delivery_minutes_digest BYTEA NOT NULL,
+    order_value_digest BYTEA NOT NULL,
+    refreshed_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_analytics_daily_sketch_day UNIQUE (bucket_start, scope, scope_key)
+);
+
+-- Range reads merge one scope's days
+CREATE INDEX idx_analytics_daily_sketch_scope_day ON analytics_daily_sketch (scope, scope_key, bucket_start);
@@ -0,0 +1,11 @@
+-- Audit Compliance Covering Index
+-- V18__audit_compliance_covering_index.sql
+
+-- Compliance scores count actions per audited entity inside a time window. Each entity is one
+-- range scan of this index and action/active are read from it, so the JSONB snapshots on the
+-- heap are never touched.
+CREATE INDEX IF NOT EXISTS ix_audit_logs_entity_created_action
+    ON audit_logs (entity_type, entity_id, created_at, action) INCLUDE (active);
+
+-- Superseded by the index above, which has the same leading columns.
+DROP INDEX IF EXISTS idx_audit_logs_entity_type_entity_id;
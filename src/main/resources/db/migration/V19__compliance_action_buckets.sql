@@ -0,0 +1,16 @@
+-- Compliance Action Buckets Migration
+-- V19__compliance_action_buckets.sql
+
+-- Daily audit action counts per compliance subject (SYSTEM, DRIVER, PARTNER), maintained as
+-- audit logs are written. subject_id is the driver or partner id and 0 for the system scope.
+CREATE TABLE compliance_action_bucket (
+    id BIGSERIAL PRIMARY KEY,
+    scope VARCHAR(16) NOT NULL CHECK (scope IN ('SYSTEM', 'DRIVER', 'PARTNER')),
+    subject_id BIGINT NOT NULL DEFAULT 0,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    action VARCHAR(32) NOT NULL,
+    action_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Score reads scan one subject over a day range, so the key doubles as the read index
+    CONSTRAINT uk_compliance_action_bucket UNIQUE (scope, subject_id, bucket_start, action)
+);
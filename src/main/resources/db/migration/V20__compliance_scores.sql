@@ -0,0 +1,20 @@
+-- Compliance Scores Migration
+-- V20__compliance_scores.sql
+
+-- Nightly compliance scores for every subject with audit activity in the scoring window,
+-- written in JDBC batches by the compliance score batch job. A run replaces its score_date.
+CREATE TABLE compliance_score (
+    id BIGSERIAL PRIMARY KEY,
+    scope VARCHAR(16) NOT NULL CHECK (scope IN ('SYSTEM', 'DRIVER', 'PARTNER')),
+    subject_id BIGINT NOT NULL DEFAULT 0,
+    score_date DATE NOT NULL,
+    window_days INT NOT NULL,
+    action_count BIGINT NOT NULL,
+    score NUMERIC(5, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    computed_at TIMESTAMPTZ NOT NULL,
+    CONSTRAINT uk_compliance_score_subject_date UNIQUE (scope, subject_id, score_date)
+);
+
+-- Ranked listings read one scope and date, lowest scores first
+CREATE INDEX idx_compliance_score_date_rank ON compliance_score (scope, score_date, score, subject_id);
@@ -0,0 +1,21 @@
+-- Audit Log Outbox Migration
+-- V21__audit_log_outbox.sql
+
+-- Audit log entries written in the caller's transaction when the audit writer runs in durable
+-- mode, and moved to audit_logs (or the audit-logs topic) in batches by the relay. Enum values
+-- are kept as text here and cast when the relay inserts them into audit_logs.
+CREATE TABLE audit_log_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    entity_type VARCHAR(50) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    user_id BIGINT,
+    user_email VARCHAR(255),
+    before_snapshot TEXT,
+    after_snapshot TEXT,
+    changes_summary TEXT,
+    ip_address VARCHAR(45),
+    user_agent TEXT,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
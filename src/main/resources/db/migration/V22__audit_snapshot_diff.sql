@@ -0,0 +1,9 @@
+-- Audit Snapshot Diff Migration
+-- V22__audit_snapshot_diff.sql
+
+-- JSON-Patch of the entity's changed fields, written instead of the full before/after
+-- snapshots when audit snapshots run in diff mode.
+ALTER TABLE audit_logs ADD COLUMN snapshot_diff JSONB;
+ALTER TABLE audit_log_outbox ADD COLUMN snapshot_diff TEXT;
+
+COMMENT ON COLUMN audit_logs.snapshot_diff IS 'JSON-Patch of the changed fields; replayed in order to rebuild entity state';
@@ -0,0 +1,19 @@
+-- Payment Reconciliation Migration
+-- V23__payment_reconciliation.sql
+
+-- Set by the reconciliation job once a provider settlement file confirms the payment
+ALTER TABLE payments ADD COLUMN reconciled BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE payments ADD COLUMN reconciled_at TIMESTAMPTZ;
+
+-- Progress of each partition of a settlement file, committed with the batch it covers so an
+-- interrupted run resumes after the last reconciled batch
+CREATE TABLE payment_reconciliation_checkpoint (
+    id BIGSERIAL PRIMARY KEY,
+    file_key VARCHAR(512) NOT NULL,
+    partition_index INT NOT NULL,
+    partition_count INT NOT NULL,
+    next_offset BIGINT NOT NULL,
+    end_offset BIGINT NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL,
+    CONSTRAINT uk_payment_reconciliation_checkpoint UNIQUE (file_key, partition_index)
+);
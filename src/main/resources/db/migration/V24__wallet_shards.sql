@@ -0,0 +1,19 @@
+-- Sharded Hot Wallets Migration
+-- V24__wallet_shards.sql
+
+-- Hot wallets keep their balance in shard_count sub-balances; 0 means the wallet is not sharded
+ALTER TABLE wallets ADD COLUMN shard_count INT NOT NULL DEFAULT 0;
+
+-- Shard a transaction was applied to; NULL when it spanned the whole wallet
+ALTER TABLE wallet_transactions ADD COLUMN shard_index INT;
+
+-- Named and typed as the WalletShard entity and the ledger's SQL expect it
+CREATE TABLE wallet_shard (
+    id BIGSERIAL PRIMARY KEY,
+    wallet_id BIGINT NOT NULL,
+    shard_index INT NOT NULL,
+    balance DECIMAL(10,2) NOT NULL DEFAULT 0 CHECK (balance >= 0),
+    updated_at TIMESTAMPTZ NOT NULL,
+    CONSTRAINT uk_wallet_shard UNIQUE (wallet_id, shard_index),
+    CONSTRAINT fk_wallet_shard_wallet FOREIGN KEY (wallet_id) REFERENCES wallets(id)
+);
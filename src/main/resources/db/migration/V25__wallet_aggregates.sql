@@ -0,0 +1,16 @@
+-- Wallet Aggregates Migration
+-- V25__wallet_aggregates.sql
+
+-- Running wallet totals per owner type, updated in the transaction of every credit and debit.
+-- Each owner type's totals are spread over slots so concurrent writers rarely update the same
+-- row; a total is the sum of its slots.
+CREATE TABLE wallet_aggregate (
+    id BIGSERIAL PRIMARY KEY,
+    owner_type VARCHAR(16) NOT NULL CHECK (owner_type IN ('DRIVER', 'PARTNER')),
+    slot INT NOT NULL,
+    balance DECIMAL(19,2) NOT NULL DEFAULT 0,
+    credits DECIMAL(19,2) NOT NULL DEFAULT 0,
+    debits DECIMAL(19,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_wallet_aggregate UNIQUE (owner_type, slot)
+);
@@ -0,0 +1,40 @@
+-- Wallet Owner Uniqueness Migration
+-- V26__wallet_owner_unique.sql
+
+-- Owners given several wallets by racing get-or-create calls keep one: the oldest active wallet,
+-- or the oldest one when none is active. The others' transactions move to it and their balances,
+-- held in their shards when they are sharded, are added to it; then they are deleted.
+CREATE TEMPORARY TABLE wallet_merge ON COMMIT DROP AS
+SELECT w.id AS wallet_id,
+       s.survivor_id,
+       CASE WHEN w.shard_count > 0
+            THEN (SELECT COALESCE(SUM(ws.balance), 0) FROM wallet_shard ws WHERE ws.wallet_id = w.id)
+            ELSE w.balance END AS balance
+FROM wallets w
+JOIN (SELECT owner_id, owner_type, (ARRAY_AGG(id ORDER BY active DESC, id))[1] AS survivor_id
+      FROM wallets
+      GROUP BY owner_id, owner_type
+      HAVING COUNT(*) > 1) s ON s.owner_id = w.owner_id AND s.owner_type = w.owner_type
+WHERE w.id <> s.survivor_id;
+
+-- A sharded survivor's balance is the sum of its shards, so the merged balance goes to its first shard too
+UPDATE wallet_shard ws SET balance = ws.balance + m.balance, updated_at = CURRENT_TIMESTAMP
+FROM (SELECT survivor_id, SUM(balance) AS balance FROM wallet_merge GROUP BY survivor_id) m
+WHERE ws.wallet_id = m.survivor_id AND ws.shard_index = 0;
+
+UPDATE wallets w SET balance = w.balance + m.balance, active = true, version = w.version + 1
+FROM (SELECT survivor_id, SUM(balance) AS balance FROM wallet_merge GROUP BY survivor_id) m
+WHERE w.id = m.survivor_id;
+
+UPDATE wallet_transactions wt SET wallet_id = m.survivor_id
+FROM wallet_merge m
+WHERE wt.wallet_id = m.wallet_id;
+
+DELETE FROM wallet_shard WHERE wallet_id IN (SELECT wallet_id FROM wallet_merge);
+DELETE FROM wallets WHERE id IN (SELECT wallet_id FROM wallet_merge);
+
+-- One wallet per owner, so concurrent get-or-create calls cannot both insert one; the same
+-- constraint the Wallet entity declares for the schema Hibernate generates, replacing the one
+-- V7 created under another name
+ALTER TABLE wallets DROP CONSTRAINT IF EXISTS uk_wallets_owner;
+ALTER TABLE wallets ADD CONSTRAINT uk_wallet_owner UNIQUE (owner_id, owner_type);
@@ -0,0 +1,6 @@
+-- Wallet Transaction Keyset Migration
+-- V27__wallet_transaction_keyset.sql
+
+-- Transaction history is paged and exported in (created_at, id) order, per wallet and per type
+CREATE INDEX ix_wallet_transactions_wallet_created ON wallet_transactions(wallet_id, created_at, id) WHERE active = true;
+CREATE INDEX ix_wallet_transactions_type_created ON wallet_transactions(transaction_type, created_at, id) WHERE active = true;
@@ -0,0 +1,23 @@
+-- Driver Payout Batch Migration
+-- V28__driver_payout_batches.sql
+
+-- One driver's payout within a payout run; a batch still PROCESSING after a crash is paid by the next run
+CREATE TABLE driver_payout_batch (
+    id BIGSERIAL PRIMARY KEY,
+    run_id VARCHAR(64) NOT NULL,
+    driver_id BIGINT NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    earning_count INT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    payout_reference VARCHAR(255),
+    failure_reason TEXT,
+    created_at TIMESTAMPTZ NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL,
+    CONSTRAINT fk_driver_payout_batch_driver FOREIGN KEY (driver_id) REFERENCES drivers(id)
+);
+
+CREATE INDEX ix_driver_payout_batch_status ON driver_payout_batch(status, updated_at);
+
+-- Batch that claimed the earning for payout
+ALTER TABLE driver_earnings ADD COLUMN payout_batch_id BIGINT;
+CREATE INDEX ix_driver_earnings_payout_batch_id ON driver_earnings(payout_batch_id);
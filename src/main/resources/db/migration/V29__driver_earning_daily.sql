@@ -0,0 +1,18 @@
+-- Driver Earning Daily Rollups Migration
+-- V29__driver_earning_daily.sql
+
+-- Sum and count of each driver's earnings per day (UTC) and payout status, updated in the
+-- transaction that creates an earning or changes its payout status. The revision goes up with
+-- every change and backs the ETags of the driver earnings endpoints.
+CREATE TABLE driver_earning_daily (
+    id BIGSERIAL PRIMARY KEY,
+    driver_id BIGINT NOT NULL,
+    earning_date DATE NOT NULL,
+    payout_status VARCHAR(20) NOT NULL,
+    amount DECIMAL(19,2) NOT NULL DEFAULT 0,
+    earning_count BIGINT NOT NULL DEFAULT 0,
+    revision BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_driver_earning_daily UNIQUE (driver_id, earning_date, payout_status),
+    CONSTRAINT fk_driver_earning_daily_driver FOREIGN KEY (driver_id) REFERENCES drivers(id)
+);
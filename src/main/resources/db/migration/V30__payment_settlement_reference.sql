@@ -0,0 +1,12 @@
+-- Payment Settlement References Migration
+-- V30__payment_settlement_reference.sql
+
+-- References each settlement file has reconciled, written with the batch and its checkpoint;
+-- the unique constraint makes a repeat of a reference anywhere in the file a duplicate
+CREATE TABLE payment_settlement_reference (
+    id BIGSERIAL PRIMARY KEY,
+    file_key VARCHAR(512) NOT NULL,
+    transaction_ref VARCHAR(255) NOT NULL,
+    file_offset BIGINT NOT NULL,
+    CONSTRAINT uk_payment_settlement_reference UNIQUE (file_key, transaction_ref)
+);
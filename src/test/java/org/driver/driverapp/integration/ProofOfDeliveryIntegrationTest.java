@@ -53,7 +53,7 @@ class ProofOfDeliveryIntegrationTest {
         // Create a test delivery
         testDelivery = Delivery.builder()
                 .deliveryCode("TEST-DEL-001")
-                .status(DeliveryStatus.IN_TRANSIT.name())
+                .status(DeliveryStatus.IN_TRANSIT)
                 .dropoffAddress("Test Address, Addis Ababa")
                 .createdAt(OffsetDateTime.now().toInstant())
                 .build();
@@ -129,7 +129,7 @@ class ProofOfDeliveryIntegrationTest {
     @WithMockUser(roles = "DRIVER")
     void uploadProofOfDelivery_InvalidStatus() throws Exception {
         // Given
-        testDelivery.setStatus(DeliveryStatus.DELIVERED.name());
+        testDelivery.setStatus(DeliveryStatus.DELIVERED);
         deliveryRepository.save(testDelivery);
 
         MockMultipartFile file = new MockMultipartFile(
@@ -296,13 +296,13 @@ class ProofOfDeliveryIntegrationTest {
         );
 
         // Test all valid statuses
-        String[] validStatuses = {
-                DeliveryStatus.IN_PROGRESS.name(),
-                DeliveryStatus.PICKED_UP.name(),
-                DeliveryStatus.IN_TRANSIT.name()
+        DeliveryStatus[] validStatuses = {
+                DeliveryStatus.IN_PROGRESS,
+                DeliveryStatus.PICKED_UP,
+                DeliveryStatus.IN_TRANSIT
         };
 
-        for (String status : validStatuses) {
+        for (DeliveryStatus status : validStatuses) {
             testDelivery.setStatus(status);
             deliveryRepository.save(testDelivery);
 
@@ -326,17 +326,17 @@ class ProofOfDeliveryIntegrationTest {
         );
 
         // Test invalid statuses
-        String[] invalidStatuses = {
-                DeliveryStatus.CREATED.name(),
-                DeliveryStatus.PENDING.name(),
-                DeliveryStatus.ACCEPTED.name(),
-                DeliveryStatus.DELIVERED.name(),
-                DeliveryStatus.CANCELED.name(),
-                DeliveryStatus.DELAYED.name(),
-                DeliveryStatus.DELIVERY_FAILED.name()
+        DeliveryStatus[] invalidStatuses = {
+                DeliveryStatus.CREATED,
+                DeliveryStatus.PENDING,
+                DeliveryStatus.ACCEPTED,
+                DeliveryStatus.DELIVERED,
+                DeliveryStatus.CANCELED,
+                DeliveryStatus.DELAYED,
+                DeliveryStatus.DELIVERY_FAILED
         };
 
-        for (String status : invalidStatuses) {
+        for (DeliveryStatus status : invalidStatuses) {
             testDelivery.setStatus(status);
             deliveryRepository.save(testDelivery);
 
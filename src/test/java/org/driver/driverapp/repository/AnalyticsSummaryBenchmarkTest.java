@@ -0,0 +1,186 @@
+package org.driver.driverapp.repository;
+
+import org.driver.driverapp.dto.analytics.response.AdminAnalyticsSummaryDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.service.AnalyticsService;
+import org.driver.driverapp.service.analytics.AnalyticsQueryExecutor;
+import org.driver.driverapp.service.analytics.AnalyticsRollupService;
+import org.driver.driverapp.service.analytics.AnalyticsSketchService;
+import org.driver.driverapp.service.analytics.AnalyticsSummaryCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Admin dashboard latency: the per-window query sequence the summary used to issue against the
+ * single-pass aggregates fanned out on {@link AnalyticsQueryExecutor}.
+ *
+ * <p>Opt-in, since seeding dominates the run time:
+ * {@code mvn test -Dtest=AnalyticsSummaryBenchmarkTest -Danalytics.benchmark.rows=200000}.
+ * For production-sized numbers point it at a migrated PostgreSQL database with
+ * {@code -Dspring.test.database.replace=none -Dspring.datasource.url=...} and
+ * {@code -Danalytics.benchmark.rows=10000000}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "analytics.benchmark.rows", matches = "\\d+")
+class AnalyticsSummaryBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsSummaryBenchmarkTest.class);
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private PartnerRepository partnerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private AnalyticsRollupRepository analyticsRollupRepository;
+
+    @Autowired
+    private AnalyticsDailySketchRepository analyticsDailySketchRepository;
+
+    @Test
+    void adminSummary_singlePassVersusPerWindowQueries() {
+        int rows = Integer.getInteger("analytics.benchmark.rows");
+        seed(rows);
+
+        AnalyticsQueryExecutor executor = new AnalyticsQueryExecutor(4);
+        // No rollups are seeded, so the summary aggregates the source rows
+        AnalyticsSketchService sketchService = new AnalyticsSketchService(analyticsDailySketchRepository, deliveryRepository);
+        AnalyticsRollupService rollupService = new AnalyticsRollupService(analyticsRollupRepository,
+                deliveryRepository, paymentRepository, customerRepository, sketchService);
+        AnalyticsService analyticsService = new AnalyticsService(null, deliveryRepository, driverRepository,
+                partnerRepository, customerRepository, paymentRepository, inventoryItemRepository, null, executor,
+                rollupService, sketchService, new AnalyticsSummaryCache(new NoOpCacheManager(), 0, 1));
+        try {
+            LocalDate today = LocalDate.now();
+            AdminAnalyticsSummaryDTO single = analyticsService.getAdminAnalyticsSummary(today, today);
+            assertEquals(perWindowDeliveriesThisMonth(), single.getTotalDeliveriesThisMonth());
+
+            double before = medianMillis(this::perWindowSummary);
+            double after = medianMillis(() -> analyticsService.getAdminAnalyticsSummary(today, today));
+
+            log.info("Admin summary over {} deliveries: per-window {} ms, single-pass {} ms ({}x)", rows,
+                    String.format("%.1f", before), String.format("%.1f", after), String.format("%.1f", before / after));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // The query sequence getAdminAnalyticsSummary issued before the single-pass aggregates
+    private Object perWindowSummary() {
+        ZoneId zone = ZoneId.systemDefault();
+        Instant todayStart = LocalDate.now().atStartOfDay(zone).toInstant();
+        Instant todayEnd = LocalDate.now().atTime(23, 59, 59).atZone(zone).toInstant();
+        Instant weekStart = LocalDate.now().minusWeeks(1).atStartOfDay(zone).toInstant();
+        Instant monthStart = LocalDate.now().minusMonths(1).atStartOfDay(zone).toInstant();
+        Instant now = Instant.now();
+
+        List<Object> results = new ArrayList<>();
+        results.add(deliveryRepository.countByCreatedAtBetween(todayStart, todayEnd));
+        results.add(deliveryRepository.countByCreatedAtBetween(weekStart, now));
+        results.add(deliveryRepository.countByCreatedAtBetween(monthStart, now));
+        results.add(deliveryRepository.countByStatusAndCreatedAtBetween(DeliveryStatus.DELIVERY_FAILED, todayStart, todayEnd));
+        results.add(deliveryRepository.countByStatusAndCreatedAtBetween(DeliveryStatus.DELIVERY_FAILED, weekStart, now));
+        results.add(deliveryRepository.countByStatusAndCreatedAtBetween(DeliveryStatus.DELIVERY_FAILED, monthStart, now));
+        results.add(driverRepository.count());
+        results.add(driverRepository.countByStatus(DriverStatus.BUSY));
+        results.add(driverRepository.countByStatus(DriverStatus.AVAILABLE));
+        results.add(paymentRepository.findAverageOrderValue());
+        results.add(partnerRepository.countByActiveTrue());
+        results.add(partnerRepository.count());
+        results.add(customerRepository.countByCreatedAtBetween(todayStart, todayEnd));
+        results.add(customerRepository.count());
+        return results;
+    }
+
+    private Long perWindowDeliveriesThisMonth() {
+        Instant monthStart = LocalDate.now().minusMonths(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        return deliveryRepository.countByCreatedAtBetween(monthStart, Instant.now());
+    }
+
+    private double medianMillis(Supplier<?> summary) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            summary.get();
+        }
+        double[] samples = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            summary.get();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_RUNS / 2];
+    }
+
+    private void seed(int rows) {
+        jdbcTemplate.update("INSERT INTO \"user\" (\"username\", \"password\", \"role\", \"enabled\") VALUES ('bench', 'bench', 'CUSTOMER', true)");
+        jdbcTemplate.update("INSERT INTO \"partners\" (\"name\", \"phone\", \"active\") VALUES ('Bench Partner', '0900000000', true)");
+        Long userId = jdbcTemplate.queryForObject("SELECT MAX(\"id\") FROM \"user\"", Long.class);
+        Long partnerId = jdbcTemplate.queryForObject("SELECT MAX(\"id\") FROM \"partners\"", Long.class);
+
+        DeliveryStatus[] statuses = DeliveryStatus.values();
+        Instant now = Instant.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int offset = 0; offset < rows; offset += BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = offset; i < Math.min(rows, offset + BATCH_SIZE); i++) {
+                Instant createdAt = now.minus(random.nextLong(90L * 24 * 60), ChronoUnit.MINUTES);
+                batch.add(new Object[]{"BENCH-" + i, "Bole, Addis Ababa", statuses[random.nextInt(statuses.length)].name(),
+                        3.5, 120.0, partnerId, Timestamp.from(createdAt)});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO \"delivery\" (\"delivery_code\", \"dropoff_address\", \"status\", " +
+                    "\"distance_in_km\", \"price\", \"partner_id\", \"created_at\") VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+        }
+
+        // One payment for every other delivery, stamped with its delivery's creation time
+        jdbcTemplate.update("INSERT INTO \"payment\" (\"user_id\", \"delivery_id\", \"amount\", \"currency\", \"provider\", " +
+                "\"status\", \"active\", \"reconciled\", \"created_at\") SELECT ?, d.\"id\", ?, 'ETB', 'TELEBIRR', " +
+                "CASE WHEN MOD(d.\"id\", 3) = 0 THEN 'PENDING' ELSE 'COMPLETED' END, true, false, d.\"created_at\" " +
+                "FROM \"delivery\" d WHERE MOD(d.\"id\", 2) = 0", userId, BigDecimal.valueOf(150));
+    }
+}
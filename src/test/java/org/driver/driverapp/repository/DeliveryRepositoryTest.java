@@ -32,7 +32,7 @@ class DeliveryRepositoryTest {
                 .deliveryCode("DEL-1")
                 .pickupPartner(partner)
                 .dropoffAddress("Dest")
-                .status("CREATED")
+                .status(org.driver.driverapp.enums.DeliveryStatus.CREATED)
                 .driver(driver)
                 .build();
 
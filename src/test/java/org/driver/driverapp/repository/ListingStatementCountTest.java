@@ -0,0 +1,200 @@
+package org.driver.driverapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.enums.InvoiceStatus;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.enums.Role;
+import org.driver.driverapp.mapper.DeliveryMapper;
+import org.driver.driverapp.mapper.DriverEarningMapper;
+import org.driver.driverapp.mapper.DriverEarningMapperImpl;
+import org.driver.driverapp.mapper.InvoiceMapper;
+import org.driver.driverapp.mapper.InvoiceMapperImpl;
+import org.driver.driverapp.mapper.PaymentMapper;
+import org.driver.driverapp.mapper.PaymentMapperImpl;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Driver;
+import org.driver.driverapp.model.DriverEarning;
+import org.driver.driverapp.model.Invoice;
+import org.driver.driverapp.model.Partner;
+import org.driver.driverapp.model.Payment;
+import org.driver.driverapp.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Guards the listing queries against N+1 lazy loading: mapping a page of entities to DTOs
+ * must cost the same number of statements no matter how many rows the page holds.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true"
+})
+@ActiveProfiles("test")
+@Import({DeliveryMapper.class, PaymentMapperImpl.class, DriverEarningMapperImpl.class, InvoiceMapperImpl.class})
+class ListingStatementCountTest {
+
+    private static final int ROWS = 12;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private DriverEarningRepository driverEarningRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private DeliveryMapper deliveryMapper;
+
+    @Autowired
+    private PaymentMapper paymentMapper;
+
+    @Autowired
+    private DriverEarningMapper driverEarningMapper;
+
+    @Autowired
+    private InvoiceMapper invoiceMapper;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            Partner pickup = persist(Partner.builder().name("Pickup " + i).phone("0911" + i).build());
+            Partner dropoff = persist(Partner.builder().name("Dropoff " + i).phone("0922" + i).build());
+            Driver driver = persist(Driver.builder().name("Driver " + i).phoneNumber("0933" + i)
+                    .status(DriverStatus.AVAILABLE).build());
+            User user = persist(User.builder().username("user" + i).password("password-" + i)
+                    .role(Role.CUSTOMER).fullName("User " + i).build());
+
+            Delivery delivery = persist(Delivery.builder()
+                    .deliveryCode("DEL-" + i)
+                    .pickupPartner(pickup)
+                    .dropoffPartner(dropoff)
+                    .partner(pickup)
+                    .driver(driver)
+                    .dropoffAddress("Bole, Addis Ababa")
+                    .status(DeliveryStatus.CREATED)
+                    .build());
+
+            persist(Payment.builder()
+                    .user(user)
+                    .delivery(delivery)
+                    .amount(BigDecimal.valueOf(100 + i))
+                    .provider(PaymentProvider.TELEBIRR)
+                    .status(PaymentStatus.PENDING)
+                    .build());
+
+            persist(DriverEarning.builder()
+                    .driver(driver)
+                    .delivery(delivery)
+                    .amount(BigDecimal.valueOf(75 + i))
+                    .payoutStatus(PayoutStatus.PENDING)
+                    .build());
+
+            persist(Invoice.builder()
+                    .partner(pickup)
+                    .invoiceNumber("INV-" + i)
+                    .totalAmount(BigDecimal.valueOf(500 + i))
+                    .dueDate(LocalDate.now().plusDays(7))
+                    .status(InvoiceStatus.SENT)
+                    .build());
+        }
+        entityManager.flush();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void deliveryListing_usesSingleStatement() {
+        assertEquals(1, statementsFor(() -> deliveryRepository.findAllWithParties().stream()
+                .map(deliveryMapper::toDTO)
+                .toList()
+                .size()));
+    }
+
+    @Test
+    void paymentPages_useFixedStatementCount() {
+        int small = statementsFor(() -> paymentRepository
+                .findByStatusAndActiveTrue(PaymentStatus.PENDING, PageRequest.of(0, 3))
+                .map(paymentMapper::toResponseDTO).getNumberOfElements());
+        int large = statementsFor(() -> paymentRepository
+                .findByStatusAndActiveTrue(PaymentStatus.PENDING, PageRequest.of(0, ROWS - 1))
+                .map(paymentMapper::toResponseDTO).getNumberOfElements());
+
+        assertEquals(2, small); // page select + count
+        assertEquals(small, large);
+        assertEquals(1, statementsFor(() -> paymentMapper
+                .toResponseDTOList(paymentRepository.findByStatusAndActiveTrue(PaymentStatus.PENDING)).size()));
+    }
+
+    @Test
+    void driverEarningPages_useFixedStatementCount() {
+        int small = statementsFor(() -> driverEarningRepository
+                .findByPayoutStatusAndActiveTrue(PayoutStatus.PENDING, PageRequest.of(0, 3))
+                .map(driverEarningMapper::toResponseDTO).getNumberOfElements());
+        int large = statementsFor(() -> driverEarningRepository
+                .findByPayoutStatusAndActiveTrue(PayoutStatus.PENDING, PageRequest.of(0, ROWS - 1))
+                .map(driverEarningMapper::toResponseDTO).getNumberOfElements());
+
+        assertEquals(2, small); // page select + count
+        assertEquals(small, large);
+        assertEquals(1, statementsFor(() -> driverEarningMapper
+                .toResponseDTOList(driverEarningRepository.findPendingPayouts()).size()));
+    }
+
+    @Test
+    void invoicePages_useFixedStatementCount() {
+        int small = statementsFor(() -> invoiceRepository
+                .findByStatusAndActiveTrue(InvoiceStatus.SENT, PageRequest.of(0, 3))
+                .map(invoiceMapper::toResponseDTO).getNumberOfElements());
+        int large = statementsFor(() -> invoiceRepository
+                .findByStatusAndActiveTrue(InvoiceStatus.SENT, PageRequest.of(0, ROWS - 1))
+                .map(invoiceMapper::toResponseDTO).getNumberOfElements());
+
+        assertEquals(2, small); // page select + count
+        assertEquals(small, large);
+        assertEquals(1, statementsFor(() -> invoiceMapper
+                .toResponseDTOList(invoiceRepository.findUnpaidInvoices()).size()));
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+
+    private int statementsFor(IntSupplier listing) {
+        entityManager.clear();
+        statistics.clear();
+        listing.getAsInt();
+        return (int) statistics.getPrepareStatementCount();
+    }
+}
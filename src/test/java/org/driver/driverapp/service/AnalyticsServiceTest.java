@@ -4,26 +4,35 @@ import org.driver.driverapp.dto.analytics.request.CreateAnalyticsRecordRequestDT
 import org.driver.driverapp.dto.analytics.response.*;
 import org.driver.driverapp.enums.AnalyticsRecordType;
 import org.driver.driverapp.enums.DeliveryStatus;
-import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.enums.RollupScope;
 import org.driver.driverapp.mapper.AnalyticsRecordMapper;
 import org.driver.driverapp.model.AnalyticsRecord;
 import org.driver.driverapp.repository.*;
+import org.driver.driverapp.service.analytics.AnalyticsQueryExecutor;
+import org.driver.driverapp.service.analytics.AnalyticsRollupService;
+import org.driver.driverapp.service.analytics.AnalyticsSketchService;
+import org.driver.driverapp.service.analytics.AnalyticsSummaryCache;
+import org.driver.driverapp.service.analytics.DeliverySketchSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -60,6 +69,18 @@ class AnalyticsServiceTest {
     @Mock
     private AnalyticsRecordMapper analyticsRecordMapper;
     
+    @Spy
+    private AnalyticsQueryExecutor analyticsQueryExecutor = new AnalyticsQueryExecutor(2);
+    
+    @Mock
+    private AnalyticsRollupService analyticsRollupService;
+    
+    @Mock
+    private AnalyticsSketchService analyticsSketchService;
+    
+    @Spy
+    private AnalyticsSummaryCache analyticsSummaryCache = new AnalyticsSummaryCache(new NoOpCacheManager(), 60_000, 1);
+    
     @InjectMocks
     private AnalyticsService analyticsService;
     
@@ -175,18 +196,24 @@ class AnalyticsServiceTest {
         // Note: startDate and endDate are calculated but not used in current implementation
         // They are kept for potential future use in date-range specific queries
         
-        when(deliveryRepository.countByCreatedAtBetween(any(), any())).thenReturn(100L);
-        when(deliveryRepository.countByStatusAndCreatedAtBetween(eq(DeliveryStatus.DELIVERY_FAILED), any(), any())).thenReturn(5L);
-        when(driverRepository.countByStatusAndLastActiveAtBetween(eq(DriverStatus.AVAILABLE), any(), any())).thenReturn(50L);
-        when(driverRepository.count()).thenReturn(100L);
-        when(driverRepository.countByStatus(DriverStatus.BUSY)).thenReturn(20L);
-        when(driverRepository.countByStatus(DriverStatus.AVAILABLE)).thenReturn(30L);
-        when(paymentRepository.sumAmountByStatusAndCreatedAtBetween(eq("COMPLETED"), any(), any())).thenReturn(BigDecimal.valueOf(10000));
-        when(paymentRepository.findAverageOrderValue()).thenReturn(BigDecimal.valueOf(100));
-        when(partnerRepository.countByActiveTrue()).thenReturn(25L);
-        when(partnerRepository.count()).thenReturn(30L);
-        when(customerRepository.countByCreatedAtBetween(any(), any())).thenReturn(200L);
-        when(customerRepository.count()).thenReturn(1000L);
+        when(deliveryRepository.summarizeWindows(eq(DeliveryStatus.DELIVERY_FAILED), any(), any(), any(), any(), any()))
+                .thenReturn(projection(DeliveryRepository.DeliveryWindowCounts.class, Map.of(
+                        "totalToday", 100L, "totalThisWeek", 100L, "totalThisMonth", 100L,
+                        "statusToday", 5L, "statusThisWeek", 5L, "statusThisMonth", 5L)));
+        when(driverRepository.summarizeStatuses(any(), any()))
+                .thenReturn(projection(DriverRepository.DriverStatusCounts.class, Map.of(
+                        "totalDrivers", 100L, "driversOnDelivery", 20L, "driversAvailable", 30L, "activeToday", 50L)));
+        when(paymentRepository.summarizeWindows(any(), any(), any(), any(), any()))
+                .thenReturn(projection(PaymentRepository.PaymentWindowTotals.class, Map.of(
+                        "completedToday", BigDecimal.valueOf(10000), "completedThisWeek", BigDecimal.valueOf(10000),
+                        "completedThisMonth", BigDecimal.valueOf(10000), "pendingTotal", BigDecimal.ZERO,
+                        "completedTotal", BigDecimal.valueOf(10000), "averageAmount", BigDecimal.valueOf(100))));
+        when(partnerRepository.summarizeCounts())
+                .thenReturn(projection(PartnerRepository.PartnerCounts.class, Map.of(
+                        "totalPartners", 30L, "activePartners", 25L)));
+        when(customerRepository.summarizeCounts(any(), any()))
+                .thenReturn(projection(CustomerRepository.CustomerCounts.class, Map.of(
+                        "totalCustomers", 1000L, "newCustomers", 200L)));
         
         // When
         AdminAnalyticsSummaryDTO result = analyticsService.getAdminAnalyticsSummary(fromDate, toDate);
@@ -215,6 +242,31 @@ class AnalyticsServiceTest {
         assertEquals(toDate, result.getToDate());
     }
     
+    @Test
+    void getPartnerAnalyticsSummary_ReadsDeliveryWindowsFromRollupsWhenCovered() {
+        Long partnerId = 1L;
+        LocalDate today = LocalDate.now();
+        
+        when(analyticsRollupService.findDeliveryWindows(eq(RollupScope.PARTNER), eq("1"), eq(DeliveryStatus.DELIVERED), any()))
+                .thenReturn(Optional.of(projection(DeliveryRepository.DeliveryWindowCounts.class, Map.of(
+                        "totalToday", 7L, "totalThisWeek", 30L, "totalThisMonth", 90L,
+                        "statusToday", 6L, "statusThisWeek", 28L, "statusThisMonth", 85L))));
+        when(paymentRepository.summarizeWindowsByPartnerId(eq(partnerId), any(), any(), any(), any(), any()))
+                .thenReturn(projection(PaymentRepository.PaymentWindowTotals.class, Map.of()));
+        when(inventoryItemRepository.summarizeByPartnerId(eq(partnerId), eq(10), any()))
+                .thenReturn(projection(InventoryItemRepository.InventorySummary.class, Map.of()));
+        when(analyticsSketchService.summarizePartner(partnerId, today, today))
+                .thenReturn(new DeliverySketchSummary(0, 0, null, null, null, null));
+        
+        PartnerAnalyticsSummaryDTO result = analyticsService.getPartnerAnalyticsSummary(partnerId, today, today);
+        
+        assertEquals(7L, result.getTotalOrdersToday());
+        assertEquals(90L, result.getTotalOrdersThisMonth());
+        assertEquals(28L, result.getCompletedOrdersThisWeek());
+        assertEquals(BigDecimal.ZERO, result.getTotalBillingToday());
+        verify(deliveryRepository, never()).summarizeWindowsByPartnerId(any(), any(), any(), any(), any(), any(), any());
+    }
+    
     @Test
     void getPartnerAnalyticsSummary_Success() {
         // Given
@@ -222,19 +274,23 @@ class AnalyticsServiceTest {
         LocalDate fromDate = LocalDate.now().minusDays(30);
         LocalDate toDate = LocalDate.now();
         
-        when(deliveryRepository.countByPartnerIdAndCreatedAtBetween(eq(partnerId), any(), any())).thenReturn(50L);
-        when(deliveryRepository.countByPartnerIdAndStatusAndCreatedAtBetween(eq(partnerId), eq(DeliveryStatus.DELIVERED), any(), any())).thenReturn(45L);
-        when(paymentRepository.sumAmountByPartnerIdAndStatusAndCreatedAtBetween(eq(partnerId), eq("COMPLETED"), any(), any())).thenReturn(BigDecimal.valueOf(5000));
-        when(paymentRepository.sumAmountByPartnerIdAndStatus(eq(partnerId), eq("PENDING"))).thenReturn(BigDecimal.valueOf(500));
-        when(paymentRepository.sumAmountByPartnerIdAndStatus(eq(partnerId), eq("COMPLETED"))).thenReturn(BigDecimal.valueOf(5000));
-        when(inventoryItemRepository.countByPartnerIdAndActiveTrue(partnerId)).thenReturn(100L);
-        when(inventoryItemRepository.countByPartnerIdAndQuantityLessThanAndActiveTrue(eq(partnerId), eq(10L))).thenReturn(5L);
-        when(inventoryItemRepository.countByPartnerIdAndQuantityEqualsAndActiveTrue(eq(partnerId), eq(0L))).thenReturn(2L);
-        when(inventoryItemRepository.countByPartnerIdAndExpiryDateBeforeAndActiveTrue(eq(partnerId), any())).thenReturn(1L);
-        when(inventoryItemRepository.sumTotalValueByPartnerIdAndActiveTrue(partnerId)).thenReturn(BigDecimal.valueOf(10000));
-        when(paymentRepository.findAverageOrderValueByPartnerId(partnerId)).thenReturn(BigDecimal.valueOf(100));
-        when(deliveryRepository.countDistinctCustomerIdByPartnerId(partnerId)).thenReturn(30L);
-        when(deliveryRepository.countRepeatCustomersByPartnerId(partnerId)).thenReturn(10L);
+        when(deliveryRepository.summarizeWindowsByPartnerId(eq(partnerId), eq(DeliveryStatus.DELIVERED), any(), any(), any(), any(), any()))
+                .thenReturn(projection(DeliveryRepository.DeliveryWindowCounts.class, Map.of(
+                        "totalToday", 50L, "totalThisWeek", 50L, "totalThisMonth", 50L,
+                        "statusToday", 45L, "statusThisWeek", 45L, "statusThisMonth", 45L)));
+        when(paymentRepository.summarizeWindowsByPartnerId(eq(partnerId), any(), any(), any(), any(), any()))
+                .thenReturn(projection(PaymentRepository.PaymentWindowTotals.class, Map.of(
+                        "completedToday", BigDecimal.valueOf(5000), "completedThisWeek", BigDecimal.valueOf(5000),
+                        "completedThisMonth", BigDecimal.valueOf(5000), "pendingTotal", BigDecimal.valueOf(500),
+                        "completedTotal", BigDecimal.valueOf(5000), "averageAmount", BigDecimal.valueOf(100))));
+        when(inventoryItemRepository.summarizeByPartnerId(eq(partnerId), eq(10), any()))
+                .thenReturn(projection(InventoryItemRepository.InventorySummary.class, Map.of(
+                        "totalItems", 100L, "lowStockItems", 5L, "outOfStockItems", 2L, "expiredItems", 1L,
+                        "totalValue", BigDecimal.valueOf(10000))));
+        when(analyticsSketchService.summarizePartner(partnerId, fromDate, toDate))
+                .thenReturn(new DeliverySketchSummary(50, 30, 42.0, 95.5, 120.0, 349.999));
+        when(deliveryRepository.countRepeatCustomersByPartnerIdBetween(eq(partnerId), any(), any()))
+                .thenReturn(10L);
         
         // When
         PartnerAnalyticsSummaryDTO result = analyticsService.getPartnerAnalyticsSummary(partnerId, fromDate, toDate);
@@ -260,6 +316,10 @@ class AnalyticsServiceTest {
         assertEquals(BigDecimal.valueOf(100), result.getAverageOrderValue());
         assertEquals(30L, result.getTotalCustomers());
         assertEquals(10L, result.getRepeatCustomers());
+        assertEquals(42.0, result.getDeliveryMinutesP50());
+        assertEquals(95.5, result.getDeliveryMinutesP95());
+        assertEquals(new BigDecimal("120.00"), result.getOrderValueP50());
+        assertEquals(new BigDecimal("350.00"), result.getOrderValueP95());
         assertEquals(fromDate, result.getFromDate());
         assertEquals(toDate, result.getToDate());
     }
@@ -401,4 +461,8 @@ class AnalyticsServiceTest {
         assertTrue(partner.getComplianceScore().compareTo(BigDecimal.valueOf(30)) <= 0);
         assertEquals("POOR", partner.getStatus());
     }
+    
+    private static <T> T projection(Class<T> type, Map<String, Object> values) {
+        return new SpelAwareProxyProjectionFactory().createProjection(type, values);
+    }
 }
@@ -1,13 +1,19 @@
 package org.driver.driverapp.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.driver.driverapp.dto.audit.request.CreateAuditLogRequestDTO;
 import org.driver.driverapp.dto.audit.response.AuditLogResponseDTO;
+import org.driver.driverapp.dto.audit.response.AuditStateResponseDTO;
 import org.driver.driverapp.enums.AuditAction;
 import org.driver.driverapp.enums.AuditEntityType;
 import org.driver.driverapp.mapper.AuditLogMapper;
 import org.driver.driverapp.model.AuditLog;
 import org.driver.driverapp.repository.AuditLogRepository;
+import org.driver.driverapp.service.audit.AuditArchive;
+import org.driver.driverapp.service.audit.AuditLogWriter;
+import org.driver.driverapp.service.audit.AuditSnapshotter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -41,6 +47,15 @@ class AuditLogServiceTest {
     @Mock
     private ObjectMapper objectMapper;
     
+    @Mock
+    private AuditLogWriter auditLogWriter;
+    
+    @Mock
+    private AuditSnapshotter auditSnapshotter;
+    
+    @Mock
+    private AuditArchive auditArchive;
+    
     @InjectMocks
     private AuditLogService auditLogService;
     
@@ -102,7 +117,6 @@ class AuditLogServiceTest {
     void createAuditLog_Success() {
         // Given
         when(auditLogMapper.toEntity(createRequest)).thenReturn(auditLog);
-        when(auditLogRepository.save(auditLog)).thenReturn(auditLog);
         when(auditLogMapper.toResponseDTO(auditLog)).thenReturn(responseDTO);
         
         // When
@@ -116,7 +130,8 @@ class AuditLogServiceTest {
         assertEquals(AuditAction.CREATE, result.getAction());
         
         verify(auditLogMapper).toEntity(createRequest);
-        verify(auditLogRepository).save(auditLog);
+        verify(auditLogWriter).write(auditLog);
+        verify(auditLogRepository, never()).save(any());
         verify(auditLogMapper).toResponseDTO(auditLog);
     }
     
@@ -129,7 +144,6 @@ class AuditLogServiceTest {
         when(objectMapper.writeValueAsString(beforeSnapshot)).thenReturn("{\"status\":\"PENDING\"}");
         when(objectMapper.writeValueAsString(afterSnapshot)).thenReturn("{\"status\":\"ASSIGNED\"}");
         when(auditLogMapper.toEntity(any(CreateAuditLogRequestDTO.class))).thenReturn(auditLog);
-        when(auditLogRepository.save(auditLog)).thenReturn(auditLog);
         when(auditLogMapper.toResponseDTO(auditLog)).thenReturn(responseDTO);
         
         // When
@@ -143,14 +157,13 @@ class AuditLogServiceTest {
         
         verify(objectMapper).writeValueAsString(beforeSnapshot);
         verify(objectMapper).writeValueAsString(afterSnapshot);
-        verify(auditLogRepository).save(auditLog);
+        verify(auditLogWriter).write(auditLog);
     }
     
     @Test
     void createAuditLogWithSnapshots_NullSnapshots() throws Exception {
         // Given
         when(auditLogMapper.toEntity(any(CreateAuditLogRequestDTO.class))).thenReturn(auditLog);
-        when(auditLogRepository.save(auditLog)).thenReturn(auditLog);
         when(auditLogMapper.toResponseDTO(auditLog)).thenReturn(responseDTO);
         
         // When
@@ -162,7 +175,66 @@ class AuditLogServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
         
-        verify(auditLogRepository).save(auditLog);
+        verify(auditLogWriter).write(auditLog);
+    }
+    
+    @Test
+    void createAuditLogWithSnapshots_DiffModeStoresOnlyThePatch() throws Exception {
+        // Given
+        Object beforeSnapshot = Map.of("status", "PENDING");
+        Object afterSnapshot = Map.of("status", "ASSIGNED");
+        ObjectNode replace = JsonNodeFactory.instance.objectNode()
+                .put("op", "replace").put("path", "/status").put("value", "ASSIGNED");
+        
+        when(auditSnapshotter.isDiffMode()).thenReturn(true);
+        when(auditSnapshotter.diff(beforeSnapshot, afterSnapshot)).thenReturn(JsonNodeFactory.instance.arrayNode().add(replace));
+        when(auditLogMapper.toEntity(any(CreateAuditLogRequestDTO.class))).thenReturn(auditLog);
+        when(auditLogMapper.toResponseDTO(auditLog)).thenReturn(responseDTO);
+        
+        // When
+        auditLogService.createAuditLogWithSnapshots(
+                AuditEntityType.DELIVERY, 100L, AuditAction.UPDATE, 
+                beforeSnapshot, afterSnapshot, 1L, "test@example.com");
+        
+        // Then
+        verify(auditLogMapper).toEntity(argThat(request -> request.getBeforeSnapshot() == null
+                && request.getAfterSnapshot() == null
+                && "[{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"ASSIGNED\"}]".equals(request.getSnapshotDiff())
+                && "Entity updated: status".equals(request.getChangesSummary())));
+        verify(objectMapper, never()).writeValueAsString(any());
+        verify(auditLogWriter).write(auditLog);
+    }
+    
+    @Test
+    void reconstructState_ReplaysHistoryUpToTheVersion() {
+        // Given
+        ObjectNode state = JsonNodeFactory.instance.objectNode().put("status", "ASSIGNED");
+        List<AuditLog> history = List.of(auditLog);
+        when(auditLogRepository.findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtAscIdAsc(
+                AuditEntityType.DELIVERY, 100L, PageRequest.of(0, 1))).thenReturn(history);
+        when(auditSnapshotter.replay(history)).thenReturn(state);
+        
+        // When
+        Optional<AuditStateResponseDTO> result = auditLogService.reconstructState(AuditEntityType.DELIVERY, 100L, 1);
+        
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().getVersion());
+        assertEquals(1L, result.get().getAuditLogId());
+        assertEquals(state, result.get().getState());
+    }
+    
+    @Test
+    void reconstructState_UnknownVersionIsEmpty() {
+        // Given
+        when(auditLogRepository.findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtAscIdAsc(
+                AuditEntityType.DELIVERY, 100L, PageRequest.of(0, 3))).thenReturn(List.of(auditLog));
+        
+        // When / Then
+        assertFalse(auditLogService.reconstructState(AuditEntityType.DELIVERY, 100L, 3).isPresent());
+        assertThrows(IllegalArgumentException.class,
+                () -> auditLogService.reconstructState(AuditEntityType.DELIVERY, 100L, 0));
+        verify(auditSnapshotter, never()).replay(any());
     }
     
     @Test
@@ -272,6 +344,75 @@ class AuditLogServiceTest {
         verify(auditLogMapper).toResponseDTO(auditLog);
     }
     
+    @Test
+    void getAuditLogsByDateRange_FillsThePageFromTheArchive() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 2);
+        Instant startDate = Instant.now().minusSeconds(200 * 86400L);
+        Instant endDate = Instant.now();
+        AuditLog archived = AuditLog.builder().id(0L).entityType(AuditEntityType.DELIVERY).entityId(100L)
+                .action(AuditAction.CREATE).createdAt(startDate.plusSeconds(60)).build();
+        AuditLogResponseDTO archivedDTO = AuditLogResponseDTO.builder().id(0L).build();
+        
+        when(auditLogRepository.findByCreatedAtBetween(startDate, endDate, pageable))
+                .thenReturn(new PageImpl<>(List.of(auditLog), pageable, 1));
+        when(auditArchive.overlaps(startDate, endDate)).thenReturn(true);
+        when(auditArchive.countBetween(startDate, endDate)).thenReturn(4L);
+        when(auditArchive.findBetween(startDate, endDate, 0, 1)).thenReturn(List.of(archived));
+        when(auditLogMapper.toResponseDTO(auditLog)).thenReturn(responseDTO);
+        when(auditLogMapper.toResponseDTO(archived)).thenReturn(archivedDTO);
+        
+        // When
+        Page<AuditLogResponseDTO> result = auditLogService.getAuditLogsByDateRange(startDate, endDate, pageable);
+        
+        // Then
+        assertEquals(List.of(responseDTO, archivedDTO), result.getContent());
+        assertEquals(5, result.getTotalElements());
+    }
+    
+    @Test
+    void getAuditLogsByUser_FillsThePageFromTheArchive() {
+        // Given
+        Pageable pageable = PageRequest.of(1, 2);
+        AuditLog archived = AuditLog.builder().id(0L).userId(1L).action(AuditAction.CREATE)
+                .createdAt(Instant.EPOCH).build();
+        AuditLogResponseDTO archivedDTO = AuditLogResponseDTO.builder().id(0L).build();
+        
+        when(auditLogRepository.findByUserIdAndActiveTrueOrderByCreatedAtDesc(1L, pageable))
+                .thenReturn(new PageImpl<>(List.of(auditLog), pageable, 3));
+        when(auditArchive.count(any())).thenReturn(2L);
+        when(auditArchive.find(any(), eq(0L), eq(1))).thenReturn(List.of(archived));
+        when(auditLogMapper.toResponseDTO(auditLog)).thenReturn(responseDTO);
+        when(auditLogMapper.toResponseDTO(archived)).thenReturn(archivedDTO);
+        
+        // When
+        Page<AuditLogResponseDTO> result = auditLogService.getAuditLogsByUser(1L, pageable);
+        
+        // Then
+        assertEquals(List.of(responseDTO, archivedDTO), result.getContent());
+        assertEquals(5, result.getTotalElements());
+    }
+    
+    @Test
+    void reconstructState_ReplaysArchivedHistoryFirst() {
+        // Given
+        AuditLog archived = AuditLog.builder().id(0L).action(AuditAction.CREATE).createdAt(Instant.EPOCH).build();
+        ObjectNode state = JsonNodeFactory.instance.objectNode().put("status", "ASSIGNED");
+        when(auditArchive.findByEntity(AuditEntityType.DELIVERY, 100L)).thenReturn(List.of(archived));
+        when(auditLogRepository.findByEntityTypeAndEntityIdAndActiveTrueOrderByCreatedAtAscIdAsc(
+                AuditEntityType.DELIVERY, 100L, PageRequest.of(0, 1))).thenReturn(List.of(auditLog));
+        when(auditSnapshotter.replay(List.of(archived, auditLog))).thenReturn(state);
+        
+        // When
+        Optional<AuditStateResponseDTO> result = auditLogService.reconstructState(AuditEntityType.DELIVERY, 100L, 2);
+        
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(2, result.get().getVersion());
+        assertEquals(1L, result.get().getAuditLogId());
+        assertEquals(state, result.get().getState());
+    }
+    
     @Test
     void getAuditLogById_Success() {
         // Given
@@ -304,27 +445,6 @@ class AuditLogServiceTest {
         verify(auditLogMapper, never()).toResponseDTO(any());
     }
     
-    @Test
-    void getRecentAuditLogsForCompliance_Success() {
-        // Given
-        List<AuditEntityType> entityTypes = Arrays.asList(AuditEntityType.DELIVERY, AuditEntityType.DRIVER);
-        Instant startDate = Instant.now().minusSeconds(3600);
-        Instant endDate = Instant.now();
-        List<AuditLog> auditLogs = Arrays.asList(auditLog);
-        
-        when(auditLogRepository.findRecentAuditLogsForCompliance(entityTypes, startDate, endDate)).thenReturn(auditLogs);
-        
-        // When
-        List<AuditLog> result = auditLogService.getRecentAuditLogsForCompliance(entityTypes, startDate, endDate);
-        
-        // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(1L, result.get(0).getId());
-        
-        verify(auditLogRepository).findRecentAuditLogsForCompliance(entityTypes, startDate, endDate);
-    }
-    
     @Test
     void countByEntityTypeAndAction_Success() {
         // Given
@@ -343,12 +463,13 @@ class AuditLogServiceTest {
     void countByUserIdAndAction_Success() {
         // Given
         when(auditLogRepository.countByUserIdAndAction(1L, AuditAction.CREATE)).thenReturn(3L);
+        when(auditArchive.count(any())).thenReturn(2L);
         
         // When
         Long result = auditLogService.countByUserIdAndAction(1L, AuditAction.CREATE);
         
         // Then
-        assertEquals(3L, result);
+        assertEquals(5L, result);
         
         verify(auditLogRepository).countByUserIdAndAction(1L, AuditAction.CREATE);
     }
@@ -1,20 +1,31 @@
 package org.driver.driverapp.service;
 
 import org.driver.driverapp.enums.AuditAction;
-import org.driver.driverapp.enums.AuditEntityType;
-import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.dto.audit.response.ComplianceScoreResponseDTO;
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.model.ComplianceActionBucket;
+import org.driver.driverapp.model.ComplianceScore;
+import org.driver.driverapp.repository.ComplianceScoreRepository;
+import org.driver.driverapp.service.compliance.ComplianceBucketService;
+import org.driver.driverapp.service.compliance.ComplianceScoreCalculator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.Arrays;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -24,72 +35,58 @@ import static org.mockito.Mockito.*;
 class ComplianceScoringServiceTest {
     
     @Mock
-    private AuditLogService auditLogService;
+    private ComplianceBucketService complianceBucketService;
+    
+    @Mock
+    private ComplianceScoreRepository complianceScoreRepository;
     
     @InjectMocks
     private ComplianceScoringService complianceScoringService;
     
-    private AuditLog positiveAuditLog;
-    private AuditLog negativeAuditLog;
+    private Map<AuditAction, Long> positiveActions;
+    private Map<AuditAction, Long> negativeActions;
+    private Map<AuditAction, Long> mixedActions;
     private Instant startDate;
     private Instant endDate;
+    private LocalDate startDay;
+    private LocalDate endDay;
     
     @BeforeEach
     void setUp() {
         startDate = Instant.now().minusSeconds(3600);
         endDate = Instant.now();
+        startDay = startDate.atZone(ZoneId.systemDefault()).toLocalDate();
+        endDay = endDate.atZone(ZoneId.systemDefault()).toLocalDate();
         
-        positiveAuditLog = AuditLog.builder()
-                .id(1L)
-                .entityType(AuditEntityType.DELIVERY)
-                .entityId(100L)
-                .action(AuditAction.COMPLETE)
-                .userId(1L)
-                .userEmail("driver@example.com")
-                .active(true)
-                .createdAt(Instant.now())
-                .build();
-        
-        negativeAuditLog = AuditLog.builder()
-                .id(2L)
-                .entityType(AuditEntityType.DELIVERY)
-                .entityId(101L)
-                .action(AuditAction.CANCEL)
-                .userId(1L)
-                .userEmail("driver@example.com")
-                .active(true)
-                .createdAt(Instant.now())
-                .build();
+        positiveActions = Map.of(AuditAction.COMPLETE, 1L);
+        negativeActions = Map.of(AuditAction.CANCEL, 1L);
+        mixedActions = Map.of(AuditAction.LOGIN, 3L, AuditAction.LOGOUT, 2L);
     }
     
     @Test
     void calculateDriverComplianceScore_Success() {
         // Given
         Long driverId = 1L;
-        List<AuditLog> auditLogs = Arrays.asList(positiveAuditLog, negativeAuditLog);
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay))
+                .thenReturn(counts(mixedActions));
         
         // When
         BigDecimal result = complianceScoringService.calculateDriverComplianceScore(driverId, startDate, endDate);
         
         // Then
-        assertNotNull(result);
-        assertTrue(result.compareTo(BigDecimal.ZERO) >= 0);
-        assertTrue(result.compareTo(BigDecimal.valueOf(100)) <= 0);
+        assertEquals(new BigDecimal("20.00"), result);
         
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        verify(complianceBucketService).sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay);
     }
     
     @Test
     void calculateDriverComplianceScore_EmptyAuditLogs() {
         // Given
         Long driverId = 1L;
-        List<AuditLog> auditLogs = Arrays.asList();
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay))
+                .thenReturn(ComplianceScoreCalculator.emptyCounts());
         
         // When
         BigDecimal result = complianceScoringService.calculateDriverComplianceScore(driverId, startDate, endDate);
@@ -97,27 +94,24 @@ class ComplianceScoringServiceTest {
         // Then
         assertEquals(BigDecimal.ZERO, result);
         
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        verify(complianceBucketService).sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay);
     }
     
     @Test
     void calculatePartnerComplianceScore_Success() {
         // Given
         Long partnerId = 1L;
-        List<AuditLog> auditLogs = Arrays.asList(positiveAuditLog, negativeAuditLog);
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        when(complianceBucketService.sumActionCounts(ComplianceScope.PARTNER, partnerId, startDay, endDay))
+                .thenReturn(counts(mixedActions));
         
         // When
         BigDecimal result = complianceScoringService.calculatePartnerComplianceScore(partnerId, startDate, endDate);
         
         // Then
-        assertNotNull(result);
-        assertTrue(result.compareTo(BigDecimal.ZERO) >= 0);
-        assertTrue(result.compareTo(BigDecimal.valueOf(100)) <= 0);
+        assertEquals(new BigDecimal("20.00"), result);
         
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        verify(complianceBucketService).sumActionCounts(ComplianceScope.PARTNER, partnerId, startDay, endDay);
     }
     
     @Test
@@ -181,22 +175,67 @@ class ComplianceScoringServiceTest {
     }
     
     @Test
-    void calculateSystemComplianceScore_Success() {
+    void getComplianceStatus_JustBelowThreshold() {
+        assertEquals("GOOD", complianceScoringService.getComplianceStatus(new BigDecimal("89.999")));
+        assertEquals("EXCELLENT", complianceScoringService.getComplianceStatus(new BigDecimal("90.00")));
+    }
+    
+    @Test
+    void getLatestScores_ReadsTheMostRecentScoreDate() {
         // Given
-        List<AuditLog> auditLogs = Arrays.asList(positiveAuditLog, negativeAuditLog);
+        LocalDate scoreDate = LocalDate.now().minusDays(1);
+        Pageable pageable = PageRequest.of(0, 20);
+        ComplianceScore score = ComplianceScore.builder()
+                .scope(ComplianceScope.DRIVER)
+                .subjectId(7L)
+                .scoreDate(scoreDate)
+                .windowDays(30)
+                .actionCount(12L)
+                .score(new BigDecimal("42.00"))
+                .status("CRITICAL")
+                .computedAt(Instant.now())
+                .build();
+        
+        when(complianceScoreRepository.findLatestScoreDate(ComplianceScope.DRIVER)).thenReturn(Optional.of(scoreDate));
+        when(complianceScoreRepository.findByScopeAndScoreDateOrderByScoreAscSubjectIdAsc(ComplianceScope.DRIVER, scoreDate, pageable))
+                .thenReturn(new PageImpl<>(List.of(score), pageable, 1));
+        
+        // When
+        Page<ComplianceScoreResponseDTO> result = complianceScoringService.getLatestScores(ComplianceScope.DRIVER, pageable);
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        // Then
+        assertEquals(1, result.getTotalElements());
+        assertEquals(7L, result.getContent().get(0).getSubjectId());
+        assertEquals(new BigDecimal("42.00"), result.getContent().get(0).getScore());
+    }
+    
+    @Test
+    void getLatestScores_EmptyBeforeTheFirstRun() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 20);
+        when(complianceScoreRepository.findLatestScoreDate(ComplianceScope.PARTNER)).thenReturn(Optional.empty());
+        
+        // When
+        Page<ComplianceScoreResponseDTO> result = complianceScoringService.getLatestScores(ComplianceScope.PARTNER, pageable);
+        
+        // Then
+        assertTrue(result.isEmpty());
+        verify(complianceScoreRepository, never()).findByScopeAndScoreDateOrderByScoreAscSubjectIdAsc(any(), any(), any());
+    }
+    
+    @Test
+    void calculateSystemComplianceScore_Success() {
+        // Given
+        when(complianceBucketService.sumActionCounts(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT, startDay, endDay))
+                .thenReturn(counts(mixedActions));
         
         // When
         BigDecimal result = complianceScoringService.calculateSystemComplianceScore(startDate, endDate);
         
         // Then
-        assertNotNull(result);
-        assertTrue(result.compareTo(BigDecimal.ZERO) >= 0);
-        assertTrue(result.compareTo(BigDecimal.valueOf(100)) <= 0);
+        assertEquals(new BigDecimal("20.00"), result);
         
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        verify(complianceBucketService).sumActionCounts(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT, startDay, endDay);
     }
     
     @Test
@@ -205,23 +244,22 @@ class ComplianceScoringServiceTest {
         Long driverId = 1L;
         String entityType = "DRIVER";
         int days = 30;
-        List<AuditLog> currentAuditLogs = Arrays.asList(positiveAuditLog);
-        List<AuditLog> previousAuditLogs = Arrays.asList(negativeAuditLog);
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), any(Instant.class), any(Instant.class)))
-                .thenReturn(currentAuditLogs)
-                .thenReturn(previousAuditLogs);
+        LocalDate today = LocalDate.now();
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, today.minusDays(29), today))
+                .thenReturn(counts(positiveActions));
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, today.minusDays(59), today.minusDays(30)))
+                .thenReturn(counts(negativeActions));
         
         // When
         Map<String, BigDecimal> result = complianceScoringService.getComplianceTrends(driverId, entityType, days);
         
         // Then
-        assertNotNull(result);
-        assertTrue(result.containsKey("currentScore"));
-        assertTrue(result.containsKey("previousScore"));
-        assertTrue(result.containsKey("trend"));
+        assertEquals(new BigDecimal("100.00"), result.get("currentScore"));
+        assertEquals(new BigDecimal("0.00"), result.get("previousScore"));
+        assertEquals(new BigDecimal("100.00"), result.get("trend"));
         
-        verify(auditLogService, times(2)).getRecentAuditLogsForCompliance(anyList(), any(Instant.class), any(Instant.class));
+        verify(complianceBucketService, times(2)).sumActionCounts(eq(ComplianceScope.DRIVER), eq(driverId), any(LocalDate.class), any(LocalDate.class));
     }
     
     @Test
@@ -230,12 +268,12 @@ class ComplianceScoringServiceTest {
         Long partnerId = 1L;
         String entityType = "PARTNER";
         int days = 30;
-        List<AuditLog> currentAuditLogs = Arrays.asList(positiveAuditLog);
-        List<AuditLog> previousAuditLogs = Arrays.asList(negativeAuditLog);
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), any(Instant.class), any(Instant.class)))
-                .thenReturn(currentAuditLogs)
-                .thenReturn(previousAuditLogs);
+        LocalDate today = LocalDate.now();
+        when(complianceBucketService.sumActionCounts(ComplianceScope.PARTNER, partnerId, today.minusDays(29), today))
+                .thenReturn(counts(positiveActions));
+        when(complianceBucketService.sumActionCounts(ComplianceScope.PARTNER, partnerId, today.minusDays(59), today.minusDays(30)))
+                .thenReturn(counts(negativeActions));
         
         // When
         Map<String, BigDecimal> result = complianceScoringService.getComplianceTrends(partnerId, entityType, days);
@@ -246,7 +284,15 @@ class ComplianceScoringServiceTest {
         assertTrue(result.containsKey("previousScore"));
         assertTrue(result.containsKey("trend"));
         
-        verify(auditLogService, times(2)).getRecentAuditLogsForCompliance(anyList(), any(Instant.class), any(Instant.class));
+        verify(complianceBucketService, times(2)).sumActionCounts(eq(ComplianceScope.PARTNER), eq(partnerId), any(LocalDate.class), any(LocalDate.class));
+    }
+    
+    @Test
+    void getComplianceTrends_RejectsNonPositiveDays() {
+        assertThrows(IllegalArgumentException.class, () ->
+                complianceScoringService.getComplianceTrends(1L, "DRIVER", 0));
+        
+        verifyNoInteractions(complianceBucketService);
     }
     
     @Test
@@ -260,101 +306,59 @@ class ComplianceScoringServiceTest {
         assertThrows(IllegalArgumentException.class, () -> 
                 complianceScoringService.getComplianceTrends(entityId, entityType, days));
         
-        verify(auditLogService, never()).getRecentAuditLogsForCompliance(anyList(), any(Instant.class), any(Instant.class));
+        verifyNoInteractions(complianceBucketService);
     }
     
     @Test
-    void calculateScoreFromAuditLogs_PositiveActions() {
+    void calculateScoreFromActionCounts_PositiveActions() {
         // Given
         Long driverId = 1L;
-        AuditLog completeLog = AuditLog.builder()
-                .id(1L)
-                .entityType(AuditEntityType.DELIVERY)
-                .entityId(100L)
-                .action(AuditAction.COMPLETE)
-                .active(true)
-                .createdAt(Instant.now())
-                .build();
         
-        List<AuditLog> auditLogs = Arrays.asList(completeLog);
-        
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay))
+                .thenReturn(counts(positiveActions));
         
         // When
         BigDecimal result = complianceScoringService.calculateDriverComplianceScore(driverId, startDate, endDate);
         
         // Then
-        assertNotNull(result);
-        assertTrue(result.compareTo(BigDecimal.ZERO) > 0);
-        
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        assertEquals(new BigDecimal("100.00"), result);
     }
     
     @Test
-    void calculateScoreFromAuditLogs_NegativeActions() {
+    void calculateScoreFromActionCounts_NegativeActions() {
         // Given
         Long driverId = 1L;
-        AuditLog cancelLog = AuditLog.builder()
-                .id(1L)
-                .entityType(AuditEntityType.DELIVERY)
-                .entityId(100L)
-                .action(AuditAction.CANCEL)
-                .active(true)
-                .createdAt(Instant.now())
-                .build();
-        
-        List<AuditLog> auditLogs = Arrays.asList(cancelLog);
         
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay))
+                .thenReturn(counts(negativeActions));
         
         // When
         BigDecimal result = complianceScoringService.calculateDriverComplianceScore(driverId, startDate, endDate);
         
         // Then
-        assertNotNull(result);
-        // Score should be lower due to negative action
-        
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        assertEquals(new BigDecimal("0.00"), result);
     }
     
     @Test
-    void calculateScoreFromAuditLogs_MixedActions() {
+    void calculateScoreFromActionCounts_IgnoresUnweightedActions() {
         // Given
         Long driverId = 1L;
-        AuditLog completeLog = AuditLog.builder()
-                .id(1L)
-                .entityType(AuditEntityType.DELIVERY)
-                .entityId(100L)
-                .action(AuditAction.COMPLETE)
-                .active(true)
-                .createdAt(Instant.now())
-                .build();
-        
-        AuditLog cancelLog = AuditLog.builder()
-                .id(2L)
-                .entityType(AuditEntityType.DELIVERY)
-                .entityId(101L)
-                .action(AuditAction.CANCEL)
-                .active(true)
-                .createdAt(Instant.now())
-                .build();
+        Map<AuditAction, Long> actionCounts = Map.of(AuditAction.LOGIN, 3L, AuditAction.LOGOUT, 2L, AuditAction.UPDATE, 5L);
         
-        List<AuditLog> auditLogs = Arrays.asList(completeLog, cancelLog);
-        
-        when(auditLogService.getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate)))
-                .thenReturn(auditLogs);
+        when(complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, driverId, startDay, endDay))
+                .thenReturn(counts(actionCounts));
         
         // When
         BigDecimal result = complianceScoringService.calculateDriverComplianceScore(driverId, startDate, endDate);
         
         // Then
-        assertNotNull(result);
-        assertTrue(result.compareTo(BigDecimal.ZERO) >= 0);
-        assertTrue(result.compareTo(BigDecimal.valueOf(100)) <= 0);
-        
-        verify(auditLogService).getRecentAuditLogsForCompliance(anyList(), eq(startDate), eq(endDate));
+        // Unweighted actions still count towards the total the score is normalized by
+        assertEquals(new BigDecimal("10.00"), result);
+    }
+    
+    private static long[] counts(Map<AuditAction, Long> actionCounts) {
+        long[] counts = ComplianceScoreCalculator.emptyCounts();
+        actionCounts.forEach((action, count) -> counts[action.ordinal()] = count);
+        return counts;
     }
 }
-
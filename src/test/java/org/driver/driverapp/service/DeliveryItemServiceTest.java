@@ -3,6 +3,7 @@ package org.driver.driverapp.service;
 import org.driver.driverapp.dto.delivery.request.CreateDeliveryItemRequestDTO;
 import org.driver.driverapp.dto.delivery.request.UpdateDeliveryItemRequestDTO;
 import org.driver.driverapp.dto.delivery.response.DeliveryItemResponseDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
 import org.driver.driverapp.exception.ResourceNotFoundException;
 import org.driver.driverapp.mapper.DeliveryItemMapper;
 import org.driver.driverapp.model.Delivery;
@@ -58,7 +59,7 @@ class DeliveryItemServiceTest {
         testDelivery = Delivery.builder()
                 .id(1L)
                 .deliveryCode("DEL-001")
-                .status("PENDING")
+                .status(DeliveryStatus.PENDING)
                 .build();
 
         testProduct = Product.builder()
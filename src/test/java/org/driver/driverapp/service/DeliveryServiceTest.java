@@ -4,14 +4,18 @@ import org.driver.driverapp.dto.delivery.request.ProofOfDeliveryDTO;
 import org.driver.driverapp.dto.delivery.response.ProofOfDeliveryResponseDTO;
 import org.driver.driverapp.enums.DeliveryStatus;
 import org.driver.driverapp.enums.ProofOfDeliveryType;
+import org.driver.driverapp.mapper.DeliveryMapper;
 import org.driver.driverapp.model.Delivery;
 import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.service.delivery.DeliveryStatusChangedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.time.OffsetDateTime;
@@ -27,6 +31,12 @@ class DeliveryServiceTest {
     @Mock
     private DeliveryRepository deliveryRepository;
 
+    @Mock
+    private DeliveryMapper deliveryMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private Delivery delivery;
 
@@ -59,7 +69,7 @@ class DeliveryServiceTest {
         // Given
         Long deliveryId = 1L;
         when(deliveryRepository.findById(deliveryId)).thenReturn(Optional.of(delivery));
-        when(delivery.getStatus()).thenReturn(DeliveryStatus.IN_TRANSIT.name());
+        when(delivery.getStatus()).thenReturn(DeliveryStatus.IN_TRANSIT);
         when(deliveryRepository.save(any(Delivery.class))).thenReturn(delivery);
         when(delivery.getId()).thenReturn(deliveryId);
         when(delivery.getProofOfDeliveryType()).thenReturn(ProofOfDeliveryType.PHOTO);
@@ -109,7 +119,7 @@ class DeliveryServiceTest {
         // Given
         Long deliveryId = 1L;
         when(deliveryRepository.findById(deliveryId)).thenReturn(Optional.of(delivery));
-        when(delivery.getStatus()).thenReturn(DeliveryStatus.DELIVERED.name());
+        when(delivery.getStatus()).thenReturn(DeliveryStatus.DELIVERED);
 
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
@@ -188,13 +198,13 @@ class DeliveryServiceTest {
         when(delivery.getDeliveredAt()).thenReturn(OffsetDateTime.now());
 
         // Test valid statuses
-        String[] validStatuses = {
-            DeliveryStatus.IN_PROGRESS.name(),
-            DeliveryStatus.PICKED_UP.name(),
-            DeliveryStatus.IN_TRANSIT.name()
+        DeliveryStatus[] validStatuses = {
+            DeliveryStatus.IN_PROGRESS,
+            DeliveryStatus.PICKED_UP,
+            DeliveryStatus.IN_TRANSIT
         };
 
-        for (String status : validStatuses) {
+        for (DeliveryStatus status : validStatuses) {
             when(delivery.getStatus()).thenReturn(status);
 
             // When
@@ -213,17 +223,17 @@ class DeliveryServiceTest {
         when(deliveryRepository.findById(deliveryId)).thenReturn(Optional.of(delivery));
 
         // Test invalid statuses
-        String[] invalidStatuses = {
-            DeliveryStatus.CREATED.name(),
-            DeliveryStatus.PENDING.name(),
-            DeliveryStatus.ACCEPTED.name(),
-            DeliveryStatus.DELIVERED.name(),
-            DeliveryStatus.CANCELED.name(),
-            DeliveryStatus.DELAYED.name(),
-            DeliveryStatus.DELIVERY_FAILED.name()
+        DeliveryStatus[] invalidStatuses = {
+            DeliveryStatus.CREATED,
+            DeliveryStatus.PENDING,
+            DeliveryStatus.ACCEPTED,
+            DeliveryStatus.DELIVERED,
+            DeliveryStatus.CANCELED,
+            DeliveryStatus.DELAYED,
+            DeliveryStatus.DELIVERY_FAILED
         };
 
-        for (String status : invalidStatuses) {
+        for (DeliveryStatus status : invalidStatuses) {
             when(delivery.getStatus()).thenReturn(status);
 
             // When & Then
@@ -232,5 +242,63 @@ class DeliveryServiceTest {
             });
         }
     }
-}
 
+    @Test
+    void updateStatus_ValidTransition_PublishesEvent() {
+        // Given
+        Delivery accepted = Delivery.builder().id(1L).status(DeliveryStatus.ACCEPTED).build();
+        when(deliveryRepository.findWithPartiesById(1L)).thenReturn(Optional.of(accepted));
+        when(deliveryRepository.save(accepted)).thenReturn(accepted);
+
+        // When
+        deliveryService.updateStatus(1L, DeliveryStatus.PICKED_UP, "Picked up at store");
+
+        // Then
+        assertEquals(DeliveryStatus.PICKED_UP, accepted.getStatus());
+        assertNotNull(accepted.getPickupTime());
+
+        ArgumentCaptor<DeliveryStatusChangedEvent> captor = ArgumentCaptor.forClass(DeliveryStatusChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(1L, captor.getValue().getDeliveryId());
+        assertEquals(DeliveryStatus.ACCEPTED, captor.getValue().getPreviousStatus());
+        assertEquals(DeliveryStatus.PICKED_UP, captor.getValue().getNewStatus());
+        assertEquals("Picked up at store", captor.getValue().getMessage());
+    }
+
+    @Test
+    void updateStatus_InvalidTransition_Throws() {
+        // Given
+        Delivery delivered = Delivery.builder().id(1L).status(DeliveryStatus.DELIVERED).build();
+        when(deliveryRepository.findWithPartiesById(1L)).thenReturn(Optional.of(delivered));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () ->
+                deliveryService.updateStatus(1L, DeliveryStatus.IN_TRANSIT, null));
+
+        assertEquals(DeliveryStatus.DELIVERED, delivered.getStatus());
+        verify(deliveryRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateStatus_SameStatus_IsNoOp() {
+        // Given
+        Delivery inTransit = Delivery.builder().id(1L).status(DeliveryStatus.IN_TRANSIT).build();
+        when(deliveryRepository.findWithPartiesById(1L)).thenReturn(Optional.of(inTransit));
+
+        // When
+        deliveryService.updateStatus(1L, DeliveryStatus.IN_TRANSIT, null);
+
+        // Then
+        verify(deliveryRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateStatus_DeliveryNotFound() {
+        when(deliveryRepository.findWithPartiesById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () ->
+                deliveryService.updateStatus(1L, DeliveryStatus.ACCEPTED, null));
+    }
+}
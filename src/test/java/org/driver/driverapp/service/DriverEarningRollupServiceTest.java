@@ -0,0 +1,144 @@
+package org.driver.driverapp.service;
+
+import org.driver.driverapp.dto.driver.response.DriverDailyEarningDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Driver;
+import org.driver.driverapp.model.DriverEarning;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.repository.DriverEarningDailyRepository;
+import org.driver.driverapp.repository.DriverEarningRepository;
+import org.driver.driverapp.repository.DriverRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// New rollup rows are committed in their own transaction, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DriverEarningRollupServiceTest {
+
+    private static final Instant MARCH_1 = Instant.parse("2026-03-01T08:00:00Z");
+    private static final Instant MARCH_2 = Instant.parse("2026-03-02T23:30:00Z");
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DriverEarningRepository driverEarningRepository;
+
+    @Autowired
+    private DriverEarningDailyRepository driverEarningDailyRepository;
+
+    private DriverEarningRollupService rollupService;
+    private Driver driver;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new DriverEarningRollupService(driverEarningDailyRepository, driverEarningRepository,
+                transactionManager);
+        driver = driverRepository.save(Driver.builder()
+                .name("Abebe")
+                .phoneNumber("0711000001")
+                .status(DriverStatus.AVAILABLE)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driverEarningRepository.deleteAllInBatch();
+        driverEarningDailyRepository.deleteAllInBatch();
+        deliveryRepository.deleteAllInBatch();
+        driverRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void changesAreRolledUpPerDayAndPayoutStatus() {
+        long before = rollupService.revision(driver.getId());
+        apply(List.of(
+                DriverEarningRollupService.Change.created(driver.getId(), MARCH_1, new BigDecimal("30.00")),
+                DriverEarningRollupService.Change.created(driver.getId(), MARCH_1, new BigDecimal("20.00")),
+                DriverEarningRollupService.Change.created(driver.getId(), MARCH_2, new BigDecimal("40.00"))));
+        long created = rollupService.revision(driver.getId());
+        // The 30.00 earning of March 1 is paid out on a later day
+        apply(DriverEarningRollupService.Change.moved(driver.getId(), MARCH_1, new BigDecimal("30.00"),
+                PayoutStatus.PENDING, PayoutStatus.COMPLETED));
+
+        List<DriverDailyEarningDTO> days = rollupService.dailyEarnings(driver.getId(),
+                LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31));
+        assertEquals(2, days.size());
+        DriverDailyEarningDTO march1 = days.get(0);
+        assertEquals(LocalDate.of(2026, 3, 1), march1.getDate());
+        assertEquals(2, march1.getEarningCount());
+        assertEquals(0, new BigDecimal("50.00").compareTo(march1.getTotalAmount()));
+        assertEquals(0, new BigDecimal("20.00").compareTo(march1.getPendingAmount()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(march1.getPaidAmount()));
+        assertEquals(LocalDate.of(2026, 3, 2), days.get(1).getDate());
+        assertEquals(0, new BigDecimal("40.00").compareTo(days.get(1).getPendingAmount()));
+
+        assertEquals(0, new BigDecimal("90.00").compareTo(rollupService.totalEarnings(driver.getId())));
+        assertEquals(0, new BigDecimal("60.00").compareTo(rollupService.earnings(driver.getId(), PayoutStatus.PENDING)));
+        assertTrue(created > before);
+        assertTrue(rollupService.revision(driver.getId()) > created);
+    }
+
+    @Test
+    void rebuildSumsActiveEarnings() {
+        earning("25.00", PayoutStatus.PENDING, true);
+        earning("15.00", PayoutStatus.COMPLETED, true);
+        earning("99.00", PayoutStatus.PENDING, false);
+
+        rollupService.rebuild();
+
+        assertEquals(0, new BigDecimal("40.00").compareTo(rollupService.totalEarnings(driver.getId())));
+        assertEquals(0, new BigDecimal("25.00").compareTo(rollupService.earnings(driver.getId(), PayoutStatus.PENDING)));
+        LocalDate today = DriverEarningRollupService.day(Instant.now());
+        List<DriverDailyEarningDTO> days = rollupService.dailyEarnings(driver.getId(), today, today);
+        assertEquals(1, days.size());
+        assertEquals(2, days.get(0).getEarningCount());
+    }
+
+    private void apply(List<DriverEarningRollupService.Change> changes) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> rollupService.apply(changes));
+    }
+
+    private void earning(String amount, PayoutStatus payoutStatus, boolean active) {
+        Delivery delivery = deliveryRepository.save(Delivery.builder()
+                .deliveryCode("DEL-" + amount)
+                .dropoffAddress("Bole, Addis Ababa")
+                .status(DeliveryStatus.DELIVERED)
+                .driver(driver)
+                .build());
+        driverEarningRepository.save(DriverEarning.builder()
+                .driver(driver)
+                .delivery(delivery)
+                .amount(new BigDecimal(amount))
+                .payoutStatus(payoutStatus)
+                .active(active)
+                .build());
+    }
+}
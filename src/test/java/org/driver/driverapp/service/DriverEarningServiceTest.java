@@ -1,6 +1,7 @@
 package org.driver.driverapp.service;
 
 import org.driver.driverapp.dto.driver.response.DriverEarningResponseDTO;
+import org.driver.driverapp.dto.driver.response.DriverPayoutRunResultDTO;
 import org.driver.driverapp.enums.PayoutStatus;
 import org.driver.driverapp.exception.ResourceNotFoundException;
 import org.driver.driverapp.mapper.DriverEarningMapper;
@@ -10,6 +11,7 @@ import org.driver.driverapp.model.DriverEarning;
 import org.driver.driverapp.repository.DeliveryRepository;
 import org.driver.driverapp.repository.DriverEarningRepository;
 import org.driver.driverapp.repository.DriverRepository;
+import org.driver.driverapp.service.payment.DriverPayoutPipeline;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -45,6 +47,12 @@ class DriverEarningServiceTest {
     @Mock
     private DriverEarningMapper driverEarningMapper;
 
+    @Mock
+    private DriverPayoutPipeline driverPayoutPipeline;
+
+    @Mock
+    private DriverEarningRollupService driverEarningRollupService;
+
     @InjectMocks
     private DriverEarningService driverEarningService;
 
@@ -115,6 +123,7 @@ class DriverEarningServiceTest {
         assertEquals(testDriverEarningResponseDTO.getDeliveryId(), result.getDeliveryId());
 
         verify(driverEarningRepository).save(any(DriverEarning.class));
+        verify(driverEarningRollupService).apply(anyCollection());
     }
 
     @Test
@@ -344,7 +353,7 @@ class DriverEarningServiceTest {
         Long driverId = 1L;
         BigDecimal expectedTotal = BigDecimal.valueOf(1500.00);
 
-        when(driverEarningRepository.sumAmountByDriverId(driverId)).thenReturn(expectedTotal);
+        when(driverEarningRollupService.totalEarnings(driverId)).thenReturn(expectedTotal);
 
         // Act
         BigDecimal result = driverEarningService.getTotalEarningsByDriver(driverId);
@@ -359,8 +368,7 @@ class DriverEarningServiceTest {
         Long driverId = 1L;
         BigDecimal expectedTotal = BigDecimal.valueOf(500.00);
 
-        when(driverEarningRepository.sumAmountByDriverIdAndPayoutStatus(driverId, PayoutStatus.PENDING))
-                .thenReturn(expectedTotal);
+        when(driverEarningRollupService.earnings(driverId, PayoutStatus.PENDING)).thenReturn(expectedTotal);
 
         // Act
         BigDecimal result = driverEarningService.getPendingEarningsByDriver(driverId);
@@ -481,19 +489,20 @@ class DriverEarningServiceTest {
     }
 
     @Test
-    void processAllPendingPayouts_Success() {
+    void processAllPendingPayouts_DelegatesToPipeline() {
         // Arrange
-        List<DriverEarning> pendingEarnings = List.of(testDriverEarning);
-
-        when(driverEarningRepository.findPendingPayouts()).thenReturn(pendingEarnings);
-        when(driverEarningRepository.findByDriverIdAndPayoutStatusAndActiveTrue(testDriver.getId(), PayoutStatus.PENDING))
-                .thenReturn(pendingEarnings);
-        when(driverEarningRepository.save(any(DriverEarning.class))).thenReturn(testDriverEarning);
+        DriverPayoutRunResultDTO result = DriverPayoutRunResultDTO.builder()
+                .drivers(1)
+                .completed(1)
+                .amountPaid(new BigDecimal("100.00"))
+                .build();
+        when(driverPayoutPipeline.run()).thenReturn(result);
 
         // Act
-        driverEarningService.processAllPendingPayouts();
+        DriverPayoutRunResultDTO response = driverEarningService.processAllPendingPayouts();
 
         // Assert
-        verify(driverEarningRepository, times(2)).save(any(DriverEarning.class));
+        assertSame(result, response);
+        verify(driverEarningRepository, never()).findPendingPayouts();
     }
 }
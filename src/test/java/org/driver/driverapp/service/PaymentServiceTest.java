@@ -3,6 +3,7 @@ package org.driver.driverapp.service;
 import org.driver.driverapp.dto.payment.response.PaymentResponseDTO;
 import org.driver.driverapp.enums.PaymentProvider;
 import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
 import org.driver.driverapp.exception.ResourceNotFoundException;
 import org.driver.driverapp.mapper.PaymentMapper;
 import org.driver.driverapp.model.Delivery;
@@ -18,6 +19,7 @@ import org.driver.driverapp.service.payment.PaymentResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -25,11 +27,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -56,6 +62,9 @@ class PaymentServiceTest {
     @Mock
     private PaymentMapper paymentMapper;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -66,6 +75,9 @@ class PaymentServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         testUser = User.builder()
                 .id(1L)
                 .fullName("Test User")
@@ -121,6 +133,7 @@ class PaymentServiceTest {
         when(paymentRepository.findByDeliveryIdAndStatusAndActiveTrue(deliveryId, PaymentStatus.COMPLETED))
                 .thenReturn(Optional.empty());
         when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentProviderFactory.selectProvider(provider, List.of())).thenReturn(provider);
         when(paymentProviderFactory.getProvider(provider)).thenReturn(paymentProviderService);
 
         PaymentResponse providerResponse = PaymentResponse.builder()
@@ -130,11 +143,13 @@ class PaymentServiceTest {
                 .message("Payment initiated successfully")
                 .build();
 
-        when(paymentProviderService.initiatePayment(any(PaymentRequest.class))).thenReturn(providerResponse);
+        when(paymentProviderService.initiatePayment(any(PaymentRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(providerResponse));
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
         when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
 
         // Act
-        PaymentResponseDTO result = paymentService.initiatePayment(userId, deliveryId, provider, amount, phoneNumber, description);
+        PaymentResponseDTO result = paymentService.initiatePayment(userId, deliveryId, provider, amount, phoneNumber, description).join();
 
         // Assert
         assertNotNull(result);
@@ -224,12 +239,12 @@ class PaymentServiceTest {
                 .message("Payment confirmed successfully")
                 .build();
 
-        when(paymentProviderService.confirmPayment(transactionRef)).thenReturn(providerResponse);
+        when(paymentProviderService.confirmPayment(transactionRef)).thenReturn(CompletableFuture.completedFuture(providerResponse));
         when(paymentRepository.save(testPayment)).thenReturn(testPayment);
         when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
 
         // Act
-        PaymentResponseDTO result = paymentService.confirmPayment(transactionRef);
+        PaymentResponseDTO result = paymentService.confirmPayment(transactionRef).join();
 
         // Assert
         assertNotNull(result);
@@ -260,13 +275,14 @@ class PaymentServiceTest {
         // Arrange
         String transactionRef = "TEL_123456789";
         testPayment.setStatus(PaymentStatus.COMPLETED);
+        testPaymentResponseDTO.setStatus(PaymentStatus.COMPLETED);
 
         when(paymentRepository.findByTransactionRefAndActiveTrue(transactionRef))
                 .thenReturn(Optional.of(testPayment));
         when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
 
         // Act
-        PaymentResponseDTO result = paymentService.confirmPayment(transactionRef);
+        PaymentResponseDTO result = paymentService.confirmPayment(transactionRef).join();
 
         // Assert
         assertNotNull(result);
@@ -294,12 +310,12 @@ class PaymentServiceTest {
                 .errorCode("TEL_002")
                 .build();
 
-        when(paymentProviderService.confirmPayment(transactionRef)).thenReturn(providerResponse);
+        when(paymentProviderService.confirmPayment(transactionRef)).thenReturn(CompletableFuture.completedFuture(providerResponse));
         when(paymentRepository.save(testPayment)).thenReturn(testPayment);
         when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
 
         // Act
-        PaymentResponseDTO result = paymentService.confirmPayment(transactionRef);
+        PaymentResponseDTO result = paymentService.confirmPayment(transactionRef).join();
 
         // Assert
         assertNotNull(result);
@@ -310,6 +326,83 @@ class PaymentServiceTest {
         verify(paymentProviderService).confirmPayment(transactionRef);
     }
 
+    @Test
+    void initiatePayment_ProviderUnavailableMarksPaymentFailed() {
+        // Arrange
+        when(paymentProviderFactory.selectProvider(PaymentProvider.TELEBIRR, List.of())).thenReturn(PaymentProvider.TELEBIRR);
+        when(paymentProviderFactory.getProvider(PaymentProvider.TELEBIRR)).thenReturn(paymentProviderService);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(deliveryRepository.findById(1L)).thenReturn(Optional.of(testDelivery));
+        when(paymentRepository.findByDeliveryIdAndStatusAndActiveTrue(1L, PaymentStatus.COMPLETED))
+                .thenReturn(Optional.empty());
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
+        when(paymentProviderService.initiatePayment(any(PaymentRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                new PaymentProviderUnavailableException(PaymentProvider.TELEBIRR, PaymentProviderUnavailableException.Reason.BULKHEAD_FULL, "TELEBIRR is busy")));
+        when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
+
+        // Act
+        paymentService.initiatePayment(1L, 1L, PaymentProvider.TELEBIRR, BigDecimal.valueOf(150.00),
+                "+251912345678", "Test payment").join();
+
+        // Assert
+        assertEquals(PaymentStatus.FAILED, testPayment.getStatus());
+        assertEquals("TELEBIRR is busy", testPayment.getFailureReason());
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+
+    @Test
+    void initiatePayment_FallsBackWhenPreferredProviderIsFailing() {
+        // Arrange
+        List<PaymentProvider> fallbacks = List.of(PaymentProvider.CBE_BIRR);
+        when(paymentProviderFactory.selectProvider(PaymentProvider.TELEBIRR, fallbacks)).thenReturn(PaymentProvider.CBE_BIRR);
+        when(paymentProviderFactory.getProvider(PaymentProvider.CBE_BIRR)).thenReturn(paymentProviderService);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(deliveryRepository.findById(1L)).thenReturn(Optional.of(testDelivery));
+        when(paymentRepository.findByDeliveryIdAndStatusAndActiveTrue(1L, PaymentStatus.COMPLETED))
+                .thenReturn(Optional.empty());
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
+        when(paymentProviderService.initiatePayment(any(PaymentRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                PaymentResponse.builder().success(true).transactionRef("CBE_123").status(PaymentStatus.PROCESSING).build()));
+        when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
+
+        // Act
+        paymentService.initiatePayment(1L, 1L, PaymentProvider.TELEBIRR, fallbacks, BigDecimal.valueOf(150.00),
+                "+251912345678", "Test payment").join();
+
+        // Assert
+        ArgumentCaptor<PaymentRequest> request = ArgumentCaptor.forClass(PaymentRequest.class);
+        verify(paymentProviderService).initiatePayment(request.capture());
+        assertEquals(PaymentProvider.CBE_BIRR, request.getValue().getProvider());
+        ArgumentCaptor<Payment> payment = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository, times(2)).save(payment.capture());
+        assertEquals(PaymentProvider.CBE_BIRR, payment.getAllValues().get(0).getProvider());
+    }
+
+    @Test
+    void confirmPayment_ProviderUnavailableLeavesPaymentUnchanged() {
+        // Arrange
+        String transactionRef = "TEL_123456789";
+        testPayment.setStatus(PaymentStatus.PROCESSING);
+
+        when(paymentRepository.findByTransactionRefAndActiveTrue(transactionRef))
+                .thenReturn(Optional.of(testPayment));
+        when(paymentMapper.toResponseDTO(testPayment)).thenReturn(testPaymentResponseDTO);
+        when(paymentProviderFactory.getProvider(PaymentProvider.TELEBIRR)).thenReturn(paymentProviderService);
+        when(paymentProviderService.confirmPayment(transactionRef)).thenReturn(CompletableFuture.failedFuture(
+                new PaymentProviderUnavailableException(PaymentProvider.TELEBIRR, PaymentProviderUnavailableException.Reason.TIMEOUT, "TELEBIRR did not answer")));
+
+        // Act
+        CompletableFuture<PaymentResponseDTO> result = paymentService.confirmPayment(transactionRef);
+
+        // Assert
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(PaymentProviderUnavailableException.class, error.getCause());
+        assertEquals(PaymentStatus.PROCESSING, testPayment.getStatus());
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
     @Test
     void getPaymentById_Success() {
         // Arrange
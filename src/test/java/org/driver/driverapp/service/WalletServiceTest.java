@@ -3,6 +3,7 @@ package org.driver.driverapp.service;
 import org.driver.driverapp.dto.wallet.request.CreditWalletRequestDTO;
 import org.driver.driverapp.dto.wallet.request.DebitWalletRequestDTO;
 import org.driver.driverapp.dto.wallet.response.WalletResponseDTO;
+import org.driver.driverapp.dto.wallet.response.WalletTransactionPageDTO;
 import org.driver.driverapp.dto.wallet.response.WalletTransactionResponseDTO;
 import org.driver.driverapp.enums.TransactionType;
 import org.driver.driverapp.enums.WalletOwnerType;
@@ -13,18 +14,25 @@ import org.driver.driverapp.model.Wallet;
 import org.driver.driverapp.model.WalletTransaction;
 import org.driver.driverapp.repository.WalletRepository;
 import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.driver.driverapp.service.wallet.WalletAggregateService;
+import org.driver.driverapp.service.wallet.WalletBalanceRanking;
+import org.driver.driverapp.service.wallet.WalletShardLedger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,6 +55,18 @@ class WalletServiceTest {
     @Mock
     private WalletTransactionMapper walletTransactionMapper;
 
+    @Mock
+    private WalletShardLedger walletShardLedger;
+
+    @Mock
+    private WalletAggregateService walletAggregateService;
+
+    @Mock
+    private WalletBalanceRanking walletBalanceRanking;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private WalletService walletService;
 
@@ -57,6 +77,9 @@ class WalletServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         testWallet = Wallet.builder()
                 .id(1L)
                 .ownerId(1L)
@@ -165,6 +188,9 @@ class WalletServiceTest {
 
         verify(walletRepository).save(testWallet);
         verify(walletTransactionRepository).save(any(WalletTransaction.class));
+        verify(walletAggregateService).record(WalletOwnerType.DRIVER, 1L, TransactionType.CREDIT,
+                BigDecimal.valueOf(500.00));
+        verify(walletBalanceRanking).update(1L, testWalletResponseDTO.getBalance());
     }
 
     @Test
@@ -212,6 +238,33 @@ class WalletServiceTest {
         verify(walletTransactionRepository).save(any(WalletTransaction.class));
     }
 
+    @Test
+    void creditWallet_WalletCreatedConcurrentlyIsRetried() {
+        // Arrange
+        CreditWalletRequestDTO requestDTO = CreditWalletRequestDTO.builder()
+                .ownerId(1L)
+                .ownerType(WalletOwnerType.DRIVER)
+                .amount(BigDecimal.valueOf(500.00))
+                .build();
+
+        when(walletRepository.findByOwnerIdAndOwnerTypeAndActiveTrue(1L, WalletOwnerType.DRIVER))
+                .thenReturn(Optional.empty(), Optional.of(testWallet));
+        when(walletRepository.save(any(Wallet.class)))
+                .thenThrow(new DataIntegrityViolationException("ux_wallets_active_owner"))
+                .thenReturn(testWallet);
+        when(walletTransactionRepository.save(any(WalletTransaction.class))).thenReturn(testTransaction);
+        when(walletMapper.toResponseDTO(testWallet)).thenReturn(testWalletResponseDTO);
+
+        // Act
+        WalletResponseDTO result = walletService.creditWallet(requestDTO);
+
+        // Assert
+        assertEquals(1L, result.getId());
+        assertEquals(BigDecimal.valueOf(1500.00), testWallet.getBalance());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(walletTransactionRepository).save(any(WalletTransaction.class));
+    }
+
     @Test
     void debitWallet_Success() {
         // Arrange
@@ -262,6 +315,34 @@ class WalletServiceTest {
         verify(walletTransactionRepository, never()).save(any(WalletTransaction.class));
     }
 
+    @Test
+    void creditWallet_ShardedWalletGoesThroughLedger() {
+        // Arrange
+        testWallet.setShardCount(4);
+        CreditWalletRequestDTO requestDTO = CreditWalletRequestDTO.builder()
+                .ownerId(1L)
+                .ownerType(WalletOwnerType.DRIVER)
+                .amount(BigDecimal.valueOf(500.00))
+                .reference("CREDIT_REF_003")
+                .build();
+
+        when(walletRepository.findByOwnerIdAndOwnerTypeAndActiveTrue(1L, WalletOwnerType.DRIVER))
+                .thenReturn(Optional.of(testWallet));
+        when(walletShardLedger.apply(testWallet, TransactionType.CREDIT, BigDecimal.valueOf(500.00),
+                "CREDIT_REF_003", null, null))
+                .thenReturn(new WalletShardLedger.Entry(2, BigDecimal.valueOf(100.00), BigDecimal.valueOf(600.00)));
+        when(walletShardLedger.balance(1L)).thenReturn(BigDecimal.valueOf(1500.00));
+        when(walletMapper.toResponseDTO(testWallet)).thenReturn(testWalletResponseDTO);
+
+        // Act
+        WalletResponseDTO result = walletService.creditWallet(requestDTO);
+
+        // Assert
+        assertEquals(BigDecimal.valueOf(1500.00), result.getBalance());
+        verify(walletRepository, never()).save(any(Wallet.class));
+        verify(walletTransactionRepository, never()).save(any(WalletTransaction.class));
+    }
+
     @Test
     void getWalletById_Success() {
         // Arrange
@@ -398,12 +479,40 @@ class WalletServiceTest {
         assertEquals(testTransactionResponseDTO.getId(), result.get(0).getId());
     }
 
+    @Test
+    void getWalletTransactionHistory_NextPageStartsAfterTheCursor() {
+        // Arrange
+        Instant createdAt = Instant.parse("2026-03-01T10:15:30.123456Z");
+        List<WalletTransaction> firstPage = List.of(
+                WalletTransaction.builder().id(9L).createdAt(createdAt.plusSeconds(60)).build(),
+                WalletTransaction.builder().id(7L).createdAt(createdAt).build(),
+                WalletTransaction.builder().id(6L).createdAt(createdAt).build());
+
+        when(walletTransactionRepository.findLatestByWalletId(1L, PageRequest.of(0, 3))).thenReturn(firstPage);
+        when(walletTransactionRepository.findLatestByWalletIdBefore(1L, createdAt, 7L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(firstPage.get(2)));
+        when(walletTransactionMapper.toResponseDTOList(anyList()))
+                .thenAnswer(invocation -> invocation.<List<WalletTransaction>>getArgument(0).stream()
+                        .map(transaction -> WalletTransactionResponseDTO.builder().id(transaction.getId()).build())
+                        .toList());
+
+        // Act
+        WalletTransactionPageDTO first = walletService.getWalletTransactionHistory(1L, null, 2);
+        WalletTransactionPageDTO second = walletService.getWalletTransactionHistory(1L, first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of(9L, 7L), first.getTransactions().stream().map(WalletTransactionResponseDTO::getId).toList());
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of(6L), second.getTransactions().stream().map(WalletTransactionResponseDTO::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+
     @Test
     void getRecentTransactions_Success() {
         // Arrange
         List<WalletTransaction> transactions = List.of(testTransaction);
 
-        when(walletTransactionRepository.findRecentTransactions()).thenReturn(transactions);
+        when(walletTransactionRepository.findLatest(PageRequest.of(0, 101))).thenReturn(transactions);
         when(walletTransactionMapper.toResponseDTOList(transactions)).thenReturn(List.of(testTransactionResponseDTO));
 
         // Act
@@ -420,7 +529,8 @@ class WalletServiceTest {
         // Arrange
         List<WalletTransaction> transactions = List.of(testTransaction);
 
-        when(walletTransactionRepository.findCreditTransactions()).thenReturn(transactions);
+        when(walletTransactionRepository.findLatestByTransactionType(TransactionType.CREDIT, PageRequest.of(0, 101)))
+                .thenReturn(transactions);
         when(walletTransactionMapper.toResponseDTOList(transactions)).thenReturn(List.of(testTransactionResponseDTO));
 
         // Act
@@ -437,7 +547,8 @@ class WalletServiceTest {
         // Arrange
         List<WalletTransaction> transactions = List.of(testTransaction);
 
-        when(walletTransactionRepository.findDebitTransactions()).thenReturn(transactions);
+        when(walletTransactionRepository.findLatestByTransactionType(TransactionType.DEBIT, PageRequest.of(0, 101)))
+                .thenReturn(transactions);
         when(walletTransactionMapper.toResponseDTOList(transactions)).thenReturn(List.of(testTransactionResponseDTO));
 
         // Act
@@ -454,7 +565,7 @@ class WalletServiceTest {
         // Arrange
         BigDecimal expectedTotal = BigDecimal.valueOf(5000.00);
 
-        when(walletRepository.sumTotalBalance()).thenReturn(expectedTotal);
+        when(walletAggregateService.totalBalance()).thenReturn(expectedTotal);
 
         // Act
         BigDecimal result = walletService.getTotalBalance();
@@ -469,7 +580,7 @@ class WalletServiceTest {
         WalletOwnerType ownerType = WalletOwnerType.DRIVER;
         BigDecimal expectedTotal = BigDecimal.valueOf(2000.00);
 
-        when(walletRepository.sumBalanceByOwnerType(ownerType)).thenReturn(expectedTotal);
+        when(walletAggregateService.totalBalance(ownerType)).thenReturn(expectedTotal);
 
         // Act
         BigDecimal result = walletService.getTotalBalanceByType(ownerType);
@@ -483,7 +594,7 @@ class WalletServiceTest {
         // Arrange
         BigDecimal expectedTotal = BigDecimal.valueOf(3000.00);
 
-        when(walletTransactionRepository.sumAmountByTransactionType(TransactionType.CREDIT)).thenReturn(expectedTotal);
+        when(walletAggregateService.totalCredits()).thenReturn(expectedTotal);
 
         // Act
         BigDecimal result = walletService.getTotalCredits();
@@ -497,7 +608,7 @@ class WalletServiceTest {
         // Arrange
         BigDecimal expectedTotal = BigDecimal.valueOf(1500.00);
 
-        when(walletTransactionRepository.sumAmountByTransactionType(TransactionType.DEBIT)).thenReturn(expectedTotal);
+        when(walletAggregateService.totalDebits()).thenReturn(expectedTotal);
 
         // Act
         BigDecimal result = walletService.getTotalDebits();
@@ -542,12 +653,33 @@ class WalletServiceTest {
         assertEquals(testWalletResponseDTO.getId(), result.get(0).getId());
     }
 
+    @Test
+    void getWalletsWithHighBalance_AnsweredFromRanking() {
+        // Arrange
+        BigDecimal threshold = BigDecimal.valueOf(500.00);
+        Wallet richer = Wallet.builder().id(2L).ownerId(2L).ownerType(WalletOwnerType.PARTNER)
+                .balance(BigDecimal.valueOf(3000.00)).build();
+
+        when(walletBalanceRanking.above(threshold)).thenReturn(Optional.of(List.of(2L, 1L)));
+        when(walletRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(testWallet, richer));
+        when(walletMapper.toResponseDTOList(List.of(richer, testWallet))).thenReturn(List.of(testWalletResponseDTO));
+
+        // Act
+        List<WalletResponseDTO> result = walletService.getWalletsWithHighBalance(threshold);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(walletRepository, never()).findWalletsWithHighBalance(any());
+    }
+
     @Test
     void getTopWalletsByBalance_Success() {
         // Arrange
         List<Wallet> wallets = List.of(testWallet);
 
-        when(walletRepository.findTopWalletsByBalance()).thenReturn(wallets);
+        when(walletBalanceRanking.getTopSize()).thenReturn(10);
+        when(walletBalanceRanking.top(10)).thenReturn(List.of(1L));
+        when(walletRepository.findAllById(List.of(1L))).thenReturn(wallets);
         when(walletMapper.toResponseDTOList(wallets)).thenReturn(List.of(testWalletResponseDTO));
 
         // Act
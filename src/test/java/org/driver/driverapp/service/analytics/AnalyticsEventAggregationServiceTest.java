@@ -0,0 +1,98 @@
+package org.driver.driverapp.service.analytics;
+
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
+import org.driver.driverapp.dto.analytics.response.AnalyticsEventAggregateResponseDTO;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+import org.driver.driverapp.repository.AnalyticsEventAggregateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Import(AnalyticsEventAggregationService.class)
+class AnalyticsEventAggregationServiceTest {
+
+    private static final String GROUP = "analytics-test";
+    private static final String TOPIC = "analytics-events";
+    private static final Instant WINDOW = Instant.parse("2025-03-01T10:00:00Z");
+
+    @Autowired
+    private AnalyticsEventAggregationService analyticsEventAggregationService;
+
+    @Autowired
+    private AnalyticsEventAggregateRepository analyticsEventAggregateRepository;
+
+    @Test
+    void flush_mergesWindowsAndAdvancesOffsetsTogether() {
+        AnalyticsEventWindowBuffer first = buffer(0, 0, 25, 80);
+        analyticsEventAggregationService.flush(first, GROUP, TOPIC);
+        AnalyticsEventWindowBuffer second = buffer(0, 2, 5);
+        analyticsEventAggregationService.flush(second, GROUP, TOPIC);
+
+        List<AnalyticsEventAggregateResponseDTO> windows = analyticsEventAggregationService.getAggregates(
+                AnalyticsRecordType.PAYMENT, "payment.completed", WINDOW, WINDOW.plusSeconds(60));
+        assertEquals(1, windows.size());
+        AnalyticsEventAggregateResponseDTO window = windows.get(0);
+        assertEquals(3, window.getEventCount());
+        assertEquals(0, BigDecimal.valueOf(110).compareTo(window.getValueSum()));
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(window.getValueMin()));
+        assertEquals(0, BigDecimal.valueOf(80).compareTo(window.getValueMax()));
+        assertEquals(WINDOW.plusSeconds(60), window.getWindowEnd());
+
+        assertEquals(Map.of(0, 3L), analyticsEventAggregationService.storedOffsets(GROUP, TOPIC));
+    }
+
+    @Test
+    void flush_rejectsOffsetsThatWereAlreadyAggregated() {
+        analyticsEventAggregationService.flush(buffer(1, 10, 25, 80), GROUP, TOPIC);
+
+        // A stale owner replaying offset 11 after the partition moved on
+        AnalyticsEventWindowBuffer stale = buffer(1, 11, 40);
+        assertThrows(IllegalStateException.class, () -> analyticsEventAggregationService.flush(stale, GROUP, TOPIC));
+
+        assertEquals(2, analyticsEventAggregateRepository.findAll().get(0).getEventCount());
+        assertEquals(Map.of(1, 12L), analyticsEventAggregationService.storedOffsets(GROUP, TOPIC));
+    }
+
+    @Test
+    void flush_withoutConsumerGroupOnlyWritesAggregates() {
+        analyticsEventAggregationService.flush(buffer(0, 0, 1), null, null);
+
+        assertEquals(1, analyticsEventAggregateRepository.count());
+        assertTrue(analyticsEventAggregationService.storedOffsets(GROUP, TOPIC).isEmpty());
+    }
+
+    @Test
+    void getAggregates_rejectsEmptyRanges() {
+        assertThrows(IllegalArgumentException.class, () -> analyticsEventAggregationService.getAggregates(
+                AnalyticsRecordType.PAYMENT, "payment.completed", WINDOW, WINDOW));
+    }
+
+    // One payment event per value on the given partition, at consecutive offsets from firstOffset
+    private static AnalyticsEventWindowBuffer buffer(int partition, long firstOffset, int... values) {
+        AnalyticsEventWindowBuffer buffer = new AnalyticsEventWindowBuffer(60);
+        long offset = firstOffset;
+        for (int value : values) {
+            buffer.add(AnalyticsEventDTO.builder()
+                    .type(AnalyticsRecordType.PAYMENT)
+                    .name("payment.completed")
+                    .value(BigDecimal.valueOf(value))
+                    .occurredAt(WINDOW.plusSeconds(offset))
+                    .build(), WINDOW);
+            buffer.markConsumed(partition, offset++);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,89 @@
+package org.driver.driverapp.service.analytics;
+
+import org.driver.driverapp.dto.analytics.request.AnalyticsEventDTO;
+import org.driver.driverapp.enums.AnalyticsRecordType;
+import org.driver.driverapp.model.AnalyticsEventAggregate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalyticsEventWindowBufferTest {
+
+    private static final Instant BASE = Instant.parse("2025-03-01T10:00:00Z");
+
+    @Test
+    void add_foldsEventsIntoTumblingWindowsPerSeries() {
+        AnalyticsEventWindowBuffer buffer = new AnalyticsEventWindowBuffer(60);
+        buffer.add(event("payment.completed", 100, BASE.plusSeconds(5)), BASE);
+        buffer.add(event("payment.completed", 40, BASE.plusSeconds(59)), BASE);
+        buffer.add(event("payment.completed", 70, BASE.plusSeconds(60)), BASE);
+        buffer.add(event("payment.failed", null, BASE.plusSeconds(10)), BASE);
+
+        List<AnalyticsEventAggregate> windows = buffer.getAggregates().stream()
+                .sorted(Comparator.comparing(AnalyticsEventAggregate::getWindowStart)
+                        .thenComparing(AnalyticsEventAggregate::getName))
+                .toList();
+
+        assertEquals(3, windows.size());
+        AnalyticsEventAggregate first = windows.get(0);
+        assertEquals(BASE, first.getWindowStart());
+        assertEquals(2, first.getEventCount());
+        assertEquals(0, BigDecimal.valueOf(140).compareTo(first.getValueSum()));
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(first.getValueMin()));
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(first.getValueMax()));
+
+        AnalyticsEventAggregate failed = windows.get(1);
+        assertEquals("payment.failed", failed.getName());
+        assertEquals(1, failed.getEventCount());
+        assertNull(failed.getValueMin());
+
+        assertEquals(BASE.plusSeconds(60), windows.get(2).getWindowStart());
+        assertEquals(4, buffer.getBufferedEvents());
+    }
+
+    @Test
+    void add_fallsBackToTheReceiveTimeWithoutAnEventTime() {
+        AnalyticsEventWindowBuffer buffer = new AnalyticsEventWindowBuffer(300);
+        buffer.add(event("delivery.created", null, null), BASE.plusSeconds(299));
+
+        assertEquals(BASE, buffer.getAggregates().iterator().next().getWindowStart());
+    }
+
+    @Test
+    void markConsumed_tracksTheOffsetRangePerPartitionUntilCleared() {
+        AnalyticsEventWindowBuffer buffer = new AnalyticsEventWindowBuffer(60);
+        buffer.markConsumed(0, 41);
+        buffer.markConsumed(0, 42);
+        buffer.markConsumed(2, 7);
+
+        assertEquals(Map.of(0, 41L, 2, 7L), buffer.getFirstOffsets());
+        assertEquals(Map.of(0, 43L, 2, 8L), buffer.getNextOffsets());
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.ageMillis());
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveWindows() {
+        assertThrows(IllegalArgumentException.class, () -> new AnalyticsEventWindowBuffer(0));
+    }
+
+    private static AnalyticsEventDTO event(String name, Integer value, Instant occurredAt) {
+        return AnalyticsEventDTO.builder()
+                .type(AnalyticsRecordType.PAYMENT)
+                .name(name)
+                .value(value != null ? BigDecimal.valueOf(value) : null)
+                .occurredAt(occurredAt)
+                .build();
+    }
+}
@@ -0,0 +1,198 @@
+package org.driver.driverapp.service.analytics;
+
+import jakarta.persistence.EntityManager;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.enums.Role;
+import org.driver.driverapp.enums.RollupGranularity;
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.AnalyticsRollup;
+import org.driver.driverapp.model.Customer;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Partner;
+import org.driver.driverapp.model.Payment;
+import org.driver.driverapp.model.User;
+import org.driver.driverapp.repository.AnalyticsRollupRepository;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Import({AnalyticsRollupService.class, AnalyticsSketchService.class})
+class AnalyticsRollupServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private AnalyticsRollupRepository analyticsRollupRepository;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private LocalDate today;
+    private Instant todayStart;
+    private Partner partner;
+    private Delivery delivered;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now(AnalyticsRollupService.ZONE);
+        todayStart = today.atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+        partner = persist(Partner.builder().name("Merkato Store").phone("0911000001").build());
+
+        Instant morning = todayStart.plus(Duration.ofHours(1));
+        delivered = delivery(DeliveryStatus.DELIVERED, "Addis Ababa", morning);
+        delivery(DeliveryStatus.DELIVERY_FAILED, "Addis Ababa", morning.plus(Duration.ofMinutes(20)));
+        delivery(DeliveryStatus.CANCELED, "Oromia", todayStart.plus(Duration.ofHours(5)));
+        payment(delivered, PaymentStatus.COMPLETED, 120, morning);
+        payment(delivered, PaymentStatus.PENDING, 80, morning);
+        customer("Oromia", morning);
+
+        entityManager.flush();
+    }
+
+    @Test
+    void rebuildDay_rollsUpEveryScopeFromSourceRows() {
+        analyticsRollupService.rebuildDay(todayStart);
+
+        Map<String, AnalyticsRollup> day = dayRollups();
+        AnalyticsRollup global = day.get("GLOBAL:");
+        assertEquals(3, global.getDeliveriesCreated());
+        assertEquals(1, global.getDeliveriesDelivered());
+        assertEquals(1, global.getDeliveriesFailed());
+        assertEquals(1, global.getDeliveriesCanceled());
+        assertEquals(1, global.getPaymentsCompleted());
+        assertEquals(0, BigDecimal.valueOf(120).compareTo(global.getRevenueCompleted()));
+        assertEquals(1, global.getNewCustomers());
+
+        AnalyticsRollup partnerRollup = day.get("PARTNER:" + partner.getId());
+        assertEquals(3, partnerRollup.getDeliveriesCreated());
+        assertEquals(0, partnerRollup.getNewCustomers());
+
+        assertEquals(2, day.get("REGION:Addis Ababa").getDeliveriesCreated());
+        assertEquals(1, day.get("REGION:Oromia").getDeliveriesCanceled());
+        assertEquals(1, day.get("REGION:Oromia").getNewCustomers());
+
+        // global, partner, Addis Ababa deliveries and the Oromia customer
+        assertEquals(4, analyticsRollupRepository.findByGranularityAndBucketStart(
+                RollupGranularity.HOUR, todayStart.plus(Duration.ofHours(1))).size());
+        assertTrue(analyticsRollupService.matchesSourceRows(todayStart));
+    }
+
+    @Test
+    void refreshHour_isIdempotent() {
+        Instant hour = todayStart.plus(Duration.ofHours(1));
+        analyticsRollupService.refreshHour(hour);
+        analyticsRollupService.refreshHour(hour);
+        entityManager.flush();
+
+        assertEquals(4, analyticsRollupRepository.findByGranularityAndBucketStart(RollupGranularity.HOUR, hour).size());
+    }
+
+    @Test
+    void matchesSourceRows_detectsDriftUntilTheDayIsRebuilt() {
+        analyticsRollupService.rebuildDay(todayStart);
+        entityManager.createQuery("UPDATE Delivery d SET d.status = :status WHERE d.id = :id")
+                .setParameter("status", DeliveryStatus.DELIVERY_FAILED)
+                .setParameter("id", delivered.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        assertFalse(analyticsRollupService.matchesSourceRows(todayStart));
+
+        analyticsRollupService.rebuildDay(todayStart);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(analyticsRollupService.matchesSourceRows(todayStart));
+        assertEquals(2, dayRollups().get("GLOBAL:").getDeliveriesFailed());
+    }
+
+    @Test
+    void findDeliveryWindows_readsRollupsOnlyOnceTheMonthIsCovered() {
+        AnalyticsWindows windows = AnalyticsWindows.of(today, Instant.now(), AnalyticsRollupService.ZONE);
+        analyticsRollupService.rebuildDay(todayStart);
+
+        assertTrue(analyticsRollupService.findDeliveryWindows(RollupScope.PARTNER, partner.getId().toString(),
+                DeliveryStatus.DELIVERED, windows).isEmpty());
+
+        for (LocalDate date = today.minusMonths(1); date.isBefore(today); date = date.plusDays(1)) {
+            analyticsRollupService.refreshDay(date.atStartOfDay(AnalyticsRollupService.ZONE).toInstant());
+        }
+        entityManager.flush();
+
+        Optional<DeliveryRepository.DeliveryWindowCounts> counts = analyticsRollupService.findDeliveryWindows(
+                RollupScope.PARTNER, partner.getId().toString(), DeliveryStatus.DELIVERED, windows);
+        assertTrue(counts.isPresent());
+        assertEquals(3L, counts.get().getTotalToday());
+        assertEquals(3L, counts.get().getTotalThisMonth());
+        assertEquals(1L, counts.get().getStatusThisWeek());
+    }
+
+    private Map<String, AnalyticsRollup> dayRollups() {
+        return analyticsRollupRepository.findByGranularityAndBucketStart(RollupGranularity.DAY, todayStart).stream()
+                .collect(Collectors.toMap(r -> r.getScope() + ":" + r.getScopeKey(), Function.identity()));
+    }
+
+    private Delivery delivery(DeliveryStatus status, String region, Instant createdAt) {
+        return persist(Delivery.builder()
+                .deliveryCode("DEL-" + sequence.incrementAndGet())
+                .partner(partner)
+                .dropoffAddress("Bole, Addis Ababa")
+                .dropoffRegion(region)
+                .status(status)
+                .createdAt(createdAt)
+                .build());
+    }
+
+    private void payment(Delivery delivery, PaymentStatus status, int amount, Instant createdAt) {
+        persist(Payment.builder()
+                .user(user())
+                .delivery(delivery)
+                .amount(BigDecimal.valueOf(amount))
+                .provider(PaymentProvider.TELEBIRR)
+                .status(status)
+                .createdAt(createdAt)
+                .build());
+    }
+
+    private void customer(String region, Instant createdAt) {
+        int n = sequence.incrementAndGet();
+        persist(Customer.builder().user(user()).fullName("Customer " + n).phone("0944" + n)
+                .region(region).createdAt(createdAt).build());
+    }
+
+    private User user() {
+        int n = sequence.incrementAndGet();
+        return persist(User.builder().username("user" + n).password("password-" + n)
+                .role(Role.CUSTOMER).fullName("User " + n).build());
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,132 @@
+package org.driver.driverapp.service.analytics;
+
+import jakarta.persistence.EntityManager;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.Role;
+import org.driver.driverapp.enums.RollupScope;
+import org.driver.driverapp.model.Customer;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Partner;
+import org.driver.driverapp.model.User;
+import org.driver.driverapp.repository.AnalyticsDailySketchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Import(AnalyticsSketchService.class)
+class AnalyticsSketchServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AnalyticsSketchService analyticsSketchService;
+
+    @Autowired
+    private AnalyticsDailySketchRepository analyticsDailySketchRepository;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private LocalDate today;
+    private Instant todayStart;
+    private Instant yesterdayStart;
+    private Partner partner;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now(AnalyticsRollupService.ZONE);
+        todayStart = today.atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+        yesterdayStart = today.minusDays(1).atStartOfDay(AnalyticsRollupService.ZONE).toInstant();
+        partner = persist(Partner.builder().name("Merkato Store").phone("0911000001").build());
+        Partner other = persist(Partner.builder().name("Piassa Store").phone("0911000002").build());
+
+        Customer abebe = customer();
+        Customer hana = customer();
+        Customer sara = customer();
+        delivery(partner, abebe, yesterdayStart.plus(Duration.ofHours(9)), 30, 100);
+        delivery(partner, hana, yesterdayStart.plus(Duration.ofHours(10)), 50, 200);
+        delivery(partner, abebe, todayStart.plus(Duration.ofHours(1)), 40, 300);
+        delivery(partner, sara, todayStart.plus(Duration.ofHours(2)), null, 400);
+        delivery(other, sara, todayStart.plus(Duration.ofHours(3)), 10, 50);
+        entityManager.flush();
+    }
+
+    @Test
+    void refreshDay_writesGlobalAndPartnerSketchesIdempotently() {
+        analyticsSketchService.refreshDay(todayStart);
+        analyticsSketchService.refreshDay(todayStart);
+        entityManager.flush();
+
+        assertEquals(1, analyticsDailySketchRepository
+                .findByScopeAndScopeKeyAndBucketStartGreaterThanEqualAndBucketStartLessThan(
+                        RollupScope.GLOBAL, "", todayStart, todayStart.plus(Duration.ofDays(1))).size());
+        assertEquals(3, analyticsDailySketchRepository.count());
+    }
+
+    @Test
+    void summarizePartner_mergesStoredDaysWithUnsketchedDays() {
+        // Only today is sketched; yesterday comes from its source rows
+        analyticsSketchService.refreshDay(todayStart);
+        entityManager.flush();
+
+        DeliverySketchSummary summary = analyticsSketchService.summarizePartner(partner.getId(), today.minusDays(1), today);
+
+        assertEquals(4, summary.getDeliveries());
+        assertEquals(3, summary.getDistinctCustomers());
+        assertEquals(40.0, summary.getDeliveryMinutesP50(), 5.0);
+        assertEquals(50.0, summary.getDeliveryMinutesP95(), 0.001);
+        assertEquals(400.0, summary.getOrderValueP95(), 0.001);
+    }
+
+    @Test
+    void summarizePartner_isEmptyForDaysWithoutDeliveries() {
+        analyticsSketchService.refreshDay(todayStart.minus(Duration.ofDays(5)));
+
+        DeliverySketchSummary summary = analyticsSketchService.summarizePartner(partner.getId(),
+                today.minusDays(5), today.minusDays(5));
+
+        assertEquals(0, summary.getDistinctCustomers());
+        assertNull(summary.getDeliveryMinutesP50());
+        assertNull(summary.getOrderValueP50());
+    }
+
+    private void delivery(Partner owner, Customer customer, Instant createdAt, Integer minutesToDeliver, double price) {
+        persist(Delivery.builder()
+                .deliveryCode("DEL-" + sequence.incrementAndGet())
+                .partner(owner)
+                .customer(customer)
+                .dropoffAddress("Bole, Addis Ababa")
+                .status(minutesToDeliver != null ? DeliveryStatus.DELIVERED : DeliveryStatus.IN_TRANSIT)
+                .deliveredAt(minutesToDeliver != null
+                        ? createdAt.plus(Duration.ofMinutes(minutesToDeliver)).atOffset(ZoneOffset.UTC) : null)
+                .price(price)
+                .createdAt(createdAt)
+                .build());
+    }
+
+    private Customer customer() {
+        int n = sequence.incrementAndGet();
+        User user = persist(User.builder().username("user" + n).password("password-" + n)
+                .role(Role.CUSTOMER).fullName("User " + n).build());
+        return persist(Customer.builder().user(user).fullName("Customer " + n).phone("0944" + n).build());
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,126 @@
+package org.driver.driverapp.service.analytics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalyticsSummaryCacheTest {
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(AnalyticsSummaryCache.CACHE_NAME);
+    private AnalyticsSummaryCache cache;
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void get_servesFreshEntriesWithoutRecomputing() {
+        cache = new AnalyticsSummaryCache(cacheManager, 60_000, 1);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get("key", String.class, () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get("key", String.class, () -> "v" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_servesStaleEntriesWhileOneRefreshRuns() throws Exception {
+        cache = new AnalyticsSummaryCache(cacheManager, 0, 1);
+        cache.get("key", String.class, () -> "old");
+
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        AtomicInteger refreshes = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("old", cache.get("key", String.class, () -> {
+                refreshes.incrementAndGet();
+                refreshStarted.countDown();
+                await(releaseRefresh);
+                return "new";
+            }));
+        }
+
+        assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+        releaseRefresh.countDown();
+        waitUntil(() -> "new".equals(cachedValue("key")));
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    void get_coalescesConcurrentMisses() throws Exception {
+        cache = new AnalyticsSummaryCache(cacheManager, 60_000, 1);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(callers.submit(() -> cache.get("key", String.class, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "value";
+                })));
+            }
+            waitUntil(() -> loads.get() == 1);
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_propagatesLoaderFailuresWithoutCaching() {
+        cache = new AnalyticsSummaryCache(cacheManager, 60_000, 1);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("key", String.class, () -> {
+            throw new IllegalStateException("database unavailable");
+        }));
+        assertNull(cachedValue("key"));
+        assertEquals("value", cache.get("key", String.class, () -> "value"));
+    }
+
+    private Object cachedValue(String key) {
+        AnalyticsCacheEntry entry = cacheManager.getCache(AnalyticsSummaryCache.CACHE_NAME).get(key, AnalyticsCacheEntry.class);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
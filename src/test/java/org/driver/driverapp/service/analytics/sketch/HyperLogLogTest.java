@@ -0,0 +1,58 @@
+package org.driver.driverapp.service.analytics.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_isExactForSmallSetsAndIgnoresDuplicates() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 25; id++) {
+                sketch.add(id);
+            }
+        }
+
+        assertEquals(25, sketch.estimate());
+    }
+
+    @Test
+    void estimate_staysWithinFewPercentForLargeSets() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 0; id < 200_000; id++) {
+            sketch.add(id);
+        }
+
+        double error = Math.abs(sketch.estimate() - 200_000) / 200_000.0;
+        assertTrue(error < 0.05, "relative error " + error);
+    }
+
+    @Test
+    void merge_countsTheUnionOfOverlappingSketches() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (long id = 0; id < 6_000; id++) {
+            monday.add(id);
+            tuesday.add(id + 4_000);
+        }
+
+        monday.merge(HyperLogLog.fromBytes(tuesday.toBytes()));
+
+        double error = Math.abs(monday.estimate() - 10_000) / 10_000.0;
+        assertTrue(error < 0.05, "relative error " + error);
+    }
+
+    @Test
+    void bytes_roundTrip() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        sketch.add(42);
+
+        assertArrayEquals(sketch.toBytes(), HyperLogLog.fromBytes(sketch.toBytes()).toBytes());
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog().merge(sketch));
+    }
+}
@@ -0,0 +1,62 @@
+package org.driver.driverapp.service.analytics.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TDigestTest {
+
+    @Test
+    void quantile_tracksAUniformDistribution() {
+        TDigest digest = new TDigest();
+        for (int i = 1; i <= 100_000; i++) {
+            digest.add(i);
+        }
+
+        assertEquals(50_000, digest.quantile(0.5), 500);
+        assertEquals(95_000, digest.quantile(0.95), 300);
+        assertEquals(1, digest.quantile(0), 0.001);
+        assertEquals(100_000, digest.quantile(1), 0.001);
+    }
+
+    @Test
+    void merge_matchesASingleDigestOverAllValues() {
+        Random random = new Random(7);
+        TDigest all = new TDigest();
+        TDigest merged = new TDigest();
+        for (int day = 0; day < 30; day++) {
+            TDigest daily = new TDigest();
+            for (int i = 0; i < 2_000; i++) {
+                // Skewed like delivery durations: mostly short, with a long tail
+                double minutes = 15 + random.nextExponential() * 20;
+                all.add(minutes);
+                daily.add(minutes);
+            }
+            merged.merge(TDigest.fromBytes(daily.toBytes()));
+        }
+
+        assertEquals(60_000, merged.size());
+        assertEquals(all.quantile(0.5), merged.quantile(0.5), 0.5);
+        assertEquals(all.quantile(0.95), merged.quantile(0.95), 1.5);
+    }
+
+    @Test
+    void serializedDigestStaysSmall() {
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 1_000_000; i++) {
+            digest.add(i % 9_973);
+        }
+
+        assertTrue(digest.toBytes().length < 8_192, "encoded size " + digest.toBytes().length);
+    }
+
+    @Test
+    void emptyDigestHasNoQuantiles() {
+        assertTrue(Double.isNaN(new TDigest().quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> new TDigest().add(Double.NaN));
+    }
+}
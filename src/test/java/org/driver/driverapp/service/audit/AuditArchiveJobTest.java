@@ -0,0 +1,35 @@
+package org.driver.driverapp.service.audit;
+
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.model.AuditLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AuditArchiveJobTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 14);
+
+    @Test
+    void mergingIterator_interleavesByTimeAndPrefersTheTableForDuplicates() {
+        AuditLog archivedFirst = AuditArchiveTest.entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true);
+        AuditLog archivedDuplicate = AuditArchiveTest.entry(3, DAY, 20, AuditEntityType.DELIVERY, 1L, true);
+        AuditLog hotLate = AuditArchiveTest.entry(2, DAY, 10, AuditEntityType.DELIVERY, 1L, true);
+        AuditLog hotDuplicate = AuditArchiveTest.entry(3, DAY, 20, AuditEntityType.DELIVERY, 1L, false);
+        AuditLog hotLast = AuditArchiveTest.entry(4, DAY, 30, AuditEntityType.DELIVERY, 1L, true);
+
+        AuditArchiveJob.MergingIterator merged = new AuditArchiveJob.MergingIterator(
+                List.of(archivedFirst, archivedDuplicate).iterator(),
+                List.of(hotLate, hotDuplicate, hotLast).iterator());
+
+        List<AuditLog> result = new ArrayList<>();
+        merged.forEachRemaining(result::add);
+        assertEquals(List.of(archivedFirst, hotLate, hotDuplicate, hotLast), result);
+        assertFalse(result.get(2).isActive());
+    }
+}
@@ -0,0 +1,257 @@
+package org.driver.driverapp.service.audit;
+
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.model.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditArchiveTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 14);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaceDay_roundTripsEveryFieldAndSurvivesReload() throws IOException {
+        String largeSnapshot = "{\"notes\":\"" + "x".repeat(70_000) + "\"}";
+        AuditLog full = AuditLog.builder()
+                .id(1L)
+                .entityType(AuditEntityType.DELIVERY)
+                .entityId(100L)
+                .action(AuditAction.CREATE)
+                .userId(9L)
+                .userEmail("ops@example.com")
+                .afterSnapshot(largeSnapshot)
+                .snapshotDiff("[{\"op\":\"add\",\"path\":\"/status\",\"value\":\"PENDING\"}]")
+                .changesSummary("Entity created")
+                .ipAddress("10.0.0.1")
+                .userAgent("curl/8")
+                .version(2L)
+                .createdAt(AuditArchive.dayStart(DAY).plusNanos(123_456_789))
+                .build();
+        AuditLog sparse = entry(2, DAY, 5, AuditEntityType.PAYMENT, 7L, false);
+
+        AuditArchive archive = archive();
+        archive.replaceDay(DAY, List.of(full, sparse).iterator());
+
+        AuditArchive reloaded = archive();
+        reloaded.load();
+        assertTrue(reloaded.contains(DAY));
+        List<AuditLog> read = toList(reloaded.readDay(DAY));
+        assertEquals(List.of(full, sparse), read);
+        assertEquals(largeSnapshot, read.get(0).getAfterSnapshot());
+        assertNull(read.get(1).getUserEmail());
+        assertFalse(read.get(1).isActive());
+    }
+
+    @Test
+    void findBetween_pagesNewestFirstAcrossBlocksAndDays() throws IOException {
+        AuditArchive archive = archive();
+        List<AuditLog> all = new ArrayList<>();
+        long id = 1;
+        for (LocalDate day : List.of(DAY, DAY.plusDays(1))) {
+            List<AuditLog> entries = new ArrayList<>();
+            for (int second = 0; second < 50; second++) {
+                // Every seventh entry is inactive and must never be returned or counted
+                entries.add(entry(id, day, second * 600, AuditEntityType.DELIVERY, id % 5, id % 7 != 0));
+                id++;
+            }
+            archive.replaceDay(day, entries.iterator());
+            all.addAll(entries);
+        }
+
+        Instant from = AuditArchive.dayStart(DAY).plusSeconds(3000);
+        Instant to = AuditArchive.dayStart(DAY.plusDays(1)).plusSeconds(6000);
+        List<AuditLog> expected = all.stream()
+                .filter(AuditLog::isActive)
+                .filter(auditLog -> !auditLog.getCreatedAt().isBefore(from) && !auditLog.getCreatedAt().isAfter(to))
+                .sorted(Comparator.comparing(AuditLog::getCreatedAt).reversed())
+                .toList();
+
+        assertTrue(archive.overlaps(from, to));
+        assertEquals(expected.size(), archive.countBetween(from, to));
+        for (int offset = 0; offset < expected.size(); offset += 7) {
+            assertEquals(expected.subList(offset, Math.min(expected.size(), offset + 7)),
+                    archive.findBetween(from, to, offset, 7));
+        }
+        assertTrue(archive.findBetween(from, to, expected.size(), 7).isEmpty());
+        assertFalse(archive.overlaps(AuditArchive.dayStart(DAY.plusDays(3)), AuditArchive.dayStart(DAY.plusDays(4))));
+    }
+
+    @Test
+    void findByEntity_returnsActiveEntriesOfThatEntityOldestFirst() throws IOException {
+        AuditArchive archive = archive();
+        archive.replaceDay(DAY, List.of(
+                entry(1, DAY, 0, AuditEntityType.DELIVERY, 100L, true),
+                entry(2, DAY, 1, AuditEntityType.PAYMENT, 100L, true),
+                entry(3, DAY, 2, AuditEntityType.DELIVERY, 100L, false),
+                entry(4, DAY, 3, AuditEntityType.DELIVERY, 101L, true),
+                entry(5, DAY, 4, AuditEntityType.DELIVERY, 100L, true)).iterator());
+
+        List<AuditLog> history = archive.findByEntity(AuditEntityType.DELIVERY, 100L);
+
+        assertEquals(List.of(1L, 5L), history.stream().map(AuditLog::getId).toList());
+        assertTrue(archive.findByEntity(AuditEntityType.DRIVER, 100L).isEmpty());
+    }
+
+    @Test
+    void find_filtersActiveEntriesNewestFirstAcrossDays() throws IOException {
+        AuditArchive archive = archive();
+        archive.replaceDay(DAY, List.of(
+                entry(1, DAY, 0, AuditEntityType.DELIVERY, 100L, true),
+                entry(2, DAY, 1, AuditEntityType.PAYMENT, 100L, true),
+                entry(3, DAY, 2, AuditEntityType.DELIVERY, 101L, false)).iterator());
+        archive.replaceDay(DAY.plusDays(1), List.of(
+                entry(4, DAY.plusDays(1), 0, AuditEntityType.DELIVERY, 102L, true),
+                entry(5, DAY.plusDays(1), 1, AuditEntityType.DELIVERY, 103L, true)).iterator());
+
+        AuditArchive.Filter deliveries = AuditArchive.Filter.byEntityType(AuditEntityType.DELIVERY);
+        assertEquals(3, archive.count(deliveries));
+        assertEquals(List.of(5L, 4L), archive.find(deliveries, 0, 2).stream().map(AuditLog::getId).toList());
+        assertEquals(List.of(1L), archive.find(deliveries, 2, 2).stream().map(AuditLog::getId).toList());
+        assertEquals(0, archive.count(deliveries.andAction(AuditAction.DELETE)));
+    }
+
+    @Test
+    void filter_skipsBlocksWhoseIndexRulesOutTheUserOrAction() throws IOException {
+        List<AuditLog> entries = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            AuditLog auditLog = entry(i + 1, DAY, i, AuditEntityType.DELIVERY, (long) i, true);
+            // Only the first block of 8 holds user 7's creations
+            auditLog.setUserId(i < 8 ? 7L : 8L);
+            auditLog.setAction(i < 8 ? AuditAction.CREATE : AuditAction.UPDATE);
+            entries.add(auditLog);
+        }
+        AuditSegment segment = AuditSegment.write(directory.resolve("audit-20260314-0001.seg"), DAY, 1,
+                entries.iterator(), 8);
+
+        assertEquals(3, segment.blocks().size());
+        assertEquals(1, segment.blocks().stream().filter(AuditArchive.Filter.byUser(7L)::mightMatch).count());
+        assertEquals(1, segment.blocks().stream()
+                .filter(AuditArchive.Filter.byAction(AuditAction.CREATE)::mightMatch).count());
+        assertEquals(0, segment.blocks().stream()
+                .filter(AuditArchive.Filter.byEntityType(AuditEntityType.PAYMENT)::mightMatch).count());
+
+        AuditArchive archive = archive();
+        archive.load();
+        assertEquals(8, archive.count(AuditArchive.Filter.byUser(7L).andAction(AuditAction.CREATE)));
+        assertEquals(16, archive.count(AuditArchive.Filter.byUser(8L)));
+    }
+
+    @Test
+    void replaceDay_supersedesThePreviousSegment() throws IOException {
+        AuditArchive archive = archive();
+        archive.replaceDay(DAY, List.of(entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true)).iterator());
+        archive.replaceDay(DAY, List.of(
+                entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true),
+                entry(2, DAY, 1, AuditEntityType.DELIVERY, 1L, true)).iterator());
+
+        assertEquals(List.of("audit-20260314-0002.seg"), fileNames());
+        assertEquals(2, toList(archive.readDay(DAY)).size());
+    }
+
+    @Test
+    void replaceDay_inATransactionTakesEffectOnlyOnCommit() throws IOException {
+        AuditArchive archive = archive();
+        archive.replaceDay(DAY, List.of(entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true)).iterator());
+        List<AuditLog> twoEntries = List.of(
+                entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true),
+                entry(2, DAY, 1, AuditEntityType.DELIVERY, 1L, true));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            archive.replaceDay(DAY, twoEntries.iterator());
+            assertEquals(1, toList(archive.readDay(DAY)).size());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of("audit-20260314-0001.seg"), fileNames());
+        assertEquals(1, toList(archive.readDay(DAY)).size());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            archive.replaceDay(DAY, twoEntries.iterator());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of("audit-20260314-0002.seg"), fileNames());
+        assertEquals(2, toList(archive.readDay(DAY)).size());
+    }
+
+    @Test
+    void load_removesLeftoversOfAnInterruptedReplace() throws IOException {
+        AuditArchive archive = archive();
+        archive.replaceDay(DAY, List.of(entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true)).iterator());
+        Path current = directory.resolve("audit-20260314-0001.seg");
+        Files.copy(current, directory.resolve("audit-20260314-0002.seg"));
+        Files.writeString(directory.resolve("audit-20260314-0003.seg.tmp"), "partial");
+
+        archive().load();
+
+        assertEquals(List.of("audit-20260314-0002.seg"), fileNames());
+    }
+
+    @Test
+    void replaceDay_rejectsUnorderedEntriesAndLeavesNoFile() throws IOException {
+        AuditArchive archive = archive();
+        Iterator<AuditLog> unordered = List.of(
+                entry(2, DAY, 10, AuditEntityType.DELIVERY, 1L, true),
+                entry(1, DAY, 0, AuditEntityType.DELIVERY, 1L, true)).iterator();
+
+        assertThrows(IllegalArgumentException.class, () -> archive.replaceDay(DAY, unordered));
+        assertFalse(archive.contains(DAY));
+        assertTrue(fileNames().isEmpty());
+    }
+
+    private AuditArchive archive() {
+        return new AuditArchive(directory.toString(), 8);
+    }
+
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static List<AuditLog> toList(Iterator<AuditLog> iterator) {
+        List<AuditLog> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    static AuditLog entry(long id, LocalDate day, int second, AuditEntityType entityType, Long entityId, boolean active) {
+        return AuditLog.builder()
+                .id(id)
+                .entityType(entityType)
+                .entityId(entityId)
+                .action(AuditAction.UPDATE)
+                .active(active)
+                .createdAt(AuditArchive.dayStart(day).plusSeconds(second).plusNanos(id * 1000 + 1))
+                .build();
+    }
+}
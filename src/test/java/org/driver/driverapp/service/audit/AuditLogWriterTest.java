@@ -0,0 +1,271 @@
+package org.driver.driverapp.service.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.model.AuditLogOutbox;
+import org.driver.driverapp.repository.AuditLogOutboxRepository;
+import org.driver.driverapp.repository.AuditLogRepository;
+import org.driver.driverapp.service.compliance.ComplianceBucketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private AuditLogOutboxRepository auditLogOutboxRepository;
+
+    @Mock
+    private ComplianceBucketService complianceBucketService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void async_queuesAfterCommitAndFlushesInJdbcBatches() {
+        AuditLogWriter writer = writer("async", 8, 2);
+        List<AuditLog> batches = recordBatches();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (int i = 0; i < 5; i++) {
+                writer.write(auditLog(i));
+            }
+            assertEquals(0, writer.queuedEntries());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(5, writer.queuedEntries());
+        assertEquals(5.0, meterRegistry.get(MetricsConfig.AUDIT_LOG_QUEUE_DEPTH_GAUGE).gauge().value());
+
+        assertEquals(5, writer.flushQueue());
+
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(5, batches.size());
+        verify(complianceBucketService, times(3)).recordAuditLogs(any());
+        verify(auditLogRepository, never()).save(any());
+        assertEquals(0, writer.queuedEntries());
+        assertEquals(5.0, meterRegistry.get(MetricsConfig.AUDIT_LOG_CREATED_COUNTER).counter().count());
+        assertEquals(3, meterRegistry.get(MetricsConfig.AUDIT_LOG_FLUSH_TIMER).tag("source", "queue").timer().count());
+    }
+
+    @Test
+    void async_rolledBackTransactionQueuesNothing() {
+        AuditLogWriter writer = writer("async", 8, 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.write(auditLog(1));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, writer.queuedEntries());
+        assertEquals(0, writer.flushQueue());
+    }
+
+    @Test
+    void async_fullQueueFallsBackToSynchronousWrite() {
+        AuditLogWriter writer = writer("async", 2, 10);
+        AuditLog overflow = auditLog(3);
+        when(auditLogRepository.save(overflow)).thenReturn(overflow);
+
+        writer.write(auditLog(1));
+        writer.write(auditLog(2));
+        writer.write(overflow);
+
+        verify(auditLogRepository).save(overflow);
+        verify(complianceBucketService).recordAuditLog(overflow);
+        assertEquals(2, writer.queuedEntries());
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.AUDIT_LOG_QUEUE_OVERFLOW_COUNTER).counter().count());
+    }
+
+    @Test
+    void flushQueue_retriesAFailedBatch() {
+        AuditLogWriter writer = writer("async", 8, 10);
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(new int[0][]);
+
+        writer.write(auditLog(1));
+        writer.write(auditLog(2));
+
+        assertEquals(0, writer.flushQueue());
+        assertEquals(2, writer.queuedEntries());
+        assertEquals(2, writer.flushQueue());
+        assertEquals(0, writer.queuedEntries());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushQueue_dropsOnlyTheEntriesThatStillFailOnceAttemptsRunOut() {
+        AuditLogWriter writer = writer("async", 8, 10);
+        List<AuditLog> written = new ArrayList<>();
+        // Entity 2 can never be written
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<AuditLog> batch = invocation.getArgument(1);
+                    if (batch.stream().anyMatch(auditLog -> auditLog.getEntityId() == 2L)) {
+                        throw new IllegalStateException("value too long");
+                    }
+                    written.addAll(batch);
+                    return new int[0][];
+                });
+        for (int i = 1; i <= 4; i++) {
+            writer.write(auditLog(i));
+        }
+
+        assertEquals(0, writer.flushQueue());
+        assertEquals(0, writer.flushQueue());
+        assertEquals(4, writer.queuedEntries());
+        assertEquals(3, writer.flushQueue());
+
+        assertEquals(List.of(1L, 3L, 4L), written.stream().map(AuditLog::getEntityId).toList());
+        assertEquals(0, writer.queuedEntries());
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.AUDIT_LOG_DROPPED_COUNTER).counter().count());
+        writer.write(auditLog(5));
+        assertEquals(1, writer.flushQueue());
+    }
+
+    @Test
+    void kafkaSink_insertsAndPublishesBatchesToTheAuditTopic() {
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplateProvider.getIfAvailable()).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        AuditLogWriter writer = new AuditLogWriter(auditLogRepository, auditLogOutboxRepository,
+                complianceBucketService, jdbcTemplate, kafkaTemplateProvider, transactionManager, meterRegistry,
+                "async", "kafka", 8, 10, 3, 0);
+
+        writer.write(auditLog(7));
+        assertEquals(1, writer.flushQueue());
+
+        verify(kafkaTemplate).send(eq(KafkaConfig.AUDIT_LOG_TOPIC), eq("DELIVERY:7"), any());
+        verify(jdbcTemplate).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(complianceBucketService).recordAuditLogs(any());
+    }
+
+    @Test
+    void durable_writesTheOutboxAndRelaysItInBatches() {
+        AuditLogWriter writer = writer("durable", 8, 2);
+        recordBatches();
+
+        AuditLog auditLog = auditLog(3);
+        writer.write(auditLog);
+        verify(auditLogOutboxRepository).save(argThat(entry -> entry.getEntityId() == 3L
+                && entry.getCreatedAt() != null));
+        assertEquals(0, writer.queuedEntries());
+
+        List<AuditLogOutbox> full = List.of(outboxEntry(1), outboxEntry(2));
+        List<AuditLogOutbox> rest = List.of(outboxEntry(3));
+        when(auditLogOutboxRepository.lockOldest(any(Pageable.class))).thenReturn(full, rest);
+
+        assertEquals(3, writer.relayOutbox());
+
+        verify(auditLogOutboxRepository).deleteAllInBatch(full);
+        verify(auditLogOutboxRepository).deleteAllInBatch(rest);
+        verify(complianceBucketService, times(2)).recordAuditLogs(any());
+        assertEquals(2, meterRegistry.get(MetricsConfig.AUDIT_LOG_FLUSH_TIMER).tag("source", "outbox").timer().count());
+    }
+
+    @Test
+    void relayOutbox_doesNothingOutsideDurableMode() {
+        assertEquals(0, writer("async", 8, 2).relayOutbox());
+        verify(auditLogOutboxRepository, never()).lockOldest(any());
+    }
+
+    private AuditLogWriter writer(String mode, int queueCapacity, int batchSize) {
+        return new AuditLogWriter(auditLogRepository, auditLogOutboxRepository, complianceBucketService,
+                jdbcTemplate, kafkaTemplateProvider, transactionManager, meterRegistry,
+                mode, "jdbc", queueCapacity, batchSize, 3, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<AuditLog> recordBatches() {
+        List<AuditLog> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<AuditLog> batch = invocation.getArgument(1);
+                    batch.forEach(auditLog -> assertNotNull(auditLog.getCreatedAt()));
+                    written.addAll(batch);
+                    return new int[0][];
+                });
+        return written;
+    }
+
+    private static AuditLogOutbox outboxEntry(long entityId) {
+        AuditLog auditLog = auditLog(entityId);
+        auditLog.setCreatedAt(Instant.now());
+        return AuditLogOutbox.of(auditLog);
+    }
+
+    private static AuditLog auditLog(long entityId) {
+        return AuditLog.builder()
+                .entityType(AuditEntityType.DELIVERY)
+                .entityId(entityId)
+                .action(AuditAction.UPDATE)
+                .userId(1L)
+                .userEmail("ops@example.com")
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package org.driver.driverapp.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.model.InventoryItem;
+import org.driver.driverapp.model.Partner;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditSnapshotterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final AuditSnapshotter snapshotter = new AuditSnapshotter(objectMapper, "diff");
+
+    @Test
+    void capture_keepsOwnFieldsAndReducesAssociationsToTheirId() {
+        InventoryItem item = item(12, "Teff flour");
+        item.setPartner(Partner.builder().id(7L).name("Merkato Store").build());
+
+        ObjectNode snapshot = snapshotter.capture(item);
+
+        assertEquals("Teff flour", snapshot.get("name").asText());
+        assertEquals(12, snapshot.get("quantity").asInt());
+        assertEquals(7L, snapshot.get("partner").asLong());
+        assertTrue(snapshot.get("supplier").isNull());
+    }
+
+    @Test
+    void capture_skipsCollections() {
+        Route route = new Route();
+        route.name = "Bole loop";
+        route.stops.add("Bole");
+
+        ObjectNode snapshot = snapshotter.capture(route);
+
+        assertEquals("Bole loop", snapshot.get("name").asText());
+        assertFalse(snapshot.has("stops"));
+        assertFalse(snapshot.has("LIMIT"));
+    }
+
+    @Test
+    void diff_containsOnlyTheChangedFields() {
+        ArrayNode patch = snapshotter.diff(item(12, "Teff flour"), item(9, "Teff flour"));
+
+        assertEquals(1, patch.size());
+        assertEquals("replace", patch.get(0).get("op").asText());
+        assertEquals("/quantity", patch.get(0).get("path").asText());
+        assertEquals(9, patch.get(0).get("value").asInt());
+        assertEquals(List.of("quantity"), JsonFieldPatch.changedFields(patch));
+    }
+
+    @Test
+    void replay_rebuildsStateFromDiffsAndFullSnapshots() {
+        Map<String, Object> created = Map.of("status", "PENDING", "region", "Oromia");
+        Map<String, Object> assigned = Map.of("status", "ASSIGNED", "region", "Oromia", "driver", 4);
+        Map<String, Object> moved = Map.of("status", "ASSIGNED", "driver", 4);
+
+        List<AuditLog> history = List.of(
+                diffEntry(AuditAction.CREATE, null, created),
+                diffEntry(AuditAction.ASSIGN, created, assigned),
+                diffEntry(AuditAction.UPDATE, assigned, moved));
+
+        ObjectNode state = snapshotter.replay(history);
+        assertEquals(objectMapper.valueToTree(moved), state);
+        assertEquals(objectMapper.valueToTree(assigned), snapshotter.replay(history.subList(0, 2)));
+
+        AuditLog full = AuditLog.builder().action(AuditAction.UPDATE).afterSnapshot("{\"status\":\"DELIVERED\"}").build();
+        List<AuditLog> mixed = new ArrayList<>(history);
+        mixed.add(full);
+        mixed.add(diffEntry(AuditAction.COMPLETE, Map.of("status", "DELIVERED"), Map.of("status", "DELIVERED", "rating", 5)));
+        assertEquals(objectMapper.valueToTree(Map.of("status", "DELIVERED", "rating", 5)), snapshotter.replay(mixed));
+
+        mixed.add(diffEntry(AuditAction.DELETE, Map.of("status", "DELIVERED", "rating", 5), null));
+        assertTrue(snapshotter.replay(mixed).isEmpty());
+    }
+
+    @Test
+    void replay_rejectsUnreadableSnapshots() {
+        AuditLog corrupt = AuditLog.builder().id(3L).action(AuditAction.UPDATE).snapshotDiff("[{").build();
+        assertThrows(IllegalStateException.class, () -> snapshotter.replay(List.of(corrupt)));
+    }
+
+    @Test
+    void capture_ofNullIsNull() {
+        assertNull(snapshotter.capture(null));
+        assertFalse(new AuditSnapshotter(objectMapper, "full").isDiffMode());
+    }
+
+    private AuditLog diffEntry(AuditAction action, Object before, Object after) {
+        return AuditLog.builder().action(action).snapshotDiff(snapshotter.diff(before, after).toString()).build();
+    }
+
+    private static InventoryItem item(int quantity, String name) {
+        return InventoryItem.builder()
+                .id(3L)
+                .name(name)
+                .sku("TEFF-1")
+                .quantity(quantity)
+                .unitPrice(BigDecimal.valueOf(85))
+                .build();
+    }
+
+    private static class Route {
+        private static final int LIMIT = 10;
+        private String name;
+        private final List<String> stops = new ArrayList<>();
+    }
+}
@@ -0,0 +1,64 @@
+package org.driver.driverapp.service.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonFieldPatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void diff_emitsAddReplaceAndRemoveOperations() throws Exception {
+        ObjectNode before = object("{\"status\":\"PENDING\",\"notes\":\"gate 2\",\"fee\":40}");
+        ObjectNode after = object("{\"status\":\"ASSIGNED\",\"fee\":40,\"driver\":4}");
+
+        ArrayNode patch = JsonFieldPatch.diff(before, after);
+
+        assertEquals(objectMapper.readTree("[" +
+                "{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"ASSIGNED\"}," +
+                "{\"op\":\"add\",\"path\":\"/driver\",\"value\":4}," +
+                "{\"op\":\"remove\",\"path\":\"/notes\"}]"), patch);
+        assertEquals(after, JsonFieldPatch.apply(before.deepCopy(), patch));
+        assertEquals(List.of("status", "driver", "notes"), JsonFieldPatch.changedFields(patch));
+    }
+
+    @Test
+    void diff_ofIdenticalSnapshotsIsEmpty() throws Exception {
+        ObjectNode snapshot = object("{\"status\":\"PENDING\",\"address\":{\"city\":\"Adama\"}}");
+        assertTrue(JsonFieldPatch.diff(snapshot, snapshot.deepCopy()).isEmpty());
+    }
+
+    @Test
+    void diff_escapesFieldNamesAsJsonPointers() throws Exception {
+        ObjectNode after = object("{\"a/b\":1,\"c~d\":2}");
+
+        ArrayNode patch = JsonFieldPatch.diff(null, after);
+
+        assertEquals("/a~1b", patch.get(0).get("path").asText());
+        assertEquals("/c~0d", patch.get(1).get("path").asText());
+        assertEquals(after, JsonFieldPatch.apply(objectMapper.createObjectNode(), patch));
+    }
+
+    @Test
+    void apply_rejectsNestedPathsAndUnknownOperations() throws Exception {
+        ObjectNode state = objectMapper.createObjectNode();
+        JsonNode nested = objectMapper.readTree("[{\"op\":\"add\",\"path\":\"/address/city\",\"value\":\"Adama\"}]");
+        JsonNode move = objectMapper.readTree("[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/b\"}]");
+
+        assertThrows(IllegalArgumentException.class, () -> JsonFieldPatch.apply(state, nested));
+        assertThrows(IllegalArgumentException.class, () -> JsonFieldPatch.apply(state, move));
+    }
+
+    private ObjectNode object(String json) throws Exception {
+        return (ObjectNode) objectMapper.readTree(json);
+    }
+}
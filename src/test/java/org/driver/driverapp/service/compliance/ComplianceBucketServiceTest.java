@@ -0,0 +1,115 @@
+package org.driver.driverapp.service.compliance;
+
+import jakarta.persistence.EntityManager;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.AuditEntityType;
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.model.AuditLog;
+import org.driver.driverapp.model.ComplianceActionBucket;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Driver;
+import org.driver.driverapp.model.Partner;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Import({ComplianceBucketService.class, ComplianceBucketTracker.class})
+class ComplianceBucketServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ComplianceBucketService complianceBucketService;
+
+    @Autowired
+    private ComplianceBucketTracker complianceBucketTracker;
+
+    private final LocalDate today = LocalDate.now(ComplianceBucketService.ZONE);
+
+    @Test
+    void recordAuditLog_countsDeliveryEntriesTowardsDriverAndPartnerAfterCommit() {
+        Partner partner = persist(Partner.builder().name("Merkato Store").phone("0911000001").build());
+        Driver driver = persist(Driver.builder().name("Abebe").phoneNumber("0933000001").status(DriverStatus.AVAILABLE).build());
+        Delivery delivery = persist(Delivery.builder().deliveryCode("DEL-1").partner(partner).driver(driver)
+                .dropoffAddress("Bole, Addis Ababa").status(DeliveryStatus.DELIVERED).build());
+        entityManager.flush();
+
+        complianceBucketService.recordAuditLog(auditLog(AuditEntityType.DELIVERY, delivery.getId(), AuditAction.COMPLETE));
+        assertEquals(0, complianceBucketTracker.pendingBuckets());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        Map<ComplianceBucketKey, Long> pending = complianceBucketTracker.drain();
+
+        Instant day = ComplianceBucketService.dayStart(today);
+        assertEquals(Map.of(
+                new ComplianceBucketKey(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT, day, AuditAction.COMPLETE), 1L,
+                new ComplianceBucketKey(ComplianceScope.DRIVER, driver.getId(), day, AuditAction.COMPLETE), 1L,
+                new ComplianceBucketKey(ComplianceScope.PARTNER, partner.getId(), day, AuditAction.COMPLETE), 1L),
+                pending);
+    }
+
+    @Test
+    void apply_createsThenIncrementsBuckets() {
+        Instant day = ComplianceBucketService.dayStart(today);
+        ComplianceBucketKey complete = new ComplianceBucketKey(ComplianceScope.DRIVER, 7L, day, AuditAction.COMPLETE);
+        ComplianceBucketKey cancel = new ComplianceBucketKey(ComplianceScope.DRIVER, 7L, day, AuditAction.CANCEL);
+
+        complianceBucketService.apply(Map.of(complete, 2L));
+        entityManager.flush();
+        complianceBucketService.apply(Map.of(complete, 3L, cancel, 1L));
+        entityManager.flush();
+        entityManager.clear();
+
+        long[] counts = complianceBucketService.sumActionCounts(ComplianceScope.DRIVER, 7L, today, today);
+        assertEquals(5L, counts[AuditAction.COMPLETE.ordinal()]);
+        assertEquals(1L, counts[AuditAction.CANCEL.ordinal()]);
+    }
+
+    @Test
+    void sumActionCounts_readsOnlyTheSubjectAndDayRange() {
+        LocalDate lastWeek = today.minusDays(7);
+        complianceBucketService.apply(Map.of(
+                new ComplianceBucketKey(ComplianceScope.PARTNER, 3L, ComplianceBucketService.dayStart(today), AuditAction.VERIFY), 1L,
+                new ComplianceBucketKey(ComplianceScope.PARTNER, 3L, ComplianceBucketService.dayStart(today.minusDays(1)), AuditAction.VERIFY), 2L,
+                new ComplianceBucketKey(ComplianceScope.PARTNER, 3L, ComplianceBucketService.dayStart(lastWeek), AuditAction.VERIFY), 4L,
+                new ComplianceBucketKey(ComplianceScope.PARTNER, 4L, ComplianceBucketService.dayStart(today), AuditAction.VERIFY), 8L,
+                new ComplianceBucketKey(ComplianceScope.DRIVER, 3L, ComplianceBucketService.dayStart(today), AuditAction.VERIFY), 16L));
+        entityManager.flush();
+
+        assertEquals(3L, complianceBucketService.sumActionCounts(ComplianceScope.PARTNER, 3L, today.minusDays(1), today)
+                [AuditAction.VERIFY.ordinal()]);
+        assertEquals(7L, complianceBucketService.sumActionCounts(ComplianceScope.PARTNER, 3L, lastWeek, today)
+                [AuditAction.VERIFY.ordinal()]);
+        assertEquals(0L, ComplianceScoreCalculator.totalActions(complianceBucketService.sumActionCounts(
+                ComplianceScope.PARTNER, 3L, today.plusDays(1), today.plusDays(2))));
+    }
+
+    private AuditLog auditLog(AuditEntityType entityType, Long entityId, AuditAction action) {
+        return AuditLog.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .action(action)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,132 @@
+package org.driver.driverapp.service.compliance;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.AuditAction;
+import org.driver.driverapp.enums.ComplianceScope;
+import org.driver.driverapp.model.ComplianceActionBucket;
+import org.driver.driverapp.model.ComplianceScore;
+import org.driver.driverapp.repository.ComplianceActionBucketRepository;
+import org.driver.driverapp.repository.ComplianceScoreRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+class ComplianceScoreBatchJobTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ComplianceActionBucketRepository complianceActionBucketRepository;
+
+    @Autowired
+    private ComplianceScoreRepository complianceScoreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalDate scoreDate = LocalDate.now(ComplianceBucketService.ZONE).minusDays(1);
+    private ComplianceScoreBatchJob job;
+
+    @BeforeEach
+    void setUp() {
+        // Batches of two subjects, so the run scores and writes several chunks
+        job = new ComplianceScoreBatchJob(complianceActionBucketRepository, jdbcTemplate, transactionManager,
+                meterRegistry, 2, 2, 7);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    void run_scoresEverySubjectInTheWindowOnce() {
+        bucket(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT, scoreDate, AuditAction.COMPLETE, 4);
+        bucket(ComplianceScope.SYSTEM, ComplianceActionBucket.SYSTEM_SUBJECT, scoreDate, AuditAction.UPDATE, 6);
+        bucket(ComplianceScope.DRIVER, 1L, scoreDate, AuditAction.LOGIN, 3);
+        bucket(ComplianceScope.DRIVER, 1L, scoreDate.minusDays(6), AuditAction.LOGOUT, 2);
+        bucket(ComplianceScope.DRIVER, 2L, scoreDate, AuditAction.CANCEL, 1);
+        bucket(ComplianceScope.DRIVER, 3L, scoreDate.minusDays(2), AuditAction.COMPLETE, 1);
+        bucket(ComplianceScope.PARTNER, 1L, scoreDate, AuditAction.VERIFY, 1);
+        // Outside the seven-day window
+        bucket(ComplianceScope.DRIVER, 4L, scoreDate.minusDays(7), AuditAction.COMPLETE, 1);
+        bucket(ComplianceScope.DRIVER, 1L, scoreDate.plusDays(1), AuditAction.CANCEL, 9);
+        entityManager.flush();
+
+        assertEquals(5, job.run(scoreDate));
+
+        Map<String, ComplianceScore> scores = storedScores();
+        assertEquals(5, scores.size());
+        assertFalse(scores.containsKey("DRIVER:4"));
+        assertScore(scores.get("SYSTEM:0"), "100.00", 10, "EXCELLENT");
+        assertScore(scores.get("DRIVER:1"), "20.00", 5, "CRITICAL");
+        assertScore(scores.get("DRIVER:2"), "0.00", 1, "CRITICAL");
+        assertScore(scores.get("DRIVER:3"), "100.00", 1, "EXCELLENT");
+        assertScore(scores.get("PARTNER:1"), "100.00", 1, "EXCELLENT");
+        assertEquals(5.0, meterRegistry.get(MetricsConfig.COMPLIANCE_SCORE_BATCH_PROGRESS_GAUGE).gauge().value());
+    }
+
+    @Test
+    void run_replacesTheScoreDate() {
+        bucket(ComplianceScope.DRIVER, 1L, scoreDate, AuditAction.LOGIN, 3);
+        bucket(ComplianceScope.DRIVER, 2L, scoreDate, AuditAction.LOGIN, 1);
+        entityManager.flush();
+        job.run(scoreDate);
+
+        entityManager.createQuery("DELETE FROM ComplianceActionBucket b WHERE b.subjectId = 2").executeUpdate();
+        job.run(scoreDate);
+
+        assertEquals(List.of("DRIVER:1"), List.copyOf(storedScores().keySet()));
+        assertEquals(3.0, meterRegistry.get(MetricsConfig.COMPLIANCE_SCORE_BATCH_SCORED_COUNTER).counter().count());
+    }
+
+    private Map<String, ComplianceScore> storedScores() {
+        entityManager.clear();
+        return complianceScoreRepository.findAll().stream()
+                .collect(Collectors.toMap(s -> s.getScope() + ":" + s.getSubjectId(), Function.identity()));
+    }
+
+    private void assertScore(ComplianceScore score, String expected, long actionCount, String status) {
+        assertEquals(0, new BigDecimal(expected).compareTo(score.getScore()));
+        assertEquals(actionCount, score.getActionCount());
+        assertEquals(status, score.getStatus());
+        assertEquals(scoreDate, score.getScoreDate());
+        assertEquals(7, score.getWindowDays());
+    }
+
+    private void bucket(ComplianceScope scope, long subjectId, LocalDate date, AuditAction action, long count) {
+        entityManager.persist(ComplianceActionBucket.builder()
+                .scope(scope)
+                .subjectId(subjectId)
+                .bucketStart(ComplianceBucketService.dayStart(date))
+                .action(action)
+                .actionCount(count)
+                .updatedAt(Instant.now())
+                .build());
+    }
+}
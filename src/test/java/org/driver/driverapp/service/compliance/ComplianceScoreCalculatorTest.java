@@ -0,0 +1,81 @@
+package org.driver.driverapp.service.compliance;
+
+import org.driver.driverapp.enums.AuditAction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ComplianceScoreCalculatorTest {
+
+    private static final Map<AuditAction, Integer> WEIGHTS = Map.ofEntries(
+            Map.entry(AuditAction.COMPLETE, 10),
+            Map.entry(AuditAction.VERIFY, 5),
+            Map.entry(AuditAction.ACTIVATE, 3),
+            Map.entry(AuditAction.PAYMENT_COMPLETED, 8),
+            Map.entry(AuditAction.LOGIN, 1),
+            Map.entry(AuditAction.DELETE, -15),
+            Map.entry(AuditAction.DEACTIVATE, -10),
+            Map.entry(AuditAction.UNVERIFY, -8),
+            Map.entry(AuditAction.CANCEL, -12),
+            Map.entry(AuditAction.PAYMENT_FAILED, -20),
+            Map.entry(AuditAction.LOGOUT, -1));
+
+    @Test
+    void scoreHundredths_normalizesAndClamps() {
+        assertEquals(2000, ComplianceScoreCalculator.scoreHundredths(counts(AuditAction.LOGIN, 3, AuditAction.LOGOUT, 2)));
+        assertEquals(10000, ComplianceScoreCalculator.scoreHundredths(counts(AuditAction.COMPLETE, 1, AuditAction.UPDATE, 0)));
+        assertEquals(0, ComplianceScoreCalculator.scoreHundredths(counts(AuditAction.CANCEL, 1, AuditAction.LOGIN, 1)));
+        assertEquals(0, ComplianceScoreCalculator.scoreHundredths(ComplianceScoreCalculator.emptyCounts()));
+    }
+
+    @Test
+    void divideHalfUp_roundsHalfAwayFromZero() {
+        assertEquals(3, ComplianceScoreCalculator.divideHalfUp(5, 2));
+        assertEquals(-3, ComplianceScoreCalculator.divideHalfUp(-5, 2));
+        assertEquals(1, ComplianceScoreCalculator.divideHalfUp(4, 3));
+        assertEquals(-1, ComplianceScoreCalculator.divideHalfUp(-4, 3));
+    }
+
+    @Test
+    void scoreHundredths_matchesDecimalArithmetic() {
+        Random random = new Random(42);
+        AuditAction[] actions = AuditAction.values();
+        for (int i = 0; i < 1_000; i++) {
+            long[] counts = ComplianceScoreCalculator.emptyCounts();
+            for (int j = 0; j < 4; j++) {
+                counts[random.nextInt(actions.length)] += random.nextInt(50);
+            }
+            if (ComplianceScoreCalculator.totalActions(counts) == 0) {
+                continue;
+            }
+            assertEquals(decimalScore(counts),
+                    ComplianceScoreCalculator.toBigDecimal(ComplianceScoreCalculator.scoreHundredths(counts)));
+        }
+    }
+
+    // The scoring formula evaluated with BigDecimal, as the scores were computed before
+    private static BigDecimal decimalScore(long[] counts) {
+        BigDecimal weighted = BigDecimal.ZERO;
+        long total = 0;
+        for (AuditAction action : AuditAction.values()) {
+            long count = counts[action.ordinal()];
+            total += count;
+            weighted = weighted.add(BigDecimal.valueOf(WEIGHTS.getOrDefault(action, 0)).multiply(BigDecimal.valueOf(count)));
+        }
+        BigDecimal score = weighted.divide(BigDecimal.valueOf(total), 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+        score = score.max(BigDecimal.ZERO).min(BigDecimal.valueOf(100));
+        return score.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static long[] counts(AuditAction first, long firstCount, AuditAction second, long secondCount) {
+        long[] counts = ComplianceScoreCalculator.emptyCounts();
+        counts[first.ordinal()] += firstCount;
+        counts[second.ordinal()] += secondCount;
+        return counts;
+    }
+}
@@ -0,0 +1,89 @@
+package org.driver.driverapp.service.delivery;
+
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.dto.websocket.DeliveryStatusDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.service.websocket.WebSocketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryStatusEventPublisherTest {
+
+    @Mock
+    private WebSocketService webSocketService;
+
+    @Mock
+    private ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private DeliveryStatusEventPublisher publisher;
+
+    private DeliveryStatusChangedEvent event;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new DeliveryStatusEventPublisher(webSocketService, kafkaTemplateProvider);
+        event = DeliveryStatusChangedEvent.builder()
+                .deliveryId(42L)
+                .previousStatus(DeliveryStatus.PICKED_UP)
+                .newStatus(DeliveryStatus.IN_TRANSIT)
+                .driverId(7L)
+                .changedAt(Instant.now())
+                .build();
+    }
+
+    @Test
+    void onDeliveryStatusChanged_PublishesToWebSocketAndKafka() {
+        when(kafkaTemplateProvider.getIfAvailable()).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(eq(KafkaConfig.DELIVERY_STATUS_TOPIC), eq("42"), any()))
+                .thenReturn(new CompletableFuture<>());
+
+        publisher.onDeliveryStatusChanged(event);
+
+        ArgumentCaptor<DeliveryStatusDTO> captor = ArgumentCaptor.forClass(DeliveryStatusDTO.class);
+        verify(webSocketService).sendDeliveryStatusUpdate(captor.capture());
+        assertEquals("IN_TRANSIT", captor.getValue().getStatus());
+        assertEquals("PICKED_UP", captor.getValue().getPreviousStatus());
+        verify(kafkaTemplate).send(KafkaConfig.DELIVERY_STATUS_TOPIC, "42", captor.getValue());
+    }
+
+    @Test
+    void onDeliveryStatusChanged_WebSocketFailureStillPublishesToKafka() {
+        when(kafkaTemplateProvider.getIfAvailable()).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(eq(KafkaConfig.DELIVERY_STATUS_TOPIC), eq("42"), any()))
+                .thenReturn(new CompletableFuture<>());
+        doThrow(new RuntimeException("broker down")).when(webSocketService).sendDeliveryStatusUpdate(any());
+
+        publisher.onDeliveryStatusChanged(event);
+
+        verify(kafkaTemplate).send(eq(KafkaConfig.DELIVERY_STATUS_TOPIC), eq("42"), any());
+    }
+
+    @Test
+    void onDeliveryStatusChanged_WithoutKafka_OnlyPushesWebSocket() {
+        when(kafkaTemplateProvider.getIfAvailable()).thenReturn(null);
+
+        publisher.onDeliveryStatusChanged(event);
+
+        verify(webSocketService).sendDeliveryStatusUpdate(any());
+    }
+}
@@ -0,0 +1,171 @@
+package org.driver.driverapp.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.wallet.response.WalletResponseDTO;
+import org.driver.driverapp.exception.IdempotencyKeyConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void execute_returnsTheStoredResponseToRetriesWithoutRunningAgain() {
+        IdempotencyStore store = store(null);
+
+        WalletResponseDTO first = store.execute("wallet-credit:admin", "key-1", Map.of("amount", 10),
+                WalletResponseDTO.class, this::credit);
+        WalletResponseDTO retry = store.execute("wallet-credit:admin", "key-1", Map.of("amount", 10),
+                WalletResponseDTO.class, this::credit);
+
+        assertEquals(1, runs.get());
+        assertEquals(first, retry);
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.IDEMPOTENCY_REPLAYED_COUNTER).counter().count());
+        // Keys are independent per scope, and requests without a key always run
+        store.execute("wallet-debit:admin", "key-1", Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+        store.execute("wallet-credit:admin", null, Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void execute_refusesAKeyReusedForADifferentRequest() {
+        IdempotencyStore store = store(null);
+        store.execute("wallet-credit:admin", "key-1", Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> store.execute("wallet-credit:admin", "key-1",
+                Map.of("amount", 20), WalletResponseDTO.class, this::credit));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void executeAsync_refusesRetriesWhileTheFirstRequestIsRunning() {
+        IdempotencyStore store = store(null);
+        CompletableFuture<WalletResponseDTO> pending = new CompletableFuture<>();
+        CompletableFuture<WalletResponseDTO> first = store.executeAsync("payment-initiate:user", "key-1",
+                Map.of("amount", 10), WalletResponseDTO.class, () -> pending);
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> store.executeAsync("payment-initiate:user",
+                "key-1", Map.of("amount", 10), WalletResponseDTO.class, () -> pending));
+
+        pending.complete(wallet());
+        WalletResponseDTO retry = store.executeAsync("payment-initiate:user", "key-1", Map.of("amount", 10),
+                WalletResponseDTO.class, () -> CompletableFuture.failedFuture(new IllegalStateException())).join();
+        assertEquals(first.join(), retry);
+    }
+
+    @Test
+    void execute_releasesTheKeyWhenTheRequestFails() {
+        IdempotencyStore store = store(null);
+
+        assertThrows(IllegalStateException.class, () -> store.execute("wallet-debit:admin", "key-1",
+                Map.of("amount", 10), WalletResponseDTO.class, () -> {
+                    throw new IllegalStateException("Insufficient balance");
+                }));
+        store.execute("wallet-debit:admin", "key-1", Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void executeAsync_releasesTheKeyForResponsesNotMarkedCompleted() {
+        IdempotencyStore store = store(null);
+        WalletResponseDTO failed = WalletResponseDTO.builder().id(7L).balance(BigDecimal.ZERO).build();
+
+        store.executeAsync("payment-initiate:user", "key-1", Map.of("amount", 10), WalletResponseDTO.class,
+                response -> response.getBalance().signum() > 0, () -> CompletableFuture.completedFuture(failed)).join();
+        WalletResponseDTO retry = store.executeAsync("payment-initiate:user", "key-1", Map.of("amount", 10),
+                WalletResponseDTO.class, response -> response.getBalance().signum() > 0,
+                () -> CompletableFuture.completedFuture(credit())).join();
+
+        assertEquals(wallet(), retry);
+        assertEquals(1, runs.get());
+        assertEquals(1, store.localSize());
+    }
+
+    @Test
+    void recordsExpireAfterTheirTtl() {
+        IdempotencyStore store = store(null);
+        store.execute("wallet-credit:admin", "key-1", Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+
+        now.addAndGet(Duration.ofHours(1).toMillis());
+        store.purgeExpired();
+
+        assertEquals(0, store.localSize());
+        store.execute("wallet-credit:admin", "key-1", Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void execute_sharesRecordsAcrossInstancesThroughRedis() throws Exception {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, Object> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        IdempotencyStore store = store(redisTemplate);
+        WalletResponseDTO stored = wallet();
+        String fingerprint = sha256(objectMapper.writeValueAsBytes(Map.of("amount", 10)));
+        when(values.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(false);
+        when(values.get("idempotency:wallet-credit:admin:key-1")).thenReturn(new IdempotencyRecord(
+                IdempotencyRecord.Status.COMPLETED, fingerprint, objectMapper.writeValueAsString(stored),
+                now.get() + 60_000));
+
+        WalletResponseDTO replayed = store.execute("wallet-credit:admin", "key-1", Map.of("amount", 10),
+                WalletResponseDTO.class, this::credit);
+
+        assertEquals(stored, replayed);
+        assertEquals(0, runs.get());
+
+        when(values.setIfAbsent(eq("idempotency:wallet-credit:admin:key-2"), any(), any(Duration.class)))
+                .thenReturn(true);
+        store.execute("wallet-credit:admin", "key-2", Map.of("amount", 10), WalletResponseDTO.class, this::credit);
+        verify(values).set(eq("idempotency:wallet-credit:admin:key-2"), any(IdempotencyRecord.class),
+                eq(Duration.ofMinutes(30)));
+    }
+
+    private IdempotencyStore store(RedisTemplate<String, Object> redisTemplate) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider = mock(ObjectProvider.class);
+        when(redisTemplateProvider.getIfAvailable()).thenReturn(redisTemplate);
+        return new IdempotencyStore(redisTemplateProvider, objectMapper, meterRegistry, Duration.ofMinutes(30),
+                Duration.ofSeconds(10), 100, now::get);
+    }
+
+    private WalletResponseDTO credit() {
+        runs.incrementAndGet();
+        return wallet();
+    }
+
+    private static WalletResponseDTO wallet() {
+        return WalletResponseDTO.builder().id(7L).ownerId(3L).balance(new BigDecimal("110.00")).build();
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
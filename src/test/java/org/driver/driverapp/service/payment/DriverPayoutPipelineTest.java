@@ -0,0 +1,298 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.driver.response.DriverPayoutRunResultDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.DriverStatus;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PayoutStatus;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Driver;
+import org.driver.driverapp.model.DriverEarning;
+import org.driver.driverapp.model.DriverPayoutBatch;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.repository.DriverEarningDailyRepository;
+import org.driver.driverapp.repository.DriverEarningRepository;
+import org.driver.driverapp.repository.DriverPayoutBatchRepository;
+import org.driver.driverapp.repository.DriverRepository;
+import org.driver.driverapp.service.DriverEarningRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Payouts are claimed and recorded in the pipeline's own transactions, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DriverPayoutPipelineTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DriverEarningRepository driverEarningRepository;
+
+    @Autowired
+    private DriverPayoutBatchRepository driverPayoutBatchRepository;
+
+    @Autowired
+    private DriverEarningDailyRepository driverEarningDailyRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final PaymentProviderFactory paymentProviderFactory = mock(PaymentProviderFactory.class);
+    private final PaymentProviderService providerService = mock(PaymentProviderService.class);
+    private DriverEarningRollupService rollupService;
+    private DriverPayoutPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        when(paymentProviderFactory.getProvider(PaymentProvider.TELEBIRR)).thenReturn(providerService);
+        // Drivers whose phone number starts with 09 are rejected by the provider
+        when(providerService.initiatePayment(any())).thenAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            boolean rejected = request.getPhoneNumber().startsWith("09");
+            return CompletableFuture.completedFuture(PaymentResponse.builder()
+                    .success(!rejected)
+                    .transactionRef(rejected ? null : "TEL_" + request.getUserId())
+                    .message(rejected ? "Account blocked" : "Paid")
+                    .build());
+        });
+        rollupService = new DriverEarningRollupService(driverEarningDailyRepository, driverEarningRepository,
+                transactionManager);
+        // Two workers and results written two at a time
+        pipeline = new DriverPayoutPipeline(driverEarningRepository, driverPayoutBatchRepository,
+                paymentProviderFactory, rollupService, jdbcTemplate, transactionManager, meterRegistry,
+                PaymentProvider.TELEBIRR, 2, 2, Duration.ofMinutes(10).toMillis());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+        driverEarningRepository.deleteAllInBatch();
+        driverEarningDailyRepository.deleteAllInBatch();
+        driverPayoutBatchRepository.deleteAllInBatch();
+        deliveryRepository.deleteAllInBatch();
+        driverRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void run_paysEachDriverOnceForAllTheirPendingEarnings() {
+        Driver abebe = driver("0711000001");
+        Driver chaltu = driver("0711000002");
+        Driver dawit = driver("0911000003");
+        Driver kebede = driver("0711000004");
+        earning(abebe, "30.00", PayoutStatus.PENDING);
+        earning(abebe, "20.00", PayoutStatus.PENDING);
+        earning(chaltu, "40.00", PayoutStatus.PENDING);
+        earning(dawit, "10.00", PayoutStatus.PENDING);
+        earning(kebede, "15.00", PayoutStatus.COMPLETED);
+        rollupService.rebuild();
+
+        DriverPayoutRunResultDTO result = pipeline.run();
+        DriverPayoutRunResultDTO again = pipeline.run();
+
+        assertEquals(3, result.getDrivers());
+        assertEquals(2, result.getCompleted());
+        assertEquals(1, result.getFailed());
+        assertEquals(0, new BigDecimal("90.00").compareTo(result.getAmountPaid()));
+        verify(providerService, times(3)).initiatePayment(any());
+
+        List<DriverEarning> paid = driverEarningRepository.findByDriverIdAndPayoutStatusAndActiveTrue(abebe.getId(),
+                PayoutStatus.COMPLETED);
+        assertEquals(2, paid.size());
+        assertTrue(paid.stream().allMatch(earning -> ("TEL_" + abebe.getId()).equals(earning.getPayoutReference())));
+        assertNotNull(paid.get(0).getPayoutDate());
+        assertEquals(paid.get(0).getPayoutBatchId(), paid.get(1).getPayoutBatchId());
+        DriverEarning failed = driverEarningRepository.findByDriverIdAndPayoutStatusAndActiveTrue(dawit.getId(),
+                PayoutStatus.FAILED).get(0);
+        assertEquals("Payout rejected by TELEBIRR: Account blocked", failed.getFailureReason());
+
+        DriverPayoutBatch batch = driverPayoutBatchRepository.findById(paid.get(0).getPayoutBatchId()).orElseThrow();
+        assertEquals(PayoutStatus.COMPLETED, batch.getStatus());
+        assertEquals(2, batch.getEarningCount());
+        assertEquals(0, new BigDecimal("50.00").compareTo(batch.getAmount()));
+        assertEquals(0, again.getDrivers());
+        assertEquals(0, new BigDecimal("50.00").compareTo(rollupService.earnings(abebe.getId(), PayoutStatus.COMPLETED)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(rollupService.earnings(abebe.getId(), PayoutStatus.PENDING)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(rollupService.earnings(abebe.getId(), PayoutStatus.PROCESSING)));
+        assertEquals(0, new BigDecimal("10.00").compareTo(rollupService.earnings(dawit.getId(), PayoutStatus.FAILED)));
+        assertEquals(2.0, meterRegistry.get(MetricsConfig.DRIVER_PAYOUT_COUNTER).tag("status", "completed")
+                .counter().count());
+    }
+
+    @Test
+    void run_resumesBatchesAnInterruptedRunLeftProcessing() {
+        Driver stale = driver("0711000001");
+        Driver current = driver("0711000002");
+        // A run claimed both earnings; the first one's run stopped long ago, the second is still paying
+        DriverPayoutBatch staleBatch = batch(stale, "25.00", Instant.now().minus(Duration.ofHours(1)));
+        DriverPayoutBatch currentBatch = batch(current, "35.00", Instant.now());
+        DriverEarning staleEarning = earning(stale, "25.00", PayoutStatus.PROCESSING);
+        DriverEarning currentEarning = earning(current, "35.00", PayoutStatus.PROCESSING);
+        claim(staleEarning, staleBatch);
+        claim(currentEarning, currentBatch);
+        rollupService.rebuild();
+
+        DriverPayoutRunResultDTO result = pipeline.run();
+
+        assertEquals(1, result.getResumed());
+        assertEquals(1, result.getCompleted());
+        assertEquals(PayoutStatus.COMPLETED, driverEarningRepository.findById(staleEarning.getId()).orElseThrow()
+                .getPayoutStatus());
+        assertEquals(PayoutStatus.PROCESSING, driverEarningRepository.findById(currentEarning.getId()).orElseThrow()
+                .getPayoutStatus());
+        assertEquals(PayoutStatus.PROCESSING, driverPayoutBatchRepository.findById(currentBatch.getId()).orElseThrow()
+                .getStatus());
+        verify(providerService, times(1)).initiatePayment(any());
+    }
+
+    @Test
+    void run_skipsBatchesAnotherRunTookOverBeforeTheyWerePaid() {
+        Driver first = driver("0711000001");
+        Driver second = driver("0711000002");
+        earning(first, "25.00", PayoutStatus.PENDING);
+        earning(second, "35.00", PayoutStatus.PENDING);
+        rollupService.rebuild();
+        // While the first driver is paid, another instance takes over the second driver's batch
+        AtomicBoolean tookOver = new AtomicBoolean();
+        doAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            if (tookOver.compareAndSet(false, true)) {
+                jdbcTemplate.update("UPDATE \"driver_payout_batch\" SET \"run_id\" = 'other-instance' " +
+                        "WHERE \"driver_id\" <> ?", Long.valueOf(request.getUserId()));
+            }
+            return CompletableFuture.completedFuture(PaymentResponse.builder()
+                    .success(true)
+                    .transactionRef("TEL_" + request.getUserId())
+                    .build());
+        }).when(providerService).initiatePayment(any());
+        pipeline.shutdown();
+        pipeline = new DriverPayoutPipeline(driverEarningRepository, driverPayoutBatchRepository,
+                paymentProviderFactory, rollupService, jdbcTemplate, transactionManager, meterRegistry,
+                PaymentProvider.TELEBIRR, 1, 2, Duration.ofMinutes(10).toMillis());
+
+        DriverPayoutRunResultDTO result = pipeline.run();
+
+        ArgumentCaptor<PaymentRequest> requests = ArgumentCaptor.forClass(PaymentRequest.class);
+        verify(providerService, times(1)).initiatePayment(requests.capture());
+        assertEquals(first.getId().toString(), requests.getValue().getUserId());
+        assertTrue(requests.getValue().getIdempotencyKey().startsWith("driver-payout-"));
+        assertEquals(1, result.getCompleted());
+        assertEquals(PayoutStatus.PROCESSING, driverEarningRepository.findByDriverIdAndPayoutStatusAndActiveTrue(
+                second.getId(), PayoutStatus.PROCESSING).get(0).getPayoutStatus());
+    }
+
+    @Test
+    void run_recordsPaidBatchesBeforeTheirChunkFillsOnceTheyAreAQuarterOfResumeAfterOld() {
+        earning(driver("0711000001"), "25.00", PayoutStatus.PENDING);
+        earning(driver("0711000002"), "35.00", PayoutStatus.PENDING);
+        earning(driver("0711000003"), "45.00", PayoutStatus.PENDING);
+        rollupService.rebuild();
+        // Each payout takes longer than a quarter of resumeAfter; the third sees what the first two left behind
+        AtomicInteger calls = new AtomicInteger();
+        AtomicLong completedBeforeThird = new AtomicLong(-1);
+        doAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            if (calls.incrementAndGet() == 3) {
+                completedBeforeThird.set(driverPayoutBatchRepository.findAll().stream()
+                        .filter(batch -> batch.getStatus() == PayoutStatus.COMPLETED)
+                        .count());
+            }
+            Thread.sleep(150);
+            return CompletableFuture.completedFuture(PaymentResponse.builder()
+                    .success(true)
+                    .transactionRef("TEL_" + request.getUserId())
+                    .build());
+        }).when(providerService).initiatePayment(any());
+        pipeline.shutdown();
+        // One worker, and chunks far larger than the run
+        pipeline = new DriverPayoutPipeline(driverEarningRepository, driverPayoutBatchRepository,
+                paymentProviderFactory, rollupService, jdbcTemplate, transactionManager, meterRegistry,
+                PaymentProvider.TELEBIRR, 1, 200, 400);
+
+        DriverPayoutRunResultDTO result = pipeline.run();
+
+        assertEquals(3, result.getCompleted());
+        assertEquals(2, completedBeforeThird.get());
+    }
+
+    private Driver driver(String phoneNumber) {
+        return driverRepository.save(Driver.builder()
+                .name("Driver " + phoneNumber)
+                .phoneNumber(phoneNumber)
+                .status(DriverStatus.AVAILABLE)
+                .build());
+    }
+
+    private DriverEarning earning(Driver driver, String amount, PayoutStatus payoutStatus) {
+        int n = sequence.incrementAndGet();
+        Delivery delivery = deliveryRepository.save(Delivery.builder()
+                .deliveryCode("DEL-" + n)
+                .dropoffAddress("Bole, Addis Ababa")
+                .status(DeliveryStatus.DELIVERED)
+                .driver(driver)
+                .build());
+        return driverEarningRepository.save(DriverEarning.builder()
+                .driver(driver)
+                .delivery(delivery)
+                .amount(new BigDecimal(amount))
+                .payoutStatus(payoutStatus)
+                .description("Earning from delivery: DEL-" + n)
+                .build());
+    }
+
+    private DriverPayoutBatch batch(Driver driver, String amount, Instant updatedAt) {
+        return driverPayoutBatchRepository.save(DriverPayoutBatch.builder()
+                .runId("interrupted-run")
+                .driverId(driver.getId())
+                .amount(new BigDecimal(amount))
+                .earningCount(1)
+                .status(PayoutStatus.PROCESSING)
+                .createdAt(updatedAt)
+                .updatedAt(updatedAt)
+                .build());
+    }
+
+    private void claim(DriverEarning earning, DriverPayoutBatch batch) {
+        earning.setPayoutBatchId(batch.getId());
+        driverEarningRepository.save(earning);
+    }
+}
@@ -0,0 +1,128 @@
+package org.driver.driverapp.service.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
+import org.driver.driverapp.simulator.PaymentProviderSimulator;
+import org.driver.driverapp.simulator.SimulatorProfile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpPaymentProviderServiceTest {
+
+    private static final SimulatorProfile.LatencyProfile FAST = SimulatorProfile.LatencyProfile.builder()
+            .type(SimulatorProfile.LatencyProfile.Type.FIXED).valueMs(5).build();
+
+    private static PaymentProviderSimulator simulator;
+    private static final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startSimulator() throws IOException {
+        SimulatorProfile.OutageWindow alwaysDown = SimulatorProfile.OutageWindow.builder()
+                .startSeconds(0).durationSeconds(3600).mode(SimulatorProfile.OutageWindow.Mode.ERROR).build();
+        simulator = PaymentProviderSimulator.start(SimulatorProfile.builder()
+                .defaults(SimulatorProfile.ProviderProfile.builder().latency(FAST).build())
+                .providers(Map.of(
+                        PaymentProvider.CBE_BIRR, SimulatorProfile.ProviderProfile.builder()
+                                .latency(FAST).declineRate(1.0).build(),
+                        PaymentProvider.M_BIRR, SimulatorProfile.ProviderProfile.builder()
+                                .latency(FAST).outages(List.of(alwaysDown)).build(),
+                        PaymentProvider.HELLOCASH, SimulatorProfile.ProviderProfile.builder()
+                                .latency(FAST).timeoutRate(1.0).hangMs(2_000).build()))
+                .build(), 0);
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.stop();
+    }
+
+    @Test
+    void initiateConfirmAndRefundRoundTrip() {
+        PaymentProviderService teleBirr = client(PaymentProvider.TELEBIRR);
+
+        PaymentResponse initiated = teleBirr.initiatePayment(request(PaymentProvider.TELEBIRR)).join();
+        PaymentResponse confirmed = teleBirr.confirmPayment(initiated.getTransactionRef()).join();
+        PaymentResponse refunded = teleBirr.refundPayment(initiated.getTransactionRef(), new BigDecimal("150.00")).join();
+
+        assertTrue(initiated.isSuccess());
+        assertEquals(PaymentStatus.PROCESSING, initiated.getStatus());
+        assertTrue(initiated.getTransactionRef().startsWith("TEL_"));
+        assertTrue(confirmed.isSuccess());
+        assertEquals(PaymentStatus.COMPLETED, confirmed.getStatus());
+        assertTrue(refunded.isSuccess());
+        assertFalse(teleBirr.confirmPayment("TEL_UNKNOWN").join().isSuccess());
+    }
+
+    @Test
+    void repeatedIdempotencyKeysAreNotPaidAgain() {
+        PaymentProviderService teleBirr = client(PaymentProvider.TELEBIRR);
+        PaymentRequest request = request(PaymentProvider.TELEBIRR);
+        request.setIdempotencyKey("driver-payout-42");
+
+        PaymentResponse first = teleBirr.initiatePayment(request).join();
+        PaymentResponse again = teleBirr.initiatePayment(request).join();
+        PaymentResponse unkeyed = teleBirr.initiatePayment(request(PaymentProvider.TELEBIRR)).join();
+
+        assertEquals(first.getTransactionRef(), again.getTransactionRef());
+        assertFalse(first.getTransactionRef().equals(unkeyed.getTransactionRef()));
+    }
+
+    @Test
+    void declinesComeBackAsUnsuccessfulResponses() {
+        PaymentResponse declined = client(PaymentProvider.CBE_BIRR).initiatePayment(request(PaymentProvider.CBE_BIRR)).join();
+
+        assertFalse(declined.isSuccess());
+        assertEquals(PaymentStatus.FAILED, declined.getStatus());
+    }
+
+    @Test
+    void outagesFailTheCall() {
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> client(PaymentProvider.M_BIRR).initiatePayment(request(PaymentProvider.M_BIRR)).join());
+
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    @Test
+    void unansweredCallsTimeOut() {
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> client(PaymentProvider.HELLOCASH).initiatePayment(request(PaymentProvider.HELLOCASH)).join());
+
+        PaymentProviderUnavailableException timeout = assertInstanceOf(PaymentProviderUnavailableException.class,
+                error.getCause());
+        assertEquals(PaymentProviderUnavailableException.Reason.TIMEOUT, timeout.getReason());
+    }
+
+    private static HttpPaymentProviderService client(PaymentProvider provider) {
+        return new HttpPaymentProviderService(provider, httpClient, new ObjectMapper(),
+                "http://localhost:" + simulator.getPort() + "/", Duration.ofMillis(300));
+    }
+
+    private static PaymentRequest request(PaymentProvider provider) {
+        return PaymentRequest.builder()
+                .userId("1")
+                .deliveryId("2")
+                .amount(new BigDecimal("150.00"))
+                .currency("ETB")
+                .provider(provider)
+                .phoneNumber("+251911000000")
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.exception.PaymentProviderUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentBulkheadTest {
+
+    private final Counter rejected = new SimpleMeterRegistry().counter("rejected");
+    private final PaymentBulkhead bulkhead = new PaymentBulkhead(PaymentProvider.CBE_BIRR, 1, 2, 1,
+            Duration.ofMillis(400), Duration.ofMillis(150), rejected);
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void execute_rejectsCallsBeyondTheLimitWithoutWaiting() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> firstResult = bulkhead.execute(() -> first);
+        bulkhead.execute(() -> second);
+
+        CompletableFuture<String> third = bulkhead.execute(() -> CompletableFuture.completedFuture("never started"));
+
+        CompletionException error = assertThrows(CompletionException.class, third::join);
+        PaymentProviderUnavailableException unavailable =
+                assertInstanceOf(PaymentProviderUnavailableException.class, error.getCause());
+        assertEquals(PaymentProviderUnavailableException.Reason.BULKHEAD_FULL, unavailable.getReason());
+        assertEquals(1.0, rejected.count());
+
+        first.complete("done");
+        assertEquals("done", firstResult.join());
+        second.complete("done");
+        assertTrue(waitForPermits(2));
+    }
+
+    @Test
+    void execute_completesOnTheBulkheadsOwnThreads() {
+        // The call completes only after the callback is attached, so the callback runs where the result completes
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> thread = bulkhead.execute(() -> call)
+                .thenApply(ignored -> Thread.currentThread().getName());
+        call.complete("ok");
+
+        assertTrue(thread.join().startsWith("payment-cbe_birr-"), thread.join());
+    }
+
+    @Test
+    void execute_turnsSlowCallsIntoUnavailableAndFreesThePermit() {
+        CompletableFuture<String> result = bulkhead.execute(CompletableFuture::new);
+
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        PaymentProviderUnavailableException unavailable =
+                assertInstanceOf(PaymentProviderUnavailableException.class, error.getCause());
+        assertEquals(PaymentProviderUnavailableException.Reason.TIMEOUT, unavailable.getReason());
+        assertTrue(waitForPermits(1));
+    }
+
+    @Test
+    void execute_halvesTheLimitOnSlowCallsAndGrowsItBackWhileBusy() {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> slowResult = bulkhead.execute(() -> slow);
+        slow.completeOnTimeout("late", 250, TimeUnit.MILLISECONDS);
+        assertEquals("late", slowResult.join());
+        assertEquals(1, bulkhead.getLimit());
+        assertTrue(waitForPermits(1));
+
+        // Busy fast calls add 1/limit each: 1 -> 2
+        bulkhead.execute(() -> CompletableFuture.completedFuture("fast")).join();
+        assertEquals(2, bulkhead.getLimit());
+        assertTrue(waitForPermits(2));
+    }
+
+    @Test
+    void execute_passesProviderErrorsThrough() {
+        CompletableFuture<String> result = bulkhead.execute(() ->
+                CompletableFuture.failedFuture(new IllegalStateException("declined")));
+
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertTrue(waitForPermits(2));
+    }
+
+    // Permits are released just after the result completes, on the bulkhead thread
+    private boolean waitForPermits(int expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (bulkhead.availablePermits() != expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        return bulkhead.availablePermits() == expected;
+    }
+}
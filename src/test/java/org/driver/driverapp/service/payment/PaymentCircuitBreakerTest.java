@@ -0,0 +1,104 @@
+package org.driver.driverapp.service.payment;
+
+import org.driver.driverapp.enums.PaymentProvider;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final PaymentCircuitBreaker breaker = new PaymentCircuitBreaker(PaymentProvider.TELEBIRR, 10, 4, 50,
+            Duration.ofSeconds(30), 2, now::get);
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCallsIsRecorded() {
+        fail(3);
+
+        assertEquals(PaymentCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(100.0, breaker.failureRate());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void opensWhenTheFailureRateReachesTheThresholdAndRefusesCalls() {
+        succeed(2);
+        fail(2);
+
+        assertEquals(PaymentCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyTheLastWindowOfCallsCounts() {
+        fail(3);
+        succeed(10);
+
+        assertEquals(0.0, breaker.failureRate());
+        assertEquals(PaymentCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void closesAgainAfterTheHalfOpenProbesSucceed() {
+        fail(4);
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.isCallPermitted());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(PaymentCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertEquals(PaymentCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.failureRate());
+    }
+
+    @Test
+    void reopensWhenAHalfOpenProbeFails() {
+        fail(4);
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(PaymentCircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void releaseReturnsAProbeWithoutRecordingAnOutcome() {
+        fail(4);
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.release();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(PaymentCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+}
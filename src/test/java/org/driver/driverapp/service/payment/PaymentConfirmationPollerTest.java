@@ -0,0 +1,182 @@
+package org.driver.driverapp.service.payment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.enums.Role;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Payment;
+import org.driver.driverapp.model.User;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.repository.PaymentRepository;
+import org.driver.driverapp.repository.UserRepository;
+import org.driver.driverapp.service.analytics.AnalyticsRollupTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Confirmations complete on other threads, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentConfirmationPollerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final PaymentProviderService teleBirr = mock(PaymentProviderService.class);
+    private final PaymentProviderFactory paymentProviderFactory = mock(PaymentProviderFactory.class);
+    private PaymentConfirmationPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        when(paymentProviderFactory.isAvailable(PaymentProvider.TELEBIRR)).thenReturn(true);
+        when(paymentProviderFactory.getProvider(PaymentProvider.TELEBIRR)).thenReturn(teleBirr);
+        when(teleBirr.getProvider()).thenReturn(PaymentProvider.TELEBIRR);
+        when(teleBirr.confirmPayment(anyString())).thenAnswer(invocation -> answer(invocation.getArgument(0)));
+        @SuppressWarnings("unchecked")
+        ObjectProvider<AnalyticsRollupTracker> rollupTrackerProvider = mock(ObjectProvider.class);
+        // Pages of two payments, at most two confirmations in flight
+        poller = new PaymentConfirmationPoller(paymentRepository, jdbcTemplate, paymentProviderFactory,
+                rollupTrackerProvider, transactionManager, meterRegistry, Duration.ofMinutes(10).toMillis(), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        poller.shutdown();
+        paymentRepository.deleteAllInBatch();
+        deliveryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void run_writesProviderOutcomesOfStalePaymentsBack() {
+        Instant stale = Instant.now().minus(Duration.ofHours(1));
+        payment("TEL_OK_1", PaymentProvider.TELEBIRR, PaymentStatus.PENDING, stale);
+        payment("TEL_OK_2", PaymentProvider.TELEBIRR, PaymentStatus.PROCESSING, stale);
+        payment("TEL_OK_3", PaymentProvider.TELEBIRR, PaymentStatus.PENDING, stale);
+        payment("TEL_DECLINED", PaymentProvider.TELEBIRR, PaymentStatus.PROCESSING, stale);
+        payment("TEL_WAITING", PaymentProvider.TELEBIRR, PaymentStatus.PENDING, stale);
+        payment("TEL_ERROR", PaymentProvider.TELEBIRR, PaymentStatus.PENDING, stale);
+        payment("TEL_FRESH", PaymentProvider.TELEBIRR, PaymentStatus.PENDING, Instant.now());
+        payment("TEL_DONE", PaymentProvider.TELEBIRR, PaymentStatus.COMPLETED, stale);
+        payment("CBE_OPEN", PaymentProvider.CBE_BIRR, PaymentStatus.PENDING, stale);
+
+        int resolved = poller.run();
+
+        assertEquals(4, resolved);
+        Map<String, Payment> payments = payments();
+        assertEquals(PaymentStatus.COMPLETED, payments.get("TEL_OK_1").getStatus());
+        assertEquals(PaymentStatus.COMPLETED, payments.get("TEL_OK_2").getStatus());
+        assertEquals(PaymentStatus.COMPLETED, payments.get("TEL_OK_3").getStatus());
+        assertEquals(1L, payments.get("TEL_OK_1").getVersion());
+        assertEquals(PaymentStatus.FAILED, payments.get("TEL_DECLINED").getStatus());
+        assertEquals("Insufficient funds", payments.get("TEL_DECLINED").getFailureReason());
+        assertEquals(PaymentStatus.PENDING, payments.get("TEL_WAITING").getStatus());
+        assertEquals(PaymentStatus.PENDING, payments.get("TEL_ERROR").getStatus());
+        assertEquals(PaymentStatus.PENDING, payments.get("TEL_FRESH").getStatus());
+        assertEquals(PaymentStatus.PENDING, payments.get("CBE_OPEN").getStatus());
+        verify(teleBirr, never()).confirmPayment("TEL_FRESH");
+        verify(teleBirr, never()).confirmPayment("TEL_DONE");
+        assertTrue(maxInFlight.get() <= 2);
+
+        // Waiting, errored and the open circuit's payment are left for the next poll
+        assertEquals(3.0, meterRegistry.get(MetricsConfig.PAYMENT_CONFIRMATION_BACKLOG_GAUGE).gauge().value());
+        assertEquals(3.0, meterRegistry.get(MetricsConfig.PAYMENT_CONFIRMATION_POLLED_COUNTER)
+                .tag("outcome", "completed").counter().count());
+        assertEquals(0, poller.run());
+    }
+
+    private CompletableFuture<PaymentResponse> answer(String transactionRef) {
+        if (transactionRef.equals("TEL_ERROR")) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Connection reset"));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            PaymentResponse.PaymentResponseBuilder response = PaymentResponse.builder().transactionRef(transactionRef);
+            return switch (transactionRef) {
+                case "TEL_DECLINED" -> response.success(false).status(PaymentStatus.FAILED)
+                        .message("Insufficient funds").build();
+                case "TEL_WAITING" -> response.success(true).status(PaymentStatus.PROCESSING).build();
+                default -> response.success(true).status(PaymentStatus.COMPLETED).build();
+            };
+        });
+    }
+
+    private Map<String, Payment> payments() {
+        return paymentRepository.findAll().stream()
+                .collect(Collectors.toMap(Payment::getTransactionRef, Function.identity()));
+    }
+
+    private void payment(String transactionRef, PaymentProvider provider, PaymentStatus status, Instant createdAt) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            int n = sequence.incrementAndGet();
+            User payer = userRepository.save(User.builder().username("payer" + n).password("password-" + n)
+                    .role(Role.CUSTOMER).fullName("Payer " + n).build());
+            Delivery delivery = deliveryRepository.save(Delivery.builder()
+                    .deliveryCode("DEL-" + n)
+                    .dropoffAddress("Bole, Addis Ababa")
+                    .status(DeliveryStatus.DELIVERED)
+                    .build());
+            paymentRepository.save(Payment.builder()
+                    .user(payer)
+                    .delivery(delivery)
+                    .amount(new BigDecimal("25.00"))
+                    .provider(provider)
+                    .status(status)
+                    .transactionRef(transactionRef)
+                    .createdAt(createdAt)
+                    .build());
+        });
+    }
+}
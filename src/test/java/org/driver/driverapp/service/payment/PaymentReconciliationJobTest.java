@@ -0,0 +1,302 @@
+package org.driver.driverapp.service.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.KafkaConfig;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.payment.response.PaymentReconciliationMismatchDTO;
+import org.driver.driverapp.dto.payment.response.PaymentReconciliationResultDTO;
+import org.driver.driverapp.enums.DeliveryStatus;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.driver.driverapp.enums.PaymentStatus;
+import org.driver.driverapp.enums.ReconciliationMismatchType;
+import org.driver.driverapp.enums.Role;
+import org.driver.driverapp.model.Delivery;
+import org.driver.driverapp.model.Payment;
+import org.driver.driverapp.model.PaymentReconciliationCheckpoint;
+import org.driver.driverapp.model.PaymentSettlementReference;
+import org.driver.driverapp.model.User;
+import org.driver.driverapp.repository.DeliveryRepository;
+import org.driver.driverapp.repository.PaymentReconciliationCheckpointRepository;
+import org.driver.driverapp.repository.PaymentRepository;
+import org.driver.driverapp.repository.PaymentSettlementReferenceRepository;
+import org.driver.driverapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Partitions run on their own threads, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentReconciliationJobTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private PaymentReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PaymentSettlementReferenceRepository referenceRepository;
+
+    @TempDir
+    Path inbox;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger sequence = new AtomicInteger();
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private PaymentReconciliationJob job;
+
+    @BeforeEach
+    void setUp() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        job = job(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+        checkpointRepository.deleteAllInBatch();
+        referenceRepository.deleteAllInBatch();
+        paymentRepository.deleteAllInBatch();
+        deliveryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void run_marksMatchingPaymentsReconciledAndPublishesMismatches() throws IOException {
+        payment("TEL_A", PaymentProvider.TELEBIRR, "100.00", PaymentStatus.COMPLETED);
+        payment("TEL_B", PaymentProvider.TELEBIRR, "50.00", PaymentStatus.COMPLETED);
+        payment("TEL_E", PaymentProvider.TELEBIRR, "12.00", PaymentStatus.COMPLETED);
+        payment("CBE_C", PaymentProvider.CBE_BIRR, "20.00", PaymentStatus.COMPLETED);
+        payment("TEL_D", PaymentProvider.TELEBIRR, "30.00", PaymentStatus.PENDING);
+        Files.writeString(inbox.resolve("telebirr.csv"), """
+                transaction_ref,amount,status
+                TEL_A,100,SETTLED
+                TEL_B,49.99,SETTLED
+                CBE_C,20.00,SETTLED
+
+                TEL_D,30.00,SETTLED
+                TEL_X,5.00,SETTLED
+                TEL_E,12,SETTLED
+                TEL_F,oops,SETTLED
+                """);
+
+        PaymentReconciliationResultDTO result = job.run(PaymentProvider.TELEBIRR, "telebirr.csv");
+
+        assertEquals(3, result.getPartitions());
+        assertEquals(7, result.getRecords());
+        assertEquals(2, result.getReconciled());
+        assertEquals(5, result.getMismatches());
+        Map<String, Payment> payments = payments();
+        assertTrue(payments.get("TEL_A").isReconciled());
+        assertNotNull(payments.get("TEL_A").getReconciledAt());
+        assertTrue(payments.get("TEL_E").isReconciled());
+        assertFalse(payments.get("TEL_B").isReconciled());
+        assertFalse(payments.get("CBE_C").isReconciled());
+        assertFalse(payments.get("TEL_D").isReconciled());
+
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate, times(5)).send(eq(KafkaConfig.PAYMENT_RECONCILIATION_TOPIC), anyString(), published.capture());
+        Map<String, ReconciliationMismatchType> types = published.getAllValues().stream()
+                .map(PaymentReconciliationMismatchDTO.class::cast)
+                .collect(Collectors.toMap(PaymentReconciliationMismatchDTO::getTransactionRef,
+                        PaymentReconciliationMismatchDTO::getType));
+        assertEquals(Map.of(
+                "TEL_B", ReconciliationMismatchType.AMOUNT_MISMATCH,
+                "CBE_C", ReconciliationMismatchType.PROVIDER_MISMATCH,
+                "TEL_D", ReconciliationMismatchType.STATUS_MISMATCH,
+                "TEL_X", ReconciliationMismatchType.UNKNOWN_REFERENCE,
+                "TEL_F", ReconciliationMismatchType.MALFORMED_RECORD), types);
+        assertEquals(2.0, meterRegistry.get(MetricsConfig.PAYMENT_RECONCILED_COUNTER).counter().count());
+    }
+
+    @Test
+    void run_skipsWorkCoveredByCheckpoints() throws IOException {
+        payment("TEL_A", PaymentProvider.TELEBIRR, "10.00", PaymentStatus.COMPLETED);
+        payment("TEL_B", PaymentProvider.TELEBIRR, "20.00", PaymentStatus.COMPLETED);
+        String header = "transaction_ref,amount\n";
+        String first = "TEL_A,10\n";
+        String content = header + first + "TEL_B,20\n";
+        Files.writeString(inbox.resolve("resume.csv"), content);
+        job.shutdown();
+        job = job(1);
+        // A previous run committed the first record before it was interrupted
+        checkpointRepository.save(PaymentReconciliationCheckpoint.builder()
+                .fileKey("TELEBIRR:resume.csv:" + content.length())
+                .partitionIndex(0)
+                .partitionCount(1)
+                .nextOffset(header.length() + first.length())
+                .endOffset(content.length())
+                .updatedAt(Instant.now())
+                .build());
+
+        PaymentReconciliationResultDTO resumed = job.run(PaymentProvider.TELEBIRR, "resume.csv");
+        PaymentReconciliationResultDTO again = job.run(PaymentProvider.TELEBIRR, "resume.csv");
+
+        assertEquals(1, resumed.getResumedPartitions());
+        assertEquals(1, resumed.getRecords());
+        assertFalse(payments().get("TEL_A").isReconciled());
+        assertTrue(payments().get("TEL_B").isReconciled());
+        assertEquals(0, again.getRecords());
+        assertTrue(checkpointRepository.findAll().get(0).isCompleted());
+    }
+
+    @Test
+    void run_reportsReferencesRepeatedAcrossBatchesAndPartitions() throws IOException {
+        payment("TEL_A", PaymentProvider.TELEBIRR, "10.00", PaymentStatus.COMPLETED);
+        payment("TEL_B", PaymentProvider.TELEBIRR, "20.00", PaymentStatus.COMPLETED);
+        Files.writeString(inbox.resolve("repeated.csv"), """
+                transaction_ref,amount
+                TEL_A,10
+                TEL_B,20
+                TEL_C,30
+                TEL_D,40
+                TEL_E,50
+                TEL_A,10
+                """);
+
+        PaymentReconciliationResultDTO result = job.run(PaymentProvider.TELEBIRR, "repeated.csv");
+
+        assertEquals(6, result.getRecords());
+        assertEquals(2, result.getReconciled());
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate, times(4)).send(eq(KafkaConfig.PAYMENT_RECONCILIATION_TOPIC), anyString(), published.capture());
+        List<PaymentReconciliationMismatchDTO> duplicates = published.getAllValues().stream()
+                .map(PaymentReconciliationMismatchDTO.class::cast)
+                .filter(mismatch -> mismatch.getType() == ReconciliationMismatchType.DUPLICATE_REFERENCE)
+                .toList();
+        assertEquals(1, duplicates.size());
+        assertEquals("TEL_A", duplicates.get(0).getTransactionRef());
+        // Released once the whole file is reconciled
+        assertEquals(0, referenceRepository.count());
+    }
+
+    @Test
+    void run_reportsRepeatsOfReferencesReconciledBeforeAResume() throws IOException {
+        payment("TEL_A", PaymentProvider.TELEBIRR, "10.00", PaymentStatus.COMPLETED);
+        String header = "transaction_ref,amount\n";
+        String first = "TEL_A,10\n";
+        String content = header + first + "TEL_A,10\n";
+        Files.writeString(inbox.resolve("resume-repeat.csv"), content);
+        job.shutdown();
+        job = job(1);
+        String fileKey = "TELEBIRR:resume-repeat.csv:" + content.length();
+        checkpointRepository.save(PaymentReconciliationCheckpoint.builder()
+                .fileKey(fileKey)
+                .partitionIndex(0)
+                .partitionCount(1)
+                .nextOffset(header.length() + first.length())
+                .endOffset(content.length())
+                .updatedAt(Instant.now())
+                .build());
+        // Recorded by the batch that checkpoint covers
+        referenceRepository.save(PaymentSettlementReference.builder()
+                .fileKey(fileKey)
+                .transactionRef("TEL_A")
+                .fileOffset(header.length())
+                .build());
+
+        PaymentReconciliationResultDTO resumed = job.run(PaymentProvider.TELEBIRR, "resume-repeat.csv");
+
+        assertEquals(1, resumed.getRecords());
+        assertEquals(0, resumed.getReconciled());
+        assertEquals(1, resumed.getMismatches());
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq(KafkaConfig.PAYMENT_RECONCILIATION_TOPIC), eq("TEL_A"), published.capture());
+        assertEquals(ReconciliationMismatchType.DUPLICATE_REFERENCE,
+                ((PaymentReconciliationMismatchDTO) published.getValue()).getType());
+    }
+
+    @Test
+    void run_rejectsFilesOutsideTheInbox() {
+        assertThrows(IllegalArgumentException.class, () -> job.run(PaymentProvider.TELEBIRR, "../telebirr.csv"));
+        assertThrows(IllegalArgumentException.class, () -> job.run(PaymentProvider.TELEBIRR, "missing.csv"));
+    }
+
+    private PaymentReconciliationJob job(int partitions) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<KafkaTemplate<String, Object>> kafkaTemplateProvider = mock(ObjectProvider.class);
+        when(kafkaTemplateProvider.getIfAvailable()).thenReturn(kafkaTemplate);
+        // Batches of two references, so each partition commits several batches
+        return new PaymentReconciliationJob(jdbcTemplate, checkpointRepository, transactionManager,
+                kafkaTemplateProvider, new ObjectMapper(), meterRegistry, inbox.toString(), partitions, 2, 2);
+    }
+
+    private Map<String, Payment> payments() {
+        return paymentRepository.findAll().stream()
+                .collect(Collectors.toMap(Payment::getTransactionRef, Function.identity()));
+    }
+
+    private void payment(String transactionRef, PaymentProvider provider, String amount, PaymentStatus status) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            int n = sequence.incrementAndGet();
+            User payer = userRepository.save(User.builder().username("payer" + n).password("password-" + n)
+                    .role(Role.CUSTOMER).fullName("Payer " + n).build());
+            Delivery delivery = deliveryRepository.save(Delivery.builder()
+                    .deliveryCode("DEL-" + n)
+                    .dropoffAddress("Bole, Addis Ababa")
+                    .status(DeliveryStatus.DELIVERED)
+                    .build());
+            paymentRepository.save(Payment.builder()
+                    .user(payer)
+                    .delivery(delivery)
+                    .amount(new BigDecimal(amount))
+                    .provider(provider)
+                    .status(status)
+                    .transactionRef(transactionRef)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package org.driver.driverapp.service.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettlementFileTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void partitions_coverEveryRecordExactlyOnce() throws IOException {
+        StringBuilder content = new StringBuilder("status,Transaction_Ref,amount\r\n");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 257; i++) {
+            String ref = "TEL_" + "x".repeat(i % 13) + i;
+            expected.add(ref);
+            content.append("SETTLED,").append(ref).append(',').append(i).append(".50\r\n");
+            if (i % 50 == 0) {
+                content.append('\n');
+            }
+        }
+        SettlementFile file = open("telebirr.csv", content.toString());
+
+        for (int count : new int[]{1, 2, 3, 7, 64, 1000}) {
+            List<long[]> ranges = file.partitions(count);
+            assertTrue(ranges.size() <= count);
+            List<String> refs = new ArrayList<>();
+            long previousEnd = ranges.get(0)[0];
+            for (long[] range : ranges) {
+                assertEquals(previousEnd, range[0]);
+                previousEnd = range[1];
+                refs.addAll(readAll(file, range[0], range[1]).stream()
+                        .map(SettlementFile.SettlementRecord::getTransactionRef).toList());
+            }
+            assertEquals(file.size(), previousEnd);
+            assertEquals(expected, refs, "partitions: " + count);
+        }
+    }
+
+    @Test
+    void reader_resumesFromItsReportedPosition() throws IOException {
+        SettlementFile file = open("cbe.csv", "transaction_ref,amount\nA,1\nB,2\nC,3\n");
+        long[] range = file.partitions(1).get(0);
+
+        long position;
+        try (SettlementFile.RecordReader reader = file.reader(range[0], range[1])) {
+            assertEquals("A", reader.next().getTransactionRef());
+            position = reader.position();
+        }
+
+        assertEquals(List.of("B", "C"), readAll(file, position, range[1]).stream()
+                .map(SettlementFile.SettlementRecord::getTransactionRef).toList());
+    }
+
+    @Test
+    void csv_parsesQuotedFieldsAndFlagsBadRecords() throws IOException {
+        SettlementFile file = open("amole.csv", "transaction_ref,amount,note\n\"A,1\",\"1,000.00\",x\nB,12.5,\"say \"\"hi\"\"\"\n,3\nC,abc\n");
+
+        long[] range = file.partitions(1).get(0);
+        List<SettlementFile.SettlementRecord> records = readAll(file, range[0], range[1]);
+
+        assertEquals(4, records.size());
+        assertEquals("A,1", records.get(0).getTransactionRef());
+        assertTrue(records.get(0).isMalformed());
+        assertEquals(new BigDecimal("12.5"), records.get(1).getAmount());
+        assertNull(records.get(1).getStatus());
+        assertTrue(records.get(2).isMalformed());
+        assertTrue(records.get(3).isMalformed());
+        assertEquals(List.of("a", "b,c", "d\"e", ""), SettlementFile.splitCsv("a,\"b,c\",\"d\"\"e\","));
+    }
+
+    @Test
+    void jsonLines_readEitherReferenceSpelling() throws IOException {
+        SettlementFile file = open("mbirr.jsonl", """
+                {"transactionRef":"A","amount":10.25,"status":"SETTLED"}
+                {"transaction_ref":"B","amount":"7"}
+                not json
+                """);
+
+        List<SettlementFile.SettlementRecord> records = readAll(file, 0, file.size());
+
+        assertEquals("A", records.get(0).getTransactionRef());
+        assertEquals(new BigDecimal("10.25"), records.get(0).getAmount());
+        assertEquals("SETTLED", records.get(0).getStatus());
+        assertEquals("B", records.get(1).getTransactionRef());
+        assertEquals(new BigDecimal("7"), records.get(1).getAmount());
+        assertTrue(records.get(2).isMalformed());
+    }
+
+    @Test
+    void open_rejectsFilesWithoutTheRequiredColumns() throws IOException {
+        Path path = directory.resolve("bad.csv");
+        Files.writeString(path, "ref,value\nA,1\n");
+
+        assertThrows(IllegalArgumentException.class, () -> SettlementFile.open(path, objectMapper));
+    }
+
+    private SettlementFile open(String name, String content) throws IOException {
+        Path path = directory.resolve(name);
+        Files.writeString(path, content);
+        return SettlementFile.open(path, objectMapper);
+    }
+
+    private static List<SettlementFile.SettlementRecord> readAll(SettlementFile file, long from, long end) throws IOException {
+        List<SettlementFile.SettlementRecord> records = new ArrayList<>();
+        try (SettlementFile.RecordReader reader = file.reader(from, end)) {
+            SettlementFile.SettlementRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,99 @@
+package org.driver.driverapp.service.wallet;
+
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletRepository.WalletBalance;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WalletBalanceRankingTest {
+
+    private final Map<Long, BigDecimal> balances = new HashMap<>();
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    // Top 2, so 4 wallets are held
+    private final WalletBalanceRanking ranking = new WalletBalanceRanking(walletRepository, 2);
+
+    @Test
+    void updatesKeepTheTopWithoutReloading() {
+        load(100, 90, 80, 70, 60, 50);
+
+        set(6L, 95);
+        set(1L, 85);
+
+        assertEquals(List.of(6L, 2L), ranking.top(2));
+        verify(walletRepository, times(1)).findTopBalances(any(PageRequest.class));
+    }
+
+    @Test
+    void readingBelowTheUnheldWalletsReloadsFirst() {
+        load(100, 90, 80, 70, 60, 50);
+
+        // Wallets 1 to 3 drop below wallet 5, which is not held
+        set(1L, 10);
+        set(2L, 10);
+        set(3L, 10);
+
+        assertEquals(List.of(4L, 5L), ranking.top(2));
+        verify(walletRepository, times(2)).findTopBalances(any(PageRequest.class));
+    }
+
+    @Test
+    void highThresholdsAreAnsweredOnlyAboveTheUnheldWallets() {
+        load(100, 90, 80, 70, 60, 50);
+
+        assertEquals(Optional.of(List.of(1L, 2L)), ranking.above(new BigDecimal("85")));
+        // Wallet 5, not held, has 60
+        assertEquals(Optional.empty(), ranking.above(new BigDecimal("55")));
+    }
+
+    // Wallet ids 1, 2, ... get the given balances
+    private void load(int... amounts) {
+        for (int i = 0; i < amounts.length; i++) {
+            balances.put(i + 1L, BigDecimal.valueOf(amounts[i]));
+        }
+        when(walletRepository.findTopBalances(any(PageRequest.class))).thenAnswer(invocation -> {
+            int limit = invocation.<PageRequest>getArgument(0).getPageSize();
+            List<WalletBalance> top = new ArrayList<>();
+            balances.entrySet().stream()
+                    .sorted(Map.Entry.<Long, BigDecimal>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                    .limit(limit)
+                    .forEach(entry -> top.add(balance(entry.getKey(), entry.getValue())));
+            return top;
+        });
+        ranking.reload();
+    }
+
+    private void set(Long walletId, int amount) {
+        balances.put(walletId, BigDecimal.valueOf(amount));
+        ranking.update(walletId, BigDecimal.valueOf(amount));
+    }
+
+    private static WalletBalance balance(Long id, BigDecimal balance) {
+        return new WalletBalance() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return balance;
+            }
+        };
+    }
+}
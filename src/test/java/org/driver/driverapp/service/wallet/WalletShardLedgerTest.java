@@ -0,0 +1,238 @@
+package org.driver.driverapp.service.wallet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.exception.WalletOperationNotAppliedException;
+import org.driver.driverapp.model.Wallet;
+import org.driver.driverapp.model.WalletShard;
+import org.driver.driverapp.model.WalletTransaction;
+import org.driver.driverapp.repository.WalletAggregateRepository;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletShardRepository;
+import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The ledger's writer threads run their own transactions, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletShardLedgerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletShardRepository walletShardRepository;
+
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
+    @Autowired
+    private WalletAggregateRepository walletAggregateRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WalletAggregateService walletAggregateService;
+    private WalletShardLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        walletAggregateService = new WalletAggregateService(walletAggregateRepository, walletRepository,
+                walletShardRepository, walletTransactionRepository, transactionManager, 4);
+        ledger = ledger(10_000);
+        ledger.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.shutdown();
+        walletTransactionRepository.deleteAllInBatch();
+        walletShardRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+        walletAggregateRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentCreditsAreStripedAcrossShardsAndSumToTheBalance() {
+        Wallet wallet = ledger.enableSharding(wallet("100.00").getId(), 4);
+        walletAggregateService.rebuild();
+
+        List<CompletableFuture<WalletShardLedger.Entry>> credits = IntStream.range(0, 200)
+                .mapToObj(i -> ledger.submit(wallet, TransactionType.CREDIT, new BigDecimal("2.50"), "CR-" + i,
+                        null, null))
+                .toList();
+        CompletableFuture.allOf(credits.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(0, new BigDecimal("600.00").compareTo(ledger.balance(wallet.getId())));
+        List<WalletShard> shards = walletShardRepository.findByWalletIdOrderByShardIndexAsc(wallet.getId());
+        assertEquals(4, shards.size());
+        shards.forEach(shard -> assertTrue(shard.getBalance().signum() > 0));
+        // Each shard's credits chain from one balance to the next
+        List<WalletTransaction> transactions = walletTransactionRepository.findAll();
+        assertEquals(200, transactions.size());
+        for (WalletShard shard : shards) {
+            BigDecimal credited = transactions.stream()
+                    .filter(transaction -> transaction.getShardIndex() == shard.getShardIndex())
+                    .map(WalletTransaction::getAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal opening = shard.getShardIndex() == 0 ? new BigDecimal("100.00") : BigDecimal.ZERO;
+            assertEquals(0, opening.add(credited).compareTo(shard.getBalance()));
+        }
+        assertTrue(meterRegistry.get(MetricsConfig.WALLET_SHARD_BATCH_SIZE_SUMMARY).summary().count() <= 200);
+        // The batches kept the driver totals current
+        assertEquals(0, new BigDecimal("600.00").compareTo(walletAggregateService.totalBalance(WalletOwnerType.DRIVER)));
+        assertEquals(0, new BigDecimal("500.00").compareTo(walletAggregateService.totalCredits()));
+
+        ledger.syncWalletBalances();
+        assertEquals(0, new BigDecimal("600.00").compareTo(walletRepository.findById(wallet.getId()).orElseThrow()
+                .getBalance()));
+    }
+
+    @Test
+    void debitLargerThanItsShardBorrowsFromTheOthers() {
+        Wallet wallet = ledger.enableSharding(wallet("90.00").getId(), 3);
+        walletAggregateService.rebuild();
+        IntStream.range(0, 3).mapToObj(i -> ledger.submit(wallet, TransactionType.CREDIT, new BigDecimal("10.00"),
+                "CR-" + i, null, null)).toList().forEach(CompletableFuture::join);
+
+        WalletShardLedger.Entry entry = ledger.submit(wallet, TransactionType.DEBIT, new BigDecimal("105.00"),
+                "DR-1", null, null).join();
+
+        assertNull(entry.getShardIndex());
+        assertEquals(0, new BigDecimal("120.00").compareTo(entry.getBalanceBefore()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(entry.getBalanceAfter()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(ledger.balance(wallet.getId())));
+        walletShardRepository.findByWalletIdOrderByShardIndexAsc(wallet.getId())
+                .forEach(shard -> assertTrue(shard.getBalance().signum() >= 0));
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.WALLET_SHARD_BORROW_COUNTER).counter().count());
+        assertEquals(0, new BigDecimal("105.00").compareTo(walletAggregateService.totalDebits()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(walletAggregateService.totalBalance()));
+    }
+
+    @Test
+    void debitLargerThanTheWholeBalanceIsRejected() {
+        Wallet wallet = ledger.enableSharding(wallet("40.00").getId(), 2);
+
+        CompletionException error = assertThrows(CompletionException.class, () ->
+                ledger.submit(wallet, TransactionType.DEBIT, new BigDecimal("40.01"), "DR-1", null, null).join());
+
+        assertInstanceOf(WalletOperationNotAppliedException.class, error.getCause());
+        assertEquals(0, new BigDecimal("40.00").compareTo(ledger.balance(wallet.getId())));
+        assertEquals(0, walletTransactionRepository.count());
+    }
+
+    @Test
+    void creditToAMissingShardFailsInsteadOfBorrowing() {
+        Wallet wallet = ledger.enableSharding(wallet("50.00").getId(), 2);
+        jdbcTemplate.update("DELETE FROM \"wallet_shard\" WHERE \"wallet_id\" = ? AND \"shard_index\" = 1",
+                wallet.getId());
+
+        List<CompletableFuture<WalletShardLedger.Entry>> credits = IntStream.range(0, 2)
+                .mapToObj(i -> ledger.submit(wallet, TransactionType.CREDIT, new BigDecimal("5.00"), "CR-" + i,
+                        null, null))
+                .toList();
+
+        long failed = credits.stream().filter(credit -> {
+            try {
+                credit.join();
+                return false;
+            } catch (CompletionException e) {
+                assertInstanceOf(WalletOperationNotAppliedException.class, e.getCause());
+                return true;
+            }
+        }).count();
+        assertEquals(1, failed);
+        assertEquals(0, new BigDecimal("55.00").compareTo(ledger.balance(wallet.getId())));
+        assertEquals(0.0, meterRegistry.get(MetricsConfig.WALLET_SHARD_BORROW_COUNTER).counter().count());
+    }
+
+    @Test
+    void applyWithdrawsAnOperationNotWrittenWithinTheTimeout() {
+        Wallet wallet = ledger.enableSharding(wallet("50.00").getId(), 2);
+        // Never started, so nothing drains its queues
+        WalletShardLedger idle = ledger(50);
+
+        assertThrows(WalletOperationNotAppliedException.class, () ->
+                idle.apply(wallet, TransactionType.CREDIT, new BigDecimal("5.00"), "CR-1", null, null));
+
+        assertEquals(0, new BigDecimal("50.00").compareTo(ledger.balance(wallet.getId())));
+        assertEquals(0, walletTransactionRepository.count());
+    }
+
+    @Test
+    void applyWaitsPastTheTimeoutForAnOperationBeingWritten() throws InterruptedException {
+        Wallet wallet = ledger.enableSharding(wallet("50.00").getId(), 2);
+        WalletShardLedger slow = ledger(50);
+        slow.start();
+        // Holds the shard rows, so the writer that took the credit waits on them past the timeout
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT \"balance\" FROM \"wallet_shard\" WHERE \"wallet_id\" = ? FOR UPDATE",
+                    wallet.getId());
+            locked.countDown();
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        locked.await();
+
+        try {
+            WalletShardLedger.Entry entry = slow.apply(wallet, TransactionType.CREDIT, new BigDecimal("5.00"),
+                    "CR-1", null, null);
+
+            assertNotNull(entry.getShardIndex());
+            assertEquals(0, new BigDecimal("55.00").compareTo(ledger.balance(wallet.getId())));
+            assertEquals(1, walletTransactionRepository.count());
+        } finally {
+            holder.join();
+            slow.shutdown();
+        }
+    }
+
+    private WalletShardLedger ledger(long operationTimeoutMs) {
+        return new WalletShardLedger(walletRepository, walletShardRepository, walletAggregateService, jdbcTemplate,
+                transactionManager, meterRegistry, 4, 50, operationTimeoutMs);
+    }
+
+    private Wallet wallet(String balance) {
+        return walletRepository.save(Wallet.builder()
+                .ownerId(1L)
+                .ownerType(WalletOwnerType.DRIVER)
+                .balance(new BigDecimal(balance))
+                .build());
+    }
+}
@@ -0,0 +1,131 @@
+package org.driver.driverapp.service.wallet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.model.Wallet;
+import org.driver.driverapp.model.WalletTransaction;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletShardRepository;
+import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The exporter reads in its own transaction, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletStatementExporterTest {
+
+    private static final Instant DAY_1 = Instant.parse("2026-03-01T00:00:00Z");
+    private static final Instant DAY_2 = Instant.parse("2026-03-02T00:00:00Z");
+    private static final Instant DAY_3 = Instant.parse("2026-03-03T00:00:00Z");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletShardRepository walletShardRepository;
+
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private WalletStatementExporter exporter;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new WalletStatementExporter(walletRepository, walletShardRepository, walletTransactionRepository,
+                objectMapper, transactionManager);
+        wallet = walletRepository.save(Wallet.builder()
+                .ownerId(1L)
+                .ownerType(WalletOwnerType.DRIVER)
+                .balance(new BigDecimal("150.00"))
+                .build());
+        // 100 credited before the range, a debit and a credit at the same time on day 2, 30 credited after it
+        transaction(TransactionType.CREDIT, "100.00", DAY_1.plusSeconds(3600), "TOP-UP", null);
+        transaction(TransactionType.DEBIT, "30.00", DAY_2.plusSeconds(3600), "PAYOUT-1", null);
+        transaction(TransactionType.CREDIT, "50.00", DAY_2.plusSeconds(3600), "EARN-1", "Trip 7, \"express\"");
+        transaction(TransactionType.CREDIT, "30.00", DAY_3.plusSeconds(3600), "EARN-2", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        walletTransactionRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void csvStatementCarriesRunningBalancesFromTheOpeningBalance() {
+        String statement = export(WalletStatementExporter.Format.CSV);
+
+        List<String> lines = statement.lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals("id,created_at,transaction_type,amount,balance,reference,description", lines.get(0));
+        assertEquals(",2026-03-02T01:00:00Z,DEBIT,30.00,70.00,PAYOUT-1,", lines.get(1).substring(lines.get(1).indexOf(',')));
+        assertEquals(",2026-03-02T01:00:00Z,CREDIT,50.00,120.00,EARN-1,\"Trip 7, \"\"express\"\"\"",
+                lines.get(2).substring(lines.get(2).indexOf(',')));
+    }
+
+    @Test
+    void jsonLinesStatementHasOneObjectPerTransaction() throws Exception {
+        List<String> lines = export(WalletStatementExporter.Format.JSON_LINES).lines().toList();
+
+        assertEquals(2, lines.size());
+        JsonNode credit = objectMapper.readTree(lines.get(1));
+        assertEquals("CREDIT", credit.get("transactionType").asText());
+        assertEquals(0, new BigDecimal("120.00").compareTo(credit.get("balance").decimalValue()));
+        assertEquals("Trip 7, \"express\"", credit.get("description").asText());
+    }
+
+    @Test
+    void keysetPagesSplitTransactionsCreatedAtTheSameTime() {
+        List<WalletTransaction> first = walletTransactionRepository.findLatestByWalletId(wallet.getId(),
+                PageRequest.of(0, 2));
+        WalletTransaction last = first.get(1);
+        List<WalletTransaction> second = walletTransactionRepository.findLatestByWalletIdBefore(wallet.getId(),
+                last.getCreatedAt(), last.getId(), PageRequest.of(0, 2));
+
+        assertEquals(List.of("EARN-2", "EARN-1"), first.stream().map(WalletTransaction::getReference).toList());
+        assertEquals(List.of("PAYOUT-1", "TOP-UP"), second.stream().map(WalletTransaction::getReference).toList());
+    }
+
+    private String export(WalletStatementExporter.Format format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(wallet.getId(), DAY_2, DAY_3, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void transaction(TransactionType type, String amount, Instant createdAt, String reference,
+                             String description) {
+        Timestamp at = Timestamp.from(createdAt);
+        jdbcTemplate.update(WalletShardLedger.INSERT_TRANSACTION, wallet.getId(), type.name(), new BigDecimal(amount),
+                BigDecimal.ZERO, BigDecimal.ZERO, reference, description, null, null, at, at);
+    }
+}
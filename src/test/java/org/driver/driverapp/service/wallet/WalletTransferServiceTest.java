@@ -0,0 +1,238 @@
+package org.driver.driverapp.service.wallet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.driver.driverapp.config.MetricsConfig;
+import org.driver.driverapp.dto.wallet.request.BulkTransferRequestDTO;
+import org.driver.driverapp.dto.wallet.request.TransferLegDTO;
+import org.driver.driverapp.dto.wallet.response.BulkTransferResponseDTO;
+import org.driver.driverapp.dto.wallet.response.TransferLegResultDTO;
+import org.driver.driverapp.enums.TransactionType;
+import org.driver.driverapp.enums.TransferLegStatus;
+import org.driver.driverapp.enums.WalletOwnerType;
+import org.driver.driverapp.model.Wallet;
+import org.driver.driverapp.model.WalletTransaction;
+import org.driver.driverapp.repository.WalletAggregateRepository;
+import org.driver.driverapp.repository.WalletRepository;
+import org.driver.driverapp.repository.WalletShardRepository;
+import org.driver.driverapp.repository.WalletTransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+// Each chunk of legs commits in its own transaction, so fixtures are committed rather than rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.globally_quoted_identifiers_skip_column_definitions=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletTransferServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletShardRepository walletShardRepository;
+
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
+    @Autowired
+    private WalletAggregateRepository walletAggregateRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WalletAggregateService walletAggregateService;
+    private WalletShardLedger ledger;
+    private WalletTransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        walletAggregateService = new WalletAggregateService(walletAggregateRepository, walletRepository,
+                walletShardRepository, walletTransactionRepository, transactionManager, 4);
+        ledger = new WalletShardLedger(walletRepository, walletShardRepository, walletAggregateService, jdbcTemplate,
+                transactionManager, meterRegistry, 4, 50, 10_000);
+        ledger.start();
+        // Chunks of 2 legs, so a request spans several transactions
+        transferService = new WalletTransferService(walletRepository, walletAggregateService, ledger,
+                new WalletBalanceRanking(walletRepository, 10), jdbcTemplate, transactionManager, meterRegistry, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.shutdown();
+        walletTransactionRepository.deleteAllInBatch();
+        walletShardRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+        walletAggregateRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void legsAreAppliedInOrderAndMissingDestinationWalletsAreCreated() {
+        Wallet partner = wallet(1L, WalletOwnerType.PARTNER, "100.00");
+        walletAggregateService.rebuild();
+
+        BulkTransferResponseDTO response = transferService.transfer(request(
+                leg(1L, WalletOwnerType.PARTNER, 10L, "30.00"),
+                leg(1L, WalletOwnerType.PARTNER, 11L, "50.00"),
+                // Only 20.00 left by now
+                leg(1L, WalletOwnerType.PARTNER, 12L, "25.00"),
+                leg(null, null, 12L, "5.00")));
+
+        assertEquals(3, response.getCompleted());
+        assertEquals(1, response.getRejected());
+        List<TransferLegResultDTO> results = response.getResults();
+        assertEquals(List.of(TransferLegStatus.COMPLETED, TransferLegStatus.COMPLETED, TransferLegStatus.REJECTED,
+                TransferLegStatus.COMPLETED), results.stream().map(TransferLegResultDTO::getStatus).toList());
+        assertEquals("Insufficient balance. Available: 20.00, Required: 25.00", results.get(2).getMessage());
+        assertEquals(0, new BigDecimal("20.00").compareTo(results.get(1).getSourceBalanceAfter()));
+        assertNull(results.get(3).getSourceWalletId());
+
+        assertEquals(0, new BigDecimal("20.00").compareTo(balance(partner.getId())));
+        assertEquals(0, new BigDecimal("30.00").compareTo(driverBalance(10L)));
+        assertEquals(0, new BigDecimal("50.00").compareTo(driverBalance(11L)));
+        assertEquals(0, new BigDecimal("5.00").compareTo(driverBalance(12L)));
+
+        // A debit and a credit per transfer, a credit for the external one
+        List<WalletTransaction> transactions = walletTransactionRepository.findAll();
+        assertEquals(5, transactions.size());
+        assertEquals(2, transactions.stream().filter(t -> t.getTransactionType() == TransactionType.DEBIT).count());
+        assertEquals(0, new BigDecimal("105.00").compareTo(walletAggregateService.totalBalance()));
+        assertEquals(0, new BigDecimal("85.00").compareTo(walletAggregateService.totalBalance(WalletOwnerType.DRIVER)));
+        assertEquals(0, new BigDecimal("80.00").compareTo(walletAggregateService.totalDebits()));
+        assertEquals(3.0, meterRegistry.get(MetricsConfig.WALLET_TRANSFER_LEGS_COUNTER).tag("status", "completed")
+                .counter().count());
+    }
+
+    @Test
+    void legsOfMissingSourcesAreRejected() {
+        wallet(1L, WalletOwnerType.PARTNER, "100.00");
+
+        BulkTransferResponseDTO response = transferService.transfer(request(
+                leg(2L, WalletOwnerType.PARTNER, 10L, "10.00"),
+                leg(1L, WalletOwnerType.PARTNER, 10L, "10.00")));
+
+        List<TransferLegResultDTO> results = response.getResults();
+        assertEquals(TransferLegStatus.REJECTED, results.get(0).getStatus());
+        assertTrue(results.get(0).getMessage().startsWith("Wallet not found"));
+        assertEquals(TransferLegStatus.COMPLETED, results.get(1).getStatus());
+        assertEquals(0, new BigDecimal("10.00").compareTo(driverBalance(10L)));
+        assertEquals(2, walletTransactionRepository.count());
+    }
+
+    @Test
+    void legsTouchingShardedWalletsGoThroughTheShardLedger() {
+        Wallet partner = wallet(1L, WalletOwnerType.PARTNER, "100.00");
+        Wallet hot = ledger.enableSharding(wallet(20L, WalletOwnerType.DRIVER, "0.00").getId(), 2);
+        Wallet hotPartner = ledger.enableSharding(wallet(3L, WalletOwnerType.PARTNER, "15.00").getId(), 2);
+        walletAggregateService.rebuild();
+
+        BulkTransferResponseDTO response = transferService.transfer(request(
+                leg(1L, WalletOwnerType.PARTNER, 20L, "40.00"),
+                leg(3L, WalletOwnerType.PARTNER, 10L, "10.00"),
+                // The sharded source has only 5.00 left
+                leg(3L, WalletOwnerType.PARTNER, 11L, "10.00")));
+
+        List<TransferLegResultDTO> results = response.getResults();
+        assertEquals(List.of(TransferLegStatus.COMPLETED, TransferLegStatus.COMPLETED, TransferLegStatus.REJECTED),
+                results.stream().map(TransferLegResultDTO::getStatus).toList());
+        assertTrue(results.get(2).getMessage().startsWith("Insufficient balance"));
+        assertEquals(0, new BigDecimal("40.00").compareTo(results.get(0).getDestinationBalanceAfter()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(balance(partner.getId())));
+        assertEquals(0, new BigDecimal("40.00").compareTo(ledger.balance(hot.getId())));
+        assertEquals(0, new BigDecimal("5.00").compareTo(ledger.balance(hotPartner.getId())));
+        assertEquals(0, new BigDecimal("10.00").compareTo(driverBalance(10L)));
+        assertEquals(0, new BigDecimal("115.00").compareTo(walletAggregateService.totalBalance()));
+        assertEquals(4, walletTransactionRepository.count());
+    }
+
+    @Test
+    void legsWhoseCreditWasNotAppliedAreReversed() {
+        Wallet partner = wallet(1L, WalletOwnerType.PARTNER, "100.00");
+        Wallet hot = ledger.enableSharding(wallet(20L, WalletOwnerType.DRIVER, "0.00").getId(), 2);
+        jdbcTemplate.update("DELETE FROM \"wallet_shard\" WHERE \"wallet_id\" = ?", hot.getId());
+
+        BulkTransferResponseDTO response = transferService.transfer(request(
+                leg(1L, WalletOwnerType.PARTNER, 20L, "40.00")));
+
+        TransferLegResultDTO result = response.getResults().get(0);
+        assertEquals(TransferLegStatus.REJECTED, result.getStatus());
+        assertTrue(result.getMessage().startsWith("Reversed: "));
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance(partner.getId())));
+        assertEquals(2, walletTransactionRepository.count());
+    }
+
+    @Test
+    void legsWhoseCreditOutcomeIsUnknownAreLeftInDoubtWithoutReversal() {
+        Wallet partner = wallet(1L, WalletOwnerType.PARTNER, "100.00");
+        ledger.enableSharding(wallet(20L, WalletOwnerType.DRIVER, "0.00").getId(), 2);
+        WalletShardLedger failing = spy(ledger);
+        doThrow(new IllegalStateException("Connection reset")).when(failing)
+                .apply(any(), eq(TransactionType.CREDIT), any(), any(), any(), any());
+        WalletTransferService service = new WalletTransferService(walletRepository, walletAggregateService, failing,
+                new WalletBalanceRanking(walletRepository, 10), jdbcTemplate, transactionManager, meterRegistry, 2);
+
+        BulkTransferResponseDTO response = service.transfer(request(leg(1L, WalletOwnerType.PARTNER, 20L, "40.00")));
+
+        assertEquals(1, response.getInDoubt());
+        assertEquals(0, response.getRejected());
+        assertEquals(TransferLegStatus.IN_DOUBT, response.getResults().get(0).getStatus());
+        // The credit may still land, so the debit stands
+        assertEquals(0, new BigDecimal("60.00").compareTo(balance(partner.getId())));
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.WALLET_TRANSFER_LEGS_COUNTER).tag("status", "in_doubt")
+                .counter().count());
+    }
+
+    private Wallet wallet(Long ownerId, WalletOwnerType ownerType, String balance) {
+        return walletRepository.save(Wallet.builder()
+                .ownerId(ownerId)
+                .ownerType(ownerType)
+                .balance(new BigDecimal(balance))
+                .build());
+    }
+
+    private BigDecimal balance(Long walletId) {
+        return walletRepository.findById(walletId).orElseThrow().getBalance();
+    }
+
+    private BigDecimal driverBalance(Long ownerId) {
+        return walletRepository.findByOwnerIdAndOwnerTypeAndActiveTrue(ownerId, WalletOwnerType.DRIVER).orElseThrow()
+                .getBalance();
+    }
+
+    private static TransferLegDTO leg(Long sourceOwnerId, WalletOwnerType sourceOwnerType, Long driverId,
+                                      String amount) {
+        return TransferLegDTO.builder()
+                .sourceOwnerId(sourceOwnerId)
+                .sourceOwnerType(sourceOwnerType)
+                .destinationOwnerId(driverId)
+                .destinationOwnerType(WalletOwnerType.DRIVER)
+                .amount(new BigDecimal(amount))
+                .reference("PAYOUT-" + driverId)
+                .build();
+    }
+
+    private static BulkTransferRequestDTO request(TransferLegDTO... legs) {
+        return BulkTransferRequestDTO.builder().legs(List.of(legs)).build();
+    }
+}
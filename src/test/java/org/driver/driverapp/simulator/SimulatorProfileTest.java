@@ -0,0 +1,58 @@
+package org.driver.driverapp.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.driver.driverapp.enums.PaymentProvider;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulatorProfileTest {
+
+    @Test
+    void lognormalLatencyMatchesItsMedianAndTail() {
+        SimulatorProfile.LatencyProfile latency = SimulatorProfile.LatencyProfile.builder()
+                .type(SimulatorProfile.LatencyProfile.Type.LOGNORMAL).medianMs(100).p99Ms(1000).build();
+        Random random = new Random(42);
+
+        long[] samples = new long[20_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = latency.sample(random);
+        }
+        Arrays.sort(samples);
+
+        assertEquals(100, samples[samples.length / 2], 10);
+        assertEquals(1000, samples[samples.length * 99 / 100], 150);
+    }
+
+    @Test
+    void outageWindowsRepeat() {
+        SimulatorProfile.OutageWindow window = SimulatorProfile.OutageWindow.builder()
+                .startSeconds(60).durationSeconds(10).repeatEverySeconds(300).build();
+
+        assertFalse(window.isActive(59));
+        assertTrue(window.isActive(60));
+        assertTrue(window.isActive(69.9));
+        assertFalse(window.isActive(70));
+        assertTrue(window.isActive(365));
+        assertFalse(window.isActive(380));
+    }
+
+    @Test
+    void bundledProfileIsReadable() throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(PaymentProviderSimulator.DEFAULT_PROFILE)) {
+            SimulatorProfile profile = new ObjectMapper().readValue(in, SimulatorProfile.class);
+
+            assertEquals(SimulatorProfile.LatencyProfile.Type.LOGNORMAL,
+                    profile.forProvider(PaymentProvider.TELEBIRR).getLatency().getType());
+            assertEquals(profile.getDefaults(), profile.forProvider(PaymentProvider.AMOLE));
+            assertFalse(profile.forProvider(PaymentProvider.CBE_BIRR).getOutages().isEmpty());
+        }
+    }
+}